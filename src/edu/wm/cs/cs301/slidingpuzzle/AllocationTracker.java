@@ -0,0 +1,160 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumSet;
+
+/**
+ * Accounts the memory that operations of PuzzleState allocate, per kind of operation.
+ * The bytes come from the allocation counter of the current thread that HotSpot offers
+ * with com.sun.management.ThreadMXBean, the objects are counted by the operations
+ * themselves. Accounting is off unless the system property slidingpuzzle.allocations is true
+ * or setEnabled() is called, as reading the allocation counter takes about 50 ns.
+ * On virtual machines without the counter, accounting stays off.
+ *
+ * Operations bracket their work like they do for Metrics:
+ * <pre>
+ *     long allocated = AllocationTracker.start();
+ *     ... work ...
+ *     AllocationTracker.end(Metrics.Event.FLIP, allocated, objects);
+ * </pre>
+ * The totals are counters of the metrics registry, e.g. alloc.flip.bytes, alloc.flip.objects
+ * and alloc.flip.calls, which Metrics.dump() reports at runtime. Only moves, flips and shuffles
+ * are accounted, other events have no counters.
+ */
+public final class AllocationTracker {
+	// value of start() while disabled, end() ignores it
+	private static final long DISABLED = -1;
+	private static final EnumSet<Metrics.Event> TRACKED =
+			EnumSet.of(Metrics.Event.MOVE, Metrics.Event.FLIP, Metrics.Event.SHUFFLE);
+	private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+	private static volatile boolean enabled = Boolean.getBoolean("slidingpuzzle.allocations") && null != THREADS;
+	private static final StripedCounter[] BYTES = counters("bytes");
+	private static final StripedCounter[] OBJECTS = counters("objects");
+	private static final StripedCounter[] CALLS = counters("calls");
+
+	private AllocationTracker() {
+		// static methods only
+	}
+
+	/**
+	 * @return the thread bean if it counts allocated bytes, otherwise null
+	 */
+	private static com.sun.management.ThreadMXBean allocationCounter() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		try {
+			if (!threads.isThreadAllocatedMemorySupported()) {
+				return null;
+			}
+			threads.setThreadAllocatedMemoryEnabled(true);
+			return threads;
+		}
+		catch (UnsupportedOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return counters indexed by the ordinal of the event, null for events that are not accounted
+	 */
+	private static StripedCounter[] counters(String unit) {
+		StripedCounter[] counters = new StripedCounter[Metrics.Event.values().length];
+		for (Metrics.Event event : TRACKED) {
+			counters[event.ordinal()] = Metrics.counter("alloc." + event.name().toLowerCase() + "." + unit);
+		}
+		return counters;
+	}
+
+	/**
+	 * @return true if this virtual machine counts the bytes allocated by a thread
+	 */
+	public static boolean isSupported() {
+		return null != THREADS;
+	}
+
+	/**
+	 * @return true if allocations are accounted
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns accounting on or off, it stays off if the virtual machine does not support it.
+	 */
+	public static void setEnabled(boolean on) {
+		enabled = on && null != THREADS;
+	}
+
+	/**
+	 * Marks the beginning of an operation.
+	 * @return bytes allocated by the current thread so far, to pass to end()
+	 */
+	static long start() {
+		return enabled ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : DISABLED;
+	}
+
+	/**
+	 * Adds the bytes allocated since start() and the given number of objects to the operation.
+	 * @param event one of MOVE, FLIP and SHUFFLE
+	 */
+	static void end(Metrics.Event event, long start, long objects) {
+		if (start == DISABLED) {
+			return;
+		}
+		if (!TRACKED.contains(event)) {
+			throw new IllegalArgumentException("allocations of " + event + " are not accounted");
+		}
+		long bytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+		int i = event.ordinal();
+		BYTES[i].add(bytes);
+		OBJECTS[i].add(objects);
+		CALLS[i].increment();
+	}
+
+	/**
+	 * @return bytes allocated by the operation so far
+	 */
+	public static long getBytes(Metrics.Event event) {
+		return sum(BYTES, event);
+	}
+
+	/**
+	 * @return objects allocated by the operation so far
+	 */
+	public static long getObjects(Metrics.Event event) {
+		return sum(OBJECTS, event);
+	}
+
+	/**
+	 * @return number of accounted calls of the operation so far
+	 */
+	public static long getCalls(Metrics.Event event) {
+		return sum(CALLS, event);
+	}
+
+	private static long sum(StripedCounter[] counters, Metrics.Event event) {
+		StripedCounter counter = counters[event.ordinal()];
+		return (null != counter) ? counter.sum() : 0;
+	}
+
+	/**
+	 * Writes bytes and objects per call for all operations that were called.
+	 */
+	public static void report(PrintStream out) {
+		out.println(String.format("%-18s %12s %16s %14s %12s", "operation", "calls", "bytes", "bytes/call",
+				"objects/call"));
+		for (Metrics.Event event : TRACKED) {
+			long calls = getCalls(event);
+			if (calls > 0) {
+				out.println(String.format("%-18s %12d %16d %14.1f %12.1f", event, calls, getBytes(event),
+						(double) getBytes(event) / calls, (double) getObjects(event) / calls));
+			}
+		}
+	}
+}
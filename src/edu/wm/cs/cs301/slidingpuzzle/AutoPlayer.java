@@ -0,0 +1,178 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.awt.EventQueue;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Plays a sequence of moves at a given rate, from a few to thousands of moves per second.
+ * The moves are applied to an array on a background thread, the display gets a new state
+ * on the event dispatch thread at most as often as the screen refreshes. If moves come faster,
+ * a frame shows the board after all moves that were due, and if the event dispatch thread is
+ * busy, frames that were not shown yet are replaced by the latest one.
+ *
+ * The states given to the display have no parent, creating a state with its parent chain
+ * for every move would need memory for all boards of the sequence.
+ * Moves are counted as autoplay.moves and frames as autoplay.frames in the metrics.
+ */
+final class AutoPlayer {
+	/**
+	 * Receives the boards to show, on the event dispatch thread.
+	 */
+	interface Display {
+		/**
+		 * @param state board after the given number of moves
+		 * @param played number of moves played so far
+		 * @param total number of moves in the sequence, played == total for the last frame
+		 */
+		void show(PuzzleState state, int played, int total);
+	}
+
+	/**
+	 * Board after a number of moves, handed from the player thread to the event dispatch thread.
+	 */
+	private static final class Frame {
+		final PuzzleState state;
+		final int played;
+		final int generation;
+
+		Frame(PuzzleState state, int played, int generation) {
+			this.state = state;
+			this.played = played;
+			this.generation = generation;
+		}
+	}
+
+	private static final int FRAME_RATE = 60;
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "auto-play");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private final StripedCounter movesPlayed = Metrics.counter("autoplay.moves");
+	private final StripedCounter framesShown = Metrics.counter("autoplay.frames");
+	// latest frame not yet taken by the event dispatch thread
+	private final AtomicReference<Frame> latest = new AtomicReference<Frame>();
+	// incremented by stop() and play(), frames of earlier sequences are dropped
+	private volatile int generation;
+	private ScheduledFuture<?> task;
+
+	/**
+	 * Starts to play moves, a sequence that is still playing is stopped.
+	 * @param start board the moves start from
+	 * @param moves encoded moves, see Board.encodeMove()
+	 * @param movesPerSecond rate of the moves
+	 * @param display receives the boards to show
+	 */
+	synchronized void play(PuzzleState start, final int[] moves, int movesPerSecond, final Display display) {
+		stop();
+		final int current = generation;
+		final int[] board = Board.toArray(start);
+		final int dimension = start.getDimension();
+		final double rate = movesPerSecond / 1e9;
+		final long begin = System.nanoTime();
+		long period = Math.max(1000000000L / movesPerSecond, 1000000000L / FRAME_RATE);
+		task = scheduler.scheduleAtFixedRate(new Runnable() {
+			private int played;
+
+			@Override
+			public void run() {
+				if (current != generation) {
+					return;
+				}
+				// the first move is due right away
+				int due = (int) Math.min(moves.length, 1 + (long) ((System.nanoTime() - begin) * rate));
+				for (; played < due; played++) {
+					Board.apply(board, moves[played], dimension);
+					movesPlayed.increment();
+				}
+				// the display may ask isPlaying() when it shows the last frame
+				if (played == moves.length) {
+					finish(current);
+				}
+				publish(new Frame(Board.toState(board), played, current), moves.length, display);
+			}
+		}, 0, period, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Ends the periodic task once all moves are played, the frames already published are still shown.
+	 * Waits for play() to return, so the task is known.
+	 */
+	private synchronized void finish(int finished) {
+		if (finished == generation && null != task) {
+			task.cancel(false);
+			task = null;
+		}
+	}
+
+	/**
+	 * Hands a frame to the event dispatch thread, unless it still has one to show,
+	 * which is replaced then.
+	 */
+	private void publish(Frame frame, final int total, final Display display) {
+		if (null != latest.getAndSet(frame)) {
+			return;
+		}
+		EventQueue.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				Frame shown = latest.getAndSet(null);
+				if (null != shown && shown.generation == generation) {
+					framesShown.increment();
+					display.show(shown.state, shown.played, total);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops the sequence that is playing, no more boards are shown for it.
+	 */
+	synchronized void stop() {
+		generation++;
+		if (null != task) {
+			task.cancel(false);
+			task = null;
+		}
+	}
+
+	/**
+	 * @return true if a sequence is playing
+	 */
+	synchronized boolean isPlaying() {
+		return null != task && !task.isDone();
+	}
+
+	/**
+	 * Gives the moves that walk back the parent chain of a state to the state without parent.
+	 * @return encoded moves, empty if the state has no parent
+	 */
+	static int[] movesToRoot(PuzzleState state) {
+		int dimension = state.getDimension();
+		int[] moves = new int[Math.max(0, state.getPathLength())];
+		int count = 0;
+		int[] board = Board.toArray(state);
+		for (PuzzleState parent = state.getParent(); null != parent; parent = parent.getParent()) {
+			int[] previous = Board.toArray(parent);
+			int move = Board.moveBetween(board, previous, dimension);
+			if (move < 0) {
+				break;
+			}
+			if (count == moves.length) {
+				moves = Arrays.copyOf(moves, 2 * count + 1);
+			}
+			moves[count++] = move;
+			board = previous;
+		}
+		return Arrays.copyOf(moves, count);
+	}
+}
@@ -0,0 +1,167 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders boards into images without a window, for thumbnails on a server and for the
+ * frames of replays. Frames of a sequence are rendered by a pool of threads that share
+ * the renderer, each frame is handed to a sink, e.g. to write it to a file or a video encoder.
+ *
+ * Run with java.awt.headless=true where no display is available, main() sets it.
+ */
+public final class BatchRenderer {
+	/**
+	 * Receives rendered frames, called by the threads of the pool, not necessarily in order.
+	 */
+	public interface FrameSink {
+		/**
+		 * @param index position of the frame in the sequence
+		 * @param frame image of the board, owned by the sink
+		 */
+		void accept(int index, BufferedImage frame) throws IOException;
+	}
+
+	private final BoardRenderer renderer;
+	private final int border;
+	private final int threads;
+
+	/**
+	 * @param renderer draws the boards, its settings must not change while frames are rendered
+	 * @param border width of the white frame around the board in pixels
+	 * @param threads number of threads that render frames
+	 */
+	public BatchRenderer(BoardRenderer renderer, int border, int threads) {
+		this.renderer = renderer;
+		this.border = border;
+		this.threads = threads;
+	}
+
+	/**
+	 * Renders a single board, e.g. as a thumbnail.
+	 * @return new image with the board and the border around it
+	 */
+	public BufferedImage render(PuzzleState state) {
+		int dimension = state.getDimension();
+		BufferedImage image = new BufferedImage(dimension * renderer.getTileWidth() + 2 * border,
+				dimension * renderer.getTileHeight() + 2 * border, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setColor(Color.white);
+			g.fillRect(0, 0, image.getWidth(), image.getHeight());
+			renderer.paint(g, state, border, border);
+		}
+		finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	/**
+	 * Renders all frames of a sequence on the threads of the pool.
+	 * @return throughput in frames per second
+	 * @throws IOException if the sink fails, no more frames are rendered then
+	 */
+	public double renderAll(final List<PuzzleState> frames, final FrameSink sink)
+			throws IOException, InterruptedException {
+		long begin = System.nanoTime();
+		final AtomicInteger next = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> workers = new ArrayList<Future<Void>>();
+			for (int t = 0; t < threads; t++) {
+				workers.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						for (int i = next.getAndIncrement(); i < frames.size(); i = next.getAndIncrement()) {
+							sink.accept(i, render(frames.get(i)));
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> worker : workers) {
+				try {
+					worker.get();
+				}
+				catch (ExecutionException e) {
+					next.set(frames.size()); // the other threads stop as well
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new IllegalStateException("rendering failed", e.getCause());
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		return frames.size() / ((System.nanoTime() - begin) / 1e9);
+	}
+
+	/**
+	 * Gives the boards of a replay: the start and the board after every given number of moves,
+	 * always including the last board.
+	 * @param every number of moves between frames, 1 for all boards
+	 */
+	public static List<PuzzleState> replay(PuzzleState start, Solution solution, int every) {
+		int dimension = start.getDimension();
+		int[] board = Board.toArray(start);
+		int[] moves = solution.getEncodedMoves();
+		List<PuzzleState> frames = new ArrayList<PuzzleState>();
+		frames.add(Board.toState(board));
+		for (int i = 0; i < moves.length; i++) {
+			Board.apply(board, moves[i], dimension);
+			if ((i + 1) % every == 0 || i == moves.length - 1) {
+				frames.add(Board.toState(board));
+			}
+		}
+		return frames;
+	}
+
+	/**
+	 * Renders the replay of a row-by-row solution of a random board and reports the throughput.
+	 * @param args optional: dimension, tile size in pixels, number of threads,
+	 * directory to write the frames to as PNG files
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		System.setProperty("java.awt.headless", "true");
+		int dimension = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+		int tile = (args.length > 1) ? Integer.parseInt(args[1]) : 32;
+		int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		final File directory = (args.length > 3) ? new File(args[3]) : null;
+		PuzzleState start = Board.toState(Board.randomWalk(dimension, 1, 100 * dimension * dimension, new Random(49)));
+		List<PuzzleState> frames = replay(start, new RowByRowSolver().solve(start), 1);
+		if (null != directory && !directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create " + directory);
+		}
+		FrameSink sink = new FrameSink() {
+			@Override
+			public void accept(int index, BufferedImage frame) throws IOException {
+				if (null != directory) {
+					ImageIO.write(frame, "png", new File(directory, String.format("frame%06d.png", index)));
+				}
+			}
+		};
+		System.out.println(frames.size() + " frames of " + dimension + "x" + dimension + " with " + tile
+				+ " pixel tiles");
+		for (int t = 1; t <= threads; t *= 2) {
+			double fps = new BatchRenderer(new TileRenderer(tile, tile), tile / 2, t).renderAll(frames, sink);
+			System.out.println(String.format("%2d threads %10.0f frames/s", t, fps));
+		}
+	}
+}
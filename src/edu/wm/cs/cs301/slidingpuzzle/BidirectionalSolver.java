@@ -0,0 +1,207 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.Arrays;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Bidirectional breadth-first search solver. One search starts from the given state,
+ * the other from the final state produced by setToInitialState, and the searches
+ * meet in the middle. Each search explores about the square root of the states
+ * a single breadth-first search would need, which pays off for medium-depth
+ * positions of 30 to 45 moves.
+ *
+ * The layer of the smaller search front is expanded next. Every board that is added
+ * to one side is checked against the hash table of the other side; the shortest
+ * connection found while completing the layer of the first meeting gives an optimal solution.
+ *
+ * Both sides keep their boards in hash tables of packed boards, see LongIntHashMap,
+ * which limits the solver to boards up to 4x4. If the tables and layers grow beyond the
+ * configured memory limit, the solver gives up on the bidirectional search
+ * and hands the problem to a fallback solver, IDA* by default. The limit is checked against
+ * the capacity of the tables and not the number of boards, as a table that just doubled
+ * is only a quarter full. Fallbacks are counted as bidirectional.fallbacks in the metrics.
+ */
+public class BidirectionalSolver implements PuzzleSolver {
+	// the value stored for a board holds its depth in the upper bits and 
+	// the move that reached it in the lower 8 bits, ROOT marks the start boards of both searches
+	private static final int ROOT = 0xFF;
+	private static final int MISSING = -1;
+	private static final StripedCounter FALLBACKS = Metrics.counter("bidirectional.fallbacks");
+
+	private final int maxMemoryMB;
+	private final long maxBytes;
+	private final PuzzleSolver fallback;
+
+	/**
+	 * Creates a solver that falls back to IDA* if the memory limit is exceeded.
+	 * @param maxMemoryMB limit for the hash tables of both searches in megabytes
+	 */
+	public BidirectionalSolver(int maxMemoryMB) {
+		this(maxMemoryMB, new IDAStarSolver());
+	}
+
+	/**
+	 * Creates a solver with the given fallback solver.
+	 * @param maxMemoryMB limit for the hash tables of both searches in megabytes
+	 * @param fallback solves boards that can not be packed or exceed the memory limit
+	 */
+	BidirectionalSolver(int maxMemoryMB, PuzzleSolver fallback) {
+		this.maxMemoryMB = maxMemoryMB;
+		this.maxBytes = (long) maxMemoryMB * 1024 * 1024;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public String getName() {
+		return "Bidirectional(" + maxMemoryMB + "MB)";
+	}
+
+	@Override
+	public boolean isOptimal() {
+		return fallback.isOptimal();
+	}
+
+	@Override
+	public Solution solve(PuzzleState start) throws InterruptedException {
+		int dimension = start.getDimension();
+		if (!Board.isPackable(dimension)) {
+			return fallback.solve(start);
+		}
+		int[] board = Board.toArray(start);
+		long startKey = Board.pack(board);
+		long goalKey = Board.pack(Board.goal(dimension, Board.countEmptySlots(board)));
+		Side forward = new Side(startKey);
+		Side backward = new Side(goalKey);
+		long meet = (startKey == goalKey) ? startKey : 0;
+		int best = (startKey == goalKey) ? 0 : Integer.MAX_VALUE;
+		int expanded = 0;
+		while (best == Integer.MAX_VALUE) {
+			if (forward.frontierSize == 0 || backward.frontierSize == 0) {
+				return null; // one side is exhausted, the boards are not connected
+			}
+			Side side = (forward.frontierSize <= backward.frontierSize) ? forward : backward;
+			Side other = (side == forward) ? backward : forward;
+			long[] frontier = side.frontier;
+			int frontierSize = side.frontierSize;
+			side.startLayer();
+			int depth = side.depth + 1;
+			for (int f = 0; f < frontierSize; f++) {
+				Board.unpack(frontier[f], board);
+				for (int blank = 0; blank < board.length; blank++) {
+					if (board[blank] != 0) {
+						continue;
+					}
+					for (Operation op : Board.OPERATIONS) {
+						int tile = Board.neighbor(blank, Board.inverse(op), dimension);
+						if (tile < 0 || board[tile] == 0) {
+							continue;
+						}
+						board[blank] = board[tile];
+						board[tile] = 0;
+						long key = Board.pack(board);
+						board[tile] = board[blank];
+						board[blank] = 0;
+						if (!side.add(key, depth, Board.encodeMove(tile, op))) {
+							continue;
+						}
+						int otherValue = other.map.get(key, MISSING);
+						if (otherValue != MISSING && depth + (otherValue >>> 8) < best) {
+							best = depth + (otherValue >>> 8);
+							meet = key;
+						}
+					}
+				}
+				if ((++expanded & 1023) == 0) {
+					if (Thread.interrupted()) {
+						throw new InterruptedException();
+					}
+					if (forward.sizeInBytes() + backward.sizeInBytes() > maxBytes) {
+						FALLBACKS.increment();
+						forward = null; // release the tables before the fallback runs
+						backward = null;
+						return fallback.solve(start);
+					}
+				}
+			}
+			side.endLayer();
+		}
+		int[] moves = new int[best];
+		int forwardLength = forward.map.get(meet, MISSING) >>> 8;
+		// forward part: walk back from the meeting board to the start
+		Board.unpack(meet, board);
+		for (int i = forwardLength - 1; i >= 0; i--) {
+			int move = forward.map.get(Board.pack(board), MISSING) & ROOT;
+			moves[i] = move;
+			Board.apply(board, Board.inverseMove(move, dimension), dimension);
+		}
+		// backward part: undoing the moves of the backward search leads to the goal
+		Board.unpack(meet, board);
+		for (int i = forwardLength; i < best; i++) {
+			int move = Board.inverseMove(backward.map.get(Board.pack(board), MISSING) & ROOT, dimension);
+			moves[i] = move;
+			Board.apply(board, move, dimension);
+		}
+		return new Solution(dimension, moves, getName(), true);
+	}
+
+	/**
+	 * One of the two searches: the hash table of all boards seen so far
+	 * and the current layer of the breadth-first search.
+	 */
+	private static final class Side {
+		final LongIntHashMap map = new LongIntHashMap(1024);
+		long[] frontier = new long[16];
+		int frontierSize;
+		long[] next = new long[16];
+		int nextSize;
+		int depth;
+
+		Side(long root) {
+			map.put(root, ROOT);
+			frontier[frontierSize++] = root;
+		}
+
+		/**
+		 * @return memory of the hash table and the two layers in bytes
+		 */
+		long sizeInBytes() {
+			return map.sizeInBytes() + 8L * (frontier.length + next.length);
+		}
+
+		/**
+		 * Prepares a new layer; the frontier array remains valid until the next layer starts.
+		 */
+		void startLayer() {
+			nextSize = 0;
+		}
+
+		/**
+		 * Adds a board to the hash table and the next layer unless it was seen before.
+		 * @return true if the board is new
+		 */
+		boolean add(long key, int depth, int move) {
+			if (!map.putIfAbsent(key, (depth << 8) | move)) {
+				return false;
+			}
+			if (nextSize == next.length) {
+				next = Arrays.copyOf(next, 2 * nextSize);
+			}
+			next[nextSize++] = key;
+			return true;
+		}
+
+		/**
+		 * Swaps the completed next layer in as the frontier,
+		 * the old frontier array is recycled for the layer after that.
+		 */
+		void endLayer() {
+			long[] tmp = frontier;
+			frontier = next;
+			frontierSize = nextSize;
+			next = tmp;
+			nextSize = 0;
+			depth++;
+		}
+	}
+}
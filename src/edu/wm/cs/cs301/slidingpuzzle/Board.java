@@ -0,0 +1,344 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.Random;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Static helper methods that work on a flat, row-major int array representation
+ * of a board. Solvers use this representation instead of PuzzleState objects
+ * as it allows to move tiles in place without creating new objects for every
+ * node of a search.
+ *
+ * The tile at (row, column) is stored at index row*dimension+column,
+ * an empty slot is represented as 0 just like in PuzzleState.
+ *
+ * A move is encoded as a single int that holds the position of the tile that moves
+ * and the operation, see encodeMove(). This is the same information that is passed
+ * to PuzzleState.move(row, column, op).
+ */
+final class Board {
+
+	// all operations in ordinal order, avoids the array copy of Operation.values()
+	static final Operation[] OPERATIONS = Operation.values();
+
+	private Board() {
+		// static helper methods only
+	}
+
+	/**
+	 * Copies the tiles of the given state into a new row-major array.
+	 * @param state provides the tiles, must not be null
+	 * @return array of length dimension^2
+	 */
+	static int[] toArray(PuzzleState state) {
+		int dimension = state.getDimension();
+		int[] board = new int[dimension * dimension];
+		for (int r = 0; r < dimension; r++) {
+			for (int c = 0; c < dimension; c++) {
+				board[r * dimension + c] = state.getValue(r, c);
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Creates the goal board that matches PuzzleState.setToInitialState:
+	 * tiles ordered from top-left to bottom-right, empty slots at the bottom-right.
+	 * @param dimension is the number of tiles per row
+	 * @param numberOfEmptySlots is a number between 1 and 3
+	 * @return goal board
+	 */
+	static int[] goal(int dimension, int numberOfEmptySlots) {
+		int size = dimension * dimension;
+		int[] board = new int[size];
+		for (int i = 0; i < size - numberOfEmptySlots; i++) {
+			board[i] = i + 1;
+		}
+		return board;
+	}
+
+	/**
+	 * Counts the empty slots on the board.
+	 * @param board row-major board
+	 * @return number of zero entries
+	 */
+	static int countEmptySlots(int[] board) {
+		int count = 0;
+		for (int value : board) {
+			if (value == 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Tells if the goal board can be reached. With two or more empty slots every board can.
+	 * With one empty slot, every move changes the parity of the permutation of the cells and of
+	 * the distance of the empty slot to its goal position, so both parities must match.
+	 * The permutation parity is computed from its cycles, which takes linear time.
+	 * @param board row-major board
+	 * @param dimension number of tiles per row
+	 * @return true if the board can be solved
+	 */
+	static boolean isSolvable(int[] board, int dimension) {
+		if (countEmptySlots(board) != 1) {
+			return countEmptySlots(board) > 1;
+		}
+		boolean[] visited = new boolean[board.length];
+		int transpositions = 0;
+		int blank = 0;
+		for (int i = 0; i < board.length; i++) {
+			if (board[i] == 0) {
+				blank = i;
+			}
+			int length = 0;
+			for (int j = i; !visited[j]; j = (board[j] == 0) ? board.length - 1 : board[j] - 1) {
+				visited[j] = true;
+				length++;
+			}
+			transpositions += Math.max(0, length - 1);
+		}
+		return (transpositions + distance(blank, board.length - 1, dimension)) % 2 == 0;
+	}
+
+	/**
+	 * Computes the dimension of a square board from its number of cells.
+	 * @param board row-major board
+	 * @return number of tiles per row
+	 */
+	static int dimensionOf(int[] board) {
+		return (int) Math.round(Math.sqrt(board.length));
+	}
+
+	/**
+	 * Sum of Manhattan distances of all tiles to their goal position.
+	 * Empty slots are not counted which keeps the value admissible
+	 * for any number of empty slots: every move brings one tile one step closer at best.
+	 * @param board row-major board
+	 * @param dimension number of tiles per row
+	 * @return lower bound on the number of moves to the goal
+	 */
+	static int manhattan(int[] board, int dimension) {
+		int sum = 0;
+		for (int i = 0; i < board.length; i++) {
+			int value = board[i];
+			if (value != 0) {
+				sum += distance(value - 1, i, dimension);
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Manhattan distance between two positions on the board.
+	 */
+	static int distance(int from, int to, int dimension) {
+		return Math.abs(from / dimension - to / dimension) + Math.abs(from % dimension - to % dimension);
+	}
+
+	/**
+	 * Computes the position that is reached from the given position
+	 * when going one step in the direction of the given operation.
+	 * @param position index on the board
+	 * @param op direction
+	 * @param dimension number of tiles per row
+	 * @return index of the neighboring position or -1 if the step leaves the board
+	 */
+	static int neighbor(int position, Operation op, int dimension) {
+		int row = position / dimension;
+		int column = position % dimension;
+		switch (op) {
+		case MOVERIGHT:
+			return (column == dimension - 1) ? -1 : position + 1;
+		case MOVELEFT:
+			return (column == 0) ? -1 : position - 1;
+		case MOVEUP:
+			return (row == 0) ? -1 : position - dimension;
+		case MOVEDOWN:
+			return (row == dimension - 1) ? -1 : position + dimension;
+		}
+		return -1;
+	}
+
+	/**
+	 * Gives the operation that undoes the given one.
+	 */
+	static Operation inverse(Operation op) {
+		switch (op) {
+		case MOVERIGHT:
+			return Operation.MOVELEFT;
+		case MOVELEFT:
+			return Operation.MOVERIGHT;
+		case MOVEUP:
+			return Operation.MOVEDOWN;
+		case MOVEDOWN:
+			return Operation.MOVEUP;
+		}
+		return null;
+	}
+
+	/**
+	 * Encodes a move of the tile at the given position with the given operation.
+	 * @param position index of the tile that moves
+	 * @param op direction in which the tile moves
+	 * @return encoded move
+	 */
+	static int encodeMove(int position, Operation op) {
+		return (position << 2) | op.ordinal();
+	}
+
+	/**
+	 * @return the position of the tile that moves for an encoded move
+	 */
+	static int movePosition(int move) {
+		return move >>> 2;
+	}
+
+	/**
+	 * @return the operation of an encoded move
+	 */
+	static Operation moveOperation(int move) {
+		return OPERATIONS[move & 3];
+	}
+
+	/**
+	 * Gives the encoded move that undoes the given encoded move.
+	 */
+	static int inverseMove(int move, int dimension) {
+		Operation op = moveOperation(move);
+		return encodeMove(neighbor(movePosition(move), op, dimension), inverse(op));
+	}
+
+	/**
+	 * Applies an encoded move in place. The caller is responsible
+	 * for the move to be legal, i.e. the target position must be an empty slot.
+	 * @param board row-major board that is modified
+	 * @param move encoded move
+	 * @param dimension number of tiles per row
+	 */
+	static void apply(int[] board, int move, int dimension) {
+		int from = movePosition(move);
+		int to = neighbor(from, moveOperation(move), dimension);
+		board[to] = board[from];
+		board[from] = 0;
+	}
+
+	/**
+	 * Finds the move that leads from one board to another.
+	 * @return encoded move or -1 if the boards are not exactly one move apart
+	 */
+	static int moveBetween(int[] before, int[] after, int dimension) {
+		int from = -1;
+		int to = -1;
+		for (int i = 0; i < before.length; i++) {
+			if (before[i] == after[i]) {
+				continue;
+			}
+			if (after[i] == 0 && from < 0) {
+				from = i;
+			}
+			else if (before[i] == 0 && to < 0) {
+				to = i;
+			}
+			else {
+				return -1;
+			}
+		}
+		if (from < 0 || to < 0 || before[from] != after[to]) {
+			return -1;
+		}
+		for (Operation op : OPERATIONS) {
+			if (neighbor(from, op, dimension) == to) {
+				return encodeMove(from, op);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Tells if boards of the given dimension can be packed into a single long,
+	 * see pack(). This is the case for boards up to 4x4 as tile values up to 15
+	 * fit into 4 bits.
+	 */
+	static boolean isPackable(int dimension) {
+		return dimension <= 4;
+	}
+
+	/**
+	 * Packs a board into a long with 4 bits per position, position 0 in the
+	 * lowest bits. Packed boards are compact keys for hash tables and files.
+	 * A packed board is never 0 as a board has at most 3 empty slots.
+	 * @param board row-major board with at most 16 positions
+	 * @return packed board
+	 */
+	static long pack(int[] board) {
+		long key = 0;
+		for (int i = board.length - 1; i >= 0; i--) {
+			key = (key << 4) | board[i];
+		}
+		return key;
+	}
+
+	/**
+	 * Unpacks a packed board, see pack().
+	 * @param key packed board
+	 * @param board receives the tiles, its length gives the number of positions
+	 */
+	static void unpack(long key, int[] board) {
+		for (int i = 0; i < board.length; i++) {
+			board[i] = (int) (key & 15);
+			key >>>= 4;
+		}
+	}
+
+	/**
+	 * Creates a puzzle state for the given board. The state has no parent
+	 * and a path length of 0, just like a state after setToInitialState.
+	 * @param board row-major board, array is copied
+	 * @return new puzzle state
+	 */
+	static PuzzleState toState(int[] board) {
+		int dimension = dimensionOf(board);
+		int[][] position = new int[dimension][dimension];
+		for (int r = 0; r < dimension; r++) {
+			System.arraycopy(board, r * dimension, position[r], 0, dimension);
+		}
+		return new SimplePuzzleState(position, null, null, 0);
+	}
+
+	/**
+	 * Performs a random walk from the goal board that never immediately undoes 
+	 * the previous move. Unlike PuzzleState.shuffleBoard the walk is reproducible
+	 * for a given random number generator, which is what benchmarks and tests need.
+	 * @param dimension number of tiles per row
+	 * @param numberOfEmptySlots is a number between 1 and 3
+	 * @param steps number of moves
+	 * @param random source of randomness
+	 * @return board at the end of the walk
+	 */
+	static int[] randomWalk(int dimension, int numberOfEmptySlots, int steps, Random random) {
+		int[] board = goal(dimension, numberOfEmptySlots);
+		int[] candidates = new int[4 * numberOfEmptySlots];
+		int undo = -1;
+		for (int i = 0; i < steps; i++) {
+			int count = 0;
+			for (int blank = 0; blank < board.length; blank++) {
+				if (board[blank] != 0) {
+					continue;
+				}
+				for (Operation op : OPERATIONS) {
+					int tile = neighbor(blank, inverse(op), dimension);
+					if (tile >= 0 && board[tile] != 0 && encodeMove(tile, op) != undo) {
+						candidates[count++] = encodeMove(tile, op);
+					}
+				}
+			}
+			int move = candidates[random.nextInt(count)];
+			apply(board, move, dimension);
+			undo = inverseMove(move, dimension);
+		}
+		return board;
+	}
+}
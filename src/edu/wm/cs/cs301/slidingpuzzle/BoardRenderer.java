@@ -0,0 +1,39 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.awt.Graphics;
+
+/**
+ * Draws boards on any graphics context: the game window, an image for a thumbnail
+ * or the frames of a replay. A renderer does not depend on a window and works with
+ * java.awt.headless=true.
+ *
+ * Coordinates are pixels, (x, y) is the top-left corner of the board or tile.
+ * Renderers may be used by several threads at the same time as long as their settings
+ * do not change.
+ */
+public interface BoardRenderer {
+	/**
+	 * @return width of a tile in pixels
+	 */
+	int getTileWidth();
+
+	/**
+	 * @return height of a tile in pixels
+	 */
+	int getTileHeight();
+
+	/**
+	 * Draws all tiles and empty slots of a state and the grid lines.
+	 */
+	void paint(Graphics g, PuzzleState state, int x, int y);
+
+	/**
+	 * Draws a single tile, or an empty slot for the value 0.
+	 */
+	void paintTile(Graphics g, int value, int x, int y);
+
+	/**
+	 * Draws the grid lines of a board with the given dimension, if the renderer shows lines.
+	 */
+	void paintGrid(Graphics g, int dimension, int x, int y);
+}
@@ -0,0 +1,428 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Distance table for the complete state space of the 3x3 board.
+ * For each board with a given number of empty slots, the table holds the
+ * number of moves of a shortest solution. With the table, the distance to
+ * the final state, an optimal next move and a difficulty rating for a 3x3 board
+ * are table lookups without any search.
+ *
+ * Boards are mapped to table indices with a perfect hash: the positions of tiles
+ * 1,2,...,m form a partial permutation of the 9 positions which is ranked in a mixed radix
+ * number system. Empty slots are interchangeable, so the table has 9!/k! entries
+ * for k empty slots: 362880, 181440 and 60480 bytes for 1, 2 and 3 empty slots.
+ * With 1 empty slot only half of the boards are reachable; unreachable entries hold UNREACHABLE.
+ *
+ * Tables are generated by a breadth-first search backwards from the final state.
+ * getInstance() loads a table from the class path if a file generated with main()
+ * is bundled there and generates it otherwise, which takes well below a second.
+ * Bundled tables that fail to load are counted as eightpuzzle.loadfailures in the metrics.
+ */
+public final class EightPuzzleTable implements PuzzleSolver {
+	static final int DIMENSION = 3;
+	static final int SIZE = DIMENSION * DIMENSION;
+	static final int MAX_EMPTY_SLOTS = 3;
+	static final int UNREACHABLE = 0xFF;
+	private static final int MAGIC = 0x38505A31; // "8PZ1"
+	private static final EightPuzzleTable[] INSTANCES = new EightPuzzleTable[4];
+	private static final StripedCounter LOAD_FAILURES = Metrics.counter("eightpuzzle.loadfailures");
+
+	private final int emptySlots;
+	private final int tiles;
+	private final byte[] distances;
+	private final int diameter;
+	// cumulative[d] = number of reachable boards with distance less than d
+	private final long[] cumulative;
+
+	private EightPuzzleTable(int emptySlots, byte[] distances) {
+		this.emptySlots = emptySlots;
+		this.tiles = SIZE - emptySlots;
+		this.distances = distances;
+		int max = 0;
+		long[] histogram = new long[256];
+		for (byte b : distances) {
+			int d = b & 0xFF;
+			if (d != UNREACHABLE) {
+				histogram[d]++;
+				max = Math.max(max, d);
+			}
+		}
+		this.diameter = max;
+		this.cumulative = new long[max + 2];
+		for (int d = 0; d <= max; d++) {
+			cumulative[d + 1] = cumulative[d] + histogram[d];
+		}
+	}
+
+	/**
+	 * Gives the table for 3x3 boards with the given number of empty slots.
+	 * The table is loaded or generated on first use and shared afterwards.
+	 * @param emptySlots is a number between 1 and 3
+	 * @return table
+	 */
+	public static synchronized EightPuzzleTable getInstance(int emptySlots) {
+		if (emptySlots < 1 || emptySlots > MAX_EMPTY_SLOTS) {
+			throw new IllegalArgumentException("number of empty slots must be 1, 2 or 3: " + emptySlots);
+		}
+		if (null == INSTANCES[emptySlots]) {
+			EightPuzzleTable table = null;
+			InputStream in = EightPuzzleTable.class.getResourceAsStream(fileName(emptySlots));
+			if (null != in) {
+				try {
+					table = load(in);
+				}
+				catch (IOException e) {
+					LOAD_FAILURES.increment(); // generated instead
+				}
+				finally {
+					closeQuietly(in);
+				}
+			}
+			INSTANCES[emptySlots] = (null != table) ? table : generate(emptySlots);
+		}
+		return INSTANCES[emptySlots];
+	}
+
+	/**
+	 * Loads all tables in a background thread, such that later lookups
+	 * do not have to wait. Meant to be called at application startup.
+	 */
+	public static void preload() {
+		Thread t = new Thread("EightPuzzleTable preload") {
+			@Override
+			public void run() {
+				for (int k = 1; k <= 3; k++) {
+					getInstance(k);
+				}
+			}
+		};
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * Generates a table with a breadth-first search backwards from the final state.
+	 * @param emptySlots is a number between 1 and 3
+	 * @return new table
+	 */
+	static EightPuzzleTable generate(int emptySlots) {
+		int tiles = SIZE - emptySlots;
+		byte[] distances = new byte[tableSize(tiles)];
+		Arrays.fill(distances, (byte) UNREACHABLE);
+		int[] queue = new int[distances.length];
+		int head = 0;
+		int tail = 0;
+		int[] board = Board.goal(DIMENSION, emptySlots);
+		int root = rank(board, tiles);
+		distances[root] = 0;
+		queue[tail++] = root;
+		while (head < tail) {
+			int index = queue[head++];
+			int next = (distances[index] & 0xFF) + 1;
+			unrank(index, tiles, board);
+			for (int blank = 0; blank < SIZE; blank++) {
+				if (board[blank] != 0) {
+					continue;
+				}
+				for (Operation op : Board.OPERATIONS) {
+					int tile = Board.neighbor(blank, op, DIMENSION);
+					if (tile < 0 || board[tile] == 0) {
+						continue;
+					}
+					board[blank] = board[tile];
+					board[tile] = 0;
+					int child = rank(board, tiles);
+					board[tile] = board[blank];
+					board[blank] = 0;
+					if (distances[child] == (byte) UNREACHABLE) {
+						distances[child] = (byte) next;
+						queue[tail++] = child;
+					}
+				}
+			}
+		}
+		return new EightPuzzleTable(emptySlots, distances);
+	}
+
+	/**
+	 * @return number of empty slots of the boards in this table
+	 */
+	public int getEmptySlots() {
+		return emptySlots;
+	}
+
+	/**
+	 * @return largest distance of any reachable board, 31 for 1 empty slot
+	 */
+	public int getDiameter() {
+		return diameter;
+	}
+
+	/**
+	 * @return number of boards that can reach the final state
+	 */
+	public long getReachableCount() {
+		return cumulative[diameter + 1];
+	}
+
+	/**
+	 * Gets the number of moves of a shortest solution for a 3x3 board.
+	 * @param state 3x3 board with the number of empty slots of this table
+	 * @return distance to the final state or -1 if the final state is not reachable
+	 * @throws IllegalArgumentException if the board is not 3x3 or has another number of empty slots
+	 */
+	public int getDistance(PuzzleState state) {
+		return getDistance(toBoard(state));
+	}
+
+	/**
+	 * Gives the board of a state after checking that this table covers it.
+	 * @throws IllegalArgumentException if the board is not 3x3 or has another number of empty slots
+	 */
+	private int[] toBoard(PuzzleState state) {
+		if (state.getDimension() != DIMENSION) {
+			throw new IllegalArgumentException("table is for 3x3 boards, not " + state.getDimension() + "x"
+					+ state.getDimension());
+		}
+		int[] board = Board.toArray(state);
+		int count = Board.countEmptySlots(board);
+		if (count != emptySlots) {
+			throw new IllegalArgumentException("table is for boards with " + emptySlots + " empty slots, not " + count);
+		}
+		return board;
+	}
+
+	int getDistance(int[] board) {
+		int d = distances[rank(board, tiles)] & 0xFF;
+		return (d == UNREACHABLE) ? -1 : d;
+	}
+
+	/**
+	 * Rates the difficulty of a board as the fraction of reachable boards
+	 * that are closer to the final state.
+	 * @param state 3x3 board with the number of empty slots of this table
+	 * @return value between 0 (final state) and close to 1 (hardest boards), -1 if unreachable
+	 * @throws IllegalArgumentException if the board is not 3x3 or has another number of empty slots
+	 */
+	public double getDifficulty(PuzzleState state) {
+		int d = getDistance(state);
+		return (d < 0) ? -1 : (double) cumulative[d] / getReachableCount();
+	}
+
+	/**
+	 * Gets an optimal next move: a move to a neighbor whose distance is one less.
+	 * @param board 3x3 board with the number of empty slots of this table, not the final board
+	 * @return encoded move, see Board.encodeMove(), or -1 if the board is final or unreachable
+	 */
+	int getNextMove(int[] board) {
+		int d = getDistance(board);
+		if (d <= 0) {
+			return -1;
+		}
+		for (int blank = 0; blank < SIZE; blank++) {
+			if (board[blank] != 0) {
+				continue;
+			}
+			for (Operation op : Board.OPERATIONS) {
+				int tile = Board.neighbor(blank, Board.inverse(op), DIMENSION);
+				if (tile < 0 || board[tile] == 0) {
+					continue;
+				}
+				board[blank] = board[tile];
+				board[tile] = 0;
+				int child = distances[rank(board, tiles)] & 0xFF;
+				board[tile] = board[blank];
+				board[blank] = 0;
+				if (child == d - 1) {
+					return Board.encodeMove(tile, op);
+				}
+			}
+		}
+		throw new IllegalStateException("inconsistent distance table");
+	}
+
+	/**
+	 * Gets an optimal next move for a 3x3 board.
+	 * @param state 3x3 board with the number of empty slots of this table
+	 * @return state after the move with the given state as its parent,
+	 * null if the state is the final state
+	 * @throws IllegalArgumentException if the board is not 3x3 or has another number of empty slots
+	 */
+	public PuzzleState getNextState(PuzzleState state) {
+		int move = getNextMove(toBoard(state));
+		if (move < 0) {
+			return null;
+		}
+		int position = Board.movePosition(move);
+		return state.move(position / DIMENSION, position % DIMENSION, Board.moveOperation(move));
+	}
+
+	@Override
+	public String getName() {
+		return "Table3x3";
+	}
+
+	@Override
+	public boolean isOptimal() {
+		return true;
+	}
+
+	/**
+	 * Solves a 3x3 board by following optimal next moves, no search is involved.
+	 * Boards of other dimensions or with a different number of empty slots are not
+	 * covered by this table and return null.
+	 */
+	@Override
+	public Solution solve(PuzzleState start) {
+		if (start.getDimension() != DIMENSION) {
+			return null;
+		}
+		int[] board = Board.toArray(start);
+		if (Board.countEmptySlots(board) != emptySlots || getDistance(board) < 0) {
+			return null;
+		}
+		int[] moves = new int[getDistance(board)];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = getNextMove(board);
+			Board.apply(board, moves[i], DIMENSION);
+		}
+		return new Solution(DIMENSION, moves, getName(), true);
+	}
+
+	/**
+	 * Computes the perfect hash of a board: the positions of tiles 1,...,tiles
+	 * as digits of a mixed radix number with bases 9, 8, 7, ...
+	 * The positions are kept in 4 bits each of a long, a lookup allocates nothing.
+	 */
+	static int rank(int[] board, int tiles) {
+		long positions = 0;
+		for (int i = 0; i < SIZE; i++) {
+			if (board[i] != 0) {
+				positions |= (long) i << (4 * (board[i] - 1));
+			}
+		}
+		int rank = 0;
+		int used = 0;
+		for (int t = 0; t < tiles; t++) {
+			int p = (int) (positions >>> (4 * t)) & 15;
+			// number of free positions before p
+			int digit = p - Integer.bitCount(used & ((1 << p) - 1));
+			rank = rank * (SIZE - t) + digit;
+			used |= 1 << p;
+		}
+		return rank;
+	}
+
+	/**
+	 * Inverse of rank(), the digits are kept in 4 bits each of a long.
+	 */
+	static void unrank(int rank, int tiles, int[] board) {
+		long digits = 0;
+		for (int t = tiles - 1; t >= 0; t--) {
+			digits |= (long) (rank % (SIZE - t)) << (4 * t);
+			rank /= SIZE - t;
+		}
+		Arrays.fill(board, 0);
+		int used = 0;
+		for (int t = 0; t < tiles; t++) {
+			// select the free position with the given number of free positions before it
+			int p = -1;
+			for (int free = (int) (digits >>> (4 * t)) & 15; free >= 0; free--) {
+				p++;
+				while ((used & (1 << p)) != 0) {
+					p++;
+				}
+			}
+			used |= 1 << p;
+			board[p] = t + 1;
+		}
+	}
+
+	private static int tableSize(int tiles) {
+		int size = 1;
+		for (int t = 0; t < tiles; t++) {
+			size *= SIZE - t;
+		}
+		return size;
+	}
+
+	private static String fileName(int emptySlots) {
+		return "eightpuzzle" + emptySlots + ".bin";
+	}
+
+	/**
+	 * Writes the table in a binary format: magic number, number of empty slots,
+	 * number of entries and one byte per entry.
+	 */
+	void save(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		data.writeInt(MAGIC);
+		data.writeInt(emptySlots);
+		data.writeInt(distances.length);
+		data.write(distances);
+		data.flush();
+	}
+
+	/**
+	 * Reads a table written by save().
+	 */
+	static EightPuzzleTable load(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if (data.readInt() != MAGIC) {
+			throw new IOException("not a distance table");
+		}
+		int emptySlots = data.readInt();
+		int length = data.readInt();
+		if (emptySlots < 1 || emptySlots > 3 || length != tableSize(SIZE - emptySlots)) {
+			throw new IOException("corrupt distance table header");
+		}
+		byte[] distances = new byte[length];
+		data.readFully(distances);
+		return new EightPuzzleTable(emptySlots, distances);
+	}
+
+	private static void closeQuietly(InputStream in) {
+		try {
+			in.close();
+		}
+		catch (IOException e) {
+			// nothing to do
+		}
+	}
+
+	/**
+	 * Generates the tables for 1, 2 and 3 empty slots and writes them to the given directory.
+	 * Bundle the files with the classes in this package to load them at startup.
+	 * @param args target directory, default is the working directory
+	 */
+	public static void main(String[] args) throws IOException {
+		File dir = new File((args.length > 0) ? args[0] : ".");
+		for (int k = 1; k <= 3; k++) {
+			long begin = System.currentTimeMillis();
+			EightPuzzleTable table = generate(k);
+			File file = new File(dir, fileName(k));
+			OutputStream out = new FileOutputStream(file);
+			try {
+				table.save(out);
+			}
+			finally {
+				out.close();
+			}
+			System.out.println(file + ": " + table.getReachableCount() + " boards, diameter " + table.getDiameter()
+					+ ", " + (System.currentTimeMillis() - begin) + " ms");
+		}
+	}
+}
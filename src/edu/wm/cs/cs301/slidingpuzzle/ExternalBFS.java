@@ -0,0 +1,448 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Properties;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * External-memory breadth-first search over the complete state space of a board,
+ * starting from the final state. The result is the number of boards at each distance
+ * from the final state, the diameter of the state space and its hardest boards.
+ * State spaces with multiple empty slots are far too large for memory,
+ * so all layers of the search live on disk.
+ *
+ * Each layer is a file of sorted, distinct packed boards, see SortedBoardFile.
+ * The next layer is produced with delayed duplicate detection:
+ * the successors of the current layer are collected in a memory chunk,
+ * sorted and written as a run file whenever the chunk is full. The runs are then
+ * merged into the next layer, dropping duplicates and all boards of the current
+ * and previous layer, which are the only layers a successor can be in besides the next one.
+ * All file access is sequential.
+ *
+ * The search can be resumed after a crash: a layer file is renamed into place only
+ * when it is complete, and a progress file with the layer sizes is then replaced
+ * atomically. On restart, everything that is not recorded in the progress file is deleted
+ * and the search continues with the last completed layer. Only the last two layers are kept.
+ *
+ * With one empty slot, a board and its reflection about the main diagonal have the same
+ * distance, see Symmetry. Layers then hold canonical keys only, which halves the files,
+ * runs and merges. Layer sizes still count all boards: two for each key that is not
+ * its own reflection.
+ *
+ * The search reports its progress only if it is given a stream with setProgress(), main() does so.
+ */
+public class ExternalBFS {
+	private static final String PROGRESS = "progress.properties";
+
+	private final File directory;
+	private final int dimension;
+	private final int emptySlots;
+	// store canonical keys of reflected boards
+	private final boolean symmetric;
+	private final long[] chunk;
+	private final List<Long> layerSizes = new ArrayList<Long>();
+	private boolean complete;
+	private int layerLimit = Integer.MAX_VALUE;
+	// receives a line per layer, null for a quiet search
+	private PrintStream progress;
+
+	/**
+	 * Creates a search, which starts or resumes with run().
+	 * @param directory work directory for layers and progress, created if necessary
+	 * @param dimension number of tiles per row, at most 4
+	 * @param emptySlots is a number between 1 and 3
+	 * @param chunkMegabytes memory for successors before they are sorted and written to a run
+	 */
+	public ExternalBFS(File directory, int dimension, int emptySlots, int chunkMegabytes) {
+		this(directory, dimension, emptySlots, chunkMegabytes * (1L << 20) / 8);
+	}
+
+	ExternalBFS(File directory, int dimension, int emptySlots, long chunkEntries) {
+		if (!Board.isPackable(dimension)) {
+			throw new IllegalArgumentException("boards must be packable: " + dimension);
+		}
+		this.directory = directory;
+		this.dimension = dimension;
+		this.emptySlots = emptySlots;
+		this.symmetric = Symmetry.applies(emptySlots);
+		this.chunk = new long[(int) Math.min(chunkEntries, Integer.MAX_VALUE - 8)];
+	}
+
+	/**
+	 * Stops run() after the given number of layers, as if the search crashed.
+	 */
+	void setLayerLimit(int layerLimit) {
+		this.layerLimit = layerLimit;
+	}
+
+	/**
+	 * @param progress receives a line for each completed layer and for a resumed search, null for none
+	 */
+	public void setProgress(PrintStream progress) {
+		this.progress = progress;
+	}
+
+	/**
+	 * Runs the search to the end, resuming from the work directory if it holds
+	 * progress of an earlier run for the same board.
+	 */
+	public void run() throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("can not create work directory " + directory);
+		}
+		resume();
+		if (layerSizes.isEmpty()) {
+			SortedBoardFile.Writer writer = new SortedBoardFile.Writer(temporary(0));
+			try {
+				writer.write(Board.pack(Board.goal(dimension, emptySlots)));
+			}
+			finally {
+				writer.close();
+			}
+			commitLayer(0, 1);
+		}
+		while (!complete && layerSizes.size() < layerLimit) {
+			long begin = System.currentTimeMillis();
+			int depth = layerSizes.size() - 1;
+			long size = expand(depth);
+			if (size == 0) {
+				complete = true;
+				writeProgress();
+			}
+			else {
+				commitLayer(depth + 1, size);
+			}
+			if (null != progress) {
+				progress.println("layer " + (depth + 1) + ": " + size + " boards, "
+						+ (System.currentTimeMillis() - begin) + " ms");
+			}
+		}
+	}
+
+	/**
+	 * @return true if the search has found all boards
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @return number of boards at distance 0, 1, 2, ... from the final state
+	 */
+	public long[] getHistogram() {
+		long[] histogram = new long[layerSizes.size()];
+		for (int i = 0; i < histogram.length; i++) {
+			histogram[i] = layerSizes.get(i);
+		}
+		return histogram;
+	}
+
+	/**
+	 * @return largest distance from the final state, valid once the search is complete
+	 */
+	public int getDiameter() {
+		return layerSizes.size() - 1;
+	}
+
+	/**
+	 * @return number of boards found so far
+	 */
+	public long getStateCount() {
+		long sum = 0;
+		for (long size : layerSizes) {
+			sum += size;
+		}
+		return sum;
+	}
+
+	/**
+	 * Reads boards from the last layer, which are the hardest ones once the search is complete.
+	 * With one empty slot, only one board of a board and its reflection is returned.
+	 * @param max maximum number of boards
+	 * @return states in the order of their packed boards
+	 */
+	public List<PuzzleState> getHardestPositions(int max) throws IOException {
+		List<PuzzleState> list = new ArrayList<PuzzleState>();
+		int[] board = new int[dimension * dimension];
+		SortedBoardFile.Reader reader = new SortedBoardFile.Reader(layerFile(getDiameter()));
+		try {
+			while (reader.hasCurrent() && list.size() < max) {
+				Board.unpack(reader.current(), board);
+				list.add(Board.toState(board));
+				reader.advance();
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return list;
+	}
+
+	/**
+	 * Generates the successors of a layer into sorted runs and merges them into the next layer.
+	 * @return size of the next layer
+	 */
+	private long expand(int depth) throws IOException {
+		List<File> runs = new ArrayList<File>();
+		int[] board = new int[dimension * dimension];
+		int count = 0;
+		SortedBoardFile.Reader reader = new SortedBoardFile.Reader(layerFile(depth));
+		try {
+			while (reader.hasCurrent()) {
+				Board.unpack(reader.current(), board);
+				for (int blank = 0; blank < board.length; blank++) {
+					if (board[blank] != 0) {
+						continue;
+					}
+					for (Operation op : Board.OPERATIONS) {
+						int tile = Board.neighbor(blank, op, dimension);
+						if (tile < 0 || board[tile] == 0) {
+							continue;
+						}
+						if (count == chunk.length) {
+							runs.add(writeRun(runs.size(), count));
+							count = 0;
+						}
+						board[blank] = board[tile];
+						board[tile] = 0;
+						long key = Board.pack(board);
+						chunk[count++] = symmetric ? Symmetry.canonical(key, dimension) : key;
+						board[tile] = board[blank];
+						board[blank] = 0;
+					}
+				}
+				reader.advance();
+			}
+		}
+		finally {
+			reader.close();
+		}
+		if (count > 0) {
+			runs.add(writeRun(runs.size(), count));
+		}
+		try {
+			return merge(runs, depth);
+		}
+		finally {
+			for (File run : runs) {
+				run.delete();
+			}
+		}
+	}
+
+	private File writeRun(int index, int count) throws IOException {
+		Arrays.sort(chunk, 0, count);
+		File run = new File(directory, "run-" + index + ".tmp");
+		SortedBoardFile.Writer writer = new SortedBoardFile.Writer(run);
+		try {
+			for (int i = 0; i < count; i++) {
+				if (i == 0 || chunk[i] != chunk[i - 1]) {
+					writer.write(chunk[i]);
+				}
+			}
+		}
+		finally {
+			writer.close();
+		}
+		return run;
+	}
+
+	/**
+	 * Merges the runs into the file of the next layer, minus the boards
+	 * of the given layer and the one before it.
+	 * @return number of boards in the next layer, including reflections
+	 */
+	private long merge(List<File> runs, int depth) throws IOException {
+		PriorityQueue<SortedBoardFile.Reader> queue = new PriorityQueue<SortedBoardFile.Reader>(
+				Math.max(1, runs.size()), new Comparator<SortedBoardFile.Reader>() {
+					@Override
+					public int compare(SortedBoardFile.Reader a, SortedBoardFile.Reader b) {
+						return Long.compare(a.current(), b.current());
+					}
+				});
+		List<SortedBoardFile.Reader> open = new ArrayList<SortedBoardFile.Reader>();
+		SortedBoardFile.Writer writer = new SortedBoardFile.Writer(temporary(depth + 1));
+		long boards = 0;
+		try {
+			for (File run : runs) {
+				SortedBoardFile.Reader reader = new SortedBoardFile.Reader(run);
+				open.add(reader);
+				if (reader.hasCurrent()) {
+					queue.add(reader);
+				}
+			}
+			SortedBoardFile.Reader current = new SortedBoardFile.Reader(layerFile(depth));
+			open.add(current);
+			SortedBoardFile.Reader previous = null;
+			if (depth > 0) {
+				previous = new SortedBoardFile.Reader(layerFile(depth - 1));
+				open.add(previous);
+			}
+			boolean first = true;
+			long last = 0;
+			while (!queue.isEmpty()) {
+				SortedBoardFile.Reader reader = queue.poll();
+				long key = reader.current();
+				reader.advance();
+				if (reader.hasCurrent()) {
+					queue.add(reader);
+				}
+				if (!first && key == last) {
+					continue; // duplicate from another run
+				}
+				first = false;
+				last = key;
+				if (!contains(current, key) && (null == previous || !contains(previous, key))) {
+					writer.write(key);
+					boards += (symmetric && Symmetry.reflect(key, dimension) != key) ? 2 : 1;
+				}
+			}
+		}
+		finally {
+			writer.close();
+			for (SortedBoardFile.Reader reader : open) {
+				reader.close();
+			}
+		}
+		return boards;
+	}
+
+	/**
+	 * Advances a reader up to the given key, keys must be requested in ascending order.
+	 */
+	private static boolean contains(SortedBoardFile.Reader reader, long key) throws IOException {
+		while (reader.hasCurrent() && reader.current() < key) {
+			reader.advance();
+		}
+		return reader.hasCurrent() && reader.current() == key;
+	}
+
+	/**
+	 * Moves a completed layer file into place, records it in the progress file
+	 * and deletes the layer that is no longer needed.
+	 */
+	private void commitLayer(int depth, long size) throws IOException {
+		Files.move(temporary(depth).toPath(), layerFile(depth).toPath(), StandardCopyOption.ATOMIC_MOVE);
+		layerSizes.add(size);
+		writeProgress();
+		if (depth >= 2) {
+			layerFile(depth - 2).delete();
+		}
+	}
+
+	private void writeProgress() throws IOException {
+		Properties progress = new Properties();
+		progress.setProperty("dimension", Integer.toString(dimension));
+		progress.setProperty("emptySlots", Integer.toString(emptySlots));
+		progress.setProperty("symmetric", Boolean.toString(symmetric));
+		progress.setProperty("layers", Integer.toString(layerSizes.size()));
+		progress.setProperty("complete", Boolean.toString(complete));
+		for (int i = 0; i < layerSizes.size(); i++) {
+			progress.setProperty("layer." + i, Long.toString(layerSizes.get(i)));
+		}
+		File tmp = new File(directory, PROGRESS + ".tmp");
+		FileOutputStream out = new FileOutputStream(tmp);
+		try {
+			progress.store(out, "external breadth-first search");
+			out.getFD().sync();
+		}
+		finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), new File(directory, PROGRESS).toPath(),
+				StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads the progress file if there is one and removes files of an interrupted layer.
+	 */
+	private void resume() throws IOException {
+		layerSizes.clear();
+		complete = false;
+		File file = new File(directory, PROGRESS);
+		if (file.exists()) {
+			Properties progress = new Properties();
+			FileInputStream in = new FileInputStream(file);
+			try {
+				progress.load(in);
+			}
+			finally {
+				in.close();
+			}
+			if (Integer.parseInt(progress.getProperty("dimension")) != dimension
+					|| Integer.parseInt(progress.getProperty("emptySlots")) != emptySlots) {
+				throw new IOException(directory + " holds the search of another board");
+			}
+			if (Boolean.parseBoolean(progress.getProperty("symmetric")) != symmetric) {
+				throw new IOException(directory + " holds layers without canonical keys, delete it to start over");
+			}
+			int layers = Integer.parseInt(progress.getProperty("layers"));
+			for (int i = 0; i < layers; i++) {
+				layerSizes.add(Long.parseLong(progress.getProperty("layer." + i)));
+			}
+			complete = Boolean.parseBoolean(progress.getProperty("complete"));
+		}
+		File[] files = directory.listFiles();
+		for (File f : (null != files) ? files : new File[0]) {
+			String name = f.getName();
+			if (name.endsWith(".tmp")) {
+				f.delete();
+			}
+			else if (name.startsWith("layer-")) {
+				int depth = Integer.parseInt(name.substring(6, name.indexOf('.')));
+				if (depth >= layerSizes.size() || depth < layerSizes.size() - 2) {
+					f.delete();
+				}
+			}
+		}
+		if (!layerSizes.isEmpty() && null != progress) {
+			progress.println("resuming after layer " + getDiameter());
+		}
+	}
+
+	private File layerFile(int depth) {
+		return new File(directory, String.format("layer-%03d.bin", depth));
+	}
+
+	private File temporary(int depth) {
+		return new File(directory, String.format("layer-%03d.tmp", depth));
+	}
+
+	/**
+	 * Runs the search from the command line and prints the distance histogram,
+	 * the diameter and the hardest boards. Arguments, all optional:
+	 * dimension (4), number of empty slots (2), work directory (bfs-DxD-E),
+	 * chunk memory in megabytes (256), number of hardest boards to print (10).
+	 * Run the same command again to resume an interrupted search.
+	 */
+	public static void main(String[] args) throws IOException {
+		int dimension = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+		int emptySlots = (args.length > 1) ? Integer.parseInt(args[1]) : 2;
+		File directory = new File((args.length > 2) ? args[2] : "bfs-" + dimension + "x" + dimension + "-" + emptySlots);
+		int megabytes = (args.length > 3) ? Integer.parseInt(args[3]) : 256;
+		int hardest = (args.length > 4) ? Integer.parseInt(args[4]) : 10;
+		ExternalBFS bfs = new ExternalBFS(directory, dimension, emptySlots, megabytes);
+		bfs.setProgress(System.out);
+		bfs.run();
+		long[] histogram = bfs.getHistogram();
+		for (int d = 0; d < histogram.length; d++) {
+			System.out.println(d + "\t" + histogram[d]);
+		}
+		System.out.println("boards: " + bfs.getStateCount() + ", diameter: " + bfs.getDiameter());
+		for (PuzzleState state : bfs.getHardestPositions(hardest)) {
+			System.out.println(Arrays.toString(Board.toArray(state)));
+		}
+	}
+}
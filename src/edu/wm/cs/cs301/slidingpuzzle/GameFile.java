@@ -0,0 +1,452 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Binary save file for a game: the current board, its dimension and number of
+ * empty slots, a reference to the image on the tiles and the complete history of
+ * moves that getParent() walks back to the start of the game.
+ *
+ * The history is stored newest move first with 2 bits per move for the operation.
+ * With multiple empty slots, enough further bits to number them tell which empty slot
+ * the tile came from, numbered in reading order on the board after the move.
+ *
+ * Loading maps the file into memory and creates the current state only.
+ * Its parent and all earlier states are created from the mapped history when
+ * getParent() is first called on them, so loading takes the same time for
+ * any length of history and only the part of the history that is walked is read.
+ *
+ * File layout: magic number, version, dimension, number of empty slots,
+ * bits per move, path length of the oldest state, number of moves,
+ * image reference (length and UTF-8 bytes), two bytes per board position, moves.
+ * Version 1 files have one byte per board position and are still loaded, they hold boards up to 11x11.
+ */
+public final class GameFile {
+	private static final int MAGIC = 0x53504731; // "SPG1"
+	private static final int VERSION = 2;
+	/**
+	 * Largest dimension of a board that can be saved, the dimension is stored in a byte
+	 * and a tile value in two bytes.
+	 */
+	static final int MAX_DIMENSION = 255;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final PuzzleState state;
+	private final String imageReference;
+	private final int emptySlots;
+	private final long historyLength;
+
+	private GameFile(PuzzleState state, String imageReference, int emptySlots, long historyLength) {
+		this.state = state;
+		this.imageReference = imageReference;
+		this.emptySlots = emptySlots;
+		this.historyLength = historyLength;
+	}
+
+	/**
+	 * @return current state of the loaded game
+	 */
+	public PuzzleState getState() {
+		return state;
+	}
+
+	/**
+	 * @return path of the image file shown on the tiles, null if the game shows numbers only
+	 */
+	public String getImageReference() {
+		return imageReference;
+	}
+
+	/**
+	 * @return number of empty slots of the board
+	 */
+	public int getEmptySlots() {
+		return emptySlots;
+	}
+
+	/**
+	 * @return number of moves stored in the history
+	 */
+	public long getHistoryLength() {
+		return historyLength;
+	}
+
+	/**
+	 * Saves a game. The history follows getParent() back to a state without parent.
+	 * If two consecutive states are not one move apart, the history ends there.
+	 * @param state current state of the game
+	 * @param imageReference path of the image on the tiles, may be null
+	 * @param file target file, overwritten if it exists
+	 * @throws IllegalArgumentException if the board is larger than MAX_DIMENSION or has more than 255 empty slots
+	 */
+	public static void save(PuzzleState state, String imageReference, File file) throws IOException {
+		save(Copy.of(state), imageReference, file);
+	}
+
+	/**
+	 * Saves a copy of a game, e.g. one that is kept by another thread.
+	 * @param game copy of the game, not changed
+	 * @param imageReference path of the image on the tiles, may be null
+	 * @param file target file, overwritten if it exists
+	 * @throws IllegalArgumentException if the board is larger than MAX_DIMENSION or has more than 255 empty slots
+	 */
+	static void save(Copy game, String imageReference, File file) throws IOException {
+		int[] board = game.board;
+		int dimension = Board.dimensionOf(board);
+		int emptySlots = Board.countEmptySlots(board);
+		if (dimension > MAX_DIMENSION || emptySlots > 255) {
+			throw new IllegalArgumentException("can not save a " + dimension + "x" + dimension + " board with "
+					+ emptySlots + " empty slots, at most " + MAX_DIMENSION + "x" + MAX_DIMENSION
+					+ " with 255 empty slots are supported");
+		}
+		int bits = bitsPerMove(emptySlots);
+		long count = game.length();
+		if ((count * bits + 7) / 8 > Integer.MAX_VALUE) {
+			throw new IOException("history of " + count + " moves is too long to be saved");
+		}
+		byte[] history = new byte[(int) ((count * bits + 7) / 8)];
+		// the newer moves are encoded on the boards they lead to, the older ones are encoded already
+		int[] child = board.clone();
+		for (int i = 0; i < game.count; i++) {
+			int move = game.moves[game.count - 1 - i];
+			put(history, (long) i * bits, encode(move, child));
+			Board.apply(child, Board.inverseMove(move, dimension), dimension);
+		}
+		for (long i = game.count; i < count; i++) {
+			put(history, i * bits, game.base.code(game.baseIndex + i - game.count));
+		}
+		byte[] image = (null == imageReference) ? new byte[0] : imageReference.getBytes(UTF8);
+		ByteBuffer header = ByteBuffer.allocate(22 + image.length + 2 * board.length);
+		header.putInt(MAGIC);
+		header.put((byte) VERSION);
+		header.put((byte) dimension);
+		header.put((byte) emptySlots);
+		header.put((byte) bits);
+		header.putInt(game.rootPathLength);
+		header.putLong(count);
+		header.putShort((short) image.length);
+		header.put(image);
+		for (int value : board) {
+			header.putShort((short) value);
+		}
+		header.flip();
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.setLength(0);
+			FileChannel channel = out.getChannel();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			ByteBuffer data = ByteBuffer.wrap(history);
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+			channel.force(false);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Sets the code of a move in the history, codes may cross byte boundaries.
+	 * @param bit position of the lowest bit of the code
+	 */
+	private static void put(byte[] history, long bit, int code) {
+		code <<= bit & 7;
+		for (int b = (int) (bit >>> 3); code != 0; b++, code >>>= 8) {
+			history[b] |= code;
+		}
+	}
+
+	/**
+	 * @return number of bits of a move in the history: 2 for the operation and as many as it takes
+	 * to number the empty slots
+	 */
+	static int bitsPerMove(int emptySlots) {
+		return 2 + 32 - Integer.numberOfLeadingZeros(Math.max(emptySlots, 1) - 1);
+	}
+
+	/**
+	 * Encodes a move as its operation in the lower 2 bits and
+	 * the number of the empty slot the tile came from in the bits above.
+	 * @param move encoded move, see Board.encodeMove()
+	 * @param after board after the move
+	 */
+	private static int encode(int move, int[] after) {
+		int slot = 0;
+		for (int i = 0; i < Board.movePosition(move); i++) {
+			if (after[i] == 0) {
+				slot++;
+			}
+		}
+		return (slot << 2) | Board.moveOperation(move).ordinal();
+	}
+
+	/**
+	 * Loads a game saved with save(). The file is mapped into memory
+	 * and earlier states are created as they are walked with getParent().
+	 * @param file saved game
+	 * @return loaded game
+	 * @throws IOException if the file is not a saved game, or it is corrupt or truncated
+	 */
+	public static GameFile load(File file) throws IOException {
+		MappedByteBuffer buffer;
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			// the mapping remains valid after the file is closed
+			buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+		}
+		finally {
+			in.close();
+		}
+		try {
+			int magic = buffer.getInt();
+			int version = buffer.get();
+			if (magic != MAGIC || version < 1 || version > VERSION) {
+				throw new IOException(file + " is not a saved game");
+			}
+			int dimension = buffer.get() & 0xFF;
+			int emptySlots = buffer.get() & 0xFF;
+			int bits = buffer.get();
+			int rootPathLength = buffer.getInt();
+			long count = buffer.getLong();
+			// path lengths are ints, which also limits the number of moves
+			if (dimension < 2 || emptySlots < 1 || emptySlots >= dimension * dimension
+					|| bits < bitsPerMove(emptySlots) || bits > 16
+					|| rootPathLength < 0 || count < 0 || count > Integer.MAX_VALUE - rootPathLength) {
+				throw new IOException(file + " is corrupt");
+			}
+			byte[] image = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(image);
+			int[][] position = new int[dimension][dimension];
+			for (int r = 0; r < dimension; r++) {
+				for (int c = 0; c < dimension; c++) {
+					position[r][c] = (version == 1) ? buffer.get() : buffer.getShort() & 0xFFFF;
+				}
+			}
+			ByteBuffer moves = buffer.slice();
+			if ((count * bits + 7) / 8 > moves.remaining()) {
+				throw new IOException(file + " is truncated");
+			}
+			History history = new History(moves, bits, count, dimension, rootPathLength);
+			PuzzleState state = (count == 0)
+					? new SimplePuzzleState(position, null, null, rootPathLength)
+					: new SimplePuzzleState(position, history.getOperation(0), (int) (rootPathLength + count), history, 0);
+			return new GameFile(state, (image.length == 0) ? null : new String(image, UTF8), emptySlots, count);
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException(file + " is truncated", e);
+		}
+	}
+
+	/**
+	 * Gives the game with a new current state that was reached from the state of this game,
+	 * e.g. by replaying moves on it.
+	 */
+	GameFile continueWith(PuzzleState next) {
+		return new GameFile(next, imageReference, emptySlots, historyLength + next.getPathLength() - state.getPathLength());
+	}
+
+	/**
+	 * Move history of a loaded game in the mapped file. Creates the parents
+	 * of loaded states by undoing one move at a time.
+	 */
+	static final class History {
+		private final ByteBuffer moves;
+		private final int bits;
+		private final long length;
+		private final int dimension;
+		private final int rootPathLength;
+
+		History(ByteBuffer moves, int bits, long length, int dimension, int rootPathLength) {
+			this.moves = moves;
+			this.bits = bits;
+			this.length = length;
+			this.dimension = dimension;
+			this.rootPathLength = rootPathLength;
+		}
+
+		private int code(long index) {
+			long bit = index * bits;
+			int shift = (int) (bit & 7);
+			int value = 0;
+			for (int b = 0; 8 * b < shift + bits; b++) {
+				value |= (moves.get((int) (bit >>> 3) + b) & 0xFF) << (8 * b);
+			}
+			return (value >>> shift) & ((1 << bits) - 1);
+		}
+
+		Operation getOperation(long index) {
+			return Board.OPERATIONS[code(index) & 3];
+		}
+
+		/**
+		 * @return the same history with its own view of the mapped file, for use on another thread
+		 */
+		History duplicate() {
+			return new History(moves.duplicate(), bits, length, dimension, rootPathLength);
+		}
+
+		/**
+		 * Undoes the move with the given index in place.
+		 * @param board board reached with the move
+		 * @param index of the move, 0 for the newest move
+		 */
+		void undo(int[] board, long index) {
+			int code = code(index);
+			int from = -1;
+			int slot = code >>> 2;
+			for (int i = 0; i < board.length && from < 0; i++) {
+				if (board[i] == 0 && slot-- == 0) {
+					from = i;
+				}
+			}
+			int to = Board.neighbor(from, Board.OPERATIONS[code & 3], dimension);
+			board[from] = board[to];
+			board[to] = 0;
+		}
+
+		/**
+		 * Creates the parent of a state by undoing the move with the given index.
+		 * @param child state reached with the move
+		 * @param index of the move that leads to child, 0 for the newest move
+		 * @return parent state, which creates its own parent on demand
+		 */
+		SimplePuzzleState getParent(SimplePuzzleState child, long index) {
+			if (index >= length) {
+				return null;
+			}
+			int[] board = Board.toArray(child);
+			undo(board, index);
+			int[][] position = new int[dimension][dimension];
+			for (int r = 0; r < dimension; r++) {
+				System.arraycopy(board, r * dimension, position[r], 0, dimension);
+			}
+			if (index + 1 == length) {
+				return new SimplePuzzleState(position, null, null, rootPathLength);
+			}
+			return new SimplePuzzleState(position, getOperation(index + 1), child.getPathLength() - 1, this, index + 1);
+		}
+	}
+
+	/**
+	 * A game as arrays, without its states: the board and the moves that lead to it. The older
+	 * moves of a loaded game stay in its mapped file, so a copy neither walks nor creates the
+	 * states of a history that was not walked yet. A copy is made on the thread the game belongs to
+	 * and can then be kept up to date on another thread, e.g. the writer of a journal.
+	 */
+	static final class Copy {
+		private final int[] board;
+		private final int dimension;
+		// newer moves, oldest first, see Board.encodeMove()
+		private int[] moves;
+		private int count;
+		// older moves of a loaded game from baseIndex on, null if there are none
+		private final History base;
+		private long baseIndex;
+		private final int rootPathLength;
+
+		private Copy(int[] board, int[] moves, History base, long baseIndex, int rootPathLength) {
+			this.board = board;
+			this.dimension = Board.dimensionOf(board);
+			this.moves = moves;
+			this.count = moves.length;
+			this.base = base;
+			this.baseIndex = baseIndex;
+			this.rootPathLength = rootPathLength;
+		}
+
+		/**
+		 * Copies a game. The history follows getParent() back to a state without parent,
+		 * or to a loaded state that has not created its parent yet, the rest of the history
+		 * is taken from the file then. If two consecutive states are not one move apart,
+		 * the history ends there.
+		 * @param state current state of the game
+		 */
+		static Copy of(PuzzleState state) {
+			int dimension = state.getDimension();
+			int[] board = Board.toArray(state);
+			int[] undo = new int[16];
+			int n = 0;
+			int[] child = board;
+			PuzzleState current = state;
+			while (null == pendingHistory(current)) {
+				PuzzleState parent = current.getParent();
+				int[] previous = (null == parent) ? null : Board.toArray(parent);
+				int move = (null == parent) ? -1 : Board.moveBetween(previous, child, dimension);
+				if (move < 0) {
+					break;
+				}
+				if (n == undo.length) {
+					undo = Arrays.copyOf(undo, 2 * n);
+				}
+				undo[n++] = move;
+				child = previous;
+				current = parent;
+			}
+			int[] moves = new int[n];
+			for (int i = 0; i < n; i++) {
+				moves[i] = undo[n - 1 - i];
+			}
+			History history = pendingHistory(current);
+			if (null != history) {
+				history = history.duplicate();
+				return new Copy(board, moves, history, ((SimplePuzzleState) current).getHistoryIndex(), history.rootPathLength);
+			}
+			return new Copy(board, moves, null, 0, current.getPathLength());
+		}
+
+		/**
+		 * @return history of a loaded state that has not created its parent yet, null for other states
+		 */
+		private static History pendingHistory(PuzzleState state) {
+			return (state instanceof SimplePuzzleState) ? ((SimplePuzzleState) state).getPendingHistory() : null;
+		}
+
+		/**
+		 * @return number of moves in the history
+		 */
+		long length() {
+			return count + ((null == base) ? 0 : base.length - baseIndex);
+		}
+
+		/**
+		 * Makes a move.
+		 * @param move encoded move, see Board.encodeMove()
+		 */
+		void apply(int move) {
+			Board.apply(board, move, dimension);
+			if (count == moves.length) {
+				moves = Arrays.copyOf(moves, 2 * count + 16);
+			}
+			moves[count++] = move;
+		}
+
+		/**
+		 * Takes back the newest move.
+		 * @throws IllegalStateException if the history is empty
+		 */
+		void undo() {
+			if (count > 0) {
+				Board.apply(board, Board.inverseMove(moves[--count], dimension), dimension);
+			}
+			else if (length() > 0) {
+				base.undo(board, baseIndex++);
+			}
+			else {
+				throw new IllegalStateException("no move to take back");
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+/**
+ * A heuristic estimates the number of moves that are necessary to get
+ * from a board to the goal board. Solvers that claim optimality
+ * rely on the estimate to be admissible, i.e. it never overestimates.
+ *
+ * Depth-first searches do not call estimate() for every board but carry a heuristic
+ * state along the path: evaluate() computes it for the start of the search, update()
+ * derives it from the state of the parent board after a single move and value() gives
+ * the estimate. This lets a heuristic look at the moved tile only, and lets it
+ * reconstruct values that are stored with reduced precision, see PatternDatabase.
+ */
+interface Heuristic {
+	/**
+	 * Sum of Manhattan distances of all tiles, see Board.manhattan().
+	 */
+	Heuristic MANHATTAN = new Heuristic() {
+		@Override
+		public int estimate(int[] board, int dimension) {
+			return Board.manhattan(board, dimension);
+		}
+		@Override
+		public long evaluate(int[] board, int dimension) {
+			return Board.manhattan(board, dimension);
+		}
+		@Override
+		public long update(long state, int[] board, int dimension, int from, int to) {
+			int goal = board[to] - 1;
+			return state + Board.distance(goal, to, dimension) - Board.distance(goal, from, dimension);
+		}
+		@Override
+		public int value(long state) {
+			return (int) state;
+		}
+		@Override
+		public String getName() {
+			return "Manhattan";
+		}
+	};
+
+	/**
+	 * Estimates the distance of the given board to the goal.
+	 * @param board row-major board, see Board
+	 * @param dimension number of tiles per row
+	 * @return lower bound for the number of moves to the goal
+	 */
+	int estimate(int[] board, int dimension);
+
+	/**
+	 * Computes the heuristic state of a board.
+	 * @param board row-major board, see Board
+	 * @param dimension number of tiles per row
+	 * @return state that value() turns into the same estimate as estimate()
+	 */
+	long evaluate(int[] board, int dimension);
+
+	/**
+	 * Computes the heuristic state of a board from the state of the board before the last move.
+	 * @param state heuristic state of the board before the move
+	 * @param board row-major board after the move
+	 * @param dimension number of tiles per row
+	 * @param from position of the moved tile before the move, now empty
+	 * @param to position of the moved tile after the move
+	 * @return heuristic state of the board
+	 */
+	long update(long state, int[] board, int dimension, int from, int to);
+
+	/**
+	 * @param state heuristic state from evaluate() or update()
+	 * @return lower bound for the number of moves to the goal
+	 */
+	int value(long state);
+
+	/**
+	 * @return short name for logging
+	 */
+	String getName();
+}
@@ -0,0 +1,321 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Bounded cache of hints: for a board, the first move of an optimal solution and the
+ * number of moves that remain. Players ask for hints on the same positions again and again,
+ * and a solution found for one board gives hints for every board along its path.
+ *
+ * Keys are packed boards, see Board.pack(), so boards up to 4x4 are cached.
+ * Boards with one empty slot are stored under their canonical key, see Symmetry,
+ * such that a board and its reflection share an entry; the move is reflected on the way in and out.
+ *
+ * The cache is split into segments by key. Each segment is an access-ordered LinkedHashMap
+ * that evicts its least recently used entry when it is full, guarded by its own lock,
+ * so threads that ask for different boards rarely wait for each other.
+ * Hits, misses and evictions are counted for the hit rate.
+ *
+ * A snapshot of the entries can be saved to a file and loaded at startup to warm the cache.
+ */
+public class HintCache {
+	private static final int MAGIC = 0x53484331; // "SHC1"
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final StripedCounter hits = new StripedCounter();
+	private final StripedCounter misses = new StripedCounter();
+	private final StripedCounter evictions = new StripedCounter();
+
+	/**
+	 * Creates an empty cache.
+	 * @param capacity maximum number of boards, rounded up to a multiple of 16
+	 */
+	public HintCache(int capacity) {
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment((capacity + SEGMENTS - 1) / SEGMENTS);
+		}
+	}
+
+	/**
+	 * Looks up the hint for a state.
+	 * @param state current state of a game
+	 * @return hint or null if the cache holds none for the board
+	 */
+	public Hint get(PuzzleState state) {
+		int dimension = state.getDimension();
+		if (!Board.isPackable(dimension)) {
+			misses.increment();
+			return null;
+		}
+		int[] board = Board.toArray(state);
+		long key = Board.pack(board);
+		boolean reflect = Symmetry.applies(Board.countEmptySlots(board)) && Symmetry.isReflected(key, dimension);
+		long canonical = reflect ? Symmetry.reflect(key, dimension) : key;
+		Segment segment = segmentFor(canonical);
+		Integer value;
+		synchronized (segment) {
+			value = segment.get(canonical);
+		}
+		if (null == value) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		int move = value & 0xFF;
+		return new Hint(reflect ? Symmetry.reflectMove(move, dimension) : move, value >>> 8, dimension);
+	}
+
+	/**
+	 * Adds hints for the start state and all boards along an optimal solution.
+	 * Solutions that are not known to be optimal are ignored, as their hints
+	 * could lead around in circles when combined with others.
+	 * @param start state the solution was computed for
+	 * @param solution solution for start
+	 */
+	public void put(PuzzleState start, Solution solution) {
+		int dimension = start.getDimension();
+		if (!solution.isOptimal() || !Board.isPackable(dimension)) {
+			return;
+		}
+		int[] board = Board.toArray(start);
+		boolean symmetric = Symmetry.applies(Board.countEmptySlots(board));
+		int[] moves = solution.getEncodedMoves();
+		for (int i = 0; i < moves.length; i++) {
+			long key = Board.pack(board);
+			int move = moves[i];
+			if (symmetric && Symmetry.isReflected(key, dimension)) {
+				key = Symmetry.reflect(key, dimension);
+				move = Symmetry.reflectMove(move, dimension);
+			}
+			store(key, ((moves.length - i) << 8) | move);
+			Board.apply(board, moves[i], dimension);
+		}
+	}
+
+	private void store(long key, int value) {
+		Segment segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	private Segment segmentFor(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return segments[(int) (h >>> 60) & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * @return number of boards in the cache
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Removes all entries, the counters keep their values.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return number of lookups that found a hint
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of lookups that found no hint
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return number of entries that were removed to make room for new ones
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return share of lookups that found a hint, 0 if there were no lookups
+	 */
+	public double getHitRate() {
+		long h = getHits();
+		long total = h + getMisses();
+		return (total == 0) ? 0 : (double) h / total;
+	}
+
+	@Override
+	public String toString() {
+		return "HintCache [size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions="
+				+ getEvictions() + ", hit rate=" + String.format("%.1f%%", 100 * getHitRate()) + "]";
+	}
+
+	/**
+	 * Writes all entries to a file, which is replaced only when it is complete.
+	 * @param file snapshot file
+	 */
+	public void save(File file) throws IOException {
+		List<long[]> entries = new ArrayList<long[]>();
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				// least recently used first, such that loading restores the order
+				for (Map.Entry<Long, Integer> entry : segment.entrySet()) {
+					entries.add(new long[] {entry.getKey(), entry.getValue()});
+				}
+			}
+		}
+		File tmp = new File(file.getPath() + ".tmp");
+		FileOutputStream stream = new FileOutputStream(tmp);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(entries.size());
+			for (long[] entry : entries) {
+				out.writeLong(entry[0]);
+				out.writeInt((int) entry[1]);
+			}
+			out.flush();
+			stream.getFD().sync();
+		}
+		finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Adds the entries of a snapshot file written by save().
+	 * @param file snapshot file
+	 * @return number of entries read
+	 */
+	public int load(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a hint cache snapshot");
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				long key = in.readLong();
+				store(key, in.readInt());
+			}
+			return count;
+		}
+		catch (EOFException e) {
+			throw new IOException(file + " is truncated", e);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Next move towards the final state and the number of moves that remain.
+	 */
+	public static final class Hint {
+		private final int move;
+		private final int distance;
+		private final int dimension;
+
+		Hint(int move, int distance, int dimension) {
+			this.move = move;
+			this.distance = distance;
+			this.dimension = dimension;
+		}
+
+		/**
+		 * @return row of the tile to move
+		 */
+		public int getRow() {
+			return Board.movePosition(move) / dimension;
+		}
+
+		/**
+		 * @return column of the tile to move
+		 */
+		public int getColumn() {
+			return Board.movePosition(move) % dimension;
+		}
+
+		/**
+		 * @return direction in which the tile moves
+		 */
+		public Operation getOperation() {
+			return Board.moveOperation(move);
+		}
+
+		/**
+		 * @return number of moves to the final state, including this one
+		 */
+		public int getDistance() {
+			return distance;
+		}
+
+		/**
+		 * Performs the move on the given state.
+		 * @return the state after the move
+		 */
+		public PuzzleState applyTo(PuzzleState state) {
+			return state.move(getRow(), getColumn(), getOperation());
+		}
+
+		@Override
+		public String toString() {
+			return "Hint [row=" + getRow() + ", column=" + getColumn() + ", operation=" + getOperation()
+					+ ", distance=" + distance + "]";
+		}
+	}
+
+	/**
+	 * LRU map of one segment, the value holds the distance in the upper bits and the move in the lowest 8 bits.
+	 */
+	private final class Segment extends LinkedHashMap<Long, Integer> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values such as durations in nanoseconds, with buckets
+ * of bounded relative width in the style of HdrHistogram: values below 64 have a bucket each,
+ * above that every power of 2 is split into 32 buckets, so a bucket is at most about 3% wide
+ * over the whole range of long values. The 1888 counts take 15 KB.
+ *
+ * Recording is a few shifts and an atomic increment, safe for concurrent threads and without
+ * allocation. Percentiles are computed from the bucket counts and are exact up to the bucket width.
+ */
+public final class Histogram {
+	private static final int SUB_BITS = 6;
+	private static final int SUB = 1 << SUB_BITS;
+	private static final int HALF = SUB / 2;
+	static final int BUCKETS = SUB + (64 - SUB_BITS - 1) * HALF;
+
+	private final String name;
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param name identifies the histogram in reports
+	 */
+	public Histogram(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return name given at construction
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Adds a value, negative values count as 0.
+	 */
+	public void record(long value) {
+		long v = Math.max(0, value);
+		counts.incrementAndGet(bucket(v));
+		total.incrementAndGet();
+		sum.addAndGet(v);
+		long m = max.get();
+		while (v > m && !max.compareAndSet(m, v)) {
+			m = max.get();
+		}
+	}
+
+	/**
+	 * @return index of the bucket for a non-negative value
+	 */
+	static int bucket(long value) {
+		if (value < SUB) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+		return SUB + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+	}
+
+	/**
+	 * @return smallest value of a bucket
+	 */
+	static long lowerBound(int bucket) {
+		if (bucket < SUB) {
+			return bucket;
+		}
+		int shift = (bucket - SUB) / HALF + 1;
+		return (long) ((bucket - SUB) % HALF + HALF) << shift;
+	}
+
+	/**
+	 * @return largest value of a bucket
+	 */
+	static long upperBound(int bucket) {
+		return (bucket == BUCKETS - 1) ? Long.MAX_VALUE : lowerBound(bucket + 1) - 1;
+	}
+
+	/**
+	 * @return number of values in a bucket
+	 */
+	long getCount(int bucket) {
+		return counts.get(bucket);
+	}
+
+	/**
+	 * @return number of recorded values
+	 */
+	public long getCount() {
+		return total.get();
+	}
+
+	/**
+	 * @return largest recorded value, 0 if there is none
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return average of the recorded values, 0 if there is none
+	 */
+	public double getMean() {
+		long n = total.get();
+		return (n == 0) ? 0 : (double) sum.get() / n;
+	}
+
+	/**
+	 * Gives a value such that the given share of the recorded values is less or equal.
+	 * @param percentile between 0 and 100
+	 * @return upper end of the bucket that holds the percentile, at most the largest value
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long n = total.get();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Removes all values. Values recorded concurrently may or may not be kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		total.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return "Histogram [" + name + ", count=" + getCount() + ", mean=" + String.format("%.1f", getMean()) + ", p50="
+				+ getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99) + ", max=" + getMax() + "]";
+	}
+}
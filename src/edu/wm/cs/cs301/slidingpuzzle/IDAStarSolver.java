@@ -0,0 +1,209 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Iterative deepening A* (IDA*) solver. 
+ * The solver performs a series of depth-first searches, each limited by a bound 
+ * on g+h where g is the number of moves so far and h is the heuristic estimate.
+ * The bound starts with the estimate for the start state and is raised to the 
+ * smallest value that exceeded the bound in the previous iteration.
+ * With an admissible heuristic the first solution found is optimal.
+ * 
+ * Memory consumption is linear in the solution length as only the current 
+ * path is kept, which makes IDA* the standard choice for the 4x4 board.
+ */
+public class IDAStarSolver implements PuzzleSolver {
+	// returned by search() if the goal was reached
+	static final int FOUND = -1;
+	// the interrupted flag is checked whenever this many nodes have been expanded
+	static final int CHECK_INTERVAL = 1 << 14;
+	private static final StripedCounter NODES = Metrics.counter("idastar.nodes");
+
+	private final Heuristic heuristic;
+	private volatile long lastNodeCount;
+
+	/**
+	 * Creates a solver that uses the Manhattan distance heuristic.
+	 */
+	public IDAStarSolver() {
+		this(Heuristic.MANHATTAN);
+	}
+
+	/**
+	 * Creates a solver with the given admissible heuristic.
+	 * @param heuristic must not overestimate the distance to the goal
+	 */
+	IDAStarSolver(Heuristic heuristic) {
+		this.heuristic = heuristic;
+	}
+
+	@Override
+	public String getName() {
+		return "IDA*/" + heuristic.getName();
+	}
+
+	@Override
+	public boolean isOptimal() {
+		return true;
+	}
+
+	/**
+	 * @return number of nodes expanded by the most recent call to solve
+	 */
+	public long getLastNodeCount() {
+		return lastNodeCount;
+	}
+
+	@Override
+	public Solution solve(PuzzleState start) throws InterruptedException {
+		int dimension = start.getDimension();
+		Search search = new Search(Board.toArray(start), dimension, heuristic);
+		int bound = heuristic.estimate(search.board, dimension);
+		try {
+			while (true) {
+				long begin = Metrics.start();
+				long before = search.nodes;
+				int next = search.run(0, bound, -1);
+				Metrics.end(Metrics.Event.SOLVER_ITERATION, begin, bound, search.nodes - before);
+				if (next == FOUND) {
+					return new Solution(dimension, search.getPath(), getName(), true);
+				}
+				if (next == Integer.MAX_VALUE) {
+					return null; // search space exhausted, no solution
+				}
+				bound = next;
+			}
+		}
+		finally {
+			lastNodeCount = search.nodes;
+			NODES.add(search.nodes);
+		}
+	}
+
+	/**
+	 * Holds the mutable data of a single solve such that a solver object
+	 * can be used by several threads at the same time.
+	 */
+	static final class Search {
+		final int[] board;
+		final int dimension;
+		final Heuristic heuristic;
+		// optional flag shared by parallel searches, set once one of them reached the goal
+		final AtomicBoolean stop;
+		// optional table of boards searched in the current iteration, shared by parallel searches
+		final TranspositionTable table;
+		int[] path = new int[64];
+		int depth;
+		long nodes;
+
+		Search(int[] board, int dimension, Heuristic heuristic) {
+			this(board, dimension, heuristic, null, null, new int[0]);
+		}
+
+		/**
+		 * Creates a search that continues a path of moves that led to the given board.
+		 * @param stop flag to give up early, may be null
+		 * @param table transposition table for packed boards, may be null
+		 * @param prefix moves that led from the start to the given board
+		 */
+		Search(int[] board, int dimension, Heuristic heuristic, AtomicBoolean stop, TranspositionTable table,
+				int[] prefix) {
+			this.board = board;
+			this.dimension = dimension;
+			this.heuristic = heuristic;
+			this.stop = stop;
+			this.table = table;
+			for (int move : prefix) {
+				push(move);
+			}
+		}
+
+		/**
+		 * Depth-first search below the current board.
+		 * @param g number of moves from the start to the current board
+		 * @param bound limit for g+h
+		 * @param undo encoded move that would undo the last move, -1 at the root
+		 * @return FOUND if the goal was reached, otherwise the smallest g+h that exceeded the bound
+		 */
+		int run(int g, int bound, int undo) throws InterruptedException {
+			return run(g, bound, undo, heuristic.evaluate(board, dimension));
+		}
+
+		/**
+		 * Depth-first search below the current board with a known heuristic state.
+		 * @param estimate heuristic state of the current board, see Heuristic.evaluate()
+		 */
+		private int run(int g, int bound, int undo, long estimate) throws InterruptedException {
+			if (null != stop && stop.get()) {
+				return Integer.MAX_VALUE; // another search reached the goal, unwind
+			}
+			int h = heuristic.value(estimate);
+			int f = g + h;
+			if (f > bound) {
+				return f;
+			}
+			if (h == 0) {
+				return FOUND;
+			}
+			if ((++nodes & (CHECK_INTERVAL - 1)) == 0 && Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			if (null != table) {
+				long key = Board.pack(board);
+				int seen = table.probe(key);
+				if (seen != TranspositionTable.MISS && seen <= g) {
+					// searched before in this iteration on a path that was at least as short
+					return Integer.MAX_VALUE;
+				}
+				table.store(key, g, bound - g);
+			}
+			int min = Integer.MAX_VALUE;
+			for (int blank = 0; blank < board.length; blank++) {
+				if (board[blank] != 0) {
+					continue;
+				}
+				for (Operation op : Board.OPERATIONS) {
+					// the tile next to the blank in the opposite direction moves into the blank
+					int tile = Board.neighbor(blank, Board.inverse(op), dimension);
+					if (tile < 0 || board[tile] == 0) {
+						continue;
+					}
+					int move = Board.encodeMove(tile, op);
+					if (move == undo) {
+						continue;
+					}
+					board[blank] = board[tile];
+					board[tile] = 0;
+					push(move);
+					int t = run(g + 1, bound, Board.encodeMove(blank, Board.inverse(op)),
+							heuristic.update(estimate, board, dimension, tile, blank));
+					if (t == FOUND) {
+						return FOUND;
+					}
+					depth--;
+					board[tile] = board[blank];
+					board[blank] = 0;
+					if (t < min) {
+						min = t;
+					}
+				}
+			}
+			return min;
+		}
+
+		private void push(int move) {
+			if (depth == path.length) {
+				path = Arrays.copyOf(path, 2 * depth);
+			}
+			path[depth++] = move;
+		}
+
+		int[] getPath() {
+			return Arrays.copyOf(path, depth);
+		}
+	}
+}
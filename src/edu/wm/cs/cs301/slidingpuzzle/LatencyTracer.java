@@ -0,0 +1,181 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Traces the latency from a mouse event to the completed paint that shows its effect.
+ * The time is split into four phases:
+ * <ul>
+ * <li>dispatch: from the event to the start of its listener, i.e. waiting in the event queue,
+ * measured in milliseconds as the event only carries its time in milliseconds</li>
+ * <li>state: the listener computes the new state until it requests the repaint</li>
+ * <li>queue: from the repaint request until paint starts, the repaint waits for the event thread</li>
+ * <li>paint: drawing the board, mostly blitting the tile images</li>
+ * </ul>
+ * The GUI calls begin() when a listener starts, requested() before it calls repaint(),
+ * and paintStarted() and paintFinished() around paint. Events whose listener requests no repaint
+ * are dropped at the next begin(). Several events may be shown by the same paint, then each
+ * is traced up to that paint.
+ *
+ * The phases are recorded in histograms of the metrics registry, named latency.total,
+ * latency.dispatch and so on, in nanoseconds. The latest traces are kept for the export as CSV.
+ * Tracing follows Metrics.isEnabled(). A tracer is used on the event dispatch thread only.
+ */
+final class LatencyTracer {
+	/**
+	 * Kinds of mouse events that are traced.
+	 */
+	enum Input {
+		PRESS, DRAG, RELEASE, CLICK
+	}
+
+	private static final int FIELDS = 6;
+	private static final String[] HEADER = {"input", "dispatch_us", "state_us", "queue_us", "paint_us", "total_us"};
+
+	private final Histogram dispatch = Metrics.histogram("latency.dispatch");
+	private final Histogram state = Metrics.histogram("latency.state");
+	private final Histogram queue = Metrics.histogram("latency.queue");
+	private final Histogram paint = Metrics.histogram("latency.paint");
+	private final Histogram total = Metrics.histogram("latency.total");
+	private final int capacity;
+	// latest traces, FIELDS values per trace: input, then the phases and the total in nanoseconds
+	private final long[] recent;
+	private long traced;
+	// listener currently running, null if none or it requested no repaint
+	private Trace current;
+	// traces waiting for a paint and those shown by the running paint
+	private final List<Trace> pending = new ArrayList<Trace>();
+	private final List<Trace> painting = new ArrayList<Trace>();
+	private long paintStart;
+	private long lastTotal;
+
+	/**
+	 * Times of one event, in nanoseconds as given by System.nanoTime().
+	 */
+	private static final class Trace {
+		final Input input;
+		final long dispatch;
+		final long start;
+		long requested;
+
+		Trace(Input input, long dispatch, long start) {
+			this.input = input;
+			this.dispatch = dispatch;
+			this.start = start;
+		}
+	}
+
+	/**
+	 * @param capacity number of latest traces kept for the export
+	 */
+	LatencyTracer(int capacity) {
+		this.capacity = capacity;
+		this.recent = new long[capacity * FIELDS];
+	}
+
+	/**
+	 * Starts to trace an event as its listener starts.
+	 * @param when time of the event in milliseconds, as given by InputEvent.getWhen()
+	 */
+	void begin(Input input, long when) {
+		begin(input, Math.max(0, System.currentTimeMillis() - when) * 1000000, System.nanoTime());
+	}
+
+	void begin(Input input, long dispatchNanos, long now) {
+		current = Metrics.isEnabled() ? new Trace(input, dispatchNanos, now) : null;
+	}
+
+	/**
+	 * Marks that the listener has the new state and requests a repaint.
+	 */
+	void requested() {
+		requested(System.nanoTime());
+	}
+
+	void requested(long now) {
+		if (null != current) {
+			current.requested = now;
+			pending.add(current);
+			current = null;
+		}
+	}
+
+	/**
+	 * Marks the start of paint, which shows all events that requested a repaint so far.
+	 */
+	void paintStarted() {
+		paintStarted(System.nanoTime());
+	}
+
+	void paintStarted(long now) {
+		paintStart = now;
+		painting.addAll(pending);
+		pending.clear();
+	}
+
+	/**
+	 * Marks the end of paint and records the traces of the events it shows.
+	 */
+	void paintFinished() {
+		paintFinished(System.nanoTime());
+	}
+
+	void paintFinished(long now) {
+		for (Trace trace : painting) {
+			long[] phases = {trace.dispatch, trace.requested - trace.start, paintStart - trace.requested,
+					now - paintStart};
+			long sum = phases[0] + phases[1] + phases[2] + phases[3];
+			dispatch.record(phases[0]);
+			state.record(phases[1]);
+			queue.record(phases[2]);
+			paint.record(phases[3]);
+			total.record(sum);
+			lastTotal = sum;
+			int slot = (int) (traced++ % capacity) * FIELDS;
+			recent[slot] = trace.input.ordinal();
+			System.arraycopy(phases, 0, recent, slot + 1, phases.length);
+			recent[slot + FIELDS - 1] = sum;
+		}
+		painting.clear();
+	}
+
+	/**
+	 * @return number of traced events since the start
+	 */
+	long getCount() {
+		return traced;
+	}
+
+	/**
+	 * Gives a line of text for an overlay on the board.
+	 * @return latencies of the last event, the median and the 99th percentile in milliseconds
+	 */
+	String getSummary() {
+		return String.format("input to paint: last %.1f ms, p50 %.1f ms, p99 %.1f ms (%d events)", lastTotal / 1e6,
+				total.getValueAtPercentile(50) / 1e6, total.getValueAtPercentile(99) / 1e6, total.getCount());
+	}
+
+	/**
+	 * Writes the latest traces as comma separated values with a header line, oldest first.
+	 * Times are in microseconds.
+	 */
+	void writeCsv(Writer out) throws IOException {
+		for (int i = 0; i < HEADER.length; i++) {
+			out.write((i == 0) ? HEADER[i] : "," + HEADER[i]);
+		}
+		out.write('\n');
+		for (long t = Math.max(0, traced - capacity); t < traced; t++) {
+			int slot = (int) (t % capacity) * FIELDS;
+			StringBuilder line = new StringBuilder(Input.values()[(int) recent[slot]].name());
+			for (int i = 1; i < FIELDS; i++) {
+				line.append(',').append(String.format(Locale.ROOT, "%.1f", recent[slot + i] / 1e3));
+			}
+			out.write(line.append('\n').toString());
+		}
+		out.flush();
+	}
+}
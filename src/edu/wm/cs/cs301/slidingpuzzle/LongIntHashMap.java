@@ -0,0 +1,155 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from long keys to int values with open addressing and linear probing.
+ * Keys and values are stored in two primitive arrays, so a slot costs 12 bytes instead of
+ * three objects for a HashMap entry. The table is between a quarter and half full, an entry
+ * therefore takes 24 to 48 bytes; see sizeInBytes() for the memory actually used.
+ * The map is meant for packed boards, see Board.pack(). 
+ * The key 0 is reserved to mark empty slots and can not be stored.
+ */
+final class LongIntHashMap {
+	// bytes of a slot: the key and the value
+	private static final int BYTES_PER_SLOT = 12;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+
+	/**
+	 * Creates a map with room for the given number of entries before it grows.
+	 * @param expectedSize number of entries
+	 */
+	LongIntHashMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return memory of the table in bytes, which is doubled when it becomes half full
+	 */
+	long sizeInBytes() {
+		return (long) keys.length * BYTES_PER_SLOT;
+	}
+
+	/**
+	 * Gets the value for a key.
+	 * @param key is not 0
+	 * @param missing is returned if the key is not in the map
+	 * @return stored value or missing
+	 */
+	int get(long key, int missing) {
+		for (int i = index(key); ; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				return values[i];
+			}
+			if (k == 0) {
+				return missing;
+			}
+		}
+	}
+
+	/**
+	 * Tells if the map holds the given key.
+	 */
+	boolean containsKey(long key) {
+		for (int i = index(key); ; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				return true;
+			}
+			if (k == 0) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Stores a value for a key unless the key is already present.
+	 * @param key is not 0
+	 * @param value to store
+	 * @return true if the entry was added, false if the key was present
+	 */
+	boolean putIfAbsent(long key, int value) {
+		int i = index(key);
+		for (long k = keys[i]; k != 0; k = keys[i]) {
+			if (k == key) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > (mask >> 1)) {
+			grow();
+		}
+		return true;
+	}
+
+	/**
+	 * Stores a value for a key, replaces a previous value.
+	 * @param key is not 0
+	 * @param value to store
+	 */
+	void put(long key, int value) {
+		int i = index(key);
+		for (long k = keys[i]; k != 0; k = keys[i]) {
+			if (k == key) {
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > (mask >> 1)) {
+			grow();
+		}
+	}
+
+	/**
+	 * Removes all entries, keeps the capacity.
+	 */
+	void clear() {
+		Arrays.fill(keys, 0);
+		size = 0;
+	}
+
+	private int index(long key) {
+		// mix the bits as packed boards differ mostly in a few positions
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			long key = oldKeys[j];
+			if (key != 0) {
+				int i = index(key);
+				while (keys[i] != 0) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = key;
+				values[i] = oldValues[j];
+			}
+		}
+	}
+}
@@ -0,0 +1,353 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Table of precomputed move sequences, macros, for the small sub-problems that the
+ * RowByRowSolver meets over and over again. A macro is the sequence of cells the empty slot
+ * moves to within a small frame of cells, given by row and column offsets from an anchor.
+ * There are two frames:
+ * <ul>
+ * <li>STEP: the 3x3 block around a tile in its centre. A macro leads the empty slot around
+ * the tile to the target cell next to it, on one of the two sides, and moves the tile there.</li>
+ * <li>PAIR: the window of 8 cells at the end of a row in which the last two tiles of the row
+ * are placed, see RowByRowSolver. A macro puts the first tile on cell 0 and the second one
+ * on cell 1. Transposed, the same frame and macros serve the end of a column.</li>
+ * </ul>
+ * Macros are keyed by the frame cells of the tiles, the empty slot and the target.
+ * PAIR macros are generated by an exhaustive breadth-first search within the frame, STEP
+ * macros follow the ring around the centre in both directions. All macros are stored
+ * back to back in one array, such that replaying a macro is a loop over a slice of that array.
+ *
+ * getInstance() loads the table from the class path if a file generated with main()
+ * is bundled there and generates it otherwise. A bundled table that fails to load is
+ * counted as macros.loadfailures in the metrics.
+ */
+final class MacroTable {
+	private static final int MAGIC = 0x4D414331; // "MAC1"
+	private static final String FILE_NAME = "macros.bin";
+	private static final int STEP_SIZE = 9;
+	private static final int STEP_CENTER = 4;
+	private static final int PAIR_SIZE = 8;
+	private static final int STEP_KEYS = STEP_SIZE * STEP_SIZE * 2;
+	private static final int PAIR_KEYS = PAIR_SIZE * PAIR_SIZE * PAIR_SIZE;
+	// cells of the STEP frame around the centre, clockwise
+	private static final int[] RING = {0, 1, 2, 5, 8, 7, 6, 3};
+	private static final StripedCounter LOAD_FAILURES = Metrics.counter("macros.loadfailures");
+	private static MacroTable instance;
+
+	/**
+	 * Cells of the frames, as offsets from the anchor.
+	 */
+	enum Frame {
+		STEP(new int[] {-1, -1, -1, 0, 0, 0, 1, 1, 1}, new int[] {-1, 0, 1, -1, 0, 1, -1, 0, 1}),
+		PAIR(new int[] {0, 0, 1, 1, 1, 2, 2, 2}, new int[] {0, 1, -1, 0, 1, -1, 0, 1});
+
+		private final int[] rows;
+		private final int[] columns;
+
+		private Frame(int[] rows, int[] columns) {
+			this.rows = rows;
+			this.columns = columns;
+		}
+
+		/**
+		 * @return number of cells
+		 */
+		int size() {
+			return rows.length;
+		}
+
+		/**
+		 * @return row offset of a cell from the anchor
+		 */
+		int getRow(int cell) {
+			return rows[cell];
+		}
+
+		/**
+		 * @return column offset of a cell from the anchor
+		 */
+		int getColumn(int cell) {
+			return columns[cell];
+		}
+
+		/**
+		 * @return cell at the given offsets from the anchor or -1 if the frame has none there
+		 */
+		int cellAt(int row, int column) {
+			for (int i = 0; i < rows.length; i++) {
+				if (rows[i] == row && columns[i] == column) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		boolean adjacent(int a, int b) {
+			return Math.abs(rows[a] - rows[b]) + Math.abs(columns[a] - columns[b]) == 1;
+		}
+	}
+
+	// macro k consists of the cells steps[start[k]], ..., steps[start[k+1]-1]
+	private final int[] start;
+	private final byte[] steps;
+
+	private MacroTable(int[] start, byte[] steps) {
+		this.start = start;
+		this.steps = steps;
+	}
+
+	/**
+	 * Gives the shared table, which is loaded or generated on first use.
+	 */
+	static synchronized MacroTable getInstance() {
+		if (null == instance) {
+			InputStream in = MacroTable.class.getResourceAsStream(FILE_NAME);
+			if (null != in) {
+				try {
+					instance = load(in);
+				}
+				catch (IOException e) {
+					LOAD_FAILURES.increment(); // generated instead
+				}
+				finally {
+					try {
+						in.close();
+					}
+					catch (IOException e) {
+						// nothing to do
+					}
+				}
+			}
+			if (null == instance) {
+				instance = generate();
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Macro of the STEP frame that moves the tile in the centre to the target cell.
+	 * Its last step moves the empty slot into the centre.
+	 * @param blank cell of the empty slot, not the centre
+	 * @param target cell next to the centre
+	 * @param side 0 for the shorter way around the tile, 1 for the other way
+	 * @return macro index
+	 */
+	int step(int blank, int target, int side) {
+		return (blank * STEP_SIZE + target) * 2 + side;
+	}
+
+	/**
+	 * Macro of the PAIR frame that puts the first tile on cell 0 and the second tile on cell 1.
+	 * @param first cell of the first tile
+	 * @param second cell of the second tile
+	 * @param blank cell of the empty slot
+	 * @return macro index
+	 */
+	int pair(int first, int second, int blank) {
+		return STEP_KEYS + (first * PAIR_SIZE + second) * PAIR_SIZE + blank;
+	}
+
+	/**
+	 * @return number of moves of a macro
+	 */
+	int length(int macro) {
+		return start[macro + 1] - start[macro];
+	}
+
+	/**
+	 * @return frame cell the empty slot moves to with the given move of the macro
+	 */
+	int getCell(int macro, int index) {
+		return steps[start[macro] + index];
+	}
+
+	/**
+	 * Generates all macros. Keys that do not describe a valid situation get empty macros.
+	 */
+	static MacroTable generate() {
+		byte[][] macros = new byte[STEP_KEYS + PAIR_KEYS][];
+		for (int blank = 0; blank < STEP_SIZE; blank++) {
+			for (int target = 0; target < STEP_SIZE; target++) {
+				if (blank == STEP_CENTER || !Frame.STEP.adjacent(target, STEP_CENTER)) {
+					macros[(blank * STEP_SIZE + target) * 2] = new byte[0];
+					macros[(blank * STEP_SIZE + target) * 2 + 1] = new byte[0];
+					continue;
+				}
+				byte[] clockwise = around(blank, target, 1);
+				byte[] counterclockwise = around(blank, target, RING.length - 1);
+				boolean swap = counterclockwise.length < clockwise.length;
+				byte[] shorter = swap ? counterclockwise : clockwise;
+				byte[] other = swap ? clockwise : counterclockwise;
+				macros[(blank * STEP_SIZE + target) * 2] = append(shorter, STEP_CENTER);
+				macros[(blank * STEP_SIZE + target) * 2 + 1] = append(other, STEP_CENTER);
+			}
+		}
+		for (int first = 0; first < PAIR_SIZE; first++) {
+			for (int second = 0; second < PAIR_SIZE; second++) {
+				for (int blank = 0; blank < PAIR_SIZE; blank++) {
+					int key = (first * PAIR_SIZE + second) * PAIR_SIZE + blank;
+					boolean distinct = first != second && first != blank && second != blank;
+					macros[STEP_KEYS + key] = distinct ? pairPath(first, second, blank) : new byte[0];
+				}
+			}
+		}
+		int[] start = new int[macros.length + 1];
+		for (int k = 0; k < macros.length; k++) {
+			start[k + 1] = start[k] + macros[k].length;
+		}
+		byte[] steps = new byte[start[macros.length]];
+		for (int k = 0; k < macros.length; k++) {
+			System.arraycopy(macros[k], 0, steps, start[k], macros[k].length);
+		}
+		return new MacroTable(start, steps);
+	}
+
+	/**
+	 * Path of the empty slot along the ring of the STEP frame, around the centre.
+	 * @param direction 1 for clockwise, RING.length-1 for counterclockwise
+	 * @return cells after the start, in order
+	 */
+	private static byte[] around(int from, int to, int direction) {
+		int i = 0;
+		while (RING[i] != from) {
+			i++;
+		}
+		byte[] path = new byte[RING.length];
+		int length = 0;
+		while (RING[i] != to) {
+			i = (i + direction) % RING.length;
+			path[length++] = (byte) RING[i];
+		}
+		return Arrays.copyOf(path, length);
+	}
+
+	/**
+	 * Shortest sequence of moves within the PAIR frame that puts the first tile on cell 0 and
+	 * the second one on cell 1. Other tiles are interchangeable for this purpose, so a state
+	 * is the cells of the two tiles and the empty slot.
+	 * @return cells the empty slot moves to, in order
+	 */
+	private static byte[] pairPath(int first, int second, int blank) {
+		int[] parent = new int[PAIR_KEYS];
+		Arrays.fill(parent, -1);
+		int[] states = new int[PAIR_KEYS];
+		int root = (first * PAIR_SIZE + second) * PAIR_SIZE + blank;
+		parent[root] = root;
+		states[0] = root;
+		int head = 0;
+		int tail = 1;
+		while (head < tail) {
+			int state = states[head++];
+			int a = state / (PAIR_SIZE * PAIR_SIZE);
+			int b = (state / PAIR_SIZE) % PAIR_SIZE;
+			int e = state % PAIR_SIZE;
+			if (a == 0 && b == 1) {
+				int length = 0;
+				for (int s = state; s != root; s = parent[s]) {
+					length++;
+				}
+				byte[] path = new byte[length];
+				for (int s = state; s != root; s = parent[s]) {
+					path[--length] = (byte) (s % PAIR_SIZE);
+				}
+				return path;
+			}
+			for (int j = 0; j < PAIR_SIZE; j++) {
+				if (!Frame.PAIR.adjacent(e, j)) {
+					continue;
+				}
+				int next = (((a == j) ? e : a) * PAIR_SIZE + ((b == j) ? e : b)) * PAIR_SIZE + j;
+				if (parent[next] < 0) {
+					parent[next] = state;
+					states[tail++] = next;
+				}
+			}
+		}
+		throw new IllegalStateException("tiles cannot be placed within the window");
+	}
+
+	private static byte[] append(byte[] path, int cell) {
+		byte[] result = Arrays.copyOf(path, path.length + 1);
+		result[path.length] = (byte) cell;
+		return result;
+	}
+
+	/**
+	 * @return number of moves of all macros together
+	 */
+	int getTotalLength() {
+		return steps.length;
+	}
+
+	/**
+	 * Writes the table in a binary format: magic number, number of macros,
+	 * the start of each macro and the cells of all macros.
+	 */
+	void save(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		data.writeInt(MAGIC);
+		data.writeInt(start.length - 1);
+		for (int s : start) {
+			data.writeInt(s);
+		}
+		data.write(steps);
+		data.flush();
+	}
+
+	/**
+	 * Reads a table written by save().
+	 */
+	static MacroTable load(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if (data.readInt() != MAGIC) {
+			throw new IOException("not a macro table");
+		}
+		int count = data.readInt();
+		if (count != STEP_KEYS + PAIR_KEYS) {
+			throw new IOException("corrupt macro table header");
+		}
+		int[] start = new int[count + 1];
+		for (int k = 0; k <= count; k++) {
+			start[k] = data.readInt();
+			if (start[k] < ((k == 0) ? 0 : start[k - 1])) {
+				throw new IOException("corrupt macro table index");
+			}
+		}
+		byte[] steps = new byte[start[count]];
+		data.readFully(steps);
+		return new MacroTable(start, steps);
+	}
+
+	/**
+	 * Generates the table and writes it to the given directory.
+	 * Bundle the file with the classes in this package to load it at startup.
+	 * @param args target directory, default is the working directory
+	 */
+	public static void main(String[] args) throws IOException {
+		File dir = new File((args.length > 0) ? args[0] : ".");
+		long begin = System.currentTimeMillis();
+		MacroTable table = generate();
+		File file = new File(dir, FILE_NAME);
+		OutputStream out = new FileOutputStream(file);
+		try {
+			table.save(out);
+		}
+		finally {
+			out.close();
+		}
+		System.out.println(file + ": " + (table.start.length - 1) + " macros, " + table.getTotalLength() + " moves, "
+				+ (System.currentTimeMillis() - begin) + " ms");
+	}
+}
@@ -0,0 +1,185 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Registry of counters and histograms plus a log of recent timed events, to see what the game
+ * and the solvers do in a running application. Everything is static such that instrumented code
+ * needs no references, and everything can be dumped as a text report on demand.
+ *
+ * Instrumented code brackets the work with start() and end():
+ * <pre>
+ *     long begin = Metrics.start();
+ *     ... work ...
+ *     Metrics.end(Metrics.Event.MOVE, begin);
+ * </pre>
+ * Each kind of event has a histogram of its durations in nanoseconds, and the latest events
+ * are kept in a ring buffer with two values each, e.g. the bound and the number of nodes of a
+ * solver iteration. Metrics are disabled unless the system property slidingpuzzle.metrics is true
+ * or setEnabled() is called. Disabled, start() is a read of a volatile flag and end() returns
+ * at once, so the instrumentation can stay in production builds.
+ *
+ * The events correspond to what a Java Flight Recorder event would capture, the application
+ * is built for Java 7 which offers no API for custom recorder events.
+ */
+public final class Metrics {
+	/**
+	 * Kinds of timed events.
+	 */
+	public enum Event {
+		MOVE, FLIP, SHUFFLE, SOLVER_ITERATION, PAINT
+	}
+
+	// value of start() while disabled, end() ignores it
+	private static final long DISABLED = Long.MIN_VALUE;
+	private static final int RECENT = 1024;
+	private static final int FIELDS = 5;
+	private static volatile boolean enabled = Boolean.getBoolean("slidingpuzzle.metrics");
+	private static final ConcurrentHashMap<String, StripedCounter> COUNTERS =
+			new ConcurrentHashMap<String, StripedCounter>();
+	private static final ConcurrentHashMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<String, Histogram>();
+	private static final Histogram[] EVENTS = new Histogram[Event.values().length];
+	// recent events: kind, start, duration and two values per event, written in turn
+	private static final AtomicLongArray RING = new AtomicLongArray(RECENT * FIELDS);
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+
+	static {
+		for (Event event : Event.values()) {
+			EVENTS[event.ordinal()] = histogram("event." + event.name().toLowerCase());
+		}
+	}
+
+	private Metrics() {
+		// static methods only
+	}
+
+	/**
+	 * @return true if events are recorded
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns recording of events on or off. Counters and histograms keep their values.
+	 */
+	public static void setEnabled(boolean on) {
+		enabled = on;
+	}
+
+	/**
+	 * Marks the beginning of an event.
+	 * @return time stamp to pass to end()
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : DISABLED;
+	}
+
+	/**
+	 * Records an event that began with start().
+	 */
+	public static void end(Event event, long start) {
+		end(event, start, 0, 0);
+	}
+
+	/**
+	 * Records an event that began with start(), with two values that describe it.
+	 */
+	public static void end(Event event, long start, long a, long b) {
+		if (start == DISABLED) {
+			return;
+		}
+		long duration = System.nanoTime() - start;
+		EVENTS[event.ordinal()].record(duration);
+		int slot = (int) (SEQUENCE.getAndIncrement() & (RECENT - 1)) * FIELDS;
+		RING.lazySet(slot, event.ordinal());
+		RING.lazySet(slot + 1, start);
+		RING.lazySet(slot + 2, duration);
+		RING.lazySet(slot + 3, a);
+		RING.lazySet(slot + 4, b);
+	}
+
+	/**
+	 * Gives the counter with the given name, which is created on first use.
+	 * Callers on hot paths keep the counter instead of looking it up each time.
+	 */
+	static StripedCounter counter(String name) {
+		StripedCounter counter = COUNTERS.get(name);
+		if (null == counter) {
+			COUNTERS.putIfAbsent(name, new StripedCounter());
+			counter = COUNTERS.get(name);
+		}
+		return counter;
+	}
+
+	/**
+	 * Gives the histogram with the given name, which is created on first use.
+	 */
+	public static Histogram histogram(String name) {
+		Histogram histogram = HISTOGRAMS.get(name);
+		if (null == histogram) {
+			HISTOGRAMS.putIfAbsent(name, new Histogram(name));
+			histogram = HISTOGRAMS.get(name);
+		}
+		return histogram;
+	}
+
+	/**
+	 * @return histogram of the durations of the given kind of event
+	 */
+	public static Histogram histogram(Event event) {
+		return EVENTS[event.ordinal()];
+	}
+
+	/**
+	 * Writes all counters, all histograms with values and the recent events.
+	 * Events recorded while dumping may show up partially written.
+	 */
+	public static void dump(PrintStream out) {
+		out.println("== Counters");
+		for (Map.Entry<String, StripedCounter> entry
+				: new TreeMap<String, StripedCounter>(COUNTERS).entrySet()) {
+			out.println(String.format("%-30s %14d", entry.getKey(), entry.getValue().sum()));
+		}
+		out.println("== Histograms");
+		out.println(String.format("%-30s %10s %10s %10s %10s %10s %10s", "", "count", "mean", "p50", "p90", "p99",
+				"max"));
+		for (Histogram h : new TreeMap<String, Histogram>(HISTOGRAMS).values()) {
+			if (h.getCount() > 0) {
+				out.println(String.format("%-30s %10d %10.0f %10d %10d %10d %10d", h.getName(), h.getCount(),
+						h.getMean(), h.getValueAtPercentile(50), h.getValueAtPercentile(90),
+						h.getValueAtPercentile(99), h.getMax()));
+			}
+		}
+		long last = SEQUENCE.get();
+		long first = Math.max(0, last - RECENT);
+		out.println("== Recent events (" + (last - first) + " of " + last + ", times in microseconds)");
+		long origin = 0;
+		for (long i = first; i < last; i++) {
+			int slot = (int) (i & (RECENT - 1)) * FIELDS;
+			long start = RING.get(slot + 1);
+			if (i == first) {
+				origin = start;
+			}
+			out.println(String.format("%12.1f %-18s %10.1f %14d %14d", (start - origin) / 1e3,
+					Event.values()[(int) RING.get(slot)], RING.get(slot + 2) / 1e3, RING.get(slot + 3),
+					RING.get(slot + 4)));
+		}
+	}
+
+	/**
+	 * Removes the values of all histograms and the recent events, for tests and benchmarks.
+	 * Counters are kept as instrumented code holds on to them, they only ever grow.
+	 */
+	static void reset() {
+		for (Histogram histogram : HISTOGRAMS.values()) {
+			histogram.reset();
+		}
+		SEQUENCE.set(0);
+	}
+}
@@ -0,0 +1,511 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe journal of a running game. Every move is appended to a journal file,
+ * together with periodic snapshots of the whole game, see GameFile. After a crash
+ * or power loss, recover() loads the latest snapshot and replays the moves
+ * journaled after it, which gives the exact state and parent chain of the game.
+ *
+ * Callers only put records into a queue, a background thread does the writing.
+ * It takes all records that are queued, appends them with a single write and
+ * forces them to the disk with a single call (group commit), so the cost of
+ * forcing is shared by all moves of a burst and the caller never waits for the disk.
+ *
+ * Each snapshot starts a new generation: snapshot-N.spg holds the game and journal-N.log
+ * the moves after it. The snapshot file is renamed into place when it is complete,
+ * then the files of the previous generation are deleted. A journal record holds an encoded
+ * move, see Board.encodeMove(), or UNDO for a step back to the parent, and a CRC32 checksum
+ * over the record and its number; replay stops at the first record that does not match,
+ * which is where a write was torn by the crash.
+ *
+ * The writer never looks at the states of the game, which belong to the caller thread.
+ * It keeps a copy of the game, see GameFile.Copy, which a snapshot or recover() hands over
+ * and the journaled moves keep up to date, and writes snapshots from that copy.
+ * The copy of a loaded or recovered game refers to the history in its file, so neither
+ * the caller nor the writer walks or creates the states of that history.
+ */
+public class MoveJournal {
+	static final int UNDO = -1;
+	private static final int MAGIC = 0x534A4E31; // "SJN1"
+	private static final int RECORD_SIZE = 8;
+	private static final int HEADER_SIZE = 12;
+
+	private final File directory;
+	private final int snapshotInterval;
+	private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<Entry>();
+	private Thread writer;
+	// accessed by the caller thread only
+	private int movesSinceSnapshot;
+	private String imageReference;
+	private long historyLength = -1; // moves in the writer's copy of the game, -1 without a copy
+	// accessed by the writer thread only, and by recover() before the thread starts
+	private long generation;
+	private RandomAccessFile journal;
+	private long records;
+	private final CRC32 crc = new CRC32();
+	private GameFile.Copy game;
+	private volatile IOException failure;
+
+	/**
+	 * Creates a journal in the given directory. Call recover() first to find out
+	 * if there is a game to continue, then start() or snapshot() to begin journaling.
+	 * @param directory holds snapshots and journals, created if necessary
+	 * @param snapshotInterval number of moves after which a new snapshot is taken
+	 */
+	public MoveJournal(File directory, int snapshotInterval) {
+		this.directory = directory;
+		this.snapshotInterval = snapshotInterval;
+	}
+
+	/**
+	 * Restores the game from the latest snapshot and the moves journaled after it.
+	 * @return recovered game or null if the directory holds no snapshot
+	 */
+	public GameFile recover() throws IOException {
+		generation = latestGeneration();
+		if (generation < 0) {
+			generation = 0;
+			return null;
+		}
+		GameFile loaded = GameFile.load(snapshotFile(generation));
+		imageReference = loaded.getImageReference();
+		PuzzleState state = loaded.getState();
+		File file = journalFile(generation);
+		if (file.exists()) {
+			RandomAccessFile in = new RandomAccessFile(file, "rw");
+			try {
+				state = replay(in.getChannel(), state);
+				// cut off a torn record, such that new records follow the valid ones
+				in.setLength((records > 0) ? HEADER_SIZE + records * RECORD_SIZE : 0);
+			}
+			finally {
+				in.close();
+			}
+		}
+		// the copy refers to the history in the snapshot file, only the replayed moves are walked
+		game = GameFile.Copy.of(state);
+		historyLength = game.length();
+		return loaded.continueWith(state);
+	}
+
+	/**
+	 * Replays the records of a journal file on the given state.
+	 * @return state after the last valid record
+	 */
+	private PuzzleState replay(FileChannel channel, PuzzleState state) throws IOException {
+		records = 0;
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+		while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+			// read the whole file
+		}
+		buffer.flip();
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getLong() != generation) {
+			return state;
+		}
+		int dimension = state.getDimension();
+		CRC32 crc = new CRC32();
+		long count = 0;
+		while (buffer.remaining() >= RECORD_SIZE) {
+			int move = buffer.getInt();
+			if ((int) checksum(crc, move, count) != buffer.getInt()) {
+				break; // torn write at the crash
+			}
+			PuzzleState next;
+			if (move == UNDO) {
+				next = state.getParent();
+			}
+			else {
+				int position = Board.movePosition(move);
+				next = state.move(position / dimension, position % dimension, Board.moveOperation(move));
+			}
+			if (null == next) {
+				break;
+			}
+			state = next;
+			count++;
+		}
+		movesSinceSnapshot = (int) Math.min(count, Integer.MAX_VALUE);
+		records = count;
+		return state;
+	}
+
+	/**
+	 * Starts the writer thread to continue the journal of a recovered game.
+	 */
+	public synchronized void start() throws IOException {
+		if (null != writer) {
+			return;
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("can not create journal directory " + directory);
+		}
+		writer = new Thread("MoveJournal writer") {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Journals the moves that lead from one state to another,
+	 * e.g. a single move or the moves of a drag.
+	 * If the states are not connected by moves, a snapshot of the new state is taken instead.
+	 * @param before state before the moves
+	 * @param after state after the moves, reached from before via getParent()
+	 */
+	public void recordMoves(PuzzleState before, PuzzleState after) {
+		int steps = after.getPathLength() - before.getPathLength();
+		int[] moves = new int[Math.max(steps, 0)];
+		int dimension = after.getDimension();
+		PuzzleState state = after;
+		int[] board = Board.toArray(after);
+		for (int i = steps - 1; i >= 0 && null != state; i--) {
+			PuzzleState parent = state.getParent();
+			int[] previous = (null == parent) ? null : Board.toArray(parent);
+			moves[i] = (null == parent) ? -1 : Board.moveBetween(previous, board, dimension);
+			if (moves[i] < 0) {
+				state = null;
+				break;
+			}
+			state = parent;
+			board = previous;
+		}
+		if (steps <= 0 || null == state || !state.equals(before)) {
+			snapshot(after, imageReference);
+			return;
+		}
+		queue.add(Entry.moves(moves));
+		historyLength += (historyLength < 0) ? 0 : steps;
+		movesSinceSnapshot += steps;
+		if (movesSinceSnapshot >= snapshotInterval) {
+			checkpoint(after);
+		}
+	}
+
+	/**
+	 * Journals a step back from a state to its parent, as in auto mode.
+	 * @param after the parent state, which is the new current state
+	 */
+	public void recordUndo(PuzzleState after) {
+		if (historyLength == 0) {
+			// the step back leaves the history the writer has a copy of
+			snapshot(after, imageReference);
+			return;
+		}
+		queue.add(Entry.moves(new int[] {UNDO}));
+		historyLength -= (historyLength < 0) ? 0 : 1;
+		if (++movesSinceSnapshot >= snapshotInterval) {
+			checkpoint(after);
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the whole game, to be called when the game changes in other ways
+	 * than moves, e.g. when the board is shuffled or sorted or a picture is loaded.
+	 * @param state current state of the game
+	 * @param imageReference path of the picture on the tiles, may be null
+	 */
+	public void snapshot(PuzzleState state, String imageReference) {
+		GameFile.Copy copy = GameFile.Copy.of(state);
+		this.imageReference = imageReference;
+		queue.add(Entry.snapshot(copy, imageReference));
+		historyLength = copy.length();
+		movesSinceSnapshot = 0;
+	}
+
+	/**
+	 * Takes a periodic snapshot, from the writer's copy of the game if it has one.
+	 */
+	private void checkpoint(PuzzleState state) {
+		if (historyLength < 0) {
+			snapshot(state, imageReference);
+			return;
+		}
+		queue.add(Entry.snapshot(null, imageReference));
+		movesSinceSnapshot = 0;
+	}
+
+	/**
+	 * Waits until all records queued so far are written and forced to the disk.
+	 * Returns at once if the writer thread is not running.
+	 * @throws IOException if a write failed
+	 */
+	public void flush() throws IOException {
+		Thread t;
+		synchronized (this) {
+			t = writer;
+		}
+		if (null != t) {
+			Entry marker = Entry.flush();
+			queue.add(marker);
+			try {
+				// the writer stops without reaching the marker after a write error
+				while (!marker.written.await(100, TimeUnit.MILLISECONDS) && t.isAlive()) {
+					// wait for the group commit that holds the marker
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (null != failure) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Writes all queued records and stops the writer thread.
+	 * @throws IOException if a write failed, the game may then be recovered to an earlier state
+	 */
+	public void close() throws IOException {
+		Thread t;
+		synchronized (this) {
+			t = writer;
+			writer = null;
+		}
+		if (null != t) {
+			queue.add(Entry.CLOSE);
+			try {
+				t.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (null != failure) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Body of the writer thread: group commits until close() is called.
+	 */
+	private void writeLoop() {
+		List<Entry> batch = new ArrayList<Entry>();
+		try {
+			while (true) {
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * countMoves(batch));
+				boolean closing = false;
+				for (Entry entry : batch) {
+					if (entry == Entry.CLOSE) {
+						closing = true;
+					}
+					else if (null != entry.written) {
+						continue; // released after the commit
+					}
+					else if (null != entry.moves) {
+						for (int move : entry.moves) {
+							appendRecord(buffer, move);
+							track(move);
+						}
+					}
+					else {
+						flush(buffer);
+						if (null != entry.game) {
+							game = entry.game;
+						}
+						writeSnapshot(entry.imageReference);
+					}
+				}
+				flush(buffer);
+				for (Entry entry : batch) {
+					if (null != entry.written) {
+						entry.written.countDown();
+					}
+				}
+				batch.clear();
+				if (closing) {
+					break;
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			// stop writing
+		}
+		catch (IOException e) {
+			failure = e;
+		}
+		catch (Throwable e) {
+			// flush() and close() report it, records are not written any more
+			failure = new IOException("journal stopped after an error", e);
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+		}
+		finally {
+			closeJournal();
+		}
+	}
+
+	/**
+	 * Keeps the writer's copy of the game up to date with a journaled move.
+	 */
+	private void track(int move) {
+		if (null == game) {
+			return; // no copy before the first snapshot
+		}
+		if (move == UNDO) {
+			game.undo();
+		}
+		else {
+			game.apply(move);
+		}
+	}
+
+	private static int countMoves(List<Entry> batch) {
+		int count = 0;
+		for (Entry entry : batch) {
+			count += (null != entry.moves) ? entry.moves.length : 0;
+		}
+		return count;
+	}
+
+	private void appendRecord(ByteBuffer buffer, int move) {
+		buffer.putInt(move);
+		buffer.putInt((int) checksum(crc, move, records++));
+	}
+
+	private static long checksum(CRC32 crc, int move, long index) {
+		crc.reset();
+		ByteBuffer bytes = ByteBuffer.allocate(12);
+		bytes.putInt(move).putLong(index);
+		crc.update(bytes.array());
+		return crc.getValue();
+	}
+
+	/**
+	 * Appends the records of the buffer to the journal and forces them to the disk.
+	 */
+	private void flush(ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		if (buffer.hasRemaining()) {
+			FileChannel channel = openJournal().getChannel();
+			channel.position(channel.size());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		}
+		buffer.clear();
+	}
+
+	private RandomAccessFile openJournal() throws IOException {
+		if (null == journal) {
+			File file = journalFile(generation);
+			journal = new RandomAccessFile(file, "rw");
+			if (journal.length() < HEADER_SIZE) {
+				journal.setLength(0);
+				journal.writeInt(MAGIC);
+				journal.writeLong(generation);
+				// records keeps counting: those of the first batch are numbered before the file is opened
+			}
+		}
+		return journal;
+	}
+
+	private void closeJournal() {
+		if (null != journal) {
+			try {
+				journal.close();
+			}
+			catch (IOException e) {
+				// nothing left to write
+			}
+			journal = null;
+		}
+	}
+
+	/**
+	 * Writes the writer's copy of the game as a snapshot that starts a new generation
+	 * and removes the previous generation.
+	 */
+	private void writeSnapshot(String image) throws IOException {
+		long next = generation + 1;
+		File tmp = new File(directory, "snapshot-" + next + ".tmp");
+		GameFile.save(game, image, tmp);
+		Files.move(tmp.toPath(), snapshotFile(next).toPath(), StandardCopyOption.ATOMIC_MOVE);
+		closeJournal();
+		long previous = generation;
+		generation = next;
+		records = 0;
+		snapshotFile(previous).delete();
+		journalFile(previous).delete();
+	}
+
+	private long latestGeneration() {
+		long latest = -1;
+		File[] files = directory.listFiles();
+		for (File f : (null != files) ? files : new File[0]) {
+			String name = f.getName();
+			if (name.startsWith("snapshot-") && name.endsWith(".spg")) {
+				latest = Math.max(latest, Long.parseLong(name.substring(9, name.length() - 4)));
+			}
+		}
+		return latest;
+	}
+
+	private File snapshotFile(long g) {
+		return new File(directory, "snapshot-" + g + ".spg");
+	}
+
+	private File journalFile(long g) {
+		return new File(directory, "journal-" + g + ".log");
+	}
+
+	/**
+	 * Queue entry: moves to append, a snapshot to take or a marker for flush().
+	 * The arrays are owned by the writer once the entry is queued.
+	 */
+	private static final class Entry {
+		static final Entry CLOSE = new Entry(null, null, null, null);
+		final int[] moves;
+		final GameFile.Copy game;
+		final String imageReference;
+		final CountDownLatch written;
+
+		private Entry(int[] moves, GameFile.Copy game, String imageReference, CountDownLatch written) {
+			this.moves = moves;
+			this.game = game;
+			this.imageReference = imageReference;
+			this.written = written;
+		}
+
+		static Entry moves(int[] moves) {
+			return new Entry(moves, null, null, null);
+		}
+
+		/**
+		 * @return marker that is released when the records queued before it are committed
+		 */
+		static Entry flush() {
+			return new Entry(null, null, null, new CountDownLatch(1));
+		}
+
+		/**
+		 * @param game copy of the game, owned by the writer from now on, null to write the writer's copy
+		 */
+		static Entry snapshot(GameFile.Copy game, String imageReference) {
+			return new Entry(null, game, imageReference, null);
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Storage for the nodes of a best-first search outside the Java heap.
+ * Searches that keep tens of millions of nodes as objects spend much of their
+ * time in the garbage collector; here a node is a fixed size record in
+ * a direct ByteBuffer and the heap usage of a search stays constant.
+ *
+ * Records are allocated in arenas of ARENA_NODES records and addressed by an int index.
+ * A record holds the packed board, see Board.pack(), the index of the parent record,
+ * a link to the next record in the same open list bucket, the path length g,
+ * the heuristic value h and the move that leads from the parent to the board.
+ *
+ * An open addressing hash index, also in a direct buffer, maps packed boards to the
+ * most recent record of the board. Records are never removed; clear() drops all of them
+ * at once and keeps the arenas for the next search, trim() drops them and also releases
+ * the memory beyond a limit.
+ */
+final class OffHeapNodeStore {
+	static final int NONE = -1;
+	static final int RECORD_SIZE = 24;
+	private static final int ARENA_SHIFT = 16;
+	private static final int ARENA_NODES = 1 << ARENA_SHIFT;
+	private static final int INDEX_SLOTS = 1 << 16;
+	// record layout
+	private static final int KEY = 0;
+	private static final int PARENT = 8;
+	private static final int NEXT = 12;
+	private static final int G = 16;
+	private static final int H = 18;
+	private static final int MOVE = 20;
+
+	private final List<ByteBuffer> arenas = new ArrayList<ByteBuffer>();
+	private int size;
+	// hash index: slots hold record index + 1, 0 marks an empty slot
+	private ByteBuffer index;
+	private int indexMask;
+	private int indexSize;
+
+	OffHeapNodeStore() {
+		allocateIndex(INDEX_SLOTS);
+	}
+
+	/**
+	 * @return number of records
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return off-heap memory held by the store in bytes
+	 */
+	long sizeInBytes() {
+		return (long) arenas.size() * ARENA_NODES * RECORD_SIZE + index.capacity();
+	}
+
+	/**
+	 * Removes all records. The arenas are kept and reused by later records.
+	 */
+	void clear() {
+		size = 0;
+		indexSize = 0;
+		for (int i = 0; i < index.capacity(); i += 8) {
+			index.putLong(i, 0);
+		}
+	}
+
+	/**
+	 * Removes all records and releases arenas, and the index if it has grown, until the store
+	 * holds at most the given memory or only the initial index. The garbage collector frees
+	 * the direct buffers that are released.
+	 * @param maxBytes off-heap memory the store may keep for later records
+	 */
+	void trim(long maxBytes) {
+		if (index.capacity() > 4 * INDEX_SLOTS && sizeInBytes() > maxBytes) {
+			allocateIndex(INDEX_SLOTS);
+		}
+		while (!arenas.isEmpty() && sizeInBytes() > maxBytes) {
+			arenas.remove(arenas.size() - 1);
+		}
+		clear();
+	}
+
+	/**
+	 * Appends a record and makes it the record of its board in the hash index.
+	 * @return index of the new record
+	 */
+	int add(long key, int parent, int move, int g, int h) {
+		if (size >>> ARENA_SHIFT == arenas.size()) {
+			arenas.add(ByteBuffer.allocateDirect(ARENA_NODES * RECORD_SIZE));
+		}
+		int node = size++;
+		ByteBuffer arena = arenas.get(node >>> ARENA_SHIFT);
+		int offset = (node & (ARENA_NODES - 1)) * RECORD_SIZE;
+		arena.putLong(offset + KEY, key);
+		arena.putInt(offset + PARENT, parent);
+		arena.putInt(offset + NEXT, NONE);
+		arena.putShort(offset + G, (short) g);
+		arena.putShort(offset + H, (short) h);
+		arena.put(offset + MOVE, (byte) move);
+		put(key, node);
+		return node;
+	}
+
+	long key(int node) {
+		return arena(node).getLong(offset(node) + KEY);
+	}
+
+	int parent(int node) {
+		return arena(node).getInt(offset(node) + PARENT);
+	}
+
+	int next(int node) {
+		return arena(node).getInt(offset(node) + NEXT);
+	}
+
+	void setNext(int node, int next) {
+		arena(node).putInt(offset(node) + NEXT, next);
+	}
+
+	int g(int node) {
+		return arena(node).getShort(offset(node) + G);
+	}
+
+	int h(int node) {
+		return arena(node).getShort(offset(node) + H);
+	}
+
+	/**
+	 * @return encoded move from the parent, or 0xFF for a root record
+	 */
+	int move(int node) {
+		return arena(node).get(offset(node) + MOVE) & 0xFF;
+	}
+
+	private ByteBuffer arena(int node) {
+		return arenas.get(node >>> ARENA_SHIFT);
+	}
+
+	private static int offset(int node) {
+		return (node & (ARENA_NODES - 1)) * RECORD_SIZE;
+	}
+
+	/**
+	 * Looks up the most recent record of a board.
+	 * @return record index or NONE
+	 */
+	int find(long key) {
+		for (int slot = hash(key); ; slot = (slot + 1) & indexMask) {
+			int node = index.getInt(slot << 2) - 1;
+			if (node == NONE || key(node) == key) {
+				return node;
+			}
+		}
+	}
+
+	private void put(long key, int node) {
+		if (2 * (indexSize + 1) > indexMask + 1) {
+			rehash();
+		}
+		for (int slot = hash(key); ; slot = (slot + 1) & indexMask) {
+			int old = index.getInt(slot << 2) - 1;
+			if (old == NONE) {
+				indexSize++;
+				index.putInt(slot << 2, node + 1);
+				return;
+			}
+			if (key(old) == key) {
+				index.putInt(slot << 2, node + 1);
+				return;
+			}
+		}
+	}
+
+	private void rehash() {
+		ByteBuffer old = index;
+		allocateIndex(2 * (indexMask + 1));
+		for (int i = 0; i < old.capacity(); i += 4) {
+			int node = old.getInt(i) - 1;
+			if (node != NONE) {
+				int slot = hash(key(node));
+				while (index.getInt(slot << 2) != 0) {
+					slot = (slot + 1) & indexMask;
+				}
+				index.putInt(slot << 2, node + 1);
+			}
+		}
+	}
+
+	private void allocateIndex(int slots) {
+		index = ByteBuffer.allocateDirect(4 * slots);
+		indexMask = slots - 1;
+	}
+
+	private int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 32) & indexMask;
+	}
+}
@@ -0,0 +1,288 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Parallel version of the IDA* solver.
+ *
+ * The search tree is expanded breadth-first up to a shallow frontier that holds
+ * enough nodes to keep all threads busy. Each iteration with a given bound then
+ * searches the subtrees below the frontier nodes as tasks of a ForkJoinPool.
+ * Tasks split their range of frontier nodes in halves, so idle threads steal
+ * the larger remaining ranges from busy ones and the load stays balanced even
+ * though subtree sizes vary a lot.
+ *
+ * Iterations are coordinated by the pool: an iteration ends when all its tasks
+ * are done and the next bound is the minimum of the values that exceeded the bound,
+ * collected from all tasks. Within an iteration any solution is optimal,
+ * so the first task that reaches the goal sets a shared flag that makes all
+ * other tasks unwind immediately.
+ *
+ * Optionally the tasks share a lock-free transposition table of the boards searched
+ * in the current iteration. A board that is reached again on a path that is not
+ * shorter is not searched a second time, which removes the duplicate work that 
+ * transpositions cause in depth-first searches. The table is only used for boards
+ * that can be packed into a long, i.e. up to 4x4.
+ */
+public class ParallelIDAStarSolver implements PuzzleSolver {
+	private final ForkJoinPool pool;
+	private final int minFrontierSize;
+	private final Heuristic heuristic;
+	private final TranspositionTable table;
+	private volatile long lastNodeCount;
+
+	/**
+	 * Creates a solver with the Manhattan distance heuristic that runs
+	 * on a pool of its own with the given number of threads.
+	 * @param parallelism number of threads, at least 1
+	 */
+	public ParallelIDAStarSolver(int parallelism) {
+		this(parallelism, 0);
+	}
+
+	/**
+	 * Creates a solver with the Manhattan distance heuristic and a shared transposition table
+	 * that runs on a pool of its own with the given number of threads.
+	 * @param parallelism number of threads, at least 1
+	 * @param tableMegabytes size of the transposition table, 0 for no table
+	 */
+	public ParallelIDAStarSolver(int parallelism, int tableMegabytes) {
+		this(new ForkJoinPool(parallelism), Heuristic.MANHATTAN,
+				(tableMegabytes > 0) ? new TranspositionTable(tableMegabytes) : null);
+	}
+
+	/**
+	 * Creates a solver that runs on the given pool.
+	 * @param pool runs the subtree searches
+	 * @param heuristic must not overestimate the distance to the goal
+	 * @param table transposition table, may be null
+	 */
+	ParallelIDAStarSolver(ForkJoinPool pool, Heuristic heuristic, TranspositionTable table) {
+		this.pool = pool;
+		// many more subtrees than threads, such that work stealing can balance the load
+		this.minFrontierSize = 64 * pool.getParallelism();
+		this.heuristic = heuristic;
+		this.table = table;
+	}
+
+	@Override
+	public String getName() {
+		return "ParallelIDA*(" + pool.getParallelism() + ")/" + heuristic.getName() + ((null != table) ? "+TT" : "");
+	}
+
+	/**
+	 * @return the transposition table or null if the solver does not use one
+	 */
+	TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	@Override
+	public boolean isOptimal() {
+		return true;
+	}
+
+	/**
+	 * @return number of nodes expanded by the most recent call to solve
+	 */
+	public long getLastNodeCount() {
+		return lastNodeCount;
+	}
+
+	/**
+	 * Stops the threads of the pool. The solver can not be used afterwards.
+	 */
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	@Override
+	public Solution solve(PuzzleState start) throws InterruptedException {
+		int dimension = start.getDimension();
+		int[] board = Board.toArray(start);
+		// breadth-first expansion to the frontier
+		List<FrontierNode> frontier = new ArrayList<FrontierNode>();
+		frontier.add(new FrontierNode(board, new int[0], -1));
+		while (frontier.size() < minFrontierSize) {
+			List<FrontierNode> next = new ArrayList<FrontierNode>();
+			for (FrontierNode node : frontier) {
+				if (heuristic.estimate(node.board, dimension) == 0) {
+					// breadth-first: the first goal on the shallowest layer is optimal
+					return new Solution(dimension, node.path, getName(), true);
+				}
+				node.expand(dimension, next);
+			}
+			if (next.isEmpty()) {
+				return null;
+			}
+			frontier = next;
+		}
+		FrontierNode[] nodes = frontier.toArray(new FrontierNode[frontier.size()]);
+		// iterations over increasing bounds
+		AtomicBoolean found = new AtomicBoolean();
+		AtomicReference<int[]> solution = new AtomicReference<int[]>();
+		AtomicLong nodeCount = new AtomicLong();
+		int bound = Integer.MAX_VALUE;
+		for (FrontierNode node : nodes) {
+			bound = Math.min(bound, node.path.length + heuristic.estimate(node.board, dimension));
+		}
+		TranspositionTable shared = Board.isPackable(dimension) ? table : null;
+		if (null != shared) {
+			shared.clear(); // values are path lengths from the previous start
+		}
+		try {
+			while (true) {
+				if (null != shared) {
+					shared.newGeneration();
+				}
+				AtomicInteger nextBound = new AtomicInteger(Integer.MAX_VALUE);
+				SubtreeTask task = new SubtreeTask(nodes, 0, nodes.length, bound, dimension, shared,
+						found, solution, nextBound, nodeCount);
+				waitFor(pool.submit(task), found);
+				if (found.get()) {
+					return new Solution(dimension, solution.get(), getName(), true);
+				}
+				if (nextBound.get() == Integer.MAX_VALUE) {
+					return null;
+				}
+				bound = nextBound.get();
+			}
+		}
+		finally {
+			lastNodeCount = nodeCount.get();
+		}
+	}
+
+	/**
+	 * Waits for an iteration to complete. If the waiting thread is interrupted,
+	 * the flag makes the tasks of the iteration unwind.
+	 */
+	private void waitFor(Future<?> iteration, AtomicBoolean stop) throws InterruptedException {
+		try {
+			iteration.get();
+		}
+		catch (InterruptedException e) {
+			stop.set(true);
+			throw e;
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("subtree search failed", e.getCause());
+		}
+	}
+
+	/**
+	 * A node on the frontier with the path of moves from the start.
+	 */
+	private static final class FrontierNode {
+		final int[] board;
+		final int[] path;
+		final int undo;
+
+		FrontierNode(int[] board, int[] path, int undo) {
+			this.board = board;
+			this.path = path;
+			this.undo = undo;
+		}
+
+		void expand(int dimension, List<FrontierNode> next) {
+			for (int blank = 0; blank < board.length; blank++) {
+				if (board[blank] != 0) {
+					continue;
+				}
+				for (Operation op : Board.OPERATIONS) {
+					int tile = Board.neighbor(blank, Board.inverse(op), dimension);
+					if (tile < 0 || board[tile] == 0 || Board.encodeMove(tile, op) == undo) {
+						continue;
+					}
+					int[] child = board.clone();
+					child[blank] = child[tile];
+					child[tile] = 0;
+					int[] childPath = new int[path.length + 1];
+					System.arraycopy(path, 0, childPath, 0, path.length);
+					childPath[path.length] = Board.encodeMove(tile, op);
+					next.add(new FrontierNode(child, childPath, Board.encodeMove(blank, Board.inverse(op))));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Searches the subtrees below a range of frontier nodes.
+	 * Ranges are split in halves until a single node is left.
+	 */
+	private final class SubtreeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final FrontierNode[] nodes;
+		private final int from;
+		private final int to;
+		private final int bound;
+		private final int dimension;
+		private final TranspositionTable shared;
+		private final AtomicBoolean found;
+		private final AtomicReference<int[]> solution;
+		private final AtomicInteger nextBound;
+		private final AtomicLong nodeCount;
+
+		SubtreeTask(FrontierNode[] nodes, int from, int to, int bound, int dimension, TranspositionTable shared,
+				AtomicBoolean found, AtomicReference<int[]> solution, AtomicInteger nextBound, AtomicLong nodeCount) {
+			this.nodes = nodes;
+			this.from = from;
+			this.to = to;
+			this.bound = bound;
+			this.dimension = dimension;
+			this.shared = shared;
+			this.found = found;
+			this.solution = solution;
+			this.nextBound = nextBound;
+			this.nodeCount = nodeCount;
+		}
+
+		@Override
+		protected void compute() {
+			if (found.get()) {
+				return;
+			}
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new SubtreeTask(nodes, from, middle, bound, dimension, shared, found, solution, nextBound, nodeCount),
+						new SubtreeTask(nodes, middle, to, bound, dimension, shared, found, solution, nextBound, nodeCount));
+				return;
+			}
+			FrontierNode node = nodes[from];
+			IDAStarSolver.Search search = new IDAStarSolver.Search(node.board.clone(), dimension,
+					heuristic, found, shared, node.path);
+			int result;
+			try {
+				result = search.run(node.path.length, bound, node.undo);
+			}
+			catch (InterruptedException e) {
+				// pool threads are not interrupted by the solver, cancellation uses the found flag
+				Thread.currentThread().interrupt();
+				result = Integer.MAX_VALUE;
+			}
+			nodeCount.addAndGet(search.nodes);
+			if (result == IDAStarSolver.FOUND) {
+				if (solution.compareAndSet(null, search.getPath())) {
+					found.set(true);
+				}
+				return;
+			}
+			// lower the shared next bound to the smallest value seen
+			int current = nextBound.get();
+			while (result < current && !nextBound.compareAndSet(current, result)) {
+				current = nextBound.get();
+			}
+		}
+	}
+}
@@ -0,0 +1,520 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.Arrays;
+
+/**
+ * Additive pattern database heuristic for the 4x4 board with one empty slot.
+ * The tiles are split into disjoint patterns. For every placement of the tiles of a pattern
+ * the table holds the number of moves of pattern tiles that are needed to bring them home,
+ * where all other tiles are indistinguishable and their moves are free.
+ * As every move moves a tile of one pattern only, the sum over all patterns is admissible.
+ *
+ * A table with one byte per entry for a 7-8 split takes about 580 MB, so the tables
+ * can be stored with less precision, see PdbStorage:
+ * BYTE keeps the distance, NIBBLE keeps half the difference between the distance and
+ * the Manhattan distance of the pattern tiles, which is always even and rarely more than 30,
+ * and MOD3 keeps the distance modulo 3 only. The MOD3 distances are lowered where needed
+ * such that a move changes the distance of a pattern by -1, 0 or 1, so the exact distance of a child follows from the distance of its parent
+ * and the residue of the child, which the search passes along as the heuristic state.
+ * Only the start of a search has to reconstruct the distance by walking down to the goal.
+ * Min-compression over 2^k adjacent ranks can be added to BYTE and NIBBLE.
+ *
+ * A placement is ranked as a partial permutation of the 16 positions, which gives
+ * 16!/(16-k)! entries for k tiles. Tables are built with a breadth-first search over
+ * placements that keeps, per placement, the positions the empty slot has reached.
+ * Boards that are not 4x4 with one empty slot get the Manhattan distance.
+ *
+ * The final state is its own reflection about the main diagonal, see Symmetry, so the tables
+ * also give a lower bound for the reflected board. As the reflected patterns are different
+ * sets of tiles, the maximum of both sums is often larger, for twice the lookups.
+ */
+final class PatternDatabase implements Heuristic {
+	/**
+	 * Precision of the stored entries.
+	 */
+	enum Compression {
+		BYTE, NIBBLE, MOD3
+	}
+
+	/** Three patterns of 5 tiles, about 0.5 million entries each. */
+	static final int[][] PARTITION_555 = {
+		{1, 2, 3, 5, 6}, {4, 7, 8, 11, 12}, {9, 10, 13, 14, 15}
+	};
+	/** Two patterns of 6 tiles and one of 3 tiles, about 11.5 million entries. */
+	static final int[][] PARTITION_663 = {
+		{1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}
+	};
+	/** Patterns of 7 and 8 tiles, about 576 million entries; needs several GB to build. */
+	static final int[][] PARTITION_78 = {
+		{3, 4, 7, 8, 11, 12, 15}, {1, 2, 5, 6, 9, 10, 13, 14}
+	};
+
+	private static final int DIMENSION = 4;
+	private static final int CELLS = 16;
+	private static final int UNKNOWN = 0xFF;
+	// marks a heuristic state that holds a Manhattan distance
+	private static final long FALLBACK = Long.MIN_VALUE;
+	// change of the distance for the difference of residues modulo 3
+	private static final int[] DELTA = {0, 1, -1};
+	private static final int LEFT_COLUMN = 0x1111;
+	private static final int RIGHT_COLUMN = 0x8888;
+
+	private static final int[] REFLECTED_TILE = new int[CELLS];
+	private static final int[] REFLECTED_POSITION = new int[CELLS];
+	static {
+		for (int i = 0; i < CELLS; i++) {
+			REFLECTED_TILE[i] = Symmetry.reflectTile(i, DIMENSION);
+			REFLECTED_POSITION[i] = Symmetry.reflectPosition(i, DIMENSION);
+		}
+	}
+
+	private static PatternDatabase defaultInstance;
+
+	private final int[][] patterns;
+	private final Compression compression;
+	private final int minShift;
+	// pattern number and index within the pattern by tile, -1 for tiles without pattern
+	private final int[] patternOf = new int[CELLS];
+	private final int[] indexOf = new int[CELLS];
+	private final PdbStorage[] tables;
+	// look up the reflected board as well, which needs 8 bits per pattern in the upper half of the state
+	private final boolean reflected;
+
+	/**
+	 * Builds the tables for the given patterns.
+	 * @param patterns disjoint sets of at most 8 tiles each; with up to 3 patterns the reflected board is looked up too
+	 * @param compression precision of the stored entries
+	 * @param minShift log2 of the number of adjacent ranks that share an entry, 0 for none
+	 * @throws IllegalArgumentException if the patterns overlap or MOD3 is combined with min-compression
+	 */
+	PatternDatabase(int[][] patterns, Compression compression, int minShift) {
+		this(patterns, compression, minShift, patterns.length <= 3);
+	}
+
+	/**
+	 * Builds the tables for the given patterns.
+	 * @param reflected if true, the estimate is the maximum for the board and its reflection,
+	 * otherwise up to 7 patterns are possible
+	 */
+	PatternDatabase(int[][] patterns, Compression compression, int minShift, boolean reflected) {
+		if (patterns.length > (reflected ? 3 : 7) || (compression == Compression.MOD3 && minShift > 0)) {
+			throw new IllegalArgumentException("unsupported pattern database configuration");
+		}
+		this.patterns = patterns;
+		this.compression = compression;
+		this.minShift = minShift;
+		this.reflected = reflected;
+		Arrays.fill(patternOf, -1);
+		for (int p = 0; p < patterns.length; p++) {
+			if (patterns[p].length > 8) {
+				throw new IllegalArgumentException("pattern with more than 8 tiles");
+			}
+			for (int i = 0; i < patterns[p].length; i++) {
+				int tile = patterns[p][i];
+				if (tile < 1 || tile >= CELLS || patternOf[tile] >= 0) {
+					throw new IllegalArgumentException("tile " + tile + " is not valid or in two patterns");
+				}
+				patternOf[tile] = p;
+				indexOf[tile] = i;
+			}
+		}
+		tables = new PdbStorage[patterns.length];
+		for (int p = 0; p < patterns.length; p++) {
+			tables[p] = store(patterns[p], build(patterns[p]));
+		}
+	}
+
+	/**
+	 * Gives the shared 5-5-5 database with nibble entries, which is built on first use.
+	 */
+	static synchronized PatternDatabase getDefault() {
+		if (null == defaultInstance) {
+			defaultInstance = new PatternDatabase(PARTITION_555, Compression.NIBBLE, 0);
+		}
+		return defaultInstance;
+	}
+
+	@Override
+	public String getName() {
+		StringBuilder name = new StringBuilder("PDB ");
+		for (int p = 0; p < patterns.length; p++) {
+			name.append((p > 0) ? "-" : "").append(patterns[p].length);
+		}
+		return name.append(' ').append(tables[0].getName()).append((compression == Compression.MOD3) ? "/mod3" : "")
+				.append(reflected ? "+reflect" : "").toString();
+	}
+
+	/**
+	 * @return memory used by the tables
+	 */
+	long sizeInBytes() {
+		long size = 0;
+		for (PdbStorage table : tables) {
+			size += table.sizeInBytes();
+		}
+		return size;
+	}
+
+	/**
+	 * Tells if the tables apply to the board: 4x4 with exactly one empty slot.
+	 */
+	static boolean supports(int[] board) {
+		return board.length == CELLS && Board.countEmptySlots(board) == 1;
+	}
+
+	@Override
+	public int estimate(int[] board, int dimension) {
+		return value(evaluate(board, dimension));
+	}
+
+	/**
+	 * The state holds the distance of pattern p in bits 8p to 8p+7 and the distance
+	 * of pattern p on the reflected board in bits 32+8p to 32+8p+7,
+	 * or the Manhattan distance and the FALLBACK bit for other boards.
+	 */
+	@Override
+	public long evaluate(int[] board, int dimension) {
+		if (!supports(board)) {
+			return FALLBACK | Board.manhattan(board, dimension);
+		}
+		long state = 0;
+		for (int p = 0; p < patterns.length; p++) {
+			state |= (long) evaluate(p, positions(board, p, false)) << (8 * p);
+			if (reflected) {
+				state |= (long) evaluate(p, positions(board, p, true)) << (32 + 8 * p);
+			}
+		}
+		return state;
+	}
+
+	private int evaluate(int p, long positions) {
+		return (compression == Compression.MOD3) ? descend(p, positions) : decode(p, positions, -1);
+	}
+
+	@Override
+	public long update(long state, int[] board, int dimension, int from, int to) {
+		if (state < 0) {
+			return FALLBACK | Heuristic.MANHATTAN.update((int) state, board, dimension, from, to);
+		}
+		state = update(state, board, patternOf[board[to]], false);
+		return reflected ? update(state, board, patternOf[Symmetry.reflectTile(board[to], DIMENSION)], true) : state;
+	}
+
+	/**
+	 * Looks up pattern p again after a move of one of its tiles.
+	 */
+	private long update(long state, int[] board, int p, boolean reflect) {
+		if (p < 0) {
+			return state;
+		}
+		int shift = (reflect ? 32 : 0) + 8 * p;
+		int parent = (int) (state >>> shift) & 0xFF;
+		int distance = decode(p, positions(board, p, reflect), parent);
+		return (state & ~(0xFFL << shift)) | ((long) distance << shift);
+	}
+
+	@Override
+	public int value(long state) {
+		if (state < 0) {
+			return (int) state;
+		}
+		int sum = 0;
+		int reflectedSum = 0;
+		for (int p = 0; p < patterns.length; p++) {
+			sum += (int) (state >>> (8 * p)) & 0xFF;
+			if (reflected) {
+				reflectedSum += (int) (state >>> (32 + 8 * p)) & 0xFF;
+			}
+		}
+		return Math.max(sum, reflectedSum);
+	}
+
+	/**
+	 * Collects the positions of the tiles of a pattern, 4 bits per tile in pattern order.
+	 * @param reflect if true, for the reflection of the board
+	 */
+	private long positions(int[] board, int p, boolean reflect) {
+		long positions = 0;
+		for (int i = 0; i < CELLS; i++) {
+			int tile = reflect ? REFLECTED_TILE[board[i]] : board[i];
+			if (tile != 0 && patternOf[tile] == p) {
+				positions |= (long) (reflect ? REFLECTED_POSITION[i] : i) << (4 * indexOf[tile]);
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * Looks up the distance of a placement of the tiles of pattern p.
+	 * @param parent distance of the placement before the last move, only used by MOD3
+	 */
+	private int decode(int p, long positions, int parent) {
+		int k = patterns[p].length;
+		int rank = 0;
+		int used = 0;
+		int manhattan = 0;
+		for (int i = 0; i < k; i++) {
+			int position = (int) (positions >>> (4 * i)) & 15;
+			rank = rank * (CELLS - i) + position - Integer.bitCount(used & ((1 << position) - 1));
+			used |= 1 << position;
+			manhattan += Board.distance(patterns[p][i] - 1, position, DIMENSION);
+		}
+		int stored = tables[p].get(rank);
+		switch (compression) {
+		case NIBBLE:
+			return manhattan + 2 * stored;
+		case MOD3:
+			return parent + DELTA[(stored - parent % 3 + 3) % 3];
+		default:
+			return stored;
+		}
+	}
+
+	/**
+	 * Reconstructs the distance of a placement from residues modulo 3 by following
+	 * moves that lower the distance by one until the tiles are home.
+	 */
+	private int descend(int p, long positions) {
+		int k = patterns[p].length;
+		int residue = tables[p].get(rank(positions, k));
+		int distance = 0;
+		while (!isHome(p, positions)) {
+			int occupied = occupied(positions, k);
+			long next = -1;
+			for (int i = 0; i < k && next < 0; i++) {
+				int from = (int) (positions >>> (4 * i)) & 15;
+				for (PuzzleState.Operation op : Board.OPERATIONS) {
+					int to = Board.neighbor(from, op, DIMENSION);
+					if (to < 0 || (occupied & (1 << to)) != 0) {
+						continue;
+					}
+					long moved = (positions & ~(15L << (4 * i))) | ((long) to << (4 * i));
+					if (tables[p].get(rank(moved, k)) == (residue + 2) % 3) {
+						next = moved;
+						break;
+					}
+				}
+			}
+			if (next < 0) {
+				throw new IllegalStateException("pattern database is not consistent");
+			}
+			positions = next;
+			residue = (residue + 2) % 3;
+			distance++;
+		}
+		return distance;
+	}
+
+	private boolean isHome(int p, long positions) {
+		for (int i = 0; i < patterns[p].length; i++) {
+			if (((positions >>> (4 * i)) & 15) != patterns[p][i] - 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Ranks a placement of k tiles as a partial permutation of the 16 positions.
+	 */
+	static int rank(long positions, int k) {
+		int rank = 0;
+		int used = 0;
+		for (int i = 0; i < k; i++) {
+			int position = (int) (positions >>> (4 * i)) & 15;
+			rank = rank * (CELLS - i) + position - Integer.bitCount(used & ((1 << position) - 1));
+			used |= 1 << position;
+		}
+		return rank;
+	}
+
+	/**
+	 * Inverse of rank().
+	 */
+	static long unrank(int rank, int k) {
+		int[] digits = new int[k];
+		for (int i = k - 1; i >= 0; i--) {
+			digits[i] = rank % (CELLS - i);
+			rank /= CELLS - i;
+		}
+		long positions = 0;
+		int used = 0;
+		for (int i = 0; i < k; i++) {
+			int position = -1;
+			for (int free = digits[i]; free >= 0; free--) {
+				position++;
+				while ((used & (1 << position)) != 0) {
+					position++;
+				}
+			}
+			used |= 1 << position;
+			positions |= (long) position << (4 * i);
+		}
+		return positions;
+	}
+
+	/**
+	 * @return number of placements of k tiles
+	 */
+	static int size(int k) {
+		int size = 1;
+		for (int i = 0; i < k; i++) {
+			size *= CELLS - i;
+		}
+		return size;
+	}
+
+	private static int occupied(long positions, int k) {
+		int mask = 0;
+		for (int i = 0; i < k; i++) {
+			mask |= 1 << ((positions >>> (4 * i)) & 15);
+		}
+		return mask;
+	}
+
+	/**
+	 * @return positions the empty slot reaches from the given position without moving an occupied one
+	 */
+	private static int region(int start, int occupied) {
+		int free = ~occupied & 0xFFFF;
+		int region = 1 << start;
+		while (true) {
+			int grown = region | ((region << 1) & ~LEFT_COLUMN) | ((region >>> 1) & ~RIGHT_COLUMN)
+					| (region << DIMENSION) | (region >>> DIMENSION);
+			grown &= free;
+			if (grown == region) {
+				return region;
+			}
+			region = grown;
+		}
+	}
+
+	/**
+	 * Computes the distance of every placement of the tiles of a pattern.
+	 * Layer d holds the placements and positions of the empty slot that need d moves of
+	 * pattern tiles; as moves of other tiles are free, the empty slot spreads over its whole
+	 * region, which is what the masks of reached and new positions per placement record.
+	 * @return distance by rank
+	 */
+	static byte[] build(int[] pattern) {
+		int k = pattern.length;
+		int size = size(k);
+		byte[] distance = new byte[size];
+		Arrays.fill(distance, (byte) UNKNOWN);
+		short[] reached = new short[size];
+		short[] current = new short[size];
+		short[] next = new short[size];
+		long home = 0;
+		for (int i = 0; i < k; i++) {
+			home |= (long) (pattern[i] - 1) << (4 * i);
+		}
+		int start = rank(home, k);
+		distance[start] = 0;
+		reached[start] = current[start] = (short) region(CELLS - 1, occupied(home, k));
+		boolean more = true;
+		for (int d = 0; more; d++) {
+			more = false;
+			for (int r = 0; r < size; r++) {
+				int empty = current[r] & 0xFFFF;
+				if (empty == 0) {
+					continue;
+				}
+				current[r] = 0;
+				long positions = unrank(r, k);
+				int occupied = occupied(positions, k);
+				for (int i = 0; i < k; i++) {
+					int from = (int) (positions >>> (4 * i)) & 15;
+					for (PuzzleState.Operation op : Board.OPERATIONS) {
+						int to = Board.neighbor(from, op, DIMENSION);
+						if (to < 0 || (empty & (1 << to)) == 0) {
+							continue;
+						}
+						long moved = (positions & ~(15L << (4 * i))) | ((long) to << (4 * i));
+						int child = rank(moved, k);
+						int region = region(from, occupied ^ (1 << from) ^ (1 << to));
+						if ((region & ~reached[child]) != 0) {
+							reached[child] |= region;
+							next[child] |= region;
+							if ((distance[child] & 0xFF) == UNKNOWN) {
+								distance[child] = (byte) (d + 1);
+							}
+							more = true;
+						}
+					}
+				}
+			}
+			short[] swap = current;
+			current = next;
+			next = swap;
+		}
+		return distance;
+	}
+
+	/**
+	 * Converts distances into the configured storage.
+	 */
+	private PdbStorage store(int[] pattern, byte[] distance) {
+		int k = pattern.length;
+		PdbStorage.Factory factory;
+		switch (compression) {
+		case NIBBLE:
+			for (int r = 0; r < distance.length; r++) {
+				long positions = unrank(r, k);
+				int manhattan = 0;
+				for (int i = 0; i < k; i++) {
+					manhattan += Board.distance(pattern[i] - 1, (int) (positions >>> (4 * i)) & 15, DIMENSION);
+				}
+				distance[r] = (byte) (((distance[r] & 0xFF) - manhattan) / 2);
+			}
+			factory = PdbStorage.Factory.NIBBLES;
+			break;
+		case MOD3:
+			smooth(pattern, distance);
+			for (int r = 0; r < distance.length; r++) {
+				distance[r] = (byte) ((distance[r] & 0xFF) % 3);
+			}
+			factory = PdbStorage.Factory.TWO_BITS;
+			break;
+		default:
+			factory = PdbStorage.Factory.BYTES;
+		}
+		return (minShift > 0) ? new PdbStorage.MinCompressed(distance, minShift, factory) : factory.create(distance);
+	}
+
+	/**
+	 * Lowers distances until a move of a pattern tile changes them by at most one,
+	 * which the reconstruction from residues modulo 3 relies on. The minimum over the positions
+	 * of the empty slot does not have this property if pattern tiles cut the board into regions.
+	 * Entries are processed by increasing value and raise no neighbor above their value plus one,
+	 * so the result is the largest such function below the distances and stays admissible.
+	 */
+	private static void smooth(int[] pattern, byte[] distance) {
+		int k = pattern.length;
+		int max = 0;
+		for (byte d : distance) {
+			max = Math.max(max, d & 0xFF);
+		}
+		for (int v = 0; v < max; v++) {
+			for (int r = 0; r < distance.length; r++) {
+				if ((distance[r] & 0xFF) != v) {
+					continue;
+				}
+				long positions = unrank(r, k);
+				int occupied = occupied(positions, k);
+				for (int i = 0; i < k; i++) {
+					int from = (int) (positions >>> (4 * i)) & 15;
+					for (PuzzleState.Operation op : Board.OPERATIONS) {
+						int to = Board.neighbor(from, op, DIMENSION);
+						if (to < 0 || (occupied & (1 << to)) != 0) {
+							continue;
+						}
+						int child = rank((positions & ~(15L << (4 * i))) | ((long) to << (4 * i)), k);
+						if ((distance[child] & 0xFF) > v + 1) {
+							distance[child] = (byte) (v + 1);
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+/**
+ * Compact storage for the entries of a pattern database, see PatternDatabase.
+ * Entries are small non-negative numbers addressed by the rank of a pattern.
+ * Implementations trade precision for memory: a byte, a nibble or two bits per entry,
+ * and a wrapper that keeps one entry for a group of adjacent ranks.
+ * Lookups are allocation-free shifts and masks.
+ */
+interface PdbStorage {
+	/**
+	 * @param rank index of an entry
+	 * @return stored value
+	 */
+	int get(int rank);
+
+	/**
+	 * @return memory used by the entries
+	 */
+	long sizeInBytes();
+
+	/**
+	 * @return short description for reports
+	 */
+	String getName();
+
+	/**
+	 * One byte per entry, values up to 255.
+	 */
+	static final class Bytes implements PdbStorage {
+		private final byte[] data;
+
+		Bytes(byte[] values) {
+			data = values.clone();
+		}
+
+		@Override
+		public int get(int rank) {
+			return data[rank] & 0xFF;
+		}
+
+		@Override
+		public long sizeInBytes() {
+			return data.length;
+		}
+
+		@Override
+		public String getName() {
+			return "byte";
+		}
+	}
+
+	/**
+	 * Two entries per byte, values larger than 15 are stored as 15.
+	 */
+	static final class Nibbles implements PdbStorage {
+		private final byte[] data;
+
+		Nibbles(byte[] values) {
+			data = new byte[(values.length + 1) / 2];
+			for (int i = 0; i < values.length; i++) {
+				data[i >>> 1] |= Math.min(values[i] & 0xFF, 15) << ((i & 1) << 2);
+			}
+		}
+
+		@Override
+		public int get(int rank) {
+			return (data[rank >>> 1] >>> ((rank & 1) << 2)) & 15;
+		}
+
+		@Override
+		public long sizeInBytes() {
+			return data.length;
+		}
+
+		@Override
+		public String getName() {
+			return "nibble";
+		}
+	}
+
+	/**
+	 * Four entries per byte, values up to 3. Used for distances modulo 3.
+	 */
+	static final class TwoBits implements PdbStorage {
+		private final byte[] data;
+
+		TwoBits(byte[] values) {
+			data = new byte[(values.length + 3) / 4];
+			for (int i = 0; i < values.length; i++) {
+				if ((values[i] & 0xFF) > 3) {
+					throw new IllegalArgumentException("value does not fit into 2 bits: " + values[i]);
+				}
+				data[i >>> 2] |= values[i] << ((i & 3) << 1);
+			}
+		}
+
+		@Override
+		public int get(int rank) {
+			return (data[rank >>> 2] >>> ((rank & 3) << 1)) & 3;
+		}
+
+		@Override
+		public long sizeInBytes() {
+			return data.length;
+		}
+
+		@Override
+		public String getName() {
+			return "2bit";
+		}
+	}
+
+	/**
+	 * Min-compression: a group of 2^shift adjacent ranks shares the smallest value of the group.
+	 * As the value of any rank is at least the group minimum, a lower bound stays a lower bound.
+	 */
+	static final class MinCompressed implements PdbStorage {
+		private final PdbStorage groups;
+		private final int shift;
+
+		/**
+		 * @param values one value per rank
+		 * @param shift log2 of the group size
+		 * @param factory creates the storage of the group minima, e.g. Nibbles
+		 */
+		MinCompressed(byte[] values, int shift, Factory factory) {
+			byte[] minima = new byte[(values.length + (1 << shift) - 1) >>> shift];
+			for (int g = 0; g < minima.length; g++) {
+				int min = 255;
+				for (int i = g << shift; i < Math.min(values.length, (g + 1) << shift); i++) {
+					min = Math.min(min, values[i] & 0xFF);
+				}
+				minima[g] = (byte) min;
+			}
+			this.groups = factory.create(minima);
+			this.shift = shift;
+		}
+
+		@Override
+		public int get(int rank) {
+			return groups.get(rank >>> shift);
+		}
+
+		@Override
+		public long sizeInBytes() {
+			return groups.sizeInBytes();
+		}
+
+		@Override
+		public String getName() {
+			return groups.getName() + "/min" + (1 << shift);
+		}
+	}
+
+	/**
+	 * Creates a storage for a full table of values.
+	 */
+	interface Factory {
+		Factory BYTES = new Factory() {
+			@Override
+			public PdbStorage create(byte[] values) {
+				return new Bytes(values);
+			}
+		};
+		Factory NIBBLES = new Factory() {
+			@Override
+			public PdbStorage create(byte[] values) {
+				return new Nibbles(values);
+			}
+		};
+		Factory TWO_BITS = new Factory() {
+			@Override
+			public PdbStorage create(byte[] values) {
+				return new TwoBits(values);
+			}
+		};
+
+		PdbStorage create(byte[] values);
+	}
+}
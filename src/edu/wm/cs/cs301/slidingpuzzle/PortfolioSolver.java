@@ -0,0 +1,212 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A portfolio solver runs several solver configurations concurrently on the same
+ * puzzle state and returns the answer of the first one that finishes.
+ * Different positions favor different algorithms, so racing them is often faster
+ * than any fixed choice.
+ *
+ * If the portfolio requires optimal solutions, answers of non-optimal solvers
+ * are only used if no optimal solver finishes before the timeout.
+ * Once an answer is accepted, the remaining solvers are cancelled by interrupting
+ * their threads, see PuzzleSolver for the cooperative cancellation protocol.
+ *
+ * The portfolio keeps a count of wins per configuration to help tune the default selection.
+ * Solves, timeouts and failed solvers are counted as portfolio.solves, portfolio.timeouts and
+ * portfolio.failures in the metrics, and the time to the accepted answer is recorded in the
+ * histogram portfolio.time, in nanoseconds. Nothing is written to the console, as the game
+ * asks the portfolio for every hint.
+ */
+public class PortfolioSolver implements PuzzleSolver {
+	private static final StripedCounter SOLVES = Metrics.counter("portfolio.solves");
+	private static final StripedCounter TIMEOUTS = Metrics.counter("portfolio.timeouts");
+	private static final StripedCounter FAILURES = Metrics.counter("portfolio.failures");
+	private static final Histogram TIME = Metrics.histogram("portfolio.time");
+	private final List<PuzzleSolver> solvers;
+	private final boolean requireOptimal;
+	private final long timeoutMillis;
+	private final ExecutorService executor;
+	private final ConcurrentHashMap<String, AtomicInteger> wins = new ConcurrentHashMap<String, AtomicInteger>();
+
+	/**
+	 * Creates a portfolio with its own pool of daemon threads, one per solver.
+	 * @param solvers are the configurations to race, at least one
+	 * @param requireOptimal if true, prefer answers of optimal solvers
+	 * @param timeoutMillis is the maximum time to wait for an answer
+	 */
+	public PortfolioSolver(List<PuzzleSolver> solvers, boolean requireOptimal, long timeoutMillis) {
+		if (solvers.isEmpty()) {
+			throw new IllegalArgumentException("portfolio needs at least one solver");
+		}
+		this.solvers = Collections.unmodifiableList(new ArrayList<PuzzleSolver>(solvers));
+		this.requireOptimal = requireOptimal;
+		this.timeoutMillis = timeoutMillis;
+		this.executor = Executors.newFixedThreadPool(solvers.size(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "portfolio-" + count.incrementAndGet());
+				t.setDaemon(true); // must not keep the application alive
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Creates the default portfolio: optimal IDA* and bidirectional searches raced
+	 * against a fast but non-optimal weighted A* search.
+	 * @param requireOptimal if true, prefer answers of optimal solvers
+	 * @param timeoutMillis is the maximum time to wait for an answer
+	 * @return portfolio solver
+	 */
+	public static PortfolioSolver createDefault(boolean requireOptimal, long timeoutMillis) {
+		List<PuzzleSolver> list = new ArrayList<PuzzleSolver>();
+		list.add(new IDAStarSolver());
+		list.add(new BidirectionalSolver(256));
+		list.add(new WeightedAStarSolver(2.0, 2000000));
+		return new PortfolioSolver(list, requireOptimal, timeoutMillis);
+	}
+
+	/**
+	 * Creates the default portfolio with IDA* guided by the shared 5-5-5 pattern database
+	 * in place of plain IDA*. This expands orders of magnitude fewer nodes on 4x4 boards,
+	 * other boards get the Manhattan distance. Building the database takes a few seconds
+	 * on first use, see PatternDatabase.getDefault().
+	 * @param requireOptimal if true, prefer answers of optimal solvers
+	 * @param timeoutMillis is the maximum time to wait for an answer
+	 * @return portfolio solver
+	 */
+	public static PortfolioSolver createWithPatternDatabase(boolean requireOptimal, long timeoutMillis) {
+		List<PuzzleSolver> list = new ArrayList<PuzzleSolver>();
+		list.add(new IDAStarSolver(PatternDatabase.getDefault()));
+		list.add(new BidirectionalSolver(256));
+		list.add(new WeightedAStarSolver(2.0, 2000000));
+		return new PortfolioSolver(list, requireOptimal, timeoutMillis);
+	}
+
+	@Override
+	public String getName() {
+		return "Portfolio" + solvers;
+	}
+
+	@Override
+	public boolean isOptimal() {
+		return requireOptimal;
+	}
+
+	/**
+	 * @return the configurations in this portfolio
+	 */
+	public List<PuzzleSolver> getSolvers() {
+		return solvers;
+	}
+
+	/**
+	 * Gives the number of instances each configuration has won so far.
+	 * @return map from solver name to number of wins, sorted by name
+	 */
+	public Map<String, Integer> getWinCounts() {
+		Map<String, Integer> result = new TreeMap<String, Integer>();
+		for (Map.Entry<String, AtomicInteger> e : wins.entrySet()) {
+			result.put(e.getKey(), e.getValue().get());
+		}
+		return result;
+	}
+
+	/**
+	 * Stops the threads of this portfolio. The portfolio can not be used afterwards.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public Solution solve(final PuzzleState start) throws InterruptedException {
+		long begin = System.nanoTime();
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		CompletionService<Solution> completion = new ExecutorCompletionService<Solution>(executor);
+		List<Future<Solution>> futures = new ArrayList<Future<Solution>>(solvers.size());
+		for (final PuzzleSolver solver : solvers) {
+			futures.add(completion.submit(new Callable<Solution>() {
+				@Override
+				public Solution call() throws Exception {
+					return solver.solve(start);
+				}
+			}));
+		}
+		Solution fallback = null;
+		try {
+			for (int remaining = solvers.size(); remaining > 0; remaining--) {
+				long wait = deadline - System.currentTimeMillis();
+				Future<Solution> done = (wait > 0) ? completion.poll(wait, TimeUnit.MILLISECONDS) : null;
+				if (null == done) {
+					TIMEOUTS.increment();
+					break;
+				}
+				Solution solution = getQuietly(done);
+				if (null == solution) {
+					continue;
+				}
+				if (!requireOptimal || solution.isOptimal()) {
+					recordWin(solution, begin);
+					return solution;
+				}
+				if (null == fallback) {
+					fallback = solution; // keep first acceptable answer in case no optimal one arrives
+				}
+			}
+		}
+		finally {
+			for (Future<Solution> f : futures) {
+				f.cancel(true); // interrupts solvers that are still running
+			}
+		}
+		if (null != fallback) {
+			recordWin(fallback, begin);
+		}
+		return fallback;
+	}
+
+	/**
+	 * Retrieves the result of a completed solver,
+	 * a solver that failed with an exception counts as a solver without an answer.
+	 */
+	private Solution getQuietly(Future<Solution> done) throws InterruptedException {
+		try {
+			return done.get();
+		}
+		catch (ExecutionException e) {
+			FAILURES.increment();
+		}
+		catch (CancellationException e) {
+			// solver was cancelled, no answer
+		}
+		return null;
+	}
+
+	private void recordWin(Solution solution, long begin) {
+		String name = solution.getSolverName();
+		wins.putIfAbsent(name, new AtomicInteger());
+		wins.get(name).incrementAndGet();
+		SOLVES.increment();
+		TIME.record(System.nanoTime() - begin);
+	}
+}
@@ -0,0 +1,484 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Binary file format for large collections of boards, e.g. test sets or rated puzzles.
+ *
+ * Layout, all numbers little-endian:
+ * a header (magic number, version, dimension, number of empty slots, flags, number of boards),
+ * the boards packed into 8 bytes each, see Board.pack(), optionally one byte per board
+ * with the length of an optimal solution, and a footer with an index. The index holds the
+ * smallest and largest optimal length of every block of BLOCK_SIZE boards, such that
+ * readers looking for puzzles of a certain difficulty can skip whole blocks.
+ * The footer ends with the offset of the index and the magic number.
+ *
+ * Boards have a fixed width, so the reader maps the file and accesses the i-th board
+ * directly. A Cursor visits a range of boards and splits in halves for parallel processing,
+ * much like a spliterator; forEachParallel() runs a visitor on a ForkJoinPool that way.
+ * The format is limited to boards up to 4x4.
+ */
+public final class PuzzleCorpus implements Closeable {
+	/** optimal length of a board in a corpus without optimal lengths */
+	public static final int UNKNOWN = -1;
+	static final int BLOCK_SIZE = 1 << 16;
+	private static final int MAGIC = 0x50435A31; // "PCZ1"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 24;
+	private static final int FLAG_LENGTHS = 1;
+	// boards are mapped in segments of 2^SEGMENT_SHIFT boards, a single mapping can not exceed 2 GB
+	private static final int SEGMENT_SHIFT = 27;
+
+	private final RandomAccessFile file;
+	private final int dimension;
+	private final int emptySlots;
+	private final long count;
+	private final LongBuffer[] boards;
+	private final MappedByteBuffer lengths;
+	private final byte[] blockMin;
+	private final byte[] blockMax;
+
+	/**
+	 * Opens a corpus file for reading.
+	 * @param source file written by Writer
+	 */
+	public PuzzleCorpus(File source) throws IOException {
+		file = new RandomAccessFile(source, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException(source + " is not a puzzle corpus");
+			}
+			dimension = header.getInt();
+			emptySlots = header.getInt();
+			int flags = header.getInt();
+			count = header.getInt() & 0xFFFFFFFFL;
+			long boardBytes = 8 * count;
+			boards = new LongBuffer[(int) ((count + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT)];
+			for (int s = 0; s < boards.length; s++) {
+				long first = (long) s << SEGMENT_SHIFT;
+				long size = 8 * Math.min(count - first, 1L << SEGMENT_SHIFT);
+				boards[s] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + 8 * first, size)
+						.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+			}
+			long position = HEADER_SIZE + boardBytes;
+			if ((flags & FLAG_LENGTHS) != 0) {
+				// one byte per board, limited to 2 GB boards by a single mapping
+				lengths = channel.map(FileChannel.MapMode.READ_ONLY, position, count);
+				position += count;
+			}
+			else {
+				lengths = null;
+			}
+			int blocks = (int) ((count + BLOCK_SIZE - 1) / BLOCK_SIZE);
+			ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, position, 2 * blocks + 12)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			blockMin = new byte[blocks];
+			blockMax = new byte[blocks];
+			footer.get(blockMin);
+			footer.get(blockMax);
+			if (footer.getLong() != position || footer.getInt() != MAGIC) {
+				throw new IOException(source + " has a corrupt footer");
+			}
+		}
+		catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		catch (RuntimeException e) {
+			file.close();
+			throw new IOException(source + " is truncated", e);
+		}
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public int getEmptySlots() {
+		return emptySlots;
+	}
+
+	/**
+	 * @return number of boards in the corpus
+	 */
+	public long size() {
+		return count;
+	}
+
+	/**
+	 * @return true if the corpus holds the optimal solution length of every board
+	 */
+	public boolean hasOptimalLengths() {
+		return null != lengths;
+	}
+
+	/**
+	 * @param index of a board, range 0,1,...,size()-1
+	 * @return packed board, see Board.pack()
+	 */
+	long getPackedBoard(long index) {
+		return boards[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & ((1 << SEGMENT_SHIFT) - 1)));
+	}
+
+	/**
+	 * @param index of a board, range 0,1,...,size()-1
+	 * @return new state with the board at the given index
+	 */
+	public PuzzleState getState(long index) {
+		int[] board = new int[dimension * dimension];
+		Board.unpack(getPackedBoard(index), board);
+		return Board.toState(board);
+	}
+
+	/**
+	 * @param index of a board, range 0,1,...,size()-1
+	 * @return length of an optimal solution or UNKNOWN
+	 */
+	public int getOptimalLength(long index) {
+		return (null == lengths) ? UNKNOWN : lengths.get((int) index) & 0xFF;
+	}
+
+	/**
+	 * Tells if a block of boards may contain boards with optimal lengths in the given range,
+	 * based on the footer index. Always true for a corpus without optimal lengths.
+	 * @param block index of a block of BLOCK_SIZE boards
+	 */
+	public boolean mayContain(int block, int minLength, int maxLength) {
+		return null == lengths || ((blockMax[block] & 0xFF) >= minLength && (blockMin[block] & 0xFF) <= maxLength);
+	}
+
+	/**
+	 * @return cursor over all boards
+	 */
+	public Cursor cursor() {
+		return new Cursor(0, count);
+	}
+
+	/**
+	 * Runs the visitor on all boards with the threads of the given pool.
+	 * The visitor is called concurrently and has to be thread-safe.
+	 */
+	public void forEachParallel(ForkJoinPool pool, BoardVisitor visitor) {
+		pool.invoke(new VisitTask(cursor(), visitor));
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Receives the boards of a corpus.
+	 */
+	public interface BoardVisitor {
+		/**
+		 * @param index of the board in the corpus
+		 * @param packedBoard board packed into a long, see Board.pack()
+		 * @param optimalLength length of an optimal solution or UNKNOWN
+		 */
+		void visit(long index, long packedBoard, int optimalLength);
+	}
+
+	/**
+	 * Sequential access to a range of boards that can be split for parallel processing.
+	 * A cursor is used by a single thread.
+	 */
+	public final class Cursor {
+		private long position;
+		private long end;
+
+		Cursor(long position, long end) {
+			this.position = position;
+			this.end = end;
+		}
+
+		/**
+		 * @return number of boards left in the range of this cursor
+		 */
+		public long remaining() {
+			return end - position;
+		}
+
+		/**
+		 * Hands the first half of the remaining boards to a new cursor,
+		 * this cursor keeps the second half. Halves are aligned to index blocks.
+		 * @return new cursor or null if the range is too small to split
+		 */
+		public Cursor trySplit() {
+			long middle = ((position + end) >>> 1) & ~(long) (BLOCK_SIZE - 1);
+			if (middle <= position || middle >= end) {
+				return null;
+			}
+			Cursor prefix = new Cursor(position, middle);
+			position = middle;
+			return prefix;
+		}
+
+		/**
+		 * Visits the next board if there is one.
+		 * @return false if the range is exhausted
+		 */
+		public boolean tryAdvance(BoardVisitor visitor) {
+			if (position >= end) {
+				return false;
+			}
+			visitor.visit(position, getPackedBoard(position), getOptimalLength(position));
+			position++;
+			return true;
+		}
+
+		/**
+		 * Visits all remaining boards, segment by segment in a tight loop.
+		 */
+		public void forEachRemaining(BoardVisitor visitor) {
+			int mask = (1 << SEGMENT_SHIFT) - 1;
+			while (position < end) {
+				LongBuffer segment = boards[(int) (position >>> SEGMENT_SHIFT)];
+				long segmentEnd = Math.min(end, (position | mask) + 1);
+				int offset = (int) (position & mask);
+				if (null == lengths) {
+					for (long i = position; i < segmentEnd; i++) {
+						visitor.visit(i, segment.get(offset++), UNKNOWN);
+					}
+				}
+				else {
+					for (long i = position; i < segmentEnd; i++) {
+						visitor.visit(i, segment.get(offset++), lengths.get((int) i) & 0xFF);
+					}
+				}
+				position = segmentEnd;
+			}
+		}
+	}
+
+	/**
+	 * Splits cursors until they are small enough and visits their boards.
+	 */
+	private static final class VisitTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Cursor cursor;
+		private final BoardVisitor visitor;
+
+		VisitTask(Cursor cursor, BoardVisitor visitor) {
+			this.cursor = cursor;
+			this.visitor = visitor;
+		}
+
+		@Override
+		protected void compute() {
+			Cursor prefix = cursor.trySplit();
+			if (null == prefix) {
+				cursor.forEachRemaining(visitor);
+				return;
+			}
+			invokeAll(new VisitTask(prefix, visitor), new VisitTask(cursor, visitor));
+		}
+	}
+
+	/**
+	 * Writes a corpus file. Boards are written as they are added, the optimal lengths
+	 * are kept in memory at one byte per board until close().
+	 */
+	public static final class Writer implements Closeable {
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+		private final int dimension;
+		private final int emptySlots;
+		private final boolean withLengths;
+		private byte[] lengths = new byte[1024];
+		private long count;
+
+		/**
+		 * Creates a corpus file.
+		 * @param target file, overwritten if it exists
+		 * @param dimension number of tiles per row, at most 4
+		 * @param emptySlots is a number between 1 and 3
+		 * @param withLengths true if every board comes with its optimal solution length
+		 */
+		public Writer(File target, int dimension, int emptySlots, boolean withLengths) throws IOException {
+			if (!Board.isPackable(dimension)) {
+				throw new IllegalArgumentException("corpus boards must be packable: " + dimension);
+			}
+			this.dimension = dimension;
+			this.emptySlots = emptySlots;
+			this.withLengths = withLengths;
+			file = new RandomAccessFile(target, "rw");
+			file.setLength(0);
+			channel = file.getChannel();
+			buffer.position(HEADER_SIZE); // the header is written by close()
+		}
+
+		/**
+		 * Adds a board.
+		 * @param state board to add, with the dimension and number of empty slots of the corpus
+		 * @param optimalLength length of an optimal solution, range 0,...,255, ignored without lengths
+		 */
+		public void add(PuzzleState state, int optimalLength) throws IOException {
+			add(Board.pack(Board.toArray(state)), optimalLength);
+		}
+
+		void add(long packedBoard, int optimalLength) throws IOException {
+			if (withLengths) {
+				if (optimalLength < 0 || optimalLength > 255) {
+					throw new IllegalArgumentException("optimal length out of range: " + optimalLength);
+				}
+				if (count == lengths.length) {
+					lengths = Arrays.copyOf(lengths, 2 * lengths.length);
+				}
+				lengths[(int) count] = (byte) optimalLength;
+			}
+			if (buffer.remaining() < 8) {
+				drain();
+			}
+			buffer.putLong(packedBoard);
+			count++;
+		}
+
+		private void drain() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * Writes the optimal lengths, the footer and the header.
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				drain();
+				long position = channel.position();
+				if (withLengths) {
+					ByteBuffer data = ByteBuffer.wrap(lengths, 0, (int) count);
+					while (data.hasRemaining()) {
+						channel.write(data);
+					}
+					position += count;
+				}
+				int blocks = (int) ((count + BLOCK_SIZE - 1) / BLOCK_SIZE);
+				ByteBuffer footer = ByteBuffer.allocate(2 * blocks + 12).order(ByteOrder.LITTLE_ENDIAN);
+				for (int b = 0; b < blocks; b++) {
+					int min = 255;
+					int max = 0;
+					for (int i = b * BLOCK_SIZE; withLengths && i < Math.min(count, (long) (b + 1) * BLOCK_SIZE); i++) {
+						min = Math.min(min, lengths[i] & 0xFF);
+						max = Math.max(max, lengths[i] & 0xFF);
+					}
+					footer.put(b, (byte) min);
+					footer.put(blocks + b, (byte) max);
+				}
+				footer.position(2 * blocks);
+				footer.putLong(position);
+				footer.putInt(MAGIC);
+				footer.flip();
+				while (footer.hasRemaining()) {
+					channel.write(footer);
+				}
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(emptySlots)
+						.putInt(withLengths ? FLAG_LENGTHS : 0).putInt((int) count);
+				header.flip();
+				channel.write(header, 0);
+				channel.force(false);
+			}
+			finally {
+				file.close();
+			}
+		}
+	}
+
+	/**
+	 * Writes a corpus of random boards if it does not exist and measures
+	 * how fast the boards are read sequentially and in parallel.
+	 * Arguments, all optional: file (corpus.pcz), number of boards (100000000).
+	 */
+	public static void main(String[] args) throws IOException {
+		File target = new File((args.length > 0) ? args[0] : "corpus.pcz");
+		long boards = (args.length > 1) ? Long.parseLong(args[1]) : 100000000L;
+		if (!target.exists()) {
+			Random random = new Random(301);
+			Writer writer = new Writer(target, 4, 1, false);
+			try {
+				int[] board = Board.goal(4, 1);
+				for (long i = 0; i < boards; i++) {
+					Board.apply(board, nextMove(board, random), 4);
+					writer.add(Board.pack(board), 0);
+				}
+			}
+			finally {
+				writer.close();
+			}
+		}
+		PuzzleCorpus corpus = new PuzzleCorpus(target);
+		try {
+			final AtomicLong checksum = new AtomicLong();
+			for (int run = 0; run < 3; run++) {
+				long begin = System.nanoTime();
+				final long[] sum = new long[1];
+				corpus.cursor().forEachRemaining(new BoardVisitor() {
+					@Override
+					public void visit(long index, long packedBoard, int optimalLength) {
+						sum[0] += packedBoard;
+					}
+				});
+				report("sequential", corpus.size(), System.nanoTime() - begin);
+				checksum.set(sum[0]);
+			}
+			ForkJoinPool pool = new ForkJoinPool();
+			long begin = System.nanoTime();
+			final AtomicLong parallel = new AtomicLong();
+			corpus.forEachParallel(pool, new BoardVisitor() {
+				@Override
+				public void visit(long index, long packedBoard, int optimalLength) {
+					// a shared counter per board would dominate, so only blocks are summed
+					if ((index & (BLOCK_SIZE - 1)) == 0) {
+						parallel.incrementAndGet();
+					}
+				}
+			});
+			report("parallel(" + pool.getParallelism() + ")", corpus.size(), System.nanoTime() - begin);
+			pool.shutdown();
+			System.out.println("checksum " + checksum.get() + ", blocks " + parallel.get());
+		}
+		finally {
+			corpus.close();
+		}
+	}
+
+	private static int nextMove(int[] board, Random random) {
+		int blank = 0;
+		while (board[blank] != 0) {
+			blank++;
+		}
+		while (true) {
+			PuzzleState.Operation op = Board.OPERATIONS[random.nextInt(4)];
+			int tile = Board.neighbor(blank, Board.inverse(op), 4);
+			if (tile >= 0) {
+				return Board.encodeMove(tile, op);
+			}
+		}
+	}
+
+	private static void report(String label, long boards, long nanos) {
+		System.out.println(String.format("%-14s %,d boards in %d ms, %.0f million boards/s",
+				label, boards, nanos / 1000000, boards * 1000.0 / nanos));
+	}
+}
@@ -13,6 +13,11 @@ import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
 
 import java.io.*;
 import java.lang.Integer;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * A simple sliding puzzle game implementation.
@@ -26,6 +31,10 @@ import java.lang.Integer;
 public class PuzzleGameGUI extends Frame implements ActionListener, MouseListener, MouseMotionListener, ItemListener{
 	// Serial version UID not used, generated to make static code checker happy.
 	private static final long serialVersionUID = 1L;
+	// order in which a clicked tile tries the empty slots around it
+	private static final Operation[] CLICK_PREFERENCE = {
+		Operation.MOVERIGHT, Operation.MOVELEFT, Operation.MOVEDOWN, Operation.MOVEUP
+	};
 	
 	// UI elements
     private MenuBar menuBar;
@@ -35,14 +44,20 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
     private CheckboxMenuItem lines;
     private CheckboxMenuItem numbers;
     private CheckboxMenuItem drag;
+    private CheckboxMenuItem metrics;
+    private CheckboxMenuItem allocations;
+    private CheckboxMenuItem overlay;
+    private CheckboxMenuItem animate;
     
     // Game representation
     private PuzzleState state; // current state of the game
     private PuzzleState finalState; // the initial state is the same as the final state where all tiles are ordered.
-    // optional: user loads a picture, we store 15 square fragments in images[]
-    // each tile has a number value (range 1,2,...,15) that has a corresponding little image
-    // get/set methods encapsulate access to array
-    private BufferedImage[] images = new BufferedImage[15];
+    // optional: user loads a picture, we store its dimension x dimension square fragments in a single atlas
+    // each tile has a number value (range 1,2,...,15 on the 4x4 board) that has a corresponding little image
+    // the atlas is null as long as no picture is loaded
+    private TileAtlas atlas;
+    // file of the picture on the tiles, null if the game shows numbers only, stored with saved games
+    private File imageFile;
     
     // Default setting: 4x4 board with 100x100 pixel squares and a 50 pixel border frame.
     // total dimensions: 500x500 as it is 500 = 4 x 100 + 2 x 50 for overall width and height
@@ -57,6 +72,8 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
     // number of empty squares, user can choose between 1,2, and 3. 
     // Default of 1 matches the common game setting
     private int emptysquares = 1; 
+    // number of squares per row and column, user can choose larger boards
+    private int dimension = 4;
     
     // two squares or tiles need to be stored for a drag operation
     // the square where a movement starts: the selected square
@@ -66,6 +83,39 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
     private Point checksquare;
     private boolean dontchange = false;
     private boolean close = true;
+    // journal of all moves in the user's home directory, null if it could not be opened
+    // the game is recovered from it at startup, e.g. after a power loss
+    private MoveJournal journal;
+    // optimal next moves for auto mode, warmed from and saved to the user's home directory
+    private final HintCache hints = new HintCache(1 << 17);
+    // runs the solvers, such that the event dispatch thread never waits for a solution
+    private final ExecutorService solverThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "solver");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    // computes hints the cache does not have, created on first use, on the solver thread only
+    private PortfolioSolver hintSolver;
+    // search for the hint of the board in auto mode, null if none is running
+    private Future<?> hintSearch;
+    // latency from mouse events to the paint that shows them, while metrics are recorded
+    private final LatencyTracer latency = new LatencyTracer(4096);
+    // slides tiles from the previous state to the current one, the game itself never waits for it
+    private final TileAnimator animator = new TileAnimator(this, 120);
+    // draws the board, the same renderer makes thumbnails and replays without a window
+    private final TileRenderer renderer = new TileRenderer(100, 100);
+    // image the board is drawn into before it is copied to the window, avoids flicker
+    private Image buffer;
+    // plays solutions in the background at the chosen number of moves per second
+    private final AutoPlayer autoPlayer = new AutoPlayer();
+    private int autoPlayRate = 10;
+    // search for the moves of auto play on the solver thread, null if none is running
+    private Future<?> autoPlaySearch;
+    // counts the searches for auto play, the result of a search that was stopped is dropped
+    private int autoPlaySearches;
 
         
    /**
@@ -89,6 +139,53 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
         state = new SimplePuzzleState();
         setFinalState();
         initBoard(); 
+        startJournal();
+        loadHints();
+    }
+    
+    /**
+     * @return directory for the journal and the hint cache in the user's home directory
+     */
+    private static File dataDirectory() {
+    	return new File(System.getProperty("user.home"), ".slidingpuzzle");
+    }
+    
+    /**
+     * Warms the hint cache with the hints saved by an earlier game, if any.
+     */
+    private void loadHints() {
+    	File file = new File(dataDirectory(), "hints.bin");
+    	if (file.exists()) {
+    		try {
+    			System.out.println("Loaded " + hints.load(file) + " hints");
+    		}
+    		catch (IOException e) {
+    			System.out.println("Hints not available: " + e);
+    		}
+    	}
+    }
+    
+    /**
+     * Opens the move journal and continues the game recorded in it, if any.
+     * Without a recorded game, the journal starts with the current game.
+     */
+    private void startJournal() {
+    	journal = new MoveJournal(dataDirectory(), 1000);
+    	try {
+    		GameFile game = journal.recover();
+    		journal.start();
+    		if (null != game) {
+    			System.out.println("Recovered game with " + game.getHistoryLength() + " moves from the journal");
+    			restoreGame(game);
+    		}
+    		else {
+    			snapshotGame();
+    		}
+    	}
+    	catch (IOException e) {
+    		System.out.println("Journal not available, moves are not recorded: " + e);
+    		journal = null;
+    	}
     }
     
     //////////////////////////////////////////////////////////////////////////////////// 
@@ -106,6 +203,10 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
         mi.addActionListener(this);
         fileMenu.add(mi=new MenuItem("Close"));
         mi.addActionListener(this);
+        fileMenu.add(mi=new MenuItem("Save Game"));
+        mi.addActionListener(this);
+        fileMenu.add(mi=new MenuItem("Load Game"));
+        mi.addActionListener(this);
         fileMenu.add(mi=new MenuItem("Exit"));
         mi.addActionListener(this);
         menuBar.add(editMenu=new Menu("Edit"));
@@ -119,18 +220,37 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
         drag.addItemListener(this);
         editMenu.add(mi=new MenuItem("Empty Squares"));
         mi.addActionListener(this);
+        editMenu.add(mi=new MenuItem("Board Size"));
+        mi.addActionListener(this);
+        editMenu.add(mi=new MenuItem("Auto Play"));
+        mi.addActionListener(this);
+        editMenu.add(mi=new MenuItem("Auto Play Speed"));
+        mi.addActionListener(this);
         menuBar.add(viewMenu=new Menu("View"));
         viewMenu.add(lines=new CheckboxMenuItem("Lines", true));
         lines.addItemListener(this);
         viewMenu.add(numbers=new CheckboxMenuItem("Numbers", true));
         numbers.addItemListener(this);
+        viewMenu.add(animate=new CheckboxMenuItem("Animate Moves", true));
+        animate.addItemListener(this);
+        viewMenu.add(metrics=new CheckboxMenuItem("Record Metrics", Metrics.isEnabled()));
+        metrics.addItemListener(this);
+        viewMenu.add(allocations=new CheckboxMenuItem("Record Allocations", AllocationTracker.isEnabled()));
+        allocations.setEnabled(AllocationTracker.isSupported());
+        allocations.addItemListener(this);
+        viewMenu.add(mi=new MenuItem("Dump Metrics"));
+        mi.addActionListener(this);
+        viewMenu.add(overlay=new CheckboxMenuItem("Latency Overlay"));
+        overlay.addItemListener(this);
+        viewMenu.add(mi=new MenuItem("Export Latency"));
+        mi.addActionListener(this);
 	}
 	/**
 	 * Calculates and sets the overall window size from the size of a single square
 	 */
 	private void resizeWindow() {
-		int width = 4*w + 2*offX;
-		int height = 4*h + 2*offY;
+		int width = dimension*w + 2*offX;
+		int height = dimension*h + 2*offY;
 		setBounds(0,0,width,height);
 	}
 	/**
@@ -138,15 +258,60 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
 	 * Dimensions may change if a picture is loaded from file.
 	 */
 	private void setDimensions() {
-	    h = 100;
-	    w = 100;
+	    h = defaultTileSize();
+	    w = defaultTileSize();
 	    offX = 50;
 	    offY = 50;
 	}
+	/**
+	 * @return size of a square without picture, smaller on large boards to keep the window on the screen
+	 */
+	private int defaultTileSize() {
+		return Math.max(24, Math.min(100, 800/dimension));
+	}
+	/**
+	 * Adapts squares and window to a new dimension of the board.
+	 * A picture loaded from a file is split again, otherwise numbers are shown.
+	 */
+	private void resizeBoard() {
+		if (!close && null != imageFile) {
+			loadImageFromFile(imageFile);
+		}
+		else {
+			closeImage();
+		}
+	}
+	/**
+	 * Removes the picture from the tiles and shows numbers instead.
+	 */
+	private void closeImage() {
+		close=true;
+		lines.setState(true);
+		numbers.setState(true);
+		w=defaultTileSize();
+		h=defaultTileSize();
+		resizeWindow();
+	}
 	/**
 	 * Method encapsulates code to terminate application.
 	 */
     private void cleanUpForTermination() {
+    	if (null != journal) {
+    		try {
+    			journal.close();
+    		}
+    		catch (IOException e) {
+    			System.out.println("Journal could not be written: " + e);
+    		}
+    	}
+    	if (hints.size() > 0 && dataDirectory().isDirectory()) {
+    		try {
+    			hints.save(new File(dataDirectory(), "hints.bin"));
+    		}
+    		catch (IOException e) {
+    			System.out.println("Hints could not be saved: " + e);
+    		}
+    	}
     	setVisible(false); 
         dispose();
         System.exit(0);
@@ -220,6 +385,34 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
         // No need to change current settings.
         // System.out.println("None selected");
 	}
+	/**
+	 * Operates a pop up dialog to let the user select the number of squares per row and column.
+	 * A new game starts on a board of the selected size.
+	 */
+	private void runDialogForBoardSize() {
+        Object[] possibilities = {"3", "4", "5", "6", "8", "10", "12", "16", "24", "32", "48", "64"};
+        String s = (String)JOptionPane.showInputDialog(this, "How many squares per row and column?",
+        		"Set board size:", JOptionPane.QUESTION_MESSAGE, null, possibilities, "" + dimension);
+        if (null == s || Integer.parseInt(s) == dimension) {
+        	return; // cancelled or no change
+        }
+        dimension = Integer.parseInt(s);
+        setFinalState();
+        initBoard();
+        resizeBoard();
+        repaint();
+	}
+	/**
+	 * Operates a pop up dialog to let the user select how many moves per second auto play shows.
+	 */
+	private void runDialogForAutoPlaySpeed() {
+        Object[] possibilities = {"2", "10", "60", "500", "5000"};
+        String s = (String)JOptionPane.showInputDialog(this, "How many moves per second?",
+        		"Set auto play speed:", JOptionPane.QUESTION_MESSAGE, null, possibilities, "" + autoPlayRate);
+        if (null != s) {
+        	autoPlayRate = Integer.parseInt(s);
+        }
+	}
 	
 	/**
 	 * Operates a pop up dialog to let the user
@@ -253,8 +446,56 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
         	System.out.println("Open command cancelled by user." + "\n");
         }
 	}
+	
+	/**
+	 * Operates a pop up dialog to let the user select a file
+	 * to save the current game to or to load a game from.
+	 * @param save is true for the save dialog, false for the load dialog
+	 */
+	private void runGameFileDialog(boolean save) {
+		final JFileChooser fc = new JFileChooser();
+		fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
+		fc.setCurrentDirectory(new File(System.getProperty("user.dir")));
+		int returnVal = save ? fc.showSaveDialog(this) : fc.showOpenDialog(this);
+		if (returnVal != JFileChooser.APPROVE_OPTION) {
+			System.out.println((save ? "Save" : "Load") + " command cancelled by user." + "\n");
+			return;
+		}
+		if (save) {
+			saveGameToFile(fc.getSelectedFile());
+		}
+		else {
+			loadGameFromFile(fc.getSelectedFile());
+		}
+	}
 
-
+	/**
+	 * Operates a file chooser dialog to export the latest latency traces as CSV.
+	 */
+	private void runLatencyExportDialog() {
+		final JFileChooser fc = new JFileChooser();
+		fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
+		fc.setCurrentDirectory(new File(System.getProperty("user.dir")));
+		fc.setSelectedFile(new File("latency.csv"));
+		if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+			System.out.println("Export command cancelled by user." + "\n");
+			return;
+		}
+		try {
+			Writer out = new OutputStreamWriter(new FileOutputStream(fc.getSelectedFile()), "US-ASCII");
+			try {
+				latency.writeCsv(out);
+			}
+			finally {
+				out.close();
+			}
+			System.out.println("Exported latency traces to " + fc.getSelectedFile());
+		}
+		catch (IOException e) {
+			JOptionPane.showMessageDialog(this, "Sorry, could not write the file:\n" + e.getMessage(),
+					"Error message:", JOptionPane.ERROR_MESSAGE);
+		}
+	}
 
 	////////////////////////////////////////////////////////////////////////////////////
     ////////////////////////// File I/O /////////////////////////////////////////////
@@ -264,6 +505,7 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
      * @param f is the file to load the image from
      */
 	private void loadImageFromFile(File f) {
+		imageFile = f;
 		BufferedImage image = null ;
 		try {
             image = ImageIO.read(f);
@@ -271,6 +513,9 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
     		if (null == image) {
     			throw new Exception() ;
     		}
+    		// split the image into square pieces stored in the tile atlas, fails if the image is too small
+    		// resize the figure
+    		setUpImages(image);
         }
         catch (Exception e){
         	// handles IO exceptions, e.g. file not found exception
@@ -278,69 +523,96 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
 					"Sorry, could not load an image from selected file.\nPlease try again and choose a jpg file for example.",
 				    "Error message:",
 				    JOptionPane.ERROR_MESSAGE);
+			imageFile = null;
 			return ;
         }
 		// General case: file exists and contains an image
-		// split the image into 16 square pieces stored in field images[]
-		// resize the figure
-		setUpImages(image);
 		resizeWindow();
         // don't show numbers with pictures but show lines
         lines.setState(true);
         numbers.setState(false);
         close=false;
+        snapshotGame();
         repaint();
 	}
 	/**
-	 * Split image into a 16 square fragments for a 4 x 4 board.
+	 * Saves the current game with its history and picture reference to the given file.
+	 * @param f is the file to write
+	 */
+	private void saveGameToFile(File f) {
+		try {
+			GameFile.save(state, (close || null == imageFile) ? null : imageFile.getPath(), f);
+			System.out.println("Saved game to " + f.getName() + "\n");
+		}
+		catch (IOException e) {
+			JOptionPane.showMessageDialog(this,
+					"Sorry, could not save the game to the selected file:\n" + e.getMessage(),
+				    "Error message:",
+				    JOptionPane.ERROR_MESSAGE);
+		}
+	}
+	/**
+	 * Loads a game saved with saveGameToFile and continues it. 
+	 * The picture is loaded as well if the game was saved with one and the file still exists.
+	 * @param f is the file to read
+	 */
+	private void loadGameFromFile(File f) {
+		GameFile game;
+		try {
+			game = GameFile.load(f);
+		}
+		catch (IOException e) {
+			JOptionPane.showMessageDialog(this,
+					"Sorry, could not load a game from the selected file:\n" + e.getMessage(),
+				    "Error message:",
+				    JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		restoreGame(game);
+		snapshotGame();
+	}
+	/**
+	 * Continues a loaded or recovered game with its picture if the picture file still exists.
+	 * @param game is the game to continue
+	 */
+	private void restoreGame(GameFile game) {
+		animator.stop();
+		cancelAutoPlay();
+		state = game.getState();
+		int previous = dimension;
+		dimension = state.getDimension();
+		emptysquares = game.getEmptySlots();
+		setFinalState();
+		drag.setState(emptysquares > 1);
+		if (null != game.getImageReference() && new File(game.getImageReference()).isFile()) {
+			loadImageFromFile(new File(game.getImageReference()));
+		}
+		else if (dimension != previous) {
+			resizeBoard();
+		}
+		repaint();
+	}
+	/**
+	 * Records the whole game in the journal, needed whenever the game changes
+	 * other than by moves, e.g. after shuffle or sort.
+	 */
+	private void snapshotGame() {
+		if (null != journal) {
+			journal.snapshot(state, (close || null == imageFile) ? null : imageFile.getPath());
+		}
+	}
+	/**
+	 * Split image into square fragments for the board, 16 for a 4 x 4 board, kept in a tile atlas.
 	 * If image is rectangular, we select the largest possible square image
 	 * that is contained in the overall rectangular image.
 	 * @param image whose pieces are used to put on display
 	 */
 	private void setUpImages(BufferedImage image) {
-		// if figures are rectangular, 
-		// select a square that has the same center point
-		// (cx,cy) coordinates of center point
-		int cx = image.getWidth()/2;
-		int cy = image.getHeight()/2;
-		// get the min of height and width as the maximum height and width of the square
-		int min = (image.getWidth() < image.getHeight()) ? image.getWidth(): image.getHeight() ;
-		// w, h is width == height of each little square in the 4x4 board
+		atlas = new TileAtlas(image, dimension);
+		// w, h is width == height of each little square on the board
 		// as these values are needed elsewhere, we store them in fields
-		w = min/4;
-		h = min/4;
-		// calculate offset, the top-left corner of a square that fits
-		// (ox,oy) are coordinates for the top-left corner for the part of the figure we want
-		int ox = cx-2*w;
-		int oy = cy-2*h;
-		// split figure
-		int m = 1 ;
-		for (int r=0;r<=3;r++){
-			for (int c=0;c<=3;c++) {
-				if (m==16) {
-					break; // skip the last one as it remains empty and stop
-				}
-				// note: m is the current value of the tile, range 1,2,...,15
-				setImageForValue(m, image.getSubimage(ox+c*w, oy+r*h, w, h));
-				m++;
-			}
-		}
-	}
-    /**
-     * For a tile with the given value, this method stores the corresponding image.
-     * @param value has a range 1,2,...,15
-     * @param image is the image fragment to store
-     */
-	private void setImageForValue(int value, BufferedImage image) {
-		images[value-1] = image;
-	}
-    /**
-     * For a tile with the given value, this method retrieves the corresponding image.
-     * @param value has a range 1,...,15
-     * @return image is the image fragment for the given tile
-     */
-	private BufferedImage getImageForValue(int value) {
-		return images[value-1];
+		w = atlas.getTileWidth();
+		h = atlas.getTileHeight();
 	}
 	
 	////////////////////////////////////////////////////////////////////////////////////////
@@ -350,36 +622,37 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
      */
     @Override
     public void paint(Graphics g){
-    	int value;
-        for (int r=0;r<=3;r++){
-            for (int c=0;c<=3;c++){
-            	value = state.getValue(r, c);
-                if (value == 0) {
-                    //empty square
-                    g.setColor(Color.gray);
-                    g.fillRect(getTopLeftX(c), getTopLeftY(r),w,h);
+    	long begin = Metrics.start();
+    	latency.paintStarted();
+    	// the renderer follows the picture and the view menu
+    	renderer.setTileSize(w, h);
+    	renderer.setAtlas(close ? null : atlas);
+    	renderer.setNumbers(numbers.getState());
+    	renderer.setLines(lines.getState());
+        if (!animator.isAnimating()){
+            renderer.paint(g, state, offX, offY);
+        }
+        else{
+            // while tiles slide, the board shows the state they come from
+            PuzzleState shown = animator.getDisplayedState(state);
+            int value;
+            for (int r=0;r<dimension;r++){
+                for (int c=0;c<dimension;c++){
+                	value = shown.getValue(r, c);
+                	//sliding tiles leave an empty square, they are drawn on top below
+                	renderer.paintTile(g, animator.isMoving(value) ? 0 : value, getTopLeftX(c), getTopLeftY(r));
                 }
-                else{
-                    if (!close) {
-                        //images
-                    	g.drawImage(getImageForValue(value),getTopLeftX(c),getTopLeftY(r),null);
-                    }
-                    if (numbers.getState()){
-                        //Numbers
-                        g.setColor(Color.black);
-                        g.drawString(""+value,getCenterX(c),getCenterY(r));
+            }
+            for (int r=0;r<dimension;r++){
+                for (int c=0;c<dimension;c++){
+                	value = shown.getValue(r, c);
+                    if (value != 0 && animator.isMoving(value)) {
+                        renderer.paintTile(g, value, Math.round(animator.getColumn(value)*w)+offX,
+                        		Math.round(animator.getRow(value)*h)+offY);
                     }
                 }
             }
-        }
-        // draw grid lines
-        if (lines.getState()){
-            for (int i=0;i<=4;i++){
-                //Lines
-                g.setColor(Color.black);
-                g.drawLine(offX,i*h+offY,w*4+offX,i*h+offY);
-                g.drawLine(i*w+offX, offY, i*w+offX, (h*4)+offY);
-            }
+            renderer.paintGrid(g, dimension, offX, offY);
         }
         // if squares are dragged, highlight selected ones with a red frame
         if (selectedsquare!=null){
@@ -391,6 +664,37 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
                 g.drawRect(getTopLeftX(checksquare.x), getTopLeftY(checksquare.y),w,h);
             }
         }
+        // latency of earlier events, this paint is recorded once it is finished
+        if (overlay.getState()){
+            g.setColor(Color.black);
+            g.drawString(latency.getSummary(), offX, offY - 8);
+        }
+        latency.paintFinished();
+        Metrics.end(Metrics.Event.PAINT, begin);
+    }
+
+    /**
+     * Draws the board into an image first and copies it to the window,
+     * clearing the window as the inherited method does would flicker while tiles slide.
+     */
+    @Override
+    public void update(Graphics g){
+    	Dimension size = getSize();
+    	if (null == buffer || buffer.getWidth(null) != size.width || buffer.getHeight(null) != size.height) {
+    		buffer = createImage(size.width, size.height);
+    	}
+    	Graphics bg = buffer.getGraphics();
+    	// only the damaged part of the window is drawn, on large boards the renderer skips the tiles outside
+    	Rectangle clip = g.getClipBounds();
+    	if (null != clip) {
+    		bg.setClip(clip);
+    	}
+    	bg.setColor((null != getBackground()) ? getBackground() : Color.white);
+    	bg.fillRect(0, 0, size.width, size.height);
+    	bg.setFont(getFont());
+    	paint(bg);
+    	bg.dispose();
+    	g.drawImage(buffer, 0, 0, null);
     }
 
 	////////////////////////////////////////////////////////////////////////////////////////
@@ -405,14 +709,16 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
             runFigureSelectionDialog() ;
         }
         else if (item.equals("Close")){
-            close=true;
-            lines.setState(true);
-            numbers.setState(true);
-            w=100;
-            h=100;
-            resizeWindow();
+            closeImage();
+            snapshotGame();
             repaint();
         }
+        else if (item.equals("Save Game")){
+            runGameFileDialog(true);
+        }
+        else if (item.equals("Load Game")){
+            runGameFileDialog(false);
+        }
         else if (item.equals("Exit")){
         	cleanUpForTermination();
         }
@@ -427,6 +733,25 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
         else if (item.equals("Empty Squares")){
             runDialogForEmpties();
         }
+        else if (item.equals("Board Size")){
+            runDialogForBoardSize();
+        }
+        else if (item.equals("Auto Play")){
+            if (isAutoPlaying())
+                stopAutoPlay();
+            else
+                runAutoPlay();
+        }
+        else if (item.equals("Auto Play Speed")){
+            runDialogForAutoPlaySpeed();
+        }
+        else if (item.equals("Dump Metrics")){
+            Metrics.dump(System.out);
+            AllocationTracker.report(System.out);
+        }
+        else if (item.equals("Export Latency")){
+            runLatencyExportDialog();
+        }
     }
 	////////////////////////////////////////////////////////////////////////////////////////
     ///////////////// Methods for ItemListener interface /////////////////////////////////
@@ -435,6 +760,12 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
 	 */
 	@Override
     public void itemStateChanged(ItemEvent e) {
+        // the overlay needs the latency traces
+        if (e.getSource() == overlay && overlay.getState()) {
+            metrics.setState(true);
+        }
+        Metrics.setEnabled(metrics.getState());
+        AllocationTracker.setEnabled(allocations.getState());
         repaint();
     }
 	////////////////////////////////////////////////////////////////////////////////////////
@@ -446,28 +777,19 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
      */
     @Override
     public void mouseClicked(MouseEvent e) {
+    	latency.begin(LatencyTracer.Input.CLICK, e.getWhen());
     	Point pixelPosition = e.getPoint();
     	// If user selected the automated mode, each click will
     	// make the game perform a step towards the solution (the initial state)
     	if (automatic.getState()) {
-    		// get one step closer to the final state
-    		PuzzleState parent = state.getParent();
-    		if (null != parent) {
-    			System.out.println("Distance to finish: " + parent.getPathLength());
-    			state = parent;
-    			repaint();
-    		}
-    		else
-    			System.out.println("No parent to proceed");
-    		if (gameOver()){
-                runWinningDialog();
-            }
+    		stepTowardsFinish();
     	}
     	// Otherwise if user clicks on a tile
     	// we try to move the tile to some adjacent empty slot.
     	// If there are multiple options, we simply pick one.
     	else if (checkValid(pixelPosition)){
             if (moveOnClick(getSquareAt(pixelPosition))){
+                latency.requested();
                 repaint();
                 if (gameOver()){
                     runWinningDialog();
@@ -476,6 +798,233 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
         }
     }
  
+    /**
+     * Makes a step of auto mode towards the final state, on a shortest path if possible.
+     * The hint cache is asked first. If it has no hint for the 4x4 board, a solver looks
+     * for one on the solver thread and the step is made when it is done, its solution
+     * gives hints for all boards on its path.
+     */
+    private void stepTowardsFinish() {
+    	if (null != hintSearch) {
+    		return; // the step is made when the running search is done
+    	}
+    	HintCache.Hint hint = (dimension == 4) ? hints.get(state) : null;
+    	if (null == hint && dimension == 4 && !gameOver()) {
+    		searchHint();
+    		return;
+    	}
+    	takeStep(hint);
+    }
+
+    /**
+     * Looks for a hint for the current board on the solver thread.
+     * The board may change in the meantime, the hint is only used for the board it was searched for.
+     */
+    private void searchHint() {
+    	final PuzzleState board = Board.toState(Board.toArray(state));
+    	setTitle("Sliding Puzzle Game - looking for a hint");
+    	hintSearch = solverThread.submit(new Runnable() {
+    		@Override
+    		public void run() {
+    			final Solution solution = solveOptimally(board);
+    			EventQueue.invokeLater(new Runnable() {
+    				@Override
+    				public void run() {
+    					hintSearch = null;
+    					setTitle("Sliding Puzzle Game");
+    					HintCache.Hint hint = null;
+    					if (null != solution && solution.length() > 0) {
+    						hints.put(board, solution);
+    						hint = new HintCache.Hint(solution.getEncodedMoves()[0], solution.length(), board.getDimension());
+    					}
+    					if (automatic.getState() && board.equals(state)) {
+    						takeStep(hint);
+    					}
+    				}
+    			});
+    		}
+    	});
+    }
+
+    /**
+     * Solves a 4x4 board optimally if possible, to be called on the solver thread.
+     * The solver and its pattern database are built on first use.
+     * @return solution or null if none was found in time
+     */
+    private Solution solveOptimally(PuzzleState board) {
+    	if (null == hintSolver) {
+    		hintSolver = PortfolioSolver.createWithPatternDatabase(true, 5000);
+    	}
+    	try {
+    		return hintSolver.solve(board);
+    	}
+    	catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		return null;
+    	}
+    }
+
+    /**
+     * Makes the move of a hint, without a hint the last move of the game is taken back instead.
+     * @param hint next move on a shortest path, null if there is none
+     */
+    private void takeStep(HintCache.Hint hint) {
+    	PuzzleState next = (null != hint) ? hint.applyTo(state) : null;
+    	PuzzleState parent = state.getParent();
+    	if (null != next) {
+    		System.out.println("Distance to finish: " + (hint.getDistance() - 1));
+    		if (null != journal) {
+    			journal.recordMoves(state, next);
+    		}
+    		showMove(state, next);
+    		state = next;
+    		latency.requested();
+    		repaint();
+    	}
+    	else if (null != parent) {
+    		// no solution in time, walk back the moves of the game instead
+    		System.out.println("Distance to finish: " + parent.getPathLength());
+    		showMove(state, parent);
+    		state = parent;
+    		if (null != journal) {
+    			journal.recordUndo(parent);
+    		}
+    		latency.requested();
+    		repaint();
+    	}
+    	else
+    		System.out.println("No parent to proceed");
+    	if (gameOver()){
+            runWinningDialog();
+        }
+    }
+ 
+    /**
+     * Plays a solution of the current board in the background, at autoPlayRate moves per second.
+     * The 4x4 board is solved optimally if possible, other boards row by row, on the solver thread.
+     * Play starts when the solution is found, until then auto play can already be stopped.
+     * Without a solution, the moves of the game are walked back instead.
+     */
+    private void runAutoPlay() {
+    	animator.stop();
+    	final PuzzleState board = Board.toState(Board.toArray(state));
+    	final int search = ++autoPlaySearches;
+    	setTitle("Sliding Puzzle Game - auto play: solving");
+    	autoPlaySearch = solverThread.submit(new Runnable() {
+    		@Override
+    		public void run() {
+    			final Solution solution = solve(board);
+    			EventQueue.invokeLater(new Runnable() {
+    				@Override
+    				public void run() {
+    					if (search != autoPlaySearches) {
+    						return; // stopped
+    					}
+    					autoPlaySearch = null;
+    					setTitle("Sliding Puzzle Game");
+    					if (board.equals(state)) {
+    						playSolution(board, solution);
+    					}
+    				}
+    			});
+    		}
+    	});
+    }
+
+    /**
+     * Solves a board, to be called on the solver thread.
+     * @return solution or null if none was found in time or the search was stopped
+     */
+    private Solution solve(PuzzleState board) {
+    	if (board.getDimension() == 4) {
+    		return solveOptimally(board);
+    	}
+    	try {
+    		return new RowByRowSolver().solve(board);
+    	}
+    	catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		return null;
+    	}
+    }
+
+    /**
+     * Starts to play the solution that was found for the current board.
+     * @param board copy of the current board the solution was found for
+     * @param solution null if none was found, the moves of the game are walked back then
+     */
+    private void playSolution(PuzzleState board, Solution solution) {
+    	int[] moves;
+    	if (null != solution) {
+    		hints.put(board, solution);
+    		moves = solution.getEncodedMoves();
+    	}
+    	else {
+    		moves = AutoPlayer.movesToRoot(state);
+    	}
+    	if (moves.length == 0) {
+    		System.out.println("Auto play: no moves to play");
+    		return;
+    	}
+    	autoPlayer.play(state, moves, autoPlayRate, new AutoPlayer.Display() {
+    		@Override
+    		public void show(PuzzleState next, int played, int total) {
+    			showAutoPlay(next, played, total);
+    		}
+    	});
+    }
+
+    /**
+     * @return true if auto play is running or its solution is still searched for
+     */
+    private boolean isAutoPlaying() {
+    	return null != autoPlaySearch || autoPlayer.isPlaying();
+    }
+
+    /**
+     * Stops auto play and the search for its solution, nothing more is shown for them.
+     */
+    private void cancelAutoPlay() {
+    	if (null != autoPlaySearch) {
+    		autoPlaySearches++;
+    		autoPlaySearch.cancel(true);
+    		autoPlaySearch = null;
+    		setTitle("Sliding Puzzle Game");
+    	}
+    	autoPlayer.stop();
+    }
+
+    /**
+     * Shows a board of auto play, the moves are recorded in the journal once play ends.
+     */
+    private void showAutoPlay(PuzzleState next, int played, int total) {
+    	// slow play slides the tiles, fast play shows the boards as they come
+    	if (animate.getState() && autoPlayRate <= 10) {
+    		animator.animate(state, next);
+    	}
+    	state = next;
+    	setTitle("Sliding Puzzle Game - auto play " + played + " of " + total + " moves");
+    	repaint();
+    	if (played == total) {
+    		setTitle("Sliding Puzzle Game");
+    		snapshotGame();
+    		if (gameOver()){
+    			runWinningDialog();
+    		}
+    	}
+    }
+
+    /**
+     * Stops auto play if it is running and records the board that was reached.
+     */
+    private void stopAutoPlay() {
+    	if (isAutoPlaying()) {
+    		cancelAutoPlay();
+    		setTitle("Sliding Puzzle Game");
+    		snapshotGame();
+    	}
+    }
+
     /**
      * If user drags a tile, it moves into an adjacent empty slot. 
      * This method is called when the movement starts.
@@ -485,6 +1034,9 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
     @Override
     public void mousePressed(MouseEvent e) {
         //Check if dragging is selected and valid area on the plane
+    	latency.begin(LatencyTracer.Input.PRESS, e.getWhen());
+    	// the user takes over
+    	stopAutoPlay();
     	Point pixelPosition = e.getPoint();
         if (drag.getState() && checkValid(pixelPosition)) {
         	// make sure intermediate squares don't get updated
@@ -494,6 +1046,7 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
             Point gridPosition = getSquareAt(pixelPosition);
             if(!isEmpty(gridPosition) && hasEmptyNeighbor(gridPosition)) {
                 selectedsquare = gridPosition; // starting position
+                latency.requested();
                 repaint();
             }
             dontchange=false;
@@ -506,20 +1059,26 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
      */
     @Override
     public void mouseReleased(MouseEvent e) {
+        latency.begin(LatencyTracer.Input.RELEASE, e.getWhen());
         if (drag.getState()){
             if (selectedsquare!=null){
                 if (checksquare!=null){
                     //Move selected and check square
                 	if (isEmpty(checksquare)) {
                 		PuzzleState tmp = state.flip(selectedsquare.y, selectedsquare.x, checksquare.y, checksquare.x);
-                		if (null != tmp)
+                		if (null != tmp) {
+                			if (null != journal)
+                				journal.recordMoves(state, tmp);
+                			showMove(state, tmp);
                 			state = tmp;
+                		}
                 		else
                 			System.out.println("Error: could not flip states after drag operation");
                 	}
                 	// reset selections and update graphics
                     checksquare=null;
                     selectedsquare=null;
+                    latency.requested();
                     repaint();
                     // run winning dialog only after update if needed
                     if (gameOver()){
@@ -528,6 +1087,7 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
                     return ;
                 }
                 selectedsquare=null;
+                latency.requested();
                 repaint();
                 
             }
@@ -539,6 +1099,7 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
      */
     @Override
     public void mouseDragged(MouseEvent e) {
+        latency.begin(LatencyTracer.Input.DRAG, e.getWhen());
         if (drag.getState()) {
             if(selectedsquare != null) {
             	// starting square was selected
@@ -557,6 +1118,7 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
                 	if (isNeighbor((null != checksquare) ? checksquare : selectedsquare, gridPosition)) {
                 		// update intermediate position
                 		checksquare = gridPosition;
+                        latency.requested();
                         repaint();
                 	}
                 }
@@ -590,14 +1152,6 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
 	private int getTopLeftY(int r) {
 		return r*h+offY;
 	}
-	/**
-	 * Compute the y coordinate for the center point in this row
-	 * @param r current row
-	 * @return y pixel coordinate for center point of this row
-	 */
-	private int getCenterY(int r) {
-		return r*h+(offY+h/2);
-	}
     /**
      * Compute the top-left x coordinate for the current column c.
      * Used for drawing a tile.
@@ -607,14 +1161,6 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
 	private int getTopLeftX(int c) {
 		return c*w+offX;
 	}
-	/**
-	 * Compute the x coordinate for the center point in this column
-	 * @param c current column
-	 * @return x pixel coordinate for center point of this column
-	 */
-	private int getCenterX(int c) {
-		return c*w+(offX+w/2);
-	}
 	/**
 	 * tell if selected position is empty
 	 * @param p carries (x=column,y=row) coordinates
@@ -629,19 +1175,7 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
 	 * @return true if there is a neighboring empty slot, false otherwise
 	 */
     private boolean hasEmptyNeighbor(Point p) {
-    	// above
-    	if (p.y > 0 && state.isEmpty(p.y-1, p.x))
-    		return true;
-    	// below
-    	if (p.y < 3 && state.isEmpty(p.y+1, p.x))
-    		return true;
-    	// left
-    	if (p.x > 0 && state.isEmpty(p.y, p.x-1))
-    		return true;
-    	// right
-       	if (p.x < 3 && state.isEmpty(p.y, p.x+1))
-    		return true;
-    	return false;
+    	return state.getLegalOperations(p.y, p.x) != 0;
     }
     /**
      * Computes row,column coordinates for a given points wiht pixel coordinates
@@ -677,7 +1211,7 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
 	private boolean isNeighbor(Point lastPoint, Point currentPoint) {
 		int last = getNumAt(lastPoint); 
 		int index = getNumAt(currentPoint);
-		return last-1 == index || last+1 == index || last-4 == index || last+4 == index;
+		return last-1 == index || last+1 == index || last-dimension == index || last+dimension == index;
 	}
 	/**
 	 * Translate row, column coordinates into an index ranging from 0,1,..., dimension^2-1
@@ -689,7 +1223,7 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
         //is on the grid like   4   5   6   7
         //this:                 8   9   10  11
         //                      12  13  14  15
-    	return p.y*4+p.x;
+    	return p.y*dimension+p.x;
     }
     /**
      * Checks if a given position as pixel coordinates is on the board and not on the frame.
@@ -698,10 +1232,10 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
      */
     private boolean checkValid(Point p){
         //Checks if point is on the image or plane
-    	// min x = offX, max x = 4 w + offX
-    	// min y = offY, max y = 4 h + offY
-    	return ( (offX < p.x) && (p.x < 4*w + offX)) &&
-    			((offY < p.y) && (p.y < 4*h + offY)) ;
+    	// min x = offX, max x = dimension w + offX
+    	// min y = offY, max y = dimension h + offY
+    	return ( (offX < p.x) && (p.x < dimension*w + offX)) &&
+    			((offY < p.y) && (p.y < dimension*h + offY)) ;
     }
     /**
      * Initializes or resets the field finalState. 
@@ -710,16 +1244,21 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
      */
     private void setFinalState() {
     	finalState = new SimplePuzzleState();
-    	finalState.setToInitialState(4, emptysquares);
+    	finalState.setToInitialState(dimension, emptysquares);
     }
 
     /**
-     * Resets game to 4x4 board and a state where squares are ordered.
+     * Resets game to a board of the chosen dimension and a state where squares are ordered.
      * Resets field state, uses field emptysquares to determine number 
      * of empty squares.
      */   
     private void initBoard() {
-    	state.setToInitialState(4, emptysquares);
+    	// a new object, the journal may still be writing the previous state
+    	animator.stop();
+    	cancelAutoPlay();
+    	state = new SimplePuzzleState();
+    	state.setToInitialState(dimension, emptysquares);
+    	snapshotGame();
     }
     /**
      * Perform a number of random flips between tiles to start the game.
@@ -728,7 +1267,16 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
     private void shuffleBoard(){
     	// we use 15 as path length, no particular reason.
     	// Value can be changed here as needed.
-    	state = state.shuffleBoard(150);
+    	animator.stop();
+    	cancelAutoPlay();
+    	if (dimension <= 4) {
+    		state = state.shuffleBoard(150);
+    	}
+    	else {
+    		// a walk long enough to mix a large board, without keeping a state for each step
+    		state = Board.toState(Board.randomWalk(dimension, emptysquares, 20*dimension*dimension, new Random()));
+    	}
+    	snapshotGame();
     }
     /**
      * Attempts to move the square at the given position.
@@ -741,18 +1289,28 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
     		System.out.println("moveOnClick: empty tile return");
     		return false;
     	}
-    	// if there are several options for a movement, just pick the first one
-    	PuzzleState ps;
-    	for (Operation op : Operation.values()) {
-    		ps = state.move(p.y,p.x, op);
-    		if (null != ps) {
-    			// be defensive here, if move fails and returns null, 
-    			// don't destroy valid current state.
-    			state = ps;
-    			return true;
-    		}
+    	// if there are several options for a movement, pick the first one in the order of CLICK_PREFERENCE
+    	PuzzleState ps = state.moveToEmptyNeighbor(p.y, p.x, CLICK_PREFERENCE);
+    	// be defensive here, if move fails and returns null, 
+    	// don't destroy valid current state.
+    	if (null == ps) {
+    		return false;
+    	}
+    	if (null != journal)
+    		journal.recordMoves(state, ps);
+    	showMove(state, ps);
+    	state = ps;
+    	return true;
+    }
+
+    /**
+     * Lets the tiles slide from the current state to the next one if animation is selected.
+     * The caller sets the next state right away, the animation only affects what paint shows.
+     */
+    private void showMove(PuzzleState current, PuzzleState next) {
+    	if (animate.getState()) {
+    		animator.animate(current, next);
     	}
-    	return false;
     }
 
     /**
@@ -769,6 +1327,7 @@ public class PuzzleGameGUI extends Frame implements ActionListener, MouseListene
      * @param args not used
      */
     public static void main(String[] args){
+        EightPuzzleTable.preload(); // 3x3 distance tables, ready by the time they are needed
         PuzzleGameGUI pgf = new PuzzleGameGUI();
         pgf.setVisible(true);
     }
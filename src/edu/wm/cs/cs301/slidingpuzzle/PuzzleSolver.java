@@ -0,0 +1,33 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+/**
+ * A puzzle solver computes a sequence of moves that leads from a given
+ * puzzle state to the final state where all tiles are ordered, i.e. the state
+ * produced by setToInitialState with the same dimension and number of empty slots.
+ *
+ * Solvers are cancelled cooperatively: a long running solve checks
+ * the interrupted flag of its thread on a regular basis and gives up
+ * with an InterruptedException. This allows to run several solvers
+ * concurrently and stop the ones that are no longer needed.
+ */
+public interface PuzzleSolver {
+	/**
+	 * @return a short name that identifies the solver and its configuration, used for logging
+	 */
+	public String getName();
+
+	/**
+	 * Tells if the solver guarantees to find a shortest sequence of moves.
+	 * @return true if solutions are optimal, false otherwise
+	 */
+	public boolean isOptimal();
+
+	/**
+	 * Computes a solution for the given state.
+	 * The given state is not modified.
+	 * @param start is the state to solve
+	 * @return solution or null if the solver could not find one within its limits
+	 * @throws InterruptedException if the solving thread was interrupted
+	 */
+	public Solution solve(PuzzleState start) throws InterruptedException;
+}
@@ -71,6 +71,12 @@ public interface PuzzleState {
 	 * @return value for the tile at the given position, range 0,1,...,dimension^2-1
 	 */
 	public int getValue(int row, int column);
+	/**
+	 * Get the number of tiles per row (or column) of the board. 
+	 * The value is the dimension that was given to setToInitialState.
+	 * @return dimension of the board, e.g. 4 for a 4x4 board
+	 */
+	public int getDimension();
 	/**
 	 * Get the parent state which is the state from which the current state was reached.
 	 * The parent state is useful if one wants to represent
@@ -109,14 +115,24 @@ public interface PuzzleState {
 	 * to this object, i.e. the current state before the move, the operation is set to op and 
 	 * the state is set to the state that results from the move operation. The operation also
 	 * sets the distance from the initial state for the returned state.
-	 * If the move is not possible, the method returns null.
+	 * If the move is not possible, the method returns null. The move is possible if and only if
+	 * the position holds a tile and the adjacent position in direction op is an empty slot;
+	 * the tile is never moved in another direction than op, see moveToEmptyNeighbor() for that.
 	 * @param row is an index in the range 0,1,..., dimension-1
 	 * @param column is an index in the range 0,1,..., dimension-1
 	 * @param op gives an operation such as move left or move up.
-	 * @param  
 	 * @return new PuzzleState for legal move. For illegal move operation it returns null.
 	 */
 	public PuzzleState move(int row, int column, Operation op);
+	/**
+	 * Moves the tile at the given position into an adjacent empty slot. If there are several,
+	 * the first operation of the preference order that is legal is performed, as for a click on a tile.
+	 * @param row is an index in the range 0,1,..., dimension-1
+	 * @param column is an index in the range 0,1,..., dimension-1
+	 * @param preference operations to try, in this order
+	 * @return new PuzzleState as for move(), or null if none of the operations is legal
+	 */
+	public PuzzleState moveToEmptyNeighbor(int row, int column, Operation... preference);
 	/**
 	 * A flip is a short cut for a possible series of move operations. 
 	 * In the GUI, it results from a drag operations across multiple empty slots.
@@ -161,4 +177,32 @@ public interface PuzzleState {
 	 * @return true if this is an empty slot, false otherwise
 	 */
 	public boolean isEmpty(int row, int column);
+	/**
+	 * Tells in which directions the tile at the given position can move, i.e. for which
+	 * operations move() returns a new state. Nothing is created to find out.
+	 * @param row is an index in the range 0,1,..., dimension-1
+	 * @param column is an index in the range 0,1,..., dimension-1
+	 * @return bit mask with bit op.ordinal() set for each legal operation op,
+	 * 0 for an empty slot or a tile that can not move
+	 */
+	public int getLegalOperations(int row, int column);
+	/**
+	 * Calls the visitor for every legal move of this state, tile by tile in row-major order
+	 * and for each tile in the order of the operations. The visitor gets the arguments for
+	 * move() and calls it only for the successors it needs, so enumerating moves creates no objects.
+	 * @param visitor receives the legal moves
+	 */
+	public void forEachMove(MoveVisitor visitor);
+	/**
+	 * Receives the legal moves of a state, see forEachMove().
+	 */
+	public interface MoveVisitor {
+		/**
+		 * @param row of the tile that can move
+		 * @param column of the tile that can move
+		 * @param op direction in which the tile can move
+		 * @return true to continue with the next move, false to stop
+		 */
+		public boolean visit(int row, int column, Operation op);
+	}
 }
@@ -0,0 +1,480 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.Arrays;
+
+import edu.wm.cs.cs301.slidingpuzzle.MacroTable.Frame;
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.MoveVisitor;
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Fast solver for large boards that gives up optimality for a running time that is polynomial
+ * in the dimension. Optimal searches are hopeless beyond 5x5, but a 20x20 board is solved by this
+ * solver in milliseconds.
+ *
+ * The solver places the top row, then the left column of the remaining board, then the next row
+ * and so on until a 3x3 corner remains, which is solved optimally with the EightPuzzleTable.
+ * A tile is placed by moving it along a shortest path to its goal; for each step the empty slot
+ * goes around the tile with a macro from the MacroTable, or with a breadth-first search over
+ * the cells that are not yet placed if both ways around are blocked.
+ * The last two tiles of a row or column cannot be placed one after the other, so both are brought
+ * into a window of 8 cells next to their goal positions and put in place with a macro.
+ *
+ * With more than one empty slot, one of them does the moving and the others are treated as tiles
+ * that belong to the goal positions of the empty slots. Swapping two empty slots is no move,
+ * it only exchanges their roles. The table covers corners with up to 3 empty slots; a corner
+ * with more empty slots has few boards and is solved optimally with IDA* instead.
+ *
+ * Moves are passed to a MoveVisitor as they are found, so a caller can play them or write them
+ * to a file without holding a chain of states for tens of thousands of moves.
+ * Boards smaller than 3x3 are solved with IDA* as well.
+ */
+public class RowByRowSolver implements PuzzleSolver {
+	private static final int CORNER = EightPuzzleTable.DIMENSION;
+
+	private final PuzzleSolver smallBoardSolver = new IDAStarSolver();
+
+	@Override
+	public String getName() {
+		return "RowByRow";
+	}
+
+	@Override
+	public boolean isOptimal() {
+		return false;
+	}
+
+	@Override
+	public Solution solve(PuzzleState start) throws InterruptedException {
+		MoveList moves = new MoveList(start.getDimension());
+		if (solve(start, moves) < 0) {
+			return null;
+		}
+		return new Solution(start.getDimension(), moves.toArray(), getName(), false);
+	}
+
+	/**
+	 * Computes a solution for the given state and passes its moves one by one to the visitor,
+	 * in the order they have to be performed. The given state is not modified.
+	 * @param start is the state to solve
+	 * @param sink receives the moves, returns false to stop the solver
+	 * @return number of moves or -1 if the state cannot be solved or the visitor stopped the solver
+	 * @throws InterruptedException if the solving thread was interrupted
+	 */
+	public long solve(PuzzleState start, MoveVisitor sink) throws InterruptedException {
+		int dimension = start.getDimension();
+		int[] board = Board.toArray(start);
+		if (!Board.isSolvable(board, dimension)) {
+			return -1;
+		}
+		if (dimension < CORNER) {
+			Solution solution = smallBoardSolver.solve(start);
+			if (null == solution) {
+				return -1;
+			}
+			for (int i = 0; i < solution.length(); i++) {
+				if (!sink.visit(solution.getRow(i), solution.getColumn(i), solution.getOperation(i))) {
+					return -1;
+				}
+			}
+			return solution.length();
+		}
+		Placement placement = new Placement(board, dimension, sink, smallBoardSolver);
+		return placement.run() ? placement.count : -1;
+	}
+
+	/**
+	 * Holds the mutable data of a single solve such that a solver object
+	 * can be used by several threads at the same time.
+	 *
+	 * Every cell holds the label of the goal position of its tile plus 1, such that the goal board
+	 * has label i+1 at position i. Empty slots other than the moving one get the labels of the goal
+	 * positions of empty slots, the moving one is 0.
+	 */
+	private static final class Placement {
+		final int[] board;
+		final int dimension;
+		final MoveVisitor sink;
+		// solves corners with more empty slots than the EightPuzzleTable covers
+		final PuzzleSolver cornerSolver;
+		final MacroTable macros = MacroTable.getInstance();
+		// labels above this value belong to empty slots
+		final int tiles;
+		final int[] where;
+		final boolean[] locked;
+		final boolean[] target;
+		final int[] queue;
+		final int[] previous;
+		final int[] visited;
+		int stamp;
+		int blank;
+		long count;
+
+		Placement(int[] board, int dimension, MoveVisitor sink, PuzzleSolver cornerSolver) {
+			int size = board.length;
+			this.board = board;
+			this.dimension = dimension;
+			this.sink = sink;
+			this.cornerSolver = cornerSolver;
+			this.tiles = size - Board.countEmptySlots(board);
+			this.where = new int[size];
+			this.locked = new boolean[size];
+			this.target = new boolean[size];
+			this.queue = new int[size];
+			this.previous = new int[size];
+			this.visited = new int[size];
+			int label = tiles;
+			blank = -1;
+			for (int i = 0; i < size; i++) {
+				if (board[i] == 0) {
+					if (blank < 0) {
+						blank = i;
+						continue;
+					}
+					board[i] = ++label;
+				}
+				where[board[i]] = i;
+			}
+		}
+
+		/**
+		 * Places rows and columns, then solves the corner.
+		 * @return false if the visitor stopped the solver
+		 */
+		boolean run() throws InterruptedException {
+			for (int s = 0; s < dimension - CORNER; s++) {
+				// row s from column s, then column s from row s+1
+				for (int c = s; c < dimension - 2; c++) {
+					if (!place(s * dimension + c)) {
+						return false;
+					}
+				}
+				if (!placePair(s * dimension + dimension - 2, 1, dimension)) {
+					return false;
+				}
+				for (int r = s + 1; r < dimension - 2; r++) {
+					if (!place(r * dimension + s)) {
+						return false;
+					}
+				}
+				if (!placePair((dimension - 2) * dimension + s, dimension, 1)) {
+					return false;
+				}
+			}
+			return solveCorner();
+		}
+
+		/**
+		 * Moves the tile that belongs to the given position there and locks it.
+		 */
+		boolean place(int position) throws InterruptedException {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			target[position] = true;
+			boolean moved = moveTile(where[position + 1]) >= 0;
+			target[position] = false;
+			locked[position] = true;
+			return moved;
+		}
+
+		/**
+		 * Places the tiles of two adjacent positions at the end of a row or column.
+		 * The window consists of both positions and a 2x3 block next to them, e.g. for a row
+		 * <pre>
+		 *     . A B
+		 *     . . .
+		 *     . . .
+		 * </pre>
+		 * where A is the given position and B the one after it in the row.
+		 * The cell left of A is placed already, all other cells are in the window.
+		 * @param position goal position of the first tile
+		 * @param along distance between the positions, 1 for a row and dimension for a column
+		 * @param across distance between rows of the window, dimension for a row and 1 for a column
+		 */
+		boolean placePair(int position, int along, int across) throws InterruptedException {
+			// the first tile goes to its goal position, where it cannot cut off the empty slot
+			// from the rest of the board while the second tile and the empty slot enter the window
+			if (!place(position)) {
+				return false;
+			}
+			if (where[position + along + 1] == position + along) {
+				locked[position + along] = true;
+				return true;
+			}
+			Frame frame = Frame.PAIR;
+			int[] window = new int[frame.size()];
+			for (int i = 0; i < window.length; i++) {
+				window[i] = position + frame.getRow(i) * across + frame.getColumn(i) * along;
+			}
+			for (int cell : window) {
+				target[cell] = true;
+			}
+			int second = target[where[position + along + 1]] ? 0 : moveTile(where[position + along + 1]);
+			if (second >= 0) {
+				locked[where[position + along + 1]] = true;
+			}
+			boolean moved = second >= 0 && (target[blank] || routeBlank(-1) >= 0);
+			for (int cell : window) {
+				target[cell] = false;
+				locked[cell] = false;
+			}
+			if (!moved) {
+				return false;
+			}
+			int macro = macros.pair(indexOf(window, where[position + 1]), indexOf(window, where[position + along + 1]),
+					indexOf(window, blank));
+			if (!replay(macro, frame, position, across, along)) {
+				return false;
+			}
+			locked[position] = true;
+			locked[position + along] = true;
+			return true;
+		}
+
+		private static int indexOf(int[] window, int position) {
+			for (int i = 0; i < window.length; i++) {
+				if (window[i] == position) {
+					return i;
+				}
+			}
+			throw new IllegalStateException("position " + position + " is not in the window");
+		}
+
+		/**
+		 * Moves a tile along a shortest path over unlocked cells to the nearest target cell.
+		 * For each step the empty slot is routed to the next cell without touching the tile.
+		 * @param position current position of the tile
+		 * @return target position reached or -1 if the visitor stopped the solver
+		 */
+		private int moveTile(int position) {
+			int end = search(position, -1);
+			if (end < 0) {
+				throw new IllegalStateException("tile at " + position + " cannot reach its target");
+			}
+			int length = 0;
+			for (int p = end; p != position; p = previous[p]) {
+				queue[length++] = p;
+			}
+			int[] path = Arrays.copyOf(queue, length);
+			int current = position;
+			for (int i = length - 1; i >= 0; i--) {
+				int next = path[i];
+				locked[current] = true;
+				int moved = replayStep(current, next);
+				if (moved == 0) {
+					moved = (routeBlank(next) >= 0 && moveBlank(current)) ? 1 : -1;
+				}
+				locked[current] = false;
+				if (moved < 0) {
+					return -1;
+				}
+				current = next;
+			}
+			return current;
+		}
+
+		/**
+		 * Moves a tile one step with a STEP macro if the empty slot is in the 3x3 block around the
+		 * tile and one of the two ways around the tile is free.
+		 * @param tile position of the tile
+		 * @param next position next to the tile
+		 * @return 1 if the tile moved, 0 if no macro fits, -1 if the visitor stopped the solver
+		 */
+		private int replayStep(int tile, int next) {
+			int row = tile / dimension;
+			int column = tile % dimension;
+			Frame frame = Frame.STEP;
+			int from = frame.cellAt(blank / dimension - row, blank % dimension - column);
+			if (from < 0) {
+				return 0;
+			}
+			int to = frame.cellAt(next / dimension - row, next % dimension - column);
+			for (int side = 0; side < 2; side++) {
+				int macro = macros.step(from, to, side);
+				boolean free = true;
+				// the last move is the one of the tile
+				for (int i = 0; i < macros.length(macro) - 1 && free; i++) {
+					int r = row + frame.getRow(macros.getCell(macro, i));
+					int c = column + frame.getColumn(macros.getCell(macro, i));
+					free = r >= 0 && r < dimension && c >= 0 && c < dimension && !locked[r * dimension + c];
+				}
+				if (free) {
+					return replay(macro, frame, tile, dimension, 1) ? 1 : -1;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Moves the empty slot to the cells of a macro in turn.
+		 * @param anchor position of the anchor of the frame
+		 * @param rowStride distance between positions of adjacent frame rows
+		 * @param columnStride distance between positions of adjacent frame columns
+		 * @return false if the visitor stopped the solver
+		 */
+		private boolean replay(int macro, Frame frame, int anchor, int rowStride, int columnStride) {
+			for (int i = 0; i < macros.length(macro); i++) {
+				int cell = macros.getCell(macro, i);
+				if (!moveBlank(anchor + frame.getRow(cell) * rowStride + frame.getColumn(cell) * columnStride)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Moves the empty slot along a shortest path over unlocked cells to the given position.
+		 * @param goal position or -1 for the nearest target cell
+		 * @return position reached or -1 if the visitor stopped the solver
+		 */
+		private int routeBlank(int goal) {
+			int start = blank;
+			int end = search(start, goal);
+			if (end < 0) {
+				throw new IllegalStateException("empty slot at " + start + " cannot reach its target");
+			}
+			int length = 0;
+			for (int p = end; p != start; p = previous[p]) {
+				queue[length++] = p;
+			}
+			int[] path = Arrays.copyOf(queue, length);
+			for (int i = length - 1; i >= 0; i--) {
+				if (!moveBlank(path[i])) {
+					return -1;
+				}
+			}
+			return end;
+		}
+
+		/**
+		 * Breadth-first search over unlocked cells from the given position.
+		 * The path is left in previous[] from the end backwards.
+		 * @param goal position to search for or -1 for the nearest target cell
+		 * @return position found or -1 if none can be reached
+		 */
+		private int search(int start, int goal) {
+			stamp++;
+			visited[start] = stamp;
+			queue[0] = start;
+			int head = 0;
+			int tail = 1;
+			while (head < tail) {
+				int p = queue[head++];
+				if (p == goal || (goal < 0 && target[p])) {
+					return p;
+				}
+				for (Operation op : Board.OPERATIONS) {
+					int q = Board.neighbor(p, op, dimension);
+					if (q >= 0 && !locked[q] && visited[q] != stamp) {
+						visited[q] = stamp;
+						previous[q] = p;
+						queue[tail++] = q;
+					}
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Swaps the moving empty slot with the adjacent cell. If the cell holds a tile,
+		 * the move is passed to the visitor; another empty slot only changes its label.
+		 * @return false if the visitor stopped the solver
+		 */
+		private boolean moveBlank(int position) {
+			int label = board[position];
+			board[blank] = label;
+			board[position] = 0;
+			where[label] = blank;
+			int from = blank;
+			blank = position;
+			if (label > tiles) {
+				return true;
+			}
+			count++;
+			return sink.visit(position / dimension, position % dimension, direction(position, from));
+		}
+
+		private Operation direction(int from, int to) {
+			if (to == from + 1) {
+				return Operation.MOVERIGHT;
+			}
+			if (to == from - 1) {
+				return Operation.MOVELEFT;
+			}
+			return (to > from) ? Operation.MOVEDOWN : Operation.MOVEUP;
+		}
+
+		/**
+		 * Solves the 3x3 corner at the bottom-right with the EightPuzzleTable
+		 * after all other tiles are placed, or with IDA* if it has more than 3 empty slots.
+		 * @return false if the visitor stopped the solver
+		 */
+		private boolean solveCorner() throws InterruptedException {
+			int offset = dimension - CORNER;
+			int[] corner = new int[CORNER * CORNER];
+			for (int i = 0; i < corner.length; i++) {
+				int label = board[(offset + i / CORNER) * dimension + offset + i % CORNER];
+				if (label != 0 && label <= tiles) {
+					int goal = label - 1;
+					corner[i] = (goal / dimension - offset) * CORNER + goal % dimension - offset + 1;
+				}
+			}
+			int emptySlots = Board.countEmptySlots(corner);
+			if (emptySlots > EightPuzzleTable.MAX_EMPTY_SLOTS) {
+				Solution solution = cornerSolver.solve(Board.toState(corner));
+				if (null == solution) {
+					throw new IllegalStateException("corner cannot be solved: " + Arrays.toString(corner));
+				}
+				for (int i = 0; i < solution.length(); i++) {
+					count++;
+					if (!sink.visit(offset + solution.getRow(i), offset + solution.getColumn(i),
+							solution.getOperation(i))) {
+						return false;
+					}
+				}
+				return true;
+			}
+			EightPuzzleTable table = EightPuzzleTable.getInstance(emptySlots);
+			int distance = table.getDistance(corner);
+			if (distance < 0) {
+				throw new IllegalStateException("corner cannot be solved: " + Arrays.toString(corner));
+			}
+			for (int i = 0; i < distance; i++) {
+				int move = table.getNextMove(corner);
+				Board.apply(corner, move, CORNER);
+				int position = Board.movePosition(move);
+				count++;
+				if (!sink.visit(offset + position / CORNER, offset + position % CORNER, Board.moveOperation(move))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Collects the moves of a solution as encoded moves.
+	 */
+	private static final class MoveList implements MoveVisitor {
+		private final int dimension;
+		private int[] moves = new int[64];
+		private int size;
+
+		MoveList(int dimension) {
+			this.dimension = dimension;
+		}
+
+		@Override
+		public boolean visit(int row, int column, Operation op) {
+			if (size == moves.length) {
+				moves = Arrays.copyOf(moves, 2 * size);
+			}
+			moves[size++] = Board.encodeMove(row * dimension + column, op);
+			return true;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(moves, size);
+		}
+	}
+}
@@ -15,12 +15,15 @@ public class SimplePuzzleState implements PuzzleState {
 	 * position is the matrix that stores position of the tiles, 
 	 * parentstate is the previous state used undo the moves,
 	 * operation is the direction it moved from the parentstate,
-	 * and pathlength is how many moves it went through from the start
+	 * and pathlength is how many moves it went through from the start.
+	 * history is set for states loaded from a saved game, it supplies the parentstate on demand.
 	 */
     private int[][] position;
     private SimplePuzzleState parentstate;
 	private Operation operation;
 	private int pathlength;
+	private GameFile.History history;
+	private long historyindex;
 	
 	/**
 	 *  default constructor class
@@ -39,12 +42,25 @@ public class SimplePuzzleState implements PuzzleState {
 		this.pathlength = pathlength;
 	}
 	
+	/** 
+	 * constructor used for loaded games, the parent is created from the history when it is first asked for
+	 */
+	SimplePuzzleState(int[][] position, Operation operation, int pathlength, GameFile.History history, long historyindex) {
+		this(position, null, operation, pathlength);
+		this.history = history;
+		this.historyindex = historyindex;
+	}
+	
 	/**
 	 *  setToInitialState creates a new board by making a matrix and putting numbers into it in order with
 	 * 0's in the end
 	 */
 	@Override
 	public void setToInitialState(int dimension, int numberOfEmptySlots) {
+		parentstate = null; //a new game has no history
+		operation = null;
+		pathlength = 0;
+		history = null;
 		int tilenumber = 1;
 		position = new int[dimension][dimension]; //creating a matrix
 		for(int i = 0; i < dimension; i++){ //iterate through and numbers
@@ -65,9 +81,40 @@ public class SimplePuzzleState implements PuzzleState {
 	}
 	
 	
+	@Override
+	public int getDimension() {
+		return position.length; //the matrix is square so the number of rows is the dimension
+	}
+	
+	
 	@Override
 	public PuzzleState getParent() {
-		return parentstate; //returns parentstate
+		return parent(); //returns parentstate
+	}
+	
+	/** 
+	 * returns the history of a loaded game if the parent has not been created from it yet, null otherwise.
+	 */
+	GameFile.History getPendingHistory() {
+		return history;
+	}
+
+	/** 
+	 * returns the index of the move in the pending history that leads to this state.
+	 */
+	long getHistoryIndex() {
+		return historyindex;
+	}
+
+	/** 
+	 * returns the parentstate, for a loaded game it is created from the history once and kept afterwards.
+	 */
+	private SimplePuzzleState parent() {
+		if (null != history) {
+			parentstate = history.getParent(this, historyindex);
+			history = null;
+		}
+		return parentstate;
 	}
 
 	
@@ -84,65 +131,60 @@ public class SimplePuzzleState implements PuzzleState {
 
 	/** 
 	 * there are four types of moves: moveright, moveleft, moveup, and movedown.
-	 * each move operation works by copying the non-zero value from its tile to the tile located in the corresponding direction, 
-	 * and replacing its original tile with a zero.
+	 * a move is legal if the tile moves into an adjacent empty slot in the direction of the operation,
+	 * any other move returns null. the move works by copying the non-zero value from its tile to the tile
+	 * located in the corresponding direction, and replacing its original tile with a zero.
 	 */
 	@Override
 	public PuzzleState move(int row, int column, Operation op) {
-		
-		int[][] newposition = new int[4][4];
-		for(int i = 0; i < 4; i++){
-			for(int j = 0; j < 4; j++){
-				newposition[i][j] = position[i][j]; //create a new position matrix to modify 
+		long begin = Metrics.start();
+		long allocated = AllocationTracker.start();
+		PuzzleState result = ((getLegalOperations(row, column) & (1 << op.ordinal())) == 0) ? null
+				: flipmove(row, column, op);
+		AllocationTracker.end(Metrics.Event.MOVE, allocated, (null == result) ? 0 : objectsPerStep());
+		Metrics.end(Metrics.Event.MOVE, begin, row, column);
+		return result;
+	}
+
+	/** 
+	 * tries the operations in the given order and performs the first legal one.
+	 */
+	@Override
+	public PuzzleState moveToEmptyNeighbor(int row, int column, Operation... preference) {
+		int legal = getLegalOperations(row, column);
+		for (Operation op : preference) {
+			if ((legal & (1 << op.ordinal())) != 0) {
+				return flipmove(row, column, op);
 			}
 		}
-		if (op == Operation.MOVERIGHT){ // in the PuzzleGameGUI, it only sends MOVERIGHT as the operation even when it is not moving right.
-			// Therefore, if we receive MOVERIGHT, we do not trust it and instead we look around and find empty space(s) and move accordingly.
-			// We look at MOVERIGHT first in case MOVERIGHT was the real direction.
-			if(column != 3 && newposition[row][column + 1] == 0){
-				op = Operation.MOVERIGHT;
-				newposition[row][column + 1] = newposition[row][column]; //copy the value from its tile to the tile on the right of it.
-				newposition[row][column] = 0; //replace the original tile's value with 0
-			}
-			else if(column != 0 && newposition[row][column - 1] == 0){
-				op = Operation.MOVELEFT;
-				newposition[row][column - 1] = newposition[row][column];
-				newposition[row][column] = 0;
-			}
-			
-			else if(row != 3 && newposition[row + 1][column] == 0){
-				op = Operation.MOVEDOWN;
-				newposition[row + 1][column] = newposition[row][column];
-				newposition[row][column] = 0;
-			}
-			
-			else if(row != 0 && newposition[row - 1][column] == 0){
-				op = Operation.MOVEUP;
-				newposition[row - 1][column] = newposition[row][column];
-				newposition[row][column] = 0;
-			}
-			else return null;
+		return null;
+	}
+	
+	/** 
+	 * number of objects a step of flipmove allocates: the new state, the matrix and its rows.
+	 */
+	private int objectsPerStep() {
+		return position.length + 2;
+	}
+	
+	/** 
+	 * copies the position matrix so that a move can modify the copy and leave this state untouched.
+	 */
+	private int[][] copyPosition() {
+		int[][] newposition = new int[position.length][];
+		for(int i = 0; i < position.length; i++){
+			newposition[i] = position[i].clone();
 		}
-		
-		else return flipmove(row, column, op); //If MOVERIGHT was not what it received, then it did not come from the PuzzleGameGUI and therefore
-		//we can trust the operation received so we use flipmove which moves based on the operation received.
-		
-		PuzzleState newpuzzlestate = new SimplePuzzleState(newposition, this, op, pathlength + 1); //we increment pathlength by 1.
-		return newpuzzlestate;
+		return newposition;
 	}
 	
 	/** 
-	 * actual moving algorithm works the same as the move() method but instead without the fear of getting a wrong operation.
+	 * actual moving algorithm, performs the operation without checking it; move() checks that it is legal first.
 	 */
 	
 	private SimplePuzzleState flipmove(int row, int column, Operation trueop) {
 		
-		int[][] newposition = new int[4][4];
-		for(int i = 0; i < 4; i++){
-			for(int j = 0; j < 4; j++){
-				newposition[i][j] = position[i][j];
-			}
-		}
+		int[][] newposition = copyPosition();
 		
 		if(trueop == Operation.MOVELEFT){
 			newposition[row][column - 1] = newposition[row][column];
@@ -174,12 +216,15 @@ public class SimplePuzzleState implements PuzzleState {
  */
 	@Override
 	public PuzzleState flip(int startRow, int startColumn, int endRow, int endColumn) {
+		long begin = Metrics.start();
+		long allocated = AllocationTracker.start();
 		int currentRow = startRow;
 		int currentColumn = startColumn;
-		SimplePuzzleState newstate = new SimplePuzzleState(this.position, this.parentstate, this.operation, this.pathlength);
+		int last = position.length - 1;
+		SimplePuzzleState newstate = new SimplePuzzleState(this.position, parent(), this.operation, this.pathlength);
 		
 		while(currentRow != endRow || currentColumn != endColumn){
-			if(currentRow != 3 && this.position[currentRow + 1][currentColumn] == 0 && currentRow < endRow){
+			if(currentRow != last && this.position[currentRow + 1][currentColumn] == 0 && currentRow < endRow){
 				newstate = newstate.flipmove(currentRow, currentColumn, Operation.MOVEDOWN);
 				startRow = currentRow;
 				currentRow++;
@@ -189,7 +234,7 @@ public class SimplePuzzleState implements PuzzleState {
 				startRow = currentRow;
 				currentRow--;	
 			}
-			else if(currentColumn != 3 && this.position[currentRow][currentColumn + 1] == 0 && currentColumn < endColumn){
+			else if(currentColumn != last && this.position[currentRow][currentColumn + 1] == 0 && currentColumn < endColumn){
 				newstate = newstate.flipmove(currentRow, currentColumn, Operation.MOVERIGHT);
 				startColumn = currentColumn;
 				currentColumn++;
@@ -200,6 +245,9 @@ public class SimplePuzzleState implements PuzzleState {
 				currentColumn--;
 			}
         }
+		int steps = newstate.pathlength - pathlength;
+		AllocationTracker.end(Metrics.Event.FLIP, allocated, 1 + steps * objectsPerStep());
+		Metrics.end(Metrics.Event.FLIP, begin, steps, 0);
 		return (PuzzleState) newstate;
 	}
 
@@ -208,11 +256,15 @@ public class SimplePuzzleState implements PuzzleState {
  */
 	@Override
 	public PuzzleState shuffleBoard(int pathLength) {
-		SimplePuzzleState newstate = new SimplePuzzleState(this.position, this.parentstate, this.operation, this.pathlength);
-		int[][] zeropositions = new int[16][2];
+		long begin = Metrics.start();
+		long allocated = AllocationTracker.start();
+		int dimension = position.length;
+		int last = dimension - 1;
+		SimplePuzzleState newstate = new SimplePuzzleState(this.position, parent(), this.operation, this.pathlength);
+		int[][] zeropositions = new int[dimension * dimension][2];
 		int a = 0;
-		for(int i = 0; i < 4; i++){
-			for(int j = 0; j < 4; j++){
+		for(int i = 0; i < dimension; i++){
+			for(int j = 0; j < dimension; j++){
 				if(newstate.position[i][j] == 0){
 					zeropositions[a][0] = i;
 					zeropositions[a][1] = j;
@@ -230,7 +282,7 @@ public class SimplePuzzleState implements PuzzleState {
 	    	int direction = (int) Math.floor((4*Math.random())); 
 	    	
 	    	//if randomly selected direction is impossible then these if statements reverse it.
-	    	if(direction == 0 && row == 3){
+	    	if(direction == 0 && row == last){
 	    		direction++; 
 	    	}
 	    	
@@ -238,16 +290,24 @@ public class SimplePuzzleState implements PuzzleState {
 	    		direction--;
 	    	}
 	    	
-	    	else if(direction == 2 && column == 3){
+	    	else if(direction == 2 && column == last){
 	    		direction++;
 	    	}
 	    	
 	    	else if(direction == 3 && column  == 0){
 	    		direction--;
 	    	}
-	    	
-	    	
-	    	if (direction == 0 && row != 3){
+
+	    	//with several empty tiles the neighbor in that direction may be empty as well.
+	    	//moving an empty tile into an empty tile is not a move, so we try again.
+	    	int neighborrow = (direction == 0) ? row + 1 : (direction == 1) ? row - 1 : row;
+	    	int neighborcolumn = (direction == 2) ? column + 1 : (direction == 3) ? column - 1 : column;
+	    	if (newstate.position[neighborrow][neighborcolumn] == 0){
+	    		i--;
+	    		continue;
+	    	}
+
+	    	if (direction == 0 && row != last){
 		    	newstate = newstate.flipmove(row + 1, column, Operation.MOVEUP);
 		    	zeropositions[whichzero][0] = row + 1;
 		
@@ -258,7 +318,7 @@ public class SimplePuzzleState implements PuzzleState {
 		    	zeropositions[whichzero][0] = row - 1;
 		    }
 		    
-		    else if (direction == 2 && column != 3){
+		    else if (direction == 2 && column != last){
 		    	newstate = newstate.flipmove(row, column + 1, Operation.MOVELEFT);
 		    	zeropositions[whichzero][1] = column + 1;
 		    }
@@ -268,6 +328,9 @@ public class SimplePuzzleState implements PuzzleState {
 		    	zeropositions[whichzero][1] = column - 1;
 		    }
 		}
+		// the first state and the table of empty slots with its rows
+		AllocationTracker.end(Metrics.Event.SHUFFLE, allocated, 2 + zeropositions.length + pathLength * objectsPerStep());
+		Metrics.end(Metrics.Event.SHUFFLE, begin, pathLength, dimension);
 		return (PuzzleState) newstate;
 	}
 		
@@ -282,6 +345,48 @@ public class SimplePuzzleState implements PuzzleState {
 		return false;
 	}
 	
+	/**
+	 * checks the four neighbors of a tile for empty slots, bit op.ordinal() for a move in direction op
+	 */
+	@Override
+	public int getLegalOperations(int row, int column) {
+		if (position[row][column] == 0) {
+			return 0;
+		}
+		int last = position.length - 1;
+		int mask = 0;
+		if (column != last && position[row][column + 1] == 0) {
+			mask |= 1 << Operation.MOVERIGHT.ordinal();
+		}
+		if (column != 0 && position[row][column - 1] == 0) {
+			mask |= 1 << Operation.MOVELEFT.ordinal();
+		}
+		if (row != 0 && position[row - 1][column] == 0) {
+			mask |= 1 << Operation.MOVEUP.ordinal();
+		}
+		if (row != last && position[row + 1][column] == 0) {
+			mask |= 1 << Operation.MOVEDOWN.ordinal();
+		}
+		return mask;
+	}
+
+	/**
+	 * goes over all tiles and their legal operations, stops as soon as the visitor returns false
+	 */
+	@Override
+	public void forEachMove(MoveVisitor visitor) {
+		for (int row = 0; row < position.length; row++) {
+			for (int column = 0; column < position.length; column++) {
+				int mask = getLegalOperations(row, column);
+				for (; mask != 0; mask &= mask - 1) {
+					if (!visitor.visit(row, column, Board.OPERATIONS[Integer.numberOfTrailingZeros(mask)])) {
+						return;
+					}
+				}
+			}
+		}
+	}
+	
 	/** 
 	 * generated by Eclipse
 	 */
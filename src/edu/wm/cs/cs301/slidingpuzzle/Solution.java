@@ -0,0 +1,130 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.Arrays;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * A solution is a sequence of move operations that leads from a given
+ * puzzle state to the final state where all tiles are ordered.
+ * Each move is stored as the (row, column, operation) triple that
+ * one would pass to PuzzleState.move(), so a solution can be replayed
+ * on the state it was computed for.
+ *
+ * A solution also records which solver found it and whether that solver
+ * guarantees a shortest sequence of moves.
+ */
+public class Solution {
+	private final int dimension;
+	private final int[] moves; // encoded with Board.encodeMove
+	private final String solverName;
+	private final boolean optimal;
+
+	/**
+	 * Constructor used by solvers.
+	 * @param dimension of the board the moves refer to
+	 * @param moves encoded moves, first move first, array is not copied
+	 * @param solverName name of the solver that computed the moves
+	 * @param optimal true if the sequence is known to be a shortest one
+	 */
+	Solution(int dimension, int[] moves, String solverName, boolean optimal) {
+		this.dimension = dimension;
+		this.moves = moves;
+		this.solverName = solverName;
+		this.optimal = optimal;
+	}
+
+	/**
+	 * @return the number of moves of this solution
+	 */
+	public int length() {
+		return moves.length;
+	}
+
+	/**
+	 * @param index of the move, range 0,1,...,length()-1
+	 * @return row of the tile that moves
+	 */
+	public int getRow(int index) {
+		return Board.movePosition(moves[index]) / dimension;
+	}
+
+	/**
+	 * @param index of the move, range 0,1,...,length()-1
+	 * @return column of the tile that moves
+	 */
+	public int getColumn(int index) {
+		return Board.movePosition(moves[index]) % dimension;
+	}
+
+	/**
+	 * @param index of the move, range 0,1,...,length()-1
+	 * @return direction in which the tile moves
+	 */
+	public Operation getOperation(int index) {
+		return Board.moveOperation(moves[index]);
+	}
+
+	/**
+	 * @return name of the solver that computed this solution
+	 */
+	public String getSolverName() {
+		return solverName;
+	}
+
+	/**
+	 * @return true if no shorter solution exists
+	 */
+	public boolean isOptimal() {
+		return optimal;
+	}
+
+	/**
+	 * @return dimension of the board the moves refer to
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 * Gives access to the encoded moves for solvers and tools in this package.
+	 * @return a copy of the encoded moves
+	 */
+	int[] getEncodedMoves() {
+		return moves.clone();
+	}
+
+	/**
+	 * Replays the solution on the given state. The returned state is the
+	 * end of a chain of states whose parents lead back to the given start.
+	 * @param start is the state this solution was computed for
+	 * @return the final state or null if a move turned out to be illegal
+	 */
+	public PuzzleState applyTo(PuzzleState start) {
+		PuzzleState current = start;
+		for (int i = 0; i < moves.length && null != current; i++) {
+			current = current.move(getRow(i), getColumn(i), getOperation(i));
+		}
+		return current;
+	}
+
+	@Override
+	public String toString() {
+		return "Solution [solver=" + solverName + ", length=" + moves.length + ", optimal=" + optimal + "]";
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * dimension + Arrays.hashCode(moves);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		Solution other = (Solution) obj;
+		return dimension == other.dimension && Arrays.equals(moves, other.moves);
+	}
+}
@@ -0,0 +1,240 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Checks claimed solutions, e.g. from clients or batch jobs, by replaying their moves on a
+ * mutable board in a tight loop instead of creating a PuzzleState per move.
+ * A verifier starts at a given board, applies moves until the first illegal one and then
+ * rejects all further moves. At the end, isSolved() tells if the final state was reached.
+ *
+ * Moves are encoded as in Solution, see Board.encodeMove(): the position of the tile in the
+ * upper bits and the operation in the lowest 2 bits. They can be given as an array, as a
+ * stream of 4-byte big-endian numbers as written by DataOutputStream.writeInt(), or as a
+ * string with one letter per move, the direction of the tile, for boards with one empty slot.
+ *
+ * A verifier is not thread-safe, use one per claimed solution.
+ */
+public final class SolutionVerifier {
+	private static final int BUFFER_SIZE = 1 << 16;
+	// change of the position for each operation in ordinal order: right, left, up, down
+	private final int[] delta;
+	// bit op is set if a tile at the position can move in direction op without leaving the board
+	private final byte[] inside;
+	private final int[] board;
+	private final int dimension;
+	private final int emptySlots;
+	private long count;
+	private long failedAt = -1;
+	private String error;
+
+	/**
+	 * Creates a verifier for moves that start at the given state, which is not modified.
+	 */
+	public SolutionVerifier(PuzzleState start) {
+		this(Board.toArray(start));
+	}
+
+	/**
+	 * @param board start board, array is not copied
+	 */
+	SolutionVerifier(int[] board) {
+		this.board = board;
+		this.dimension = Board.dimensionOf(board);
+		this.emptySlots = Board.countEmptySlots(board);
+		this.delta = new int[] {1, -1, -dimension, dimension};
+		this.inside = new byte[board.length];
+		for (int p = 0; p < board.length; p++) {
+			for (int op = 0; op < 4; op++) {
+				if (Board.neighbor(p, Board.OPERATIONS[op], dimension) >= 0) {
+					inside[p] |= 1 << op;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks a solution for the given state.
+	 * @return true if all moves are legal and lead to the final state
+	 */
+	public static boolean verify(PuzzleState start, Solution solution) {
+		if (start.getDimension() != solution.getDimension()) {
+			return false;
+		}
+		SolutionVerifier verifier = new SolutionVerifier(start);
+		int[] moves = solution.getEncodedMoves();
+		return verifier.apply(moves, 0, moves.length) && verifier.isSolved();
+	}
+
+	/**
+	 * Applies encoded moves in order.
+	 * @param moves encoded moves, see Board.encodeMove()
+	 * @param offset index of the first move
+	 * @param length number of moves
+	 * @return false if a move is illegal or an earlier one was
+	 */
+	public boolean apply(int[] moves, int offset, int length) {
+		if (failedAt >= 0) {
+			return false;
+		}
+		int[] board = this.board;
+		int size = board.length;
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			int move = moves[i];
+			int position = move >>> 2;
+			int op = move & 3;
+			// the position is checked first, as it indexes the tables
+			if (position >= size) {
+				return fail(i - offset, move, "position is outside the board");
+			}
+			if ((inside[position] & (1 << op)) == 0) {
+				return fail(i - offset, move, "tile leaves the board");
+			}
+			int target = position + delta[op];
+			int tile = board[position];
+			if (tile == 0 || board[target] != 0) {
+				return fail(i - offset, move, (tile == 0) ? "no tile to move" : "target is not empty");
+			}
+			board[target] = tile;
+			board[position] = 0;
+		}
+		count += length;
+		return true;
+	}
+
+	private boolean fail(int index, int move, String reason) {
+		count += index;
+		failedAt = count;
+		Operation op = Board.moveOperation(move);
+		error = "move " + count + " (" + ((move >>> 2) / dimension) + ", " + ((move >>> 2) % dimension) + ", " + op
+				+ "): " + reason;
+		return false;
+	}
+
+	/**
+	 * Applies moves given as letters R, L, U and D, the direction in which a tile moves.
+	 * The tile is the one next to the empty slot on the opposite side, which is unique only
+	 * with one empty slot. Whitespace is ignored.
+	 * @return false if a move is illegal, a letter unknown or an earlier move was illegal
+	 * @throws IllegalStateException if the board has more than one empty slot
+	 */
+	public boolean apply(CharSequence moves) {
+		if (emptySlots != 1) {
+			throw new IllegalStateException("letters are ambiguous with " + emptySlots + " empty slots");
+		}
+		if (failedAt >= 0) {
+			return false;
+		}
+		int blank = 0;
+		while (board[blank] != 0) {
+			blank++;
+		}
+		int[] move = new int[1];
+		for (int i = 0; i < moves.length(); i++) {
+			char c = moves.charAt(i);
+			int op = "RLUD".indexOf(Character.toUpperCase(c));
+			if (op < 0) {
+				if (Character.isWhitespace(c)) {
+					continue;
+				}
+				failedAt = count;
+				error = "move " + count + ": unknown letter '" + c + "'";
+				return false;
+			}
+			// the tile sits next to the empty slot, on the side it comes from
+			if ((inside[blank] & (1 << (op ^ 1))) == 0) {
+				failedAt = count;
+				error = "move " + count + ": no tile can move " + Board.OPERATIONS[op];
+				return false;
+			}
+			int tile = blank - delta[op];
+			move[0] = (tile << 2) | op;
+			if (!apply(move, 0, 1)) {
+				return false;
+			}
+			blank = tile;
+		}
+		return true;
+	}
+
+	/**
+	 * Applies all moves of a stream of 4-byte big-endian encoded moves, in chunks.
+	 * Reading stops at the end of the stream or at the first illegal move.
+	 * @return false if a move is illegal or an earlier one was
+	 * @throws EOFException if the stream ends within a move
+	 */
+	public boolean apply(InputStream in) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int[] moves = new int[BUFFER_SIZE / 4];
+		int filled = 0;
+		int read;
+		while ((read = in.read(buffer, filled, buffer.length - filled)) >= 0) {
+			filled += read;
+			int n = filled / 4;
+			for (int i = 0; i < n; i++) {
+				int b = 4 * i;
+				moves[i] = ((buffer[b] & 0xFF) << 24) | ((buffer[b + 1] & 0xFF) << 16) | ((buffer[b + 2] & 0xFF) << 8)
+						| (buffer[b + 3] & 0xFF);
+			}
+			if (!apply(moves, 0, n)) {
+				return false;
+			}
+			// keep an incomplete move for the next read
+			System.arraycopy(buffer, 4 * n, buffer, 0, filled - 4 * n);
+			filled -= 4 * n;
+		}
+		if (filled != 0) {
+			throw new EOFException("stream ends within move " + count);
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the board is in the final state and no move was illegal
+	 */
+	public boolean isSolved() {
+		if (failedAt >= 0) {
+			return false;
+		}
+		int tiles = board.length - emptySlots;
+		for (int i = 0; i < tiles; i++) {
+			if (board[i] != i + 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of legal moves applied
+	 */
+	public long getMoveCount() {
+		return count;
+	}
+
+	/**
+	 * @return index of the first illegal move, counted from the start, or -1 if all were legal
+	 */
+	public long getFailedMove() {
+		return failedAt;
+	}
+
+	/**
+	 * @return description of the first illegal move or null if all were legal
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * @return current board as a new state
+	 */
+	public PuzzleState getState() {
+		return Board.toState(board);
+	}
+}
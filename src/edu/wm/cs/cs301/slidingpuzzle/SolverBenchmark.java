@@ -0,0 +1,344 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Benchmark suite for the solvers. Run the main method from the command line or
+ * the IDE, results are printed to standard output as a simple table.
+ *
+ * Instances are generated with a reproducible random walk from the final state,
+ * so results of different runs and different machines can be compared.
+ */
+public class SolverBenchmark {
+	// default settings, can be changed with command line arguments
+	private int dimension = 4;
+	private int instances = 5;
+	private int walkLength = 60;
+	private long seed = 301;
+
+	/**
+	 * Generates the benchmark instances.
+	 * @return list of states to solve
+	 */
+	List<PuzzleState> createInstances() {
+		Random random = new Random(seed);
+		List<PuzzleState> list = new ArrayList<PuzzleState>();
+		for (int i = 0; i < instances; i++) {
+			list.add(Board.toState(Board.randomWalk(dimension, 1, walkLength, random)));
+		}
+		return list;
+	}
+
+	/**
+	 * Measures the speedup of the parallel IDA* solver over the sequential one
+	 * for an increasing number of threads: 1, 2, 4, ... up to the number of processors.
+	 */
+	void runParallelSpeedup() throws InterruptedException {
+		List<PuzzleState> states = createInstances();
+		System.out.println("== Parallel IDA* speedup, " + states.size() + " instances, "
+				+ dimension + "x" + dimension + ", walk length " + walkLength);
+		long sequential = 0;
+		IDAStarSolver ida = new IDAStarSolver();
+		long nodes = 0;
+		for (PuzzleState state : states) {
+			long begin = System.nanoTime();
+			ida.solve(state);
+			sequential += System.nanoTime() - begin;
+			nodes += ida.getLastNodeCount();
+		}
+		printRow("sequential", sequential, nodes, 1.0);
+		for (int threads : threadCounts()) {
+			ParallelIDAStarSolver solver = new ParallelIDAStarSolver(threads);
+			long time = 0;
+			nodes = 0;
+			for (PuzzleState state : states) {
+				long begin = System.nanoTime();
+				solver.solve(state);
+				time += System.nanoTime() - begin;
+				nodes += solver.getLastNodeCount();
+			}
+			solver.shutdown();
+			printRow(threads + " threads", time, nodes, (double) sequential / time);
+		}
+		// same with a shared transposition table
+		for (int threads : threadCounts()) {
+			ParallelIDAStarSolver solver = new ParallelIDAStarSolver(threads, 64);
+			long time = 0;
+			nodes = 0;
+			for (PuzzleState state : states) {
+				long begin = System.nanoTime();
+				solver.solve(state);
+				time += System.nanoTime() - begin;
+				nodes += solver.getLastNodeCount();
+			}
+			solver.shutdown();
+			printRow(threads + " thr + TT", time, nodes, (double) sequential / time);
+			System.out.println("    " + solver.getTranspositionTable());
+		}
+	}
+
+	/**
+	 * Compares memory and node expansions of IDA* with pattern databases in different storages.
+	 * Pattern databases apply to 4x4 boards with one empty slot only.
+	 */
+	void runPatternDatabases() throws InterruptedException {
+		List<PuzzleState> states = createInstances();
+		System.out.println("== IDA* with pattern databases, " + states.size() + " instances, "
+				+ dimension + "x" + dimension + ", walk length " + walkLength);
+		long manhattan = runHeuristic("Manhattan", Heuristic.MANHATTAN, 0, 0, states, 0);
+		Object[][] configurations = {
+			{PatternDatabase.PARTITION_555, PatternDatabase.Compression.BYTE, 0, false},
+			{PatternDatabase.PARTITION_555, PatternDatabase.Compression.BYTE, 0, true},
+			{PatternDatabase.PARTITION_555, PatternDatabase.Compression.NIBBLE, 0, true},
+			{PatternDatabase.PARTITION_555, PatternDatabase.Compression.NIBBLE, 2, true},
+			{PatternDatabase.PARTITION_555, PatternDatabase.Compression.MOD3, 0, true},
+			{PatternDatabase.PARTITION_663, PatternDatabase.Compression.NIBBLE, 0, true},
+			{PatternDatabase.PARTITION_663, PatternDatabase.Compression.MOD3, 0, true},
+		};
+		for (Object[] configuration : configurations) {
+			long begin = System.nanoTime();
+			PatternDatabase database = new PatternDatabase((int[][]) configuration[0],
+					(PatternDatabase.Compression) configuration[1], (Integer) configuration[2], (Boolean) configuration[3]);
+			long build = System.nanoTime() - begin;
+			runHeuristic(database.getName(), database, database.sizeInBytes(), build, states, manhattan);
+		}
+	}
+
+	/**
+	 * Solves the instances with IDA* and the given heuristic and prints a row of results.
+	 * @param reference time of the reference heuristic for the speedup, 0 for the reference itself
+	 * @return solve time
+	 */
+	private long runHeuristic(String label, Heuristic heuristic, long bytes, long build, List<PuzzleState> states,
+			long reference) throws InterruptedException {
+		IDAStarSolver solver = new IDAStarSolver(heuristic);
+		long time = 0;
+		long nodes = 0;
+		for (PuzzleState state : states) {
+			long begin = System.nanoTime();
+			solver.solve(state);
+			time += System.nanoTime() - begin;
+			nodes += solver.getLastNodeCount();
+		}
+		printRow(label, time, nodes, (reference == 0) ? 1.0 : (double) reference / time);
+		System.out.println(String.format("    %10d KB tables, built in %.1f ms", bytes / 1024, build / 1e6));
+		return time;
+	}
+
+	/**
+	 * Measures the cost of a move on PuzzleState for a recorded random walk, replayed with
+	 * move() and the known operation, with moveToEmptyNeighbor() and by probing move()
+	 * with every operation until one is legal, as callers did before moves were strict.
+	 */
+	void runMoveThroughput() {
+		int steps = 1000;
+		int rounds = 2000;
+		int[] board = Board.goal(dimension, 1);
+		int[] walk = new int[steps];
+		Random random = new Random(seed);
+		int undo = -1;
+		for (int i = 0; i < steps; i++) {
+			int blank = 0;
+			while (board[blank] != 0) {
+				blank++;
+			}
+			int move;
+			do {
+				Operation op = Board.OPERATIONS[random.nextInt(4)];
+				int tile = Board.neighbor(blank, Board.inverse(op), dimension);
+				move = (tile < 0) ? -1 : Board.encodeMove(tile, op);
+			} while (move < 0 || move == undo);
+			Board.apply(board, move, dimension);
+			walk[i] = move;
+			undo = Board.inverseMove(move, dimension);
+		}
+		System.out.println("== PuzzleState moves, " + dimension + "x" + dimension + ", " + rounds + " x " + steps
+				+ " moves");
+		String[] labels = {"strict move", "moveToEmptyNeighbor", "probing"};
+		for (int variant = 0; variant < labels.length; variant++) {
+			long begin = System.nanoTime();
+			for (int round = 0; round < rounds; round++) {
+				PuzzleState state = Board.toState(Board.goal(dimension, 1));
+				for (int move : walk) {
+					int row = Board.movePosition(move) / dimension;
+					int column = Board.movePosition(move) % dimension;
+					if (variant == 0) {
+						state = state.move(row, column, Board.moveOperation(move));
+					}
+					else if (variant == 1) {
+						state = state.moveToEmptyNeighbor(row, column, Board.OPERATIONS);
+					}
+					else {
+						PuzzleState next = null;
+						for (Operation op : Operation.values()) {
+							next = state.move(row, column, op);
+							if (null != next) {
+								break;
+							}
+						}
+						state = next;
+					}
+				}
+			}
+			long time = System.nanoTime() - begin;
+			System.out.println(String.format("%-30s %10.1f ms %10.1f ns/move", labels[variant], time / 1e6,
+					(double) time / rounds / steps));
+		}
+	}
+
+	/**
+	 * Accounts the memory that moves, flips and shuffles of PuzzleState allocate.
+	 * Skipped if the virtual machine does not count allocated bytes per thread.
+	 */
+	void runAllocations() {
+		if (!AllocationTracker.isSupported()) {
+			System.out.println("== Allocations not supported by this virtual machine");
+			return;
+		}
+		boolean enabled = AllocationTracker.isEnabled();
+		AllocationTracker.setEnabled(true);
+		System.out.println("== PuzzleState allocations, " + dimension + "x" + dimension + " with 3 empty slots");
+		int last = dimension - 1;
+		PuzzleState goal = Board.toState(Board.goal(dimension, 3));
+		for (int round = 0; round < 10000; round++) {
+			// the tile left of the empty slots moves right: by one slot with move,
+			// by all three slots with flip, which takes three steps
+			goal.move(last, last - 3, Operation.MOVERIGHT);
+			goal.flip(last, last - 3, last, last);
+			if (round % 10 == 0) {
+				goal.shuffleBoard(100);
+			}
+		}
+		AllocationTracker.setEnabled(enabled);
+		AllocationTracker.report(System.out);
+	}
+
+	/**
+	 * Measures the row-by-row solver on large boards. Random walks would hardly mix boards
+	 * of this size, so the instances are random permutations of the tiles that can be solved.
+	 * Moves are counted by the visitor but not stored.
+	 */
+	void runRowByRow() throws InterruptedException {
+		RowByRowSolver solver = new RowByRowSolver();
+		final long[] counted = new long[1];
+		PuzzleState.MoveVisitor counter = new PuzzleState.MoveVisitor() {
+			@Override
+			public boolean visit(int row, int column, Operation op) {
+				counted[0]++;
+				return true;
+			}
+		};
+		System.out.println("== Row-by-row solver, " + instances + " random boards per size");
+		Random random = new Random(seed);
+		for (int size : new int[] {10, 20, 50}) {
+			long time = 0;
+			long moves = 0;
+			for (int i = 0; i < instances; i++) {
+				PuzzleState start = Board.toState(randomPermutation(size, random));
+				long begin = System.nanoTime();
+				moves += solver.solve(start, counter);
+				time += System.nanoTime() - begin;
+			}
+			System.out.println(String.format("%-30s %10.1f ms %14d moves", size + "x" + size, time / 1e6 / instances,
+					moves / instances));
+		}
+	}
+
+	/**
+	 * Measures how fast claimed solutions are checked: the SolutionVerifier replays the moves
+	 * on an int array, Solution.applyTo() creates a state per move.
+	 */
+	void runVerification() throws InterruptedException {
+		int size = 20;
+		int rounds = 200;
+		int[] board = randomPermutation(size, new Random(seed));
+		PuzzleState start = Board.toState(board);
+		Solution solution = new RowByRowSolver().solve(start);
+		int[] moves = solution.getEncodedMoves();
+		System.out.println("== Verification, " + size + "x" + size + ", " + moves.length + " moves");
+		long begin = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			SolutionVerifier verifier = new SolutionVerifier(board.clone());
+			if (!verifier.apply(moves, 0, moves.length) || !verifier.isSolved()) {
+				throw new IllegalStateException("solution rejected: " + verifier.getError());
+			}
+		}
+		long time = System.nanoTime() - begin;
+		System.out.println(String.format("%-30s %10.1f ms %10.2f ns/move", "SolutionVerifier", time / 1e6 / rounds,
+				(double) time / rounds / moves.length));
+		begin = System.nanoTime();
+		for (int round = 0; round < 5; round++) {
+			solution.applyTo(start);
+		}
+		time = System.nanoTime() - begin;
+		System.out.println(String.format("%-30s %10.1f ms %10.2f ns/move", "Solution.applyTo", time / 1e6 / 5,
+				(double) time / 5 / moves.length));
+	}
+
+	/**
+	 * @return board with the tiles in random order and one empty slot that can be solved
+	 */
+	private static int[] randomPermutation(int dimension, Random random) {
+		int[] board = Board.goal(dimension, 1);
+		for (int i = board.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = board[i];
+			board[i] = board[j];
+			board[j] = tmp;
+		}
+		if (!Board.isSolvable(board, dimension)) {
+			// swapping two tiles changes the parity
+			int a = (board[0] == 0) ? 2 : 0;
+			int b = (board[1] == 0) ? 2 : 1;
+			int tmp = board[a];
+			board[a] = board[b];
+			board[b] = tmp;
+		}
+		return board;
+	}
+
+	/**
+	 * @return 1, 2, 4, ... up to and including the number of available processors
+	 */
+	private List<Integer> threadCounts() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		List<Integer> counts = new ArrayList<Integer>();
+		for (int threads = 1; threads < processors; threads *= 2) {
+			counts.add(threads);
+		}
+		counts.add(processors);
+		return counts;
+	}
+
+	private void printRow(String label, long nanos, long nodes, double speedup) {
+		System.out.println(String.format("%-30s %10.1f ms %14d nodes %8.2fx", label, nanos / 1e6, nodes, speedup));
+	}
+
+	/**
+	 * Main method to run the benchmark suite.
+	 * @param args optional: dimension, number of instances, walk length, random seed
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		SolverBenchmark benchmark = new SolverBenchmark();
+		if (args.length > 0)
+			benchmark.dimension = Integer.parseInt(args[0]);
+		if (args.length > 1)
+			benchmark.instances = Integer.parseInt(args[1]);
+		if (args.length > 2)
+			benchmark.walkLength = Integer.parseInt(args[2]);
+		if (args.length > 3)
+			benchmark.seed = Long.parseLong(args[3]);
+		benchmark.runMoveThroughput();
+		benchmark.runAllocations();
+		benchmark.runParallelSpeedup();
+		benchmark.runRowByRow();
+		benchmark.runVerification();
+		if (benchmark.dimension == 4) {
+			benchmark.runPatternDatabases();
+		}
+	}
+}
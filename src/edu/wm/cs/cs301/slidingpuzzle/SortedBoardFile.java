@@ -0,0 +1,157 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * File format for ascending sequences of packed boards, see Board.pack().
+ * Each board is stored as the difference to its predecessor in a variable length
+ * encoding with 7 bits per byte, which shrinks the 8 bytes of a packed board to
+ * 2 to 4 bytes for the dense sets a breadth-first search produces.
+ *
+ * Boards are compared as signed longs; the differences of consecutive boards are
+ * taken modulo 2^64, so boards with the highest bit set are handled as well.
+ * Files are read and written sequentially through a FileChannel with a large
+ * direct buffer, such that the disk sees long sequential transfers only.
+ */
+final class SortedBoardFile {
+	static final int BUFFER_SIZE = 1 << 18;
+
+	private SortedBoardFile() {
+		// static nested classes only
+	}
+
+	/**
+	 * Writes an ascending sequence of distinct boards.
+	 */
+	static final class Writer implements Closeable {
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private long previous;
+		private long count;
+
+		Writer(File target) throws IOException {
+			file = new RandomAccessFile(target, "rw");
+			file.setLength(0);
+			channel = file.getChannel();
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+
+		/**
+		 * Appends a board, which must be larger than the previous one.
+		 */
+		void write(long key) throws IOException {
+			if (buffer.remaining() < 10) {
+				drain();
+			}
+			long delta = key - previous;
+			while ((delta & ~0x7FL) != 0) {
+				buffer.put((byte) ((delta & 0x7F) | 0x80));
+				delta >>>= 7;
+			}
+			buffer.put((byte) delta);
+			previous = key;
+			count++;
+		}
+
+		/**
+		 * @return number of boards written so far
+		 */
+		long getCount() {
+			return count;
+		}
+
+		private void drain() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * Writes the remaining buffer and forces the file to the disk,
+		 * a file that was closed is complete even after a crash.
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				drain();
+				channel.force(false);
+			}
+			finally {
+				file.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads a file written by Writer. The reader is positioned on the current board,
+	 * which is valid as long as hasCurrent() is true.
+	 */
+	static final class Reader implements Closeable {
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private boolean endOfFile;
+		private boolean valid;
+		private long current;
+
+		Reader(File source) throws IOException {
+			file = new RandomAccessFile(source, "r");
+			channel = file.getChannel();
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			buffer.flip(); // empty
+			advance();
+		}
+
+		boolean hasCurrent() {
+			return valid;
+		}
+
+		long current() {
+			return current;
+		}
+
+		/**
+		 * Moves on to the next board.
+		 */
+		void advance() throws IOException {
+			if (buffer.remaining() < 10 && !endOfFile) {
+				buffer.compact();
+				while (buffer.hasRemaining() && !endOfFile) {
+					endOfFile = channel.read(buffer) < 0;
+				}
+				buffer.flip();
+			}
+			if (!buffer.hasRemaining()) {
+				valid = false;
+				return;
+			}
+			long delta = 0;
+			int shift = 0;
+			byte b;
+			do {
+				if (!buffer.hasRemaining()) {
+					throw new EOFException("truncated board file");
+				}
+				b = buffer.get();
+				delta |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			current += delta;
+			valid = true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			file.close();
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter that spreads increments of different threads over separate cache lines,
+ * such that counting does not serialize the threads of a parallel search.
+ * Used for the statistics of the solvers and the counters of the metrics registry.
+ */
+final class StripedCounter {
+	private static final int STRIPES = 32;
+	private static final int PADDING = 8; // 8 longs per 64 byte cache line
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+	void increment() {
+		int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+		cells.incrementAndGet(stripe * PADDING);
+	}
+
+	void add(long delta) {
+		int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+		cells.addAndGet(stripe * PADDING, delta);
+	}
+
+	long sum() {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			sum += cells.get(i * PADDING);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,123 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Reflection of boards about the main diagonal. With one empty slot the final state is
+ * its own reflection: the empty slot is in the bottom-right corner and tile t goes to the
+ * position of the tile that sits at the transposed position in the final state.
+ * A board and its reflection therefore have the same distance to the final state,
+ * and the reflection of a solution for one is a solution for the other.
+ *
+ * Caches and tables can store only the canonical key of a board, the smaller one of its
+ * packed board and the packed reflection, which about halves their size. Moves computed
+ * for a reflected board are mapped back with reflectMove().
+ */
+final class Symmetry {
+	private Symmetry() {
+		// static helper methods only
+	}
+
+	/**
+	 * Tells if the final state of a board is its own reflection, which is the case for one empty slot.
+	 */
+	static boolean applies(int numberOfEmptySlots) {
+		return numberOfEmptySlots == 1;
+	}
+
+	/**
+	 * @return position of the given position after reflection
+	 */
+	static int reflectPosition(int position, int dimension) {
+		return (position % dimension) * dimension + position / dimension;
+	}
+
+	/**
+	 * @return tile that takes the place of the given tile after reflection, 0 for an empty slot
+	 */
+	static int reflectTile(int tile, int dimension) {
+		return (tile == 0) ? 0 : reflectPosition(tile - 1, dimension) + 1;
+	}
+
+	/**
+	 * Reflection swaps horizontal and vertical moves: right and down, left and up.
+	 */
+	static Operation reflect(Operation op) {
+		return Board.OPERATIONS[3 - op.ordinal()];
+	}
+
+	/**
+	 * @return encoded move on the reflected board, see Board.encodeMove()
+	 */
+	static int reflectMove(int move, int dimension) {
+		return Board.encodeMove(reflectPosition(Board.movePosition(move), dimension),
+				reflect(Board.moveOperation(move)));
+	}
+
+	/**
+	 * Reflects a board.
+	 * @param board row-major board
+	 * @param dimension number of tiles per row
+	 * @param target receives the reflected board, must not be the given board
+	 */
+	static void reflect(int[] board, int dimension, int[] target) {
+		for (int i = 0; i < board.length; i++) {
+			target[reflectPosition(i, dimension)] = reflectTile(board[i], dimension);
+		}
+	}
+
+	/**
+	 * Reflects a packed board, see Board.pack().
+	 */
+	static long reflect(long key, int dimension) {
+		long reflected = 0;
+		for (int i = 0; i < dimension * dimension; i++) {
+			int tile = (int) (key >>> (4 * i)) & 15;
+			reflected |= (long) reflectTile(tile, dimension) << (4 * reflectPosition(i, dimension));
+		}
+		return reflected;
+	}
+
+	/**
+	 * @return the smaller one of the packed board and its reflection
+	 */
+	static long canonical(long key, int dimension) {
+		return Math.min(key, reflect(key, dimension));
+	}
+
+	/**
+	 * @return the canonical key of a state with one empty slot, see canonical()
+	 */
+	static long canonicalKey(PuzzleState state) {
+		return canonical(Board.pack(Board.toArray(state)), state.getDimension());
+	}
+
+	/**
+	 * Tells if the canonical key of a packed board is its reflection, in which case
+	 * moves found for the canonical key have to be reflected for the board.
+	 */
+	static boolean isReflected(long key, int dimension) {
+		return reflect(key, dimension) < key;
+	}
+
+	/**
+	 * Reflects a sequence of encoded moves, see reflectMove().
+	 * @return new array
+	 */
+	static int[] reflectMoves(int[] moves, int dimension) {
+		int[] reflected = new int[moves.length];
+		for (int i = 0; i < moves.length; i++) {
+			reflected[i] = reflectMove(moves[i], dimension);
+		}
+		return reflected;
+	}
+
+	/**
+	 * Maps a solution for the reflection of a board to a solution for the board.
+	 */
+	static Solution reflect(Solution solution) {
+		int dimension = solution.getDimension();
+		return new Solution(dimension, reflectMoves(solution.getEncodedMoves(), dimension), solution.getSolverName(),
+				solution.isOptimal());
+	}
+}
@@ -0,0 +1,228 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.awt.Component;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.HeadlessException;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import javax.swing.Timer;
+
+/**
+ * Animates tiles sliding from one state to the next, independent of the game logic.
+ * The game sets its new state right away, hands the old and the new state to animate()
+ * and asks the animator in paint where to draw the tiles. A timer on the event dispatch
+ * thread repaints at the refresh rate of the display, so input is never blocked.
+ *
+ * Positions depend on the elapsed time and not on the number of frames: if the machine is
+ * busy and frames are late, tiles jump ahead and each move still takes the same time.
+ * Moves that come in while others are shown are queued, and the more are queued the faster
+ * they play, such that rapid clicks and auto mode do not fall far behind. If the queue grows
+ * beyond a limit anyway, the queued moves are merged into one transition.
+ *
+ * Frames and late frames are counted as animation.frames and animation.dropped in the metrics.
+ * An animator is used on the event dispatch thread only.
+ */
+final class TileAnimator implements ActionListener {
+	private static final int MAX_QUEUE = 16;
+	private final Component target;
+	private final long duration;
+	private final long interval;
+	private final Timer timer;
+	// transitions waiting to be shown, pairs of from and to state
+	private final ArrayDeque<PuzzleState[]> queue = new ArrayDeque<PuzzleState[]>();
+	// transition currently shown, from is null if there is none
+	private PuzzleState from;
+	private long start;
+	private long lastFrame;
+	private float progress;
+	// for each tile value: position in from and to as row * dimension + column, -1 if the tile stays
+	private int[] source = new int[0];
+	private int[] destination = new int[0];
+	private final StripedCounter frames = Metrics.counter("animation.frames");
+	private final StripedCounter dropped = Metrics.counter("animation.dropped");
+
+	/**
+	 * @param target component to repaint for each frame
+	 * @param durationMillis time a single move takes
+	 */
+	TileAnimator(Component target, int durationMillis) {
+		this.target = target;
+		this.duration = durationMillis * 1000000L;
+		int delay = 1000 / refreshRate();
+		this.interval = delay * 1000000L;
+		this.timer = new Timer(delay, this);
+		// late ticks are merged into one instead of piling up in the event queue
+		this.timer.setCoalesce(true);
+	}
+
+	/**
+	 * @return refresh rate of the default screen, 60 if it is not known
+	 */
+	private static int refreshRate() {
+		try {
+			DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+					.getDisplayMode();
+			int rate = mode.getRefreshRate();
+			return (rate == DisplayMode.REFRESH_RATE_UNKNOWN || rate < 24) ? 60 : Math.min(rate, 240);
+		}
+		catch (HeadlessException e) {
+			return 60;
+		}
+	}
+
+	/**
+	 * Queues the transition between two states and starts the timer if needed.
+	 * The states must differ by moves of tiles into empty slots, typically one move or flip.
+	 */
+	void animate(PuzzleState before, PuzzleState after) {
+		animate(before, after, System.nanoTime());
+		if (!timer.isRunning()) {
+			lastFrame = System.nanoTime();
+			timer.start();
+		}
+	}
+
+	void animate(PuzzleState before, PuzzleState after, long now) {
+		if (null == from) {
+			begin(before, after, now);
+			return;
+		}
+		if (queue.size() == MAX_QUEUE) {
+			// too far behind: show all queued moves at once
+			PuzzleState first = queue.getFirst()[0];
+			queue.clear();
+			before = first;
+		}
+		queue.addLast(new PuzzleState[] {before, after});
+	}
+
+	/**
+	 * Drops the current and all queued transitions, e.g. when a new game starts.
+	 */
+	void stop() {
+		timer.stop();
+		queue.clear();
+		from = null;
+	}
+
+	/**
+	 * Timer callback, shows the next frame.
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		long now = System.nanoTime();
+		frames.increment();
+		long late = now - lastFrame - interval;
+		if (late > interval / 2) {
+			dropped.add((late + interval / 2) / interval);
+		}
+		lastFrame = now;
+		if (!advance(now)) {
+			timer.stop();
+		}
+		target.repaint();
+	}
+
+	/**
+	 * Moves the animation on to the given time.
+	 * @return true if a transition is still shown, false if the animation is over
+	 */
+	boolean advance(long now) {
+		while (null != from) {
+			// each queued move shortens the time for the current one
+			long time = duration / (1 + queue.size());
+			long elapsed = now - start;
+			if (elapsed < time) {
+				float t = (float) elapsed / time;
+				progress = 1 - (1 - t) * (1 - t); // slows down towards the end
+				return true;
+			}
+			PuzzleState[] next = queue.pollFirst();
+			if (null == next) {
+				from = null;
+				return false;
+			}
+			begin(next[0], next[1], start + time);
+		}
+		return false;
+	}
+
+	/**
+	 * Starts to show a transition, finds the tiles that move.
+	 */
+	private void begin(PuzzleState before, PuzzleState after, long now) {
+		from = before;
+		start = now;
+		progress = 0;
+		int dimension = before.getDimension();
+		int size = dimension * dimension;
+		if (source.length != size + 1) {
+			source = new int[size + 1];
+			destination = new int[size + 1];
+		}
+		int[] board = Board.toArray(after);
+		for (int p = 0; p < size; p++) {
+			destination[board[p]] = p;
+		}
+		Arrays.fill(source, -1);
+		for (int p = 0; p < size; p++) {
+			int value = before.getValue(p / dimension, p % dimension);
+			if (value != 0 && board[p] != value) {
+				source[value] = p;
+			}
+		}
+	}
+
+	/**
+	 * @return true if a transition is shown
+	 */
+	boolean isAnimating() {
+		return null != from;
+	}
+
+	/**
+	 * Gives the state to draw: tiles that do not move are at their position in this state.
+	 * @return state the current transition starts from, the given one if there is none
+	 */
+	PuzzleState getDisplayedState(PuzzleState current) {
+		return (null != from) ? from : current;
+	}
+
+	/**
+	 * @return true if the tile with the given value moves in the current transition
+	 */
+	boolean isMoving(int value) {
+		return null != from && value < source.length && source[value] >= 0;
+	}
+
+	/**
+	 * @return row of a moving tile, between its start and end row
+	 */
+	float getRow(int value) {
+		int dimension = from.getDimension();
+		return interpolate(source[value] / dimension, destination[value] / dimension);
+	}
+
+	/**
+	 * @return column of a moving tile, between its start and end column
+	 */
+	float getColumn(int value) {
+		int dimension = from.getDimension();
+		return interpolate(source[value] % dimension, destination[value] % dimension);
+	}
+
+	private float interpolate(int a, int b) {
+		return a + (b - a) * progress;
+	}
+
+	/**
+	 * @return number of transitions waiting behind the current one
+	 */
+	int getQueueLength() {
+		return queue.size();
+	}
+}
@@ -0,0 +1,99 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Tile images of a picture kept in a single image, the atlas, instead of one image per tile.
+ * The tile with value v sits in row (v-1)/dimension and column (v-1)%dimension of the atlas,
+ * which is where it belongs on the solved board. Tiles with consecutive values in the same row
+ * are therefore next to each other in the atlas, and a renderer can copy such a span of tiles
+ * with a single blit.
+ *
+ * The atlas is a copy of the largest square around the center of the picture, in a compatible
+ * image of its own, so it can stay in video memory while sub-images of a large picture cannot.
+ */
+public final class TileAtlas {
+	private final BufferedImage atlas;
+	private final int dimension;
+	private final int tileWidth;
+	private final int tileHeight;
+
+	/**
+	 * Cuts a picture into the tiles of a board.
+	 * @param image picture, if it is not square the largest square around its center is used
+	 * @param dimension number of rows and columns of the board
+	 */
+	public TileAtlas(BufferedImage image, int dimension) {
+		int min = Math.min(image.getWidth(), image.getHeight());
+		if (min < dimension) {
+			throw new IllegalArgumentException("image of " + image.getWidth() + "x" + image.getHeight()
+					+ " pixels is too small for " + dimension + "x" + dimension + " tiles");
+		}
+		this.dimension = dimension;
+		this.tileWidth = min / dimension;
+		this.tileHeight = min / dimension;
+		int ox = image.getWidth() / 2 - dimension * tileWidth / 2;
+		int oy = image.getHeight() / 2 - dimension * tileHeight / 2;
+		int size = dimension * tileWidth;
+		atlas = new BufferedImage(size, size,
+				image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = atlas.createGraphics();
+		try {
+			g.drawImage(image, 0, 0, size, size, ox, oy, ox + size, oy + size, null);
+		}
+		finally {
+			g.dispose();
+		}
+	}
+
+	/**
+	 * @return number of rows and columns of the board the tiles are made for
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 * @return width of a tile in the atlas in pixels
+	 */
+	public int getTileWidth() {
+		return tileWidth;
+	}
+
+	/**
+	 * @return height of a tile in the atlas in pixels
+	 */
+	public int getTileHeight() {
+		return tileHeight;
+	}
+
+	/**
+	 * @return true if the atlas has an image for the tile with the given value
+	 */
+	public boolean contains(int value) {
+		return value > 0 && value < dimension * dimension;
+	}
+
+	/**
+	 * Gives the number of tiles from the given one to the end of its row in the atlas,
+	 * a span starting with the tile can be at most that long.
+	 */
+	public int getRemainingInRow(int value) {
+		return dimension - (value - 1) % dimension;
+	}
+
+	/**
+	 * Copies a span of tiles with consecutive values, starting with the given one, in a single blit.
+	 * The tiles are scaled to the given size.
+	 * @param count number of tiles, at most getRemainingInRow(value)
+	 * @param width width of a tile on the target
+	 * @param height height of a tile on the target
+	 */
+	public void draw(Graphics g, int value, int count, int x, int y, int width, int height) {
+		int sx = (value - 1) % dimension * tileWidth;
+		int sy = (value - 1) / dimension * tileHeight;
+		g.drawImage(atlas, x, y, x + count * width, y + height, sx, sy, sx + count * tileWidth, sy + tileHeight, null);
+	}
+}
@@ -0,0 +1,159 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Renderer that draws each tile from its own image, with its number on top,
+ * gray empty slots and black grid lines, as the game always did.
+ * Images are scaled to the tile size if their size differs.
+ *
+ * Tiles come either from an image per tile or from a tile atlas, which is faster on large boards:
+ * consecutive tiles of a row that are also next to each other in the atlas are copied with one blit,
+ * on a solved board that is one blit per row. Only the tiles inside the clip of the graphics
+ * context are drawn, so the cost of a paint grows with the visible area and not with the board.
+ * Blits are counted as render.blits in the metrics.
+ */
+public class TileRenderer implements BoardRenderer {
+	private int tileWidth;
+	private int tileHeight;
+	// image for the tile with value v at index v-1, null to draw numbers on a plain background
+	private BufferedImage[] images;
+	// tile images in one image, used instead of images if not null
+	private TileAtlas atlas;
+	private boolean numbers = true;
+	private boolean lines = true;
+	private final StripedCounter blits = Metrics.counter("render.blits");
+
+	/**
+	 * Creates a renderer that shows numbers and lines, without images.
+	 */
+	public TileRenderer(int tileWidth, int tileHeight) {
+		setTileSize(tileWidth, tileHeight);
+	}
+
+	@Override
+	public int getTileWidth() {
+		return tileWidth;
+	}
+
+	@Override
+	public int getTileHeight() {
+		return tileHeight;
+	}
+
+	/**
+	 * Sets the size of a tile in pixels.
+	 */
+	public void setTileSize(int width, int height) {
+		this.tileWidth = width;
+		this.tileHeight = height;
+	}
+
+	/**
+	 * @param images image for the tile with value v at index v-1, null for no images
+	 */
+	public void setImages(BufferedImage[] images) {
+		this.images = images;
+	}
+
+	/**
+	 * @param atlas tile images in one image, used instead of the images per tile, null for none
+	 */
+	public void setAtlas(TileAtlas atlas) {
+		this.atlas = atlas;
+	}
+
+	/**
+	 * @param numbers true to draw the value on each tile
+	 */
+	public void setNumbers(boolean numbers) {
+		this.numbers = numbers;
+	}
+
+	/**
+	 * @param lines true to draw grid lines between the tiles
+	 */
+	public void setLines(boolean lines) {
+		this.lines = lines;
+	}
+
+	@Override
+	public void paint(Graphics g, PuzzleState state, int x, int y) {
+		int dimension = state.getDimension();
+		// rows and columns inside the clip
+		int r0 = 0, r1 = dimension, c0 = 0, c1 = dimension;
+		Rectangle clip = g.getClipBounds();
+		if (null != clip) {
+			r0 = Math.max(0, Math.min(dimension, (clip.y - y) / tileHeight));
+			r1 = Math.max(0, Math.min(dimension, (clip.y + clip.height - y + tileHeight - 1) / tileHeight));
+			c0 = Math.max(0, Math.min(dimension, (clip.x - x) / tileWidth));
+			c1 = Math.max(0, Math.min(dimension, (clip.x + clip.width - x + tileWidth - 1) / tileWidth));
+		}
+		for (int r = r0; r < r1; r++) {
+			int c = c0;
+			while (c < c1) {
+				int value = state.getValue(r, c);
+				int span = 1;
+				if (null != atlas && atlas.contains(value)) {
+					// extend the span while the next tile follows in the same row of the atlas
+					int limit = Math.min(c1 - c, atlas.getRemainingInRow(value));
+					while (span < limit && state.getValue(r, c + span) == value + span) {
+						span++;
+					}
+					atlas.draw(g, value, span, x + c * tileWidth, y + r * tileHeight, tileWidth, tileHeight);
+					blits.increment();
+					for (int i = 0; i < span; i++) {
+						paintNumber(g, value + i, x + (c + i) * tileWidth, y + r * tileHeight);
+					}
+				}
+				else {
+					paintTile(g, value, x + c * tileWidth, y + r * tileHeight);
+				}
+				c += span;
+			}
+		}
+		paintGrid(g, dimension, x, y);
+	}
+
+	@Override
+	public void paintTile(Graphics g, int value, int x, int y) {
+		if (value == 0) {
+			g.setColor(Color.gray);
+			g.fillRect(x, y, tileWidth, tileHeight);
+			return;
+		}
+		if (null != atlas) {
+			if (atlas.contains(value)) {
+				atlas.draw(g, value, 1, x, y, tileWidth, tileHeight);
+				blits.increment();
+			}
+		}
+		else if (null != images && value <= images.length && null != images[value - 1]) {
+			g.drawImage(images[value - 1], x, y, tileWidth, tileHeight, null);
+			blits.increment();
+		}
+		paintNumber(g, value, x, y);
+	}
+
+	private void paintNumber(Graphics g, int value, int x, int y) {
+		if (numbers) {
+			g.setColor(Color.black);
+			g.drawString("" + value, x + tileWidth / 2, y + tileHeight / 2);
+		}
+	}
+
+	@Override
+	public void paintGrid(Graphics g, int dimension, int x, int y) {
+		if (!lines) {
+			return;
+		}
+		g.setColor(Color.black);
+		for (int i = 0; i <= dimension; i++) {
+			g.drawLine(x, y + i * tileHeight, x + dimension * tileWidth, y + i * tileHeight);
+			g.drawLine(x + i * tileWidth, y, x + i * tileWidth, y + dimension * tileHeight);
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free transposition table for packed boards, see Board.pack().
+ * Parallel searches share one table to recognize boards that were already searched.
+ *
+ * The table is an AtomicLongArray of entries with two slots each: the key and a data word.
+ * Entries are grouped in buckets of WAYS consecutive entries. A key is claimed with
+ * a compare-and-set on its key slot, the data word is then written with another
+ * compare-and-set. As the two slots can not be updated together, the data word
+ * repeats some bits of its key; a reader only accepts data whose check bits match,
+ * so a race between writers may lose an entry but never attaches data to a wrong key.
+ *
+ * Data word layout, from high to low bits:
+ * 24 check bits of the key, 16 bits generation, 8 bits depth, 16 bits value.
+ *
+ * Replacement policy for depth-first searches: a bucket first reuses empty entries and
+ * entries of earlier generations (i.e. earlier IDA* iterations), then the entry
+ * with the smallest remaining depth, as entries close to the root stand for larger
+ * subtrees and save more work when they are hit.
+ *
+ * The footprint is given in megabytes, every entry takes 16 bytes.
+ */
+final class TranspositionTable {
+	/** returned by probe() if the table holds no value for the key */
+	static final int MISS = -1;
+	static final int BYTES_PER_ENTRY = 16;
+	private static final int WAYS = 4;
+
+	private final AtomicLongArray slots;
+	private final int bucketMask;
+	private volatile int generation;
+	private final StripedCounter hits = new StripedCounter();
+	private final StripedCounter misses = new StripedCounter();
+	private final StripedCounter collisions = new StripedCounter();
+
+	/**
+	 * Creates a table of the given size.
+	 * @param megabytes footprint of the table, rounded down to a power of two number of buckets
+	 */
+	TranspositionTable(int megabytes) {
+		long entries = Math.max(WAYS, (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY);
+		int buckets = Integer.highestOneBit((int) Math.min(entries / WAYS, 1 << 26));
+		slots = new AtomicLongArray(2 * WAYS * buckets);
+		bucketMask = buckets - 1;
+	}
+
+	/**
+	 * @return number of entries the table can hold
+	 */
+	int capacity() {
+		return slots.length() / 2;
+	}
+
+	/**
+	 * @return footprint of the table in bytes
+	 */
+	long sizeInBytes() {
+		return (long) slots.length() * 8;
+	}
+
+	/**
+	 * Starts a new generation. Entries of earlier generations are no longer returned
+	 * by probe() and are the first ones to be replaced.
+	 */
+	void newGeneration() {
+		generation = (generation + 1) & 0xFFFF;
+	}
+
+	/**
+	 * Removes all entries and resets the generation.
+	 * Must not be called while other threads use the table.
+	 */
+	void clear() {
+		for (int i = 0; i < slots.length(); i++) {
+			slots.set(i, 0);
+		}
+		generation = 0;
+	}
+
+	/**
+	 * Looks up the value stored for a key in the current generation.
+	 * @param key packed board, not 0
+	 * @return stored value or MISS
+	 */
+	int probe(long key) {
+		int base = bucket(key);
+		long check = check(key);
+		int gen = generation;
+		for (int i = base; i < base + 2 * WAYS; i += 2) {
+			if (slots.get(i) == key) {
+				long data = slots.get(i + 1);
+				if ((data >>> 40) == check && generationOf(data) == gen) {
+					hits.increment();
+					return (int) (data & 0xFFFF);
+				}
+				break;
+			}
+		}
+		misses.increment();
+		return MISS;
+	}
+
+	/**
+	 * Stores a value for a key in the current generation.
+	 * @param key packed board, not 0
+	 * @param value is in the range 0,...,65535
+	 * @param depth remaining search depth below the board, larger values are kept longer
+	 */
+	void store(long key, int value, int depth) {
+		int base = bucket(key);
+		int gen = generation;
+		long data = (check(key) << 40) | ((long) gen << 24) | ((long) Math.min(depth, 255) << 16) | (value & 0xFFFF);
+		// key already present or an empty entry: claim the key slot
+		for (int i = base; i < base + 2 * WAYS; i += 2) {
+			long k = slots.get(i);
+			if (k == key || (k == 0 && slots.compareAndSet(i, 0, key))) {
+				writeData(i + 1, data);
+				return;
+			}
+		}
+		// replace the entry of least value
+		int victim = base;
+		int victimScore = Integer.MAX_VALUE;
+		for (int i = base; i < base + 2 * WAYS; i += 2) {
+			long old = slots.get(i + 1);
+			int score = (generationOf(old) == gen) ? 256 + depthOf(old) : depthOf(old);
+			if (score < victimScore) {
+				victim = i;
+				victimScore = score;
+			}
+		}
+		if (victimScore >= 256 && victimScore - 256 > depth) {
+			return; // all entries are current and deeper, keep them
+		}
+		long old = slots.get(victim);
+		if (slots.compareAndSet(victim, old, key)) {
+			collisions.increment();
+			writeData(victim + 1, data);
+		}
+	}
+
+	private void writeData(int index, long data) {
+		long old = slots.get(index);
+		// a concurrent writer may have won, either value is fine
+		slots.compareAndSet(index, old, data);
+	}
+
+	private int bucket(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return ((int) (h >>> 32) & bucketMask) * 2 * WAYS;
+	}
+
+	private static long check(long key) {
+		return (key ^ (key >>> 40)) & 0xFFFFFF;
+	}
+
+	private static int generationOf(long data) {
+		return (int) (data >>> 24) & 0xFFFF;
+	}
+
+	private static int depthOf(long data) {
+		return (int) (data >>> 16) & 0xFF;
+	}
+
+	/**
+	 * @return number of probes that found a value
+	 */
+	long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of probes that found no value
+	 */
+	long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return number of stores that replaced an entry of another key
+	 */
+	long getCollisions() {
+		return collisions.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "TranspositionTable [" + (sizeInBytes() >> 20) + " MB, hits=" + getHits() + ", misses="
+				+ getMisses() + ", collisions=" + getCollisions() + "]";
+	}
+}
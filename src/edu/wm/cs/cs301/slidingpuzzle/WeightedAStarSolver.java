@@ -0,0 +1,272 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Weighted A* solver. Nodes are expanded in the order of g + weight*h.
+ * A weight larger than 1 makes the search greedier: it finds solutions much faster
+ * but the solution may be up to weight times longer than an optimal one.
+ * With a weight of 1 the solver is plain A* and optimal.
+ *
+ * All generated nodes are kept in memory, so the search gives up
+ * after a configurable number of nodes and returns null.
+ *
+ * Boards up to 4x4 are searched with nodes outside the Java heap, see OffHeapNodeStore,
+ * such that large searches cause no garbage collection pauses. The open list is then
+ * a bucket queue over f values in steps of 1/BUCKETS_PER_MOVE, with each bucket
+ * a linked list threaded through the node records. The store is kept for the next search,
+ * as hints run many small searches, but only up to SPARE_BYTES of memory: the arenas of a large
+ * search are released at its end. Larger boards use node objects on the heap and a priority queue.
+ */
+public class WeightedAStarSolver implements PuzzleSolver {
+	private static final int BUCKETS_PER_MOVE = 4;
+	private static final int ROOT_MOVE = 0xFF;
+	// off-heap memory a solver keeps for its next search, 16 MB are about 680000 nodes
+	static final long SPARE_BYTES = 16L << 20;
+
+	private final double weight;
+	private final int maxNodes;
+	private final Heuristic heuristic;
+	private final AtomicReference<OffHeapNodeStore> spareStore = new AtomicReference<OffHeapNodeStore>();
+
+	/**
+	 * Creates a solver with the Manhattan distance heuristic.
+	 * @param weight is a value greater or equal 1
+	 * @param maxNodes limits the number of nodes kept in memory
+	 */
+	public WeightedAStarSolver(double weight, int maxNodes) {
+		this(weight, maxNodes, Heuristic.MANHATTAN);
+	}
+
+	WeightedAStarSolver(double weight, int maxNodes, Heuristic heuristic) {
+		if (weight < 1) {
+			throw new IllegalArgumentException("weight must be at least 1: " + weight);
+		}
+		this.weight = weight;
+		this.maxNodes = maxNodes;
+		this.heuristic = heuristic;
+	}
+
+	@Override
+	public String getName() {
+		return "WA*(" + weight + ")/" + heuristic.getName();
+	}
+
+	@Override
+	public boolean isOptimal() {
+		return weight == 1;
+	}
+
+	@Override
+	public Solution solve(PuzzleState start) throws InterruptedException {
+		int dimension = start.getDimension();
+		int[] board = Board.toArray(start);
+		if (Board.isPackable(dimension)) {
+			// reuse the store of an earlier search, a concurrent search allocates its own
+			OffHeapNodeStore store = spareStore.getAndSet(null);
+			if (null == store) {
+				store = new OffHeapNodeStore();
+			}
+			try {
+				return solveOffHeap(board, dimension, store);
+			}
+			finally {
+				store.trim(SPARE_BYTES);
+				spareStore.set(store);
+			}
+		}
+		PriorityQueue<Node> open = new PriorityQueue<Node>();
+		Map<Key, Integer> bestG = new HashMap<Key, Integer>();
+		open.add(new Node(board, null, -1, 0, heuristic.estimate(board, dimension), weight));
+		bestG.put(new Key(board), 0);
+		int expanded = 0;
+		while (!open.isEmpty()) {
+			Node node = open.poll();
+			if (node.h == 0) {
+				return new Solution(dimension, node.getMoves(), getName(), isOptimal());
+			}
+			Integer known = bestG.get(new Key(node.board));
+			if (known != null && known < node.g) {
+				continue; // stale queue entry, a shorter path was found later
+			}
+			if ((++expanded & (IDAStarSolver.CHECK_INTERVAL - 1)) == 0 && Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			if (bestG.size() > maxNodes) {
+				return null;
+			}
+			for (int blank = 0; blank < node.board.length; blank++) {
+				if (node.board[blank] != 0) {
+					continue;
+				}
+				for (Operation op : Board.OPERATIONS) {
+					int tile = Board.neighbor(blank, Board.inverse(op), dimension);
+					if (tile < 0 || node.board[tile] == 0) {
+						continue;
+					}
+					int[] child = node.board.clone();
+					child[blank] = child[tile];
+					child[tile] = 0;
+					Key key = new Key(child);
+					Integer g = bestG.get(key);
+					if (g != null && g <= node.g + 1) {
+						continue;
+					}
+					bestG.put(key, node.g + 1);
+					open.add(new Node(child, node, Board.encodeMove(tile, op), node.g + 1,
+							heuristic.estimate(child, dimension), weight));
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Same search as solve() with the nodes in an off-heap store.
+	 */
+	private Solution solveOffHeap(int[] board, int dimension, OffHeapNodeStore store) throws InterruptedException {
+		// bucket heads hold record index + 1, 0 for an empty bucket
+		int[] buckets = new int[256];
+		int h0 = heuristic.estimate(board, dimension);
+		int root = store.add(Board.pack(board), OffHeapNodeStore.NONE, ROOT_MOVE, 0, h0);
+		buckets = push(buckets, store, root);
+		int lowest = priority(0, h0);
+		int expanded = 0;
+		while (true) {
+			while (lowest < buckets.length && buckets[lowest] == 0) {
+				lowest++;
+			}
+			if (lowest == buckets.length) {
+				return null;
+			}
+			int node = buckets[lowest] - 1;
+			buckets[lowest] = store.next(node) + 1;
+			long key = store.key(node);
+			if (store.find(key) != node) {
+				continue; // stale record, a shorter path was found later
+			}
+			int g = store.g(node);
+			if (store.h(node) == 0) {
+				int[] moves = new int[g];
+				for (int n = node; store.parent(n) != OffHeapNodeStore.NONE; n = store.parent(n)) {
+					moves[store.g(n) - 1] = store.move(n);
+				}
+				return new Solution(dimension, moves, getName(), isOptimal());
+			}
+			if ((++expanded & (IDAStarSolver.CHECK_INTERVAL - 1)) == 0 && Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			if (store.size() > maxNodes) {
+				return null;
+			}
+			Board.unpack(key, board);
+			for (int blank = 0; blank < board.length; blank++) {
+				if (board[blank] != 0) {
+					continue;
+				}
+				for (Operation op : Board.OPERATIONS) {
+					int tile = Board.neighbor(blank, Board.inverse(op), dimension);
+					if (tile < 0 || board[tile] == 0) {
+						continue;
+					}
+					board[blank] = board[tile];
+					board[tile] = 0;
+					long childKey = Board.pack(board);
+					int known = store.find(childKey);
+					if (known == OffHeapNodeStore.NONE || store.g(known) > g + 1) {
+						int h = heuristic.estimate(board, dimension);
+						int child = store.add(childKey, node, Board.encodeMove(tile, op), g + 1, h);
+						buckets = push(buckets, store, child);
+						// with a weight above 1, f can decrease along a path
+						lowest = Math.min(lowest, priority(g + 1, h));
+					}
+					board[tile] = board[blank];
+					board[blank] = 0;
+				}
+			}
+		}
+	}
+
+	private int priority(int g, int h) {
+		return (int) ((g + weight * h) * BUCKETS_PER_MOVE);
+	}
+
+	/**
+	 * Adds a record to the bucket of its f value, buckets are last in first out.
+	 * @return bucket array, grown if necessary
+	 */
+	private int[] push(int[] buckets, OffHeapNodeStore store, int node) {
+		int p = priority(store.g(node), store.h(node));
+		if (p >= buckets.length) {
+			buckets = Arrays.copyOf(buckets, Math.max(2 * buckets.length, p + 1));
+		}
+		store.setNext(node, buckets[p] - 1);
+		buckets[p] = node + 1;
+		return buckets;
+	}
+
+	/**
+	 * Search node, the parent links give the path back to the start.
+	 */
+	private static final class Node implements Comparable<Node> {
+		final int[] board;
+		final Node parent;
+		final int move;
+		final int g;
+		final int h;
+		final double f;
+
+		Node(int[] board, Node parent, int move, int g, int h, double weight) {
+			this.board = board;
+			this.parent = parent;
+			this.move = move;
+			this.g = g;
+			this.h = h;
+			this.f = g + weight * h;
+		}
+
+		int[] getMoves() {
+			int[] moves = new int[g];
+			for (Node n = this; n.parent != null; n = n.parent) {
+				moves[n.g - 1] = n.move;
+			}
+			return moves;
+		}
+
+		@Override
+		public int compareTo(Node other) {
+			int result = Double.compare(f, other.f);
+			// break ties in favor of nodes closer to the goal
+			return (result != 0) ? result : Integer.compare(h, other.h);
+		}
+	}
+
+	/**
+	 * Wraps a board such that it can be used as a key in a hash map.
+	 */
+	private static final class Key {
+		final int[] board;
+		final int hash;
+
+		Key(int[] board) {
+			this.board = board;
+			this.hash = Arrays.hashCode(board);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(board, ((Key) obj).board);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Junit test cases for the allocation tracker.
+ * Operations account their objects and bytes only while accounting is enabled.
+ */
+public class AllocationTrackerTest {
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.AllocationTracker#end(Metrics.Event, long, long)}.
+	 */
+	@Test
+	public void testOperations() {
+		if (!AllocationTracker.isSupported()) {
+			AllocationTracker.setEnabled(true);
+			assertFalse(AllocationTracker.isEnabled());
+			return;
+		}
+		boolean enabled = AllocationTracker.isEnabled();
+		try {
+			PuzzleState goal = Board.toState(Board.goal(4, 2));
+			AllocationTracker.setEnabled(false);
+			long calls = AllocationTracker.getCalls(Metrics.Event.MOVE);
+			goal.move(3, 1, Operation.MOVERIGHT);
+			assertEquals(calls, AllocationTracker.getCalls(Metrics.Event.MOVE));
+
+			AllocationTracker.setEnabled(true);
+			long objects = AllocationTracker.getObjects(Metrics.Event.MOVE);
+			long bytes = AllocationTracker.getBytes(Metrics.Event.MOVE);
+			assertNotNull(goal.move(3, 1, Operation.MOVERIGHT));
+			// an illegal move allocates no state
+			assertNull(goal.move(0, 0, Operation.MOVEUP));
+			assertEquals(calls + 2, AllocationTracker.getCalls(Metrics.Event.MOVE));
+			// the state, the matrix and its 4 rows
+			assertEquals(objects + 6, AllocationTracker.getObjects(Metrics.Event.MOVE));
+			assertTrue(AllocationTracker.getBytes(Metrics.Event.MOVE) > bytes);
+
+			objects = AllocationTracker.getObjects(Metrics.Event.FLIP);
+			goal.flip(3, 1, 3, 3);
+			// the copy of this state and 2 steps
+			assertEquals(objects + 13, AllocationTracker.getObjects(Metrics.Event.FLIP));
+		}
+		finally {
+			AllocationTracker.setEnabled(enabled);
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.AllocationTracker#report(PrintStream)}.
+	 * Only moves, flips and shuffles have counters, the other events do not clutter the metrics.
+	 */
+	@Test
+	public void testTrackedEvents() {
+		assertEquals(0, AllocationTracker.getCalls(Metrics.Event.PAINT));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Metrics.dump(new PrintStream(bytes));
+		String dump = bytes.toString();
+		assertTrue(dump.contains("alloc.move.bytes"));
+		assertTrue(dump.contains("alloc.shuffle.calls"));
+		assertFalse(dump.contains("alloc.paint"));
+		assertFalse(dump.contains("alloc.solver_iteration"));
+	}
+}
@@ -0,0 +1,97 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Junit test cases for auto play.
+ * Boards are shown on the event dispatch thread, which also works without a display.
+ */
+public class AutoPlayerTest {
+
+	/**
+	 * Collects the boards shown and counts down once the last one arrived.
+	 */
+	private static final class Recorder implements AutoPlayer.Display {
+		final List<PuzzleState> states = new ArrayList<PuzzleState>();
+		final CountDownLatch done = new CountDownLatch(1);
+		int played = -1;
+
+		@Override
+		public void show(PuzzleState state, int played, int total) {
+			assertTrue(EventQueue.isDispatchThread());
+			assertTrue(played > this.played);
+			states.add(state);
+			this.played = played;
+			if (played == total) {
+				done.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.AutoPlayer#play(PuzzleState, int[], int, AutoPlayer.Display)}.
+	 * A fast sequence ends at the goal and needs far fewer frames than moves.
+	 */
+	@Test
+	public void testPlay() throws InterruptedException {
+		PuzzleState start = Board.toState(Board.randomWalk(12, 1, 3000, new Random(48)));
+		Solution solution = new RowByRowSolver().solve(start);
+		AutoPlayer player = new AutoPlayer();
+		Recorder recorder = new Recorder();
+		player.play(start, solution.getEncodedMoves(), 20000, recorder);
+		assertTrue(recorder.done.await(10, TimeUnit.SECONDS));
+		assertEquals(Board.toState(Board.goal(12, 1)), recorder.states.get(recorder.states.size() - 1));
+		assertTrue(recorder.states.size() < solution.length() / 10);
+		assertFalse(player.isPlaying());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.AutoPlayer#stop()}.
+	 * No board is shown after stop, a new sequence can be played.
+	 */
+	@Test
+	public void testStop() throws InterruptedException {
+		PuzzleState start = Board.toState(Board.randomWalk(3, 1, 30, new Random(49)));
+		int[] moves = EightPuzzleTable.getInstance(1).solve(start).getEncodedMoves();
+		AutoPlayer player = new AutoPlayer();
+		Recorder slow = new Recorder();
+		player.play(start, moves, 2, slow);
+		assertTrue(player.isPlaying());
+		player.stop();
+		assertFalse(player.isPlaying());
+		Thread.sleep(600);
+		// the first move may have been shown before the stop
+		assertTrue(slow.states.size() <= 1);
+		Recorder fast = new Recorder();
+		player.play(start, moves, 1000, fast);
+		assertTrue(fast.done.await(10, TimeUnit.SECONDS));
+		assertEquals(Board.toState(Board.goal(3, 1)), fast.states.get(fast.states.size() - 1));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.AutoPlayer#movesToRoot(PuzzleState)}.
+	 * The moves walk back the parent chain of a shuffled board to the board it started from.
+	 */
+	@Test
+	public void testMovesToRoot() {
+		PuzzleState goal = Board.toState(Board.goal(4, 2));
+		PuzzleState shuffled = goal.shuffleBoard(50);
+		int[] moves = AutoPlayer.movesToRoot(shuffled);
+		assertEquals(shuffled.getPathLength(), moves.length);
+		int[] board = Board.toArray(shuffled);
+		for (int move : moves) {
+			Board.apply(board, move, 4);
+		}
+		assertArrayEquals(Board.goal(4, 2), board);
+		assertEquals(0, AutoPlayer.movesToRoot(goal).length);
+	}
+}
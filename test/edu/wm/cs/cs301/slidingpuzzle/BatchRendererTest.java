@@ -0,0 +1,117 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Junit test cases for rendering boards into images.
+ * Tiles get images of a single color, such that pixels tell which tile is drawn where.
+ */
+public class BatchRendererTest {
+
+	/**
+	 * @return images of 10x10 pixels, the tile with value v has the color v
+	 */
+	private static BufferedImage[] coloredTiles(int count) {
+		BufferedImage[] images = new BufferedImage[count];
+		for (int v = 1; v <= count; v++) {
+			images[v - 1] = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = images[v - 1].createGraphics();
+			g.setColor(new Color(v));
+			g.fillRect(0, 0, 10, 10);
+			g.dispose();
+		}
+		return images;
+	}
+
+	/**
+	 * @return value of the tile drawn at the given position, 0 for an empty slot
+	 */
+	private static int tileAt(BufferedImage image, int border, int tile, int row, int column) {
+		int rgb = image.getRGB(border + column * tile + tile / 4, border + row * tile + tile / 4) & 0xFFFFFF;
+		return (rgb == (Color.gray.getRGB() & 0xFFFFFF)) ? 0 : rgb;
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.BatchRenderer#render(PuzzleState)}.
+	 * Every tile is drawn at its position, scaled to the tile size, inside the border.
+	 */
+	@Test
+	public void testRender() {
+		TileRenderer renderer = new TileRenderer(20, 20);
+		renderer.setImages(coloredTiles(15));
+		renderer.setNumbers(false);
+		renderer.setLines(false);
+		int[] board = Board.randomWalk(4, 1, 100, new Random(49));
+		BufferedImage image = new BatchRenderer(renderer, 5, 1).render(Board.toState(board));
+		assertEquals(90, image.getWidth());
+		assertEquals(90, image.getHeight());
+		assertEquals(Color.white.getRGB(), image.getRGB(2, 2));
+		for (int p = 0; p < 16; p++) {
+			assertEquals(board[p], tileAt(image, 5, 20, p / 4, p % 4));
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.BatchRenderer#renderAll(List, BatchRenderer.FrameSink)}.
+	 * All frames of a replay are rendered once, the last one shows the goal.
+	 */
+	@Test
+	public void testReplay() throws IOException, InterruptedException {
+		PuzzleState start = Board.toState(Board.randomWalk(5, 1, 500, new Random(50)));
+		Solution solution = new RowByRowSolver().solve(start);
+		List<PuzzleState> frames = BatchRenderer.replay(start, solution, 3);
+		assertEquals(1 + (solution.length() + 2) / 3, frames.size());
+		assertEquals(Board.toState(Board.goal(5, 1)), frames.get(frames.size() - 1));
+
+		TileRenderer renderer = new TileRenderer(10, 10);
+		renderer.setImages(coloredTiles(24));
+		renderer.setNumbers(false);
+		renderer.setLines(false);
+		final BufferedImage[] rendered = new BufferedImage[frames.size()];
+		double fps = new BatchRenderer(renderer, 0, 4).renderAll(frames, new BatchRenderer.FrameSink() {
+			@Override
+			public void accept(int index, BufferedImage frame) {
+				synchronized (rendered) {
+					assertNull(rendered[index]);
+					rendered[index] = frame;
+				}
+			}
+		});
+		assertTrue(fps > 0);
+		BufferedImage last = rendered[rendered.length - 1];
+		for (int p = 0; p < 25; p++) {
+			assertEquals((p + 1) % 25, tileAt(last, 0, 10, p / 5, p % 5));
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.BatchRenderer#renderAll(List, BatchRenderer.FrameSink)}.
+	 * An exception of the sink ends rendering and reaches the caller.
+	 */
+	@Test
+	public void testSinkFails() throws InterruptedException {
+		List<PuzzleState> frames = BatchRenderer.replay(Board.toState(Board.goal(3, 1)),
+				EightPuzzleTable.getInstance(1).solve(Board.toState(Board.goal(3, 1))), 1);
+		try {
+			new BatchRenderer(new TileRenderer(10, 10), 0, 2).renderAll(frames, new BatchRenderer.FrameSink() {
+				@Override
+				public void accept(int index, BufferedImage frame) throws IOException {
+					throw new IOException("disk full");
+				}
+			});
+			fail("the exception of the sink must reach the caller");
+		}
+		catch (IOException e) {
+			assertEquals("disk full", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Junit test cases for the 3x3 distance table.
+ * Distances from the table are checked against IDA* on random boards.
+ */
+public class EightPuzzleTableTest {
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.EightPuzzleTable#rank(int[], int)}.
+	 * Ranking and unranking are inverse to each other and the ranks cover the table.
+	 */
+	@Test
+	public void testRankUnrank() {
+		for (int empties = 1; empties <= 3; empties++) {
+			int tiles = 9 - empties;
+			int[] board = new int[9];
+			Random random = new Random(empties);
+			for (int i = 0; i < 1000; i++) {
+				int[] walk = Board.randomWalk(3, empties, 50, random);
+				int rank = EightPuzzleTable.rank(walk, tiles);
+				assertTrue(rank >= 0 && rank < 362880);
+				EightPuzzleTable.unrank(rank, tiles, board);
+				assertArrayEquals(walk, board);
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.EightPuzzleTable#getDistance(PuzzleState)}.
+	 * With 1 empty slot half of the boards are reachable and the hardest ones need 31 moves.
+	 * Table distances match optimal IDA* solutions for 1 to 3 empty slots.
+	 */
+	@Test
+	public void testDistance() throws InterruptedException {
+		EightPuzzleTable table = EightPuzzleTable.getInstance(1);
+		assertEquals(181440, table.getReachableCount());
+		assertEquals(31, table.getDiameter());
+		for (int empties = 1; empties <= 3; empties++) {
+			table = EightPuzzleTable.getInstance(empties);
+			PuzzleState goal = new SimplePuzzleState();
+			goal.setToInitialState(3, empties);
+			assertEquals(0, table.getDistance(goal));
+			assertEquals(0.0, table.getDifficulty(goal), 0.0);
+			for (int i = 0; i < 5; i++) {
+				PuzzleState start = Board.toState(Board.randomWalk(3, empties, 40, new Random(i)));
+				assertEquals(new IDAStarSolver().solve(start).length(), table.getDistance(start));
+			}
+		}
+		// swapping two tiles gives an unreachable board
+		int[] board = Board.goal(3, 1);
+		board[0] = 2;
+		board[1] = 1;
+		assertEquals(-1, EightPuzzleTable.getInstance(1).getDistance(Board.toState(board)));
+		// boards the table does not cover are rejected
+		PuzzleState[] others = {Board.toState(Board.goal(3, 2)), Board.toState(Board.goal(4, 1))};
+		for (PuzzleState other : others) {
+			try {
+				EightPuzzleTable.getInstance(1).getDistance(other);
+				fail("expected an IllegalArgumentException");
+			}
+			catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.EightPuzzleTable#solve(PuzzleState)}.
+	 * Following the next moves of the table leads to the final state on a shortest path.
+	 */
+	@Test
+	public void testSolve() {
+		for (int empties = 1; empties <= 3; empties++) {
+			EightPuzzleTable table = EightPuzzleTable.getInstance(empties);
+			PuzzleState goal = new SimplePuzzleState();
+			goal.setToInitialState(3, empties);
+			PuzzleState start = Board.toState(Board.randomWalk(3, empties, 60, new Random(empties)));
+			Solution solution = table.solve(start);
+			assertEquals(table.getDistance(start), solution.length());
+			assertEquals(goal, solution.applyTo(start));
+			PuzzleState next = table.getNextState(start);
+			assertEquals(table.getDistance(start) - 1, table.getDistance(next));
+			assertNull(table.getNextState(goal));
+		}
+		// other dimensions are not covered
+		PuzzleState other = new SimplePuzzleState();
+		other.setToInitialState(4, 1);
+		assertNull(EightPuzzleTable.getInstance(1).solve(other));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.EightPuzzleTable#save(java.io.OutputStream)}.
+	 * A saved table loads with the same distances.
+	 */
+	@Test
+	public void testSaveLoad() throws IOException {
+		EightPuzzleTable table = EightPuzzleTable.getInstance(2);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		table.save(out);
+		EightPuzzleTable loaded = EightPuzzleTable.load(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(table.getDiameter(), loaded.getDiameter());
+		assertEquals(table.getReachableCount(), loaded.getReachableCount());
+		PuzzleState start = Board.toState(Board.randomWalk(3, 2, 30, new Random(3)));
+		assertEquals(table.getDistance(start), loaded.getDistance(start));
+	}
+}
@@ -0,0 +1,89 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Junit test cases for the external-memory breadth-first search.
+ * The 3x3 state spaces are small enough to check the results against the
+ * distance tables of EightPuzzleTable. Tiny chunks force many runs per layer.
+ */
+public class ExternalBFSTest {
+
+	File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("bfs").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : directory.listFiles()) {
+			f.delete();
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.ExternalBFS#run()}.
+	 * The 3x3 board with 1 empty slot has 181440 reachable boards, 2 of them at distance 31.
+	 * The 2 hardest boards are reflections of each other, so the layer holds only one of them.
+	 */
+	@Test
+	public void testEightPuzzle() throws IOException {
+		ExternalBFS bfs = new ExternalBFS(directory, 3, 1, 5000L);
+		bfs.run();
+		assertTrue(bfs.isComplete());
+		assertEquals(181440, bfs.getStateCount());
+		assertEquals(31, bfs.getDiameter());
+		long[] histogram = bfs.getHistogram();
+		assertEquals(1, histogram[0]);
+		assertEquals(2, histogram[1]);
+		List<PuzzleState> hardest = bfs.getHardestPositions(10);
+		assertEquals(1, hardest.size());
+		int[] reflected = new int[9];
+		Symmetry.reflect(Board.toArray(hardest.get(0)), 3, reflected);
+		assertEquals(31, EightPuzzleTable.getInstance(1).getDistance(hardest.get(0)));
+		assertEquals(31, EightPuzzleTable.getInstance(1).getDistance(Board.toState(reflected)));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.ExternalBFS#run()}.
+	 * A search that stops after some layers resumes from its work directory
+	 * with the same result as an uninterrupted one.
+	 */
+	@Test
+	public void testResume() throws IOException {
+		ExternalBFS crashed = new ExternalBFS(directory, 3, 2, 3000L);
+		crashed.setLayerLimit(12);
+		crashed.run();
+		assertFalse(crashed.isComplete());
+		assertEquals(12, crashed.getHistogram().length);
+		// leftovers of an interrupted layer are removed
+		assertTrue(new File(directory, "run-0.tmp").createNewFile());
+		ExternalBFS resumed = new ExternalBFS(directory, 3, 2, 3000L);
+		resumed.run();
+		assertTrue(resumed.isComplete());
+		assertFalse(new File(directory, "run-0.tmp").exists());
+		EightPuzzleTable table = EightPuzzleTable.getInstance(2);
+		assertEquals(table.getReachableCount(), resumed.getStateCount());
+		assertEquals(table.getDiameter(), resumed.getDiameter());
+		// another board in the same directory is rejected
+		try {
+			new ExternalBFS(directory, 3, 3, 3000L).run();
+			fail("expected an IOException");
+		}
+		catch (IOException e) {
+			// expected
+		}
+	}
+}
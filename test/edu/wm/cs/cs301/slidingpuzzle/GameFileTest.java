@@ -0,0 +1,231 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Junit test cases for saving and loading games.
+ * A loaded game must have the same states along its parent chain as the saved one.
+ */
+public class GameFileTest {
+
+	File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("game", ".spg");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	/**
+	 * Helper method to check that two states have the same boards, operations
+	 * and path lengths all the way back along their parents.
+	 */
+	private void checkSameHistory(PuzzleState expected, PuzzleState actual) {
+		while (null != expected) {
+			assertNotNull(actual);
+			assertEquals(expected, actual);
+			assertEquals(expected.getOperation(), actual.getOperation());
+			assertEquals(expected.getPathLength(), actual.getPathLength());
+			expected = expected.getParent();
+			actual = actual.getParent();
+		}
+		assertNull(actual);
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.GameFile#load(File)}.
+	 * Shuffled games with 1, 2 and 3 empty slots and their image reference are restored.
+	 */
+	@Test
+	public void testSaveLoad() throws IOException {
+		for (int empties = 1; empties <= 3; empties++) {
+			PuzzleState init = new SimplePuzzleState();
+			init.setToInitialState(4, empties);
+			PuzzleState state = init.shuffleBoard(500);
+			GameFile.save(state, "pictures/tiger.jpg", file);
+			GameFile game = GameFile.load(file);
+			assertEquals(empties, game.getEmptySlots());
+			assertEquals(500, game.getHistoryLength());
+			assertEquals("pictures/tiger.jpg", game.getImageReference());
+			checkSameHistory(state, game.getState());
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.GameFile#save(PuzzleState, String, File)}.
+	 * Moves, drags over several empty slots and a game without history are saved as well,
+	 * a loaded game can be continued and saved again.
+	 */
+	@Test
+	public void testContinueLoadedGame() throws IOException {
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(3, 2);
+		GameFile.save(init, null, file);
+		GameFile game = GameFile.load(file);
+		assertNull(game.getImageReference());
+		assertEquals(0, game.getHistoryLength());
+		assertEquals(init, game.getState());
+		assertNull(game.getState().getParent());
+		PuzzleState state = init.flip(1, 2, 2, 2).flip(1, 1, 1, 2).move(0, 1, PuzzleState.Operation.MOVEDOWN);
+		GameFile.save(state, null, file);
+		PuzzleState loaded = GameFile.load(file).getState();
+		checkSameHistory(state, loaded);
+		PuzzleState next = loaded.shuffleBoard(20);
+		GameFile.save(next, null, file);
+		assertEquals(next.getPathLength(), GameFile.load(file).getHistoryLength());
+		checkSameHistory(next, GameFile.load(file).getState());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.GameFile#load(File)}.
+	 * A long history loads without walking it, and a file that is not a saved game is rejected.
+	 */
+	@Test
+	public void testLongHistoryAndBadFile() throws IOException {
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(4, 1);
+		PuzzleState state = init.shuffleBoard(200000);
+		GameFile.save(state, null, file);
+		assertEquals(22 + 2 * 16 + 200000 / 4, file.length()); // header, board, 2 bits per move
+		GameFile game = GameFile.load(file);
+		assertEquals(state, game.getState());
+		assertEquals(state.getParent().getParent(), game.getState().getParent().getParent());
+		FileOutputStream out = new FileOutputStream(file);
+		out.write("not a game".getBytes());
+		out.close();
+		try {
+			GameFile.load(file);
+			fail("expected an IOException");
+		}
+		catch (IOException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.GameFile#load(File)}.
+	 * With more than 4 empty slots, a move takes more than 4 bits and moves cross byte boundaries.
+	 */
+	@Test
+	public void testManyEmptySlots() throws IOException {
+		for (int empties = 5; empties <= 6; empties++) {
+			PuzzleState init = new SimplePuzzleState();
+			init.setToInitialState(empties, empties);
+			PuzzleState state = init.shuffleBoard(300);
+			GameFile.save(state, null, file);
+			GameFile game = GameFile.load(file);
+			assertEquals(empties, game.getEmptySlots());
+			checkSameHistory(state, game.getState());
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.GameFile#save(PuzzleState, String, File)}.
+	 * Tiles of large boards keep their values above 127 and 255, boards too large for the file are rejected.
+	 */
+	@Test
+	public void testLargeBoards() throws IOException {
+		for (int dimension : new int[] {12, 64}) {
+			PuzzleState init = new SimplePuzzleState();
+			init.setToInitialState(dimension, 1);
+			PuzzleState state = init.shuffleBoard(300);
+			GameFile.save(state, null, file);
+			// the history ends in the initial board, with all tile values
+			checkSameHistory(state, GameFile.load(file).getState());
+		}
+		PuzzleState huge = new SimplePuzzleState();
+		huge.setToInitialState(GameFile.MAX_DIMENSION + 1, 1);
+		try {
+			GameFile.save(huge, null, file);
+			fail("expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.GameFile#load(File)}.
+	 * A corrupt header is rejected with an IOException before anything is allocated for it.
+	 */
+	@Test
+	public void testCorruptHeader() throws IOException {
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(4, 1);
+		// offset and value of a broken header field: dimension, empty slots, bits, path length, number of moves
+		long[][] patches = {{5, 0, 1}, {5, 1, 1}, {6, 0, 1}, {7, 17, 1}, {8, -1, 4},
+				{12, -1, 8}, {12, Long.MAX_VALUE, 8}, {12, 1000, 8}};
+		for (long[] patch : patches) {
+			GameFile.save(init.shuffleBoard(100), null, file);
+			RandomAccessFile out = new RandomAccessFile(file, "rw");
+			out.seek(patch[0]);
+			if (patch[2] == 1) {
+				out.writeByte((int) patch[1]);
+			}
+			else if (patch[2] == 4) {
+				out.writeInt((int) patch[1]);
+			}
+			else {
+				out.writeLong(patch[1]);
+			}
+			out.close();
+			try {
+				GameFile.load(file);
+				fail("expected an IOException for the field at " + patch[0]);
+			}
+			catch (IOException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.GameFile.Copy#of(PuzzleState)}.
+	 * A copy of a loaded game takes the history from the file without creating its states,
+	 * and moves can be taken back into that history.
+	 */
+	@Test
+	public void testCopyOfLoadedGame() throws IOException {
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(4, 2);
+		PuzzleState state = init.shuffleBoard(20000);
+		GameFile.save(state, null, file);
+		PuzzleState loaded = GameFile.load(file).getState();
+		PuzzleState next = loaded.shuffleBoard(10);
+		GameFile.Copy copy = GameFile.Copy.of(next);
+		// shuffleBoard() creates the parent of the loaded state, but nothing before it is created
+		assertNotNull(((SimplePuzzleState) loaded.getParent()).getPendingHistory());
+		assertEquals(20010, copy.length());
+		File other = File.createTempFile("copy", ".spg");
+		try {
+			GameFile.save(copy, null, other);
+			checkSameHistory(next, GameFile.load(other).getState());
+			// take back the 10 new moves and 5 loaded ones
+			for (int i = 0; i < 15; i++) {
+				copy.undo();
+			}
+			PuzzleState expected = state;
+			for (int i = 0; i < 5; i++) {
+				expected = expected.getParent();
+			}
+			GameFile.save(copy, null, other);
+			checkSameHistory(expected, GameFile.load(other).getState());
+		}
+		finally {
+			other.delete();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Junit test cases for the hint cache.
+ * Hints must lead to the final state on a shortest path, also for reflected boards.
+ */
+public class HintCacheTest {
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.HintCache#put(PuzzleState, Solution)}.
+	 * An optimal solution gives hints for all boards on its path, and following the hints
+	 * from the reflected start reaches the final state with the same number of moves.
+	 */
+	@Test
+	public void testHintsAlongSolution() throws InterruptedException {
+		HintCache cache = new HintCache(1000);
+		int[] board = Board.randomWalk(4, 1, 40, new Random(11));
+		PuzzleState start = Board.toState(board);
+		assertNull(cache.get(start));
+		Solution solution = new IDAStarSolver().solve(start);
+		cache.put(start, solution);
+		assertEquals(solution.length(), cache.size());
+		int[] reflected = new int[16];
+		Symmetry.reflect(board, 4, reflected);
+		PuzzleState goal = Board.toState(Board.goal(4, 1));
+		for (PuzzleState state : new PuzzleState[] {start, Board.toState(reflected)}) {
+			int distance = solution.length();
+			while (!state.equals(goal)) {
+				HintCache.Hint hint = cache.get(state);
+				assertNotNull(hint);
+				assertEquals(distance--, hint.getDistance());
+				state = hint.applyTo(state);
+				assertNotNull(state);
+			}
+		}
+		assertEquals(2 * solution.length(), cache.getHits());
+		assertEquals(1, cache.getMisses());
+		// solutions that may not be shortest are not cached
+		cache.clear();
+		cache.put(start, new Solution(4, solution.getEncodedMoves(), "test", false));
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.HintCache#get(PuzzleState)}.
+	 * A full cache evicts the least recently used boards and counts the evictions.
+	 */
+	@Test
+	public void testEviction() throws InterruptedException {
+		HintCache cache = new HintCache(16);
+		Random random = new Random(5);
+		PuzzleState first = Board.toState(Board.randomWalk(3, 2, 30, random));
+		cache.put(first, new IDAStarSolver().solve(first));
+		for (int i = 0; i < 50; i++) {
+			PuzzleState state = Board.toState(Board.randomWalk(3, 2, 30, random));
+			cache.put(state, new IDAStarSolver().solve(state));
+		}
+		assertTrue(cache.size() <= 16);
+		assertTrue(cache.getEvictions() > 0);
+		assertNull(cache.get(first));
+		assertTrue(cache.getHitRate() < 0.5);
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.HintCache#save(File)}.
+	 * A loaded snapshot gives the same hints.
+	 */
+	@Test
+	public void testSaveLoad() throws InterruptedException, IOException {
+		HintCache cache = new HintCache(1000);
+		PuzzleState start = Board.toState(Board.randomWalk(3, 1, 30, new Random(2)));
+		cache.put(start, new IDAStarSolver().solve(start));
+		File file = File.createTempFile("hints", ".bin");
+		try {
+			cache.save(file);
+			HintCache loaded = new HintCache(1000);
+			assertEquals(cache.size(), loaded.load(file));
+			assertEquals(cache.get(start).toString(), loaded.get(start).toString());
+		}
+		finally {
+			file.delete();
+		}
+	}
+}
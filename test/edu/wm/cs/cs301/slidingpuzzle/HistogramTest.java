@@ -0,0 +1,93 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Junit test cases for the histogram.
+ * Buckets cover all values without gaps, percentiles are exact up to the bucket width.
+ */
+public class HistogramTest {
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.Histogram#bucket(long)}.
+	 * Consecutive buckets touch, every bound maps to its own bucket and the width stays small.
+	 */
+	@Test
+	public void testBuckets() {
+		assertEquals(0, Histogram.lowerBound(0));
+		assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.BUCKETS - 1));
+		for (int i = 0; i < Histogram.BUCKETS; i++) {
+			long low = Histogram.lowerBound(i);
+			long high = Histogram.upperBound(i);
+			assertEquals(i, Histogram.bucket(low));
+			assertEquals(i, Histogram.bucket(high));
+			if (i > 0) {
+				assertEquals(Histogram.upperBound(i - 1) + 1, low);
+			}
+			assertTrue((double) (high - low) <= low / 32.0);
+		}
+		assertEquals(Histogram.BUCKETS - 1, Histogram.bucket(Long.MAX_VALUE));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.Histogram#getValueAtPercentile(double)}.
+	 */
+	@Test
+	public void testPercentiles() {
+		Histogram histogram = new Histogram("test");
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500500.0, histogram.getMean(), 1e-6);
+		assertEquals(1000000, histogram.getMax());
+		for (int p = 1; p <= 100; p++) {
+			long exact = p * 10000L;
+			long value = histogram.getValueAtPercentile(p);
+			assertTrue(value >= exact && value <= exact + exact / 32);
+		}
+		assertEquals(1000000, histogram.getValueAtPercentile(100));
+		histogram.record(-5);
+		assertEquals(1, histogram.getCount(0));
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.Histogram#record(long)}.
+	 * No value is lost when several threads record at the same time.
+	 */
+	@Test
+	public void testConcurrentRecording() throws InterruptedException {
+		final Histogram histogram = new Histogram("concurrent");
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					for (int i = 0; i < 100000; i++) {
+						histogram.record(random.nextInt(1 << 20));
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(400000, histogram.getCount());
+		long sum = 0;
+		for (int i = 0; i < Histogram.BUCKETS; i++) {
+			sum += histogram.getCount(i);
+		}
+		assertEquals(400000, sum);
+	}
+}
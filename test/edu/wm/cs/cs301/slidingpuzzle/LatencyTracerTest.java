@@ -0,0 +1,75 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import edu.wm.cs.cs301.slidingpuzzle.LatencyTracer.Input;
+
+/**
+ * Junit test cases for the latency tracer.
+ * Times are given explicitly, in nanoseconds.
+ */
+public class LatencyTracerTest {
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.LatencyTracer#paintFinished(long)}.
+	 * Events shown by the same paint are traced up to that paint, events without repaint are dropped.
+	 */
+	@Test
+	public void testPhases() throws IOException {
+		boolean enabled = Metrics.isEnabled();
+		try {
+			Metrics.setEnabled(true);
+			LatencyTracer tracer = new LatencyTracer(2);
+			// press: 1 ms in the queue, 2 ms state, 3 ms until paint, 4 ms paint
+			tracer.begin(Input.PRESS, 1000000, 0);
+			tracer.requested(2000000);
+			// drag without repaint is dropped
+			tracer.begin(Input.DRAG, 0, 2500000);
+			tracer.begin(Input.RELEASE, 0, 4000000);
+			tracer.requested(4500000);
+			tracer.paintStarted(5000000);
+			tracer.paintFinished(9000000);
+			assertEquals(2, tracer.getCount());
+			// a paint without input is not traced
+			tracer.paintStarted(10000000);
+			tracer.paintFinished(11000000);
+			assertEquals(2, tracer.getCount());
+
+			StringWriter out = new StringWriter();
+			tracer.writeCsv(out);
+			String[] lines = out.toString().split("\n");
+			assertEquals(3, lines.length);
+			assertEquals("input,dispatch_us,state_us,queue_us,paint_us,total_us", lines[0]);
+			assertEquals("PRESS,1000.0,2000.0,3000.0,4000.0,10000.0", lines[1]);
+			assertEquals("RELEASE,0.0,500.0,500.0,4000.0,5000.0", lines[2]);
+
+			// the oldest trace gives way once the capacity is reached
+			tracer.begin(Input.CLICK, 0, 20000000);
+			tracer.requested(20001000);
+			tracer.paintStarted(20002000);
+			tracer.paintFinished(20003000);
+			out = new StringWriter();
+			tracer.writeCsv(out);
+			lines = out.toString().split("\n");
+			assertEquals(3, lines.length);
+			assertTrue(lines[1].startsWith("RELEASE"));
+			assertEquals("CLICK,0.0,1.0,1.0,1.0,3.0", lines[2]);
+			assertTrue(tracer.getSummary().startsWith("input to paint: last"));
+
+			Metrics.setEnabled(false);
+			tracer.begin(Input.CLICK, 0, 30000000);
+			tracer.requested(30001000);
+			tracer.paintStarted(30002000);
+			tracer.paintFinished(30003000);
+			assertEquals(3, tracer.getCount());
+		}
+		finally {
+			Metrics.setEnabled(enabled);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Junit test cases for the LongIntHashMap of the bidirectional search.
+ */
+public class LongIntHashMapTest {
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.LongIntHashMap#sizeInBytes()}.
+	 * The size follows the capacity of the table: right after the table doubled,
+	 * an entry takes 48 bytes.
+	 */
+	@Test
+	public void testSizeInBytes() {
+		LongIntHashMap map = new LongIntHashMap(4);
+		assertEquals(8 * 12, map.sizeInBytes());
+		for (int key = 1; key <= 3; key++) {
+			assertTrue(map.putIfAbsent(key, key));
+		}
+		assertEquals(8 * 12, map.sizeInBytes());
+		map.put(4, 4); // half full, the table doubles
+		assertEquals(16 * 12, map.sizeInBytes());
+		assertEquals(48, map.sizeInBytes() / map.size());
+		for (int key = 1; key <= 4; key++) {
+			assertEquals(key, map.get(key, -1));
+		}
+		map.clear();
+		assertEquals(0, map.size());
+		assertEquals(16 * 12, map.sizeInBytes());
+	}
+}
@@ -0,0 +1,134 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import edu.wm.cs.cs301.slidingpuzzle.MacroTable.Frame;
+
+/**
+ * Junit test cases for the macro table.
+ * Macros are replayed on the cells of their frame.
+ */
+public class MacroTableTest {
+
+	/**
+	 * Replays a macro on the cells of a frame, where 0 is the empty slot.
+	 * Fails if the empty slot does not move to an adjacent cell.
+	 */
+	private static void replay(MacroTable table, int macro, Frame frame, int[] cells) {
+		int blank = 0;
+		while (cells[blank] != 0) {
+			blank++;
+		}
+		for (int i = 0; i < table.length(macro); i++) {
+			int next = table.getCell(macro, i);
+			assertTrue(frame.adjacent(blank, next));
+			cells[blank] = cells[next];
+			cells[next] = 0;
+			blank = next;
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.MacroTable#pair(int, int, int)}.
+	 * Every macro puts the two tiles on cells 0 and 1, wherever they and the empty slot start.
+	 */
+	@Test
+	public void testPairMacros() {
+		MacroTable table = MacroTable.generate();
+		Frame frame = Frame.PAIR;
+		int longest = 0;
+		for (int first = 0; first < frame.size(); first++) {
+			for (int second = 0; second < frame.size(); second++) {
+				for (int blank = 0; blank < frame.size(); blank++) {
+					if (first == second || first == blank || second == blank) {
+						continue;
+					}
+					int[] cells = new int[frame.size()];
+					for (int i = 0; i < cells.length; i++) {
+						cells[i] = 10 + i;
+					}
+					cells[first] = 1;
+					cells[second] = 2;
+					cells[blank] = 0;
+					int macro = table.pair(first, second, blank);
+					replay(table, macro, frame, cells);
+					assertEquals(1, cells[0]);
+					assertEquals(2, cells[1]);
+					longest = Math.max(longest, table.length(macro));
+				}
+			}
+		}
+		assertEquals(0, table.length(table.pair(0, 1, 2)));
+		assertTrue(longest > 10);
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.MacroTable#step(int, int, int)}.
+	 * Both macros move the tile in the centre to the target and go around it in opposite ways.
+	 */
+	@Test
+	public void testStepMacros() {
+		MacroTable table = MacroTable.generate();
+		Frame frame = Frame.STEP;
+		int center = frame.cellAt(0, 0);
+		for (int blank = 0; blank < frame.size(); blank++) {
+			for (int target = 0; target < frame.size(); target++) {
+				if (blank == center || !frame.adjacent(target, center)) {
+					continue;
+				}
+				for (int side = 0; side < 2; side++) {
+					int[] cells = new int[frame.size()];
+					for (int i = 0; i < cells.length; i++) {
+						cells[i] = (i == center) ? 1 : (i == blank) ? 0 : 10 + i;
+					}
+					int macro = table.step(blank, target, side);
+					for (int i = 0; i < table.length(macro) - 1; i++) {
+						assertTrue(table.getCell(macro, i) != center);
+					}
+					replay(table, macro, frame, cells);
+					assertEquals(1, cells[target]);
+				}
+				int shorter = table.length(table.step(blank, target, 0));
+				int other = table.length(table.step(blank, target, 1));
+				assertTrue(shorter <= other);
+				assertEquals((blank == target) ? 0 : 8, shorter + other - 2);
+			}
+		}
+		// empty slot right of the tile, tile moves left: around the tile in 4 moves, then the tile
+		assertEquals(5, table.length(table.step(frame.cellAt(0, 1), frame.cellAt(0, -1), 0)));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.MacroTable#load(java.io.InputStream)}.
+	 * A saved table loads with the same macros, corrupt data is rejected.
+	 */
+	@Test
+	public void testSaveLoad() throws IOException {
+		MacroTable table = MacroTable.generate();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		table.save(out);
+		MacroTable loaded = MacroTable.load(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(table.getTotalLength(), loaded.getTotalLength());
+		for (int macro = 0; macro < table.pair(0, 0, 0) + 512; macro++) {
+			assertEquals(table.length(macro), loaded.length(macro));
+			for (int i = 0; i < table.length(macro); i++) {
+				assertEquals(table.getCell(macro, i), loaded.getCell(macro, i));
+			}
+		}
+		byte[] data = out.toByteArray();
+		data[0] = 0;
+		try {
+			MacroTable.load(new ByteArrayInputStream(data));
+			fail("corrupt data must be rejected");
+		}
+		catch (IOException e) {
+			// expected
+		}
+	}
+}
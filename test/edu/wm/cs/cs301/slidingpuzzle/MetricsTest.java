@@ -0,0 +1,56 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Junit test cases for the metrics registry.
+ * Instrumented code records events only while metrics are enabled.
+ */
+public class MetricsTest {
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.Metrics#end(Metrics.Event, long, long, long)}.
+	 */
+	@Test
+	public void testEvents() throws InterruptedException {
+		boolean enabled = Metrics.isEnabled();
+		try {
+			Metrics.reset();
+			Metrics.setEnabled(false);
+			PuzzleState goal = Board.toState(Board.goal(4, 1));
+			goal.move(3, 2, Operation.MOVERIGHT);
+			assertEquals(0, Metrics.histogram(Metrics.Event.MOVE).getCount());
+
+			Metrics.setEnabled(true);
+			PuzzleState state = goal.move(3, 2, Operation.MOVERIGHT);
+			assertNull(state.move(0, 0, Operation.MOVEUP));
+			assertEquals(2, Metrics.histogram(Metrics.Event.MOVE).getCount());
+			state.shuffleBoard(10);
+			assertEquals(1, Metrics.histogram(Metrics.Event.SHUFFLE).getCount());
+			PuzzleState start = Board.toState(Board.randomWalk(3, 1, 30, new Random(44)));
+			long nodes = Metrics.counter("idastar.nodes").sum();
+			new IDAStarSolver().solve(start);
+			assertTrue(Metrics.histogram(Metrics.Event.SOLVER_ITERATION).getCount() > 0);
+			assertTrue(Metrics.counter("idastar.nodes").sum() > nodes);
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			Metrics.dump(new PrintStream(bytes, true));
+			String report = bytes.toString();
+			assertTrue(report.contains("idastar.nodes"));
+			assertTrue(report.contains("event.move"));
+			assertTrue(report.contains("SOLVER_ITERATION"));
+		}
+		finally {
+			Metrics.setEnabled(enabled);
+			Metrics.reset();
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Junit test cases for the move journal.
+ * A recovered game must have the same states along its parent chain as the journaled one.
+ */
+public class MoveJournalTest {
+
+	File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("journal").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : directory.listFiles()) {
+			f.delete();
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Helper method to check that two states have the same boards
+	 * and path lengths all the way back along their parents.
+	 */
+	private void checkSameHistory(PuzzleState expected, PuzzleState actual) {
+		while (null != expected) {
+			assertNotNull(actual);
+			assertEquals(expected, actual);
+			assertEquals(expected.getPathLength(), actual.getPathLength());
+			expected = expected.getParent();
+			actual = actual.getParent();
+		}
+		assertNull(actual);
+	}
+
+	/**
+	 * Plays a number of single moves, undos and drags and journals them.
+	 */
+	private PuzzleState play(MoveJournal journal, PuzzleState state, int steps) {
+		for (int i = 0; i < steps; i++) {
+			PuzzleState next;
+			if (i % 7 == 6 && null != state.getParent()) {
+				next = state.getParent();
+				journal.recordUndo(next);
+			}
+			else {
+				next = state.shuffleBoard(1 + i % 3); // one to three moves
+				journal.recordMoves(state, next);
+			}
+			state = next;
+		}
+		return state;
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.MoveJournal#recover()}.
+	 * Moves after a snapshot are replayed, also across several snapshots.
+	 */
+	@Test
+	public void testRecover() throws IOException {
+		MoveJournal journal = new MoveJournal(directory, 50);
+		assertNull(journal.recover());
+		journal.start();
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(4, 2);
+		journal.snapshot(init, "pictures/tiger.jpg");
+		PuzzleState state = play(journal, init, 200);
+		journal.close();
+		MoveJournal restarted = new MoveJournal(directory, 50);
+		GameFile game = restarted.recover();
+		assertEquals("pictures/tiger.jpg", game.getImageReference());
+		assertEquals(2, game.getEmptySlots());
+		checkSameHistory(state, game.getState());
+		// continue the recovered game
+		restarted.start();
+		state = play(restarted, game.getState(), 30);
+		restarted.close();
+		checkSameHistory(state, new MoveJournal(directory, 50).recover().getState());
+		// only the files of the latest generation are kept
+		assertEquals(2, directory.listFiles().length);
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.MoveJournal#recover()}.
+	 * A torn record at the end of the journal is dropped, moves journaled after
+	 * recovery follow the valid records.
+	 */
+	@Test
+	public void testTornWrite() throws IOException {
+		MoveJournal journal = new MoveJournal(directory, 1000);
+		journal.recover();
+		journal.start();
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(4, 1);
+		journal.snapshot(init, null);
+		PuzzleState state = play(journal, init, 20);
+		journal.close();
+		File log = null;
+		for (File f : directory.listFiles()) {
+			if (f.getName().endsWith(".log")) {
+				log = f;
+			}
+		}
+		RandomAccessFile file = new RandomAccessFile(log, "rw");
+		file.seek(file.length());
+		file.write(new byte[] {0, 0, 0, 4, 1}); // half a record
+		file.close();
+		MoveJournal recovered = new MoveJournal(directory, 1000);
+		GameFile game = recovered.recover();
+		checkSameHistory(state, game.getState());
+		recovered.start();
+		state = play(recovered, game.getState(), 5);
+		recovered.close();
+		checkSameHistory(state, new MoveJournal(directory, 1000).recover().getState());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.MoveJournal#recover()}.
+	 * Moves written in separate group commits after a snapshot are all recovered.
+	 */
+	@Test
+	public void testSeparateBatches() throws IOException {
+		MoveJournal journal = new MoveJournal(directory, 1000);
+		journal.recover();
+		journal.start();
+		PuzzleState state = new SimplePuzzleState();
+		state.setToInitialState(4, 1);
+		journal.snapshot(state, null);
+		for (int i = 0; i < 5; i++) {
+			PuzzleState next = state.shuffleBoard(1);
+			journal.recordMoves(state, next);
+			state = next;
+			journal.flush(); // the writer commits each move on its own
+		}
+		journal.close();
+		checkSameHistory(state, new MoveJournal(directory, 1000).recover().getState());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.MoveJournal#flush()}.
+	 * Flushed moves are on the disk while the journal is still open.
+	 */
+	@Test
+	public void testFlush() throws IOException {
+		MoveJournal journal = new MoveJournal(directory, 1000);
+		journal.recover();
+		journal.flush(); // not started yet
+		journal.start();
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(4, 1);
+		journal.snapshot(init, null);
+		PuzzleState state = play(journal, init, 10);
+		journal.flush();
+		checkSameHistory(state, new MoveJournal(directory, 1000).recover().getState());
+		journal.close();
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.MoveJournal#flush()}.
+	 * Any error that stops the writer, here a board too large for a snapshot, is reported.
+	 */
+	@Test
+	public void testWriterFailure() throws IOException {
+		MoveJournal journal = new MoveJournal(directory, 1000);
+		journal.recover();
+		journal.start();
+		PuzzleState huge = new SimplePuzzleState();
+		huge.setToInitialState(GameFile.MAX_DIMENSION + 1, 1);
+		journal.snapshot(huge, null);
+		try {
+			journal.flush();
+			fail("expected an IOException");
+		}
+		catch (IOException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+		try {
+			journal.close();
+			fail("expected an IOException");
+		}
+		catch (IOException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Junit test cases for the off-heap node store.
+ */
+public class OffHeapNodeStoreTest {
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.OffHeapNodeStore#add(long, int, int, int, int)}.
+	 * Records keep their fields across arenas and index growth, and the index
+	 * refers to the most recent record of a board.
+	 */
+	@Test
+	public void testAddFind() {
+		OffHeapNodeStore store = new OffHeapNodeStore();
+		int count = 200000; // several arenas, several rehashes
+		for (int i = 0; i < count; i++) {
+			assertEquals(i, store.add(1000L * i + 1, i - 1, i & 63, i & 0x7FFF, i % 100));
+		}
+		assertEquals(count, store.size());
+		for (int i = 0; i < count; i += 997) {
+			int node = store.find(1000L * i + 1);
+			assertEquals(i, node);
+			assertEquals(i - 1, store.parent(node));
+			assertEquals(i & 63, store.move(node));
+			assertEquals(i & 0x7FFF, store.g(node));
+			assertEquals(i % 100, store.h(node));
+			assertEquals(OffHeapNodeStore.NONE, store.next(node));
+		}
+		assertEquals(OffHeapNodeStore.NONE, store.find(2));
+		// a newer record of the same board replaces the old one in the index
+		int newer = store.add(1, 5, 0xFF, 0, 0);
+		assertEquals(newer, store.find(1));
+		assertEquals(0xFF, store.move(newer));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.OffHeapNodeStore#clear()}.
+	 * After clear() the store is empty and keeps its memory for reuse.
+	 */
+	@Test
+	public void testClear() {
+		OffHeapNodeStore store = new OffHeapNodeStore();
+		for (int i = 1; i <= 100000; i++) {
+			store.add(i, OffHeapNodeStore.NONE, 0, 0, 0);
+		}
+		long bytes = store.sizeInBytes();
+		store.clear();
+		assertEquals(0, store.size());
+		assertEquals(OffHeapNodeStore.NONE, store.find(5));
+		for (int i = 1; i <= 100000; i++) {
+			store.add(i, OffHeapNodeStore.NONE, 0, 0, 0);
+		}
+		assertEquals(bytes, store.sizeInBytes());
+		assertEquals(4, store.find(5));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.OffHeapNodeStore#trim(long)}.
+	 * After trim() the store is empty and keeps at most the given memory, it can still be used.
+	 */
+	@Test
+	public void testTrim() {
+		OffHeapNodeStore store = new OffHeapNodeStore();
+		long initial = store.sizeInBytes();
+		for (int i = 1; i <= 300000; i++) {
+			store.add(i, OffHeapNodeStore.NONE, 0, 0, 0);
+		}
+		assertTrue(store.sizeInBytes() > 4 << 20);
+		store.trim(4 << 20);
+		assertEquals(0, store.size());
+		assertTrue(store.sizeInBytes() <= 4 << 20);
+		assertTrue(store.sizeInBytes() > initial);
+		assertEquals(OffHeapNodeStore.NONE, store.find(5));
+		store.trim(0);
+		assertEquals(initial, store.sizeInBytes());
+		for (int i = 1; i <= 100000; i++) {
+			store.add(i, OffHeapNodeStore.NONE, 0, 0, 0);
+		}
+		assertEquals(4, store.find(5));
+	}
+}
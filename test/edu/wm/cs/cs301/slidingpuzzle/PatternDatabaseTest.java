@@ -0,0 +1,176 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Junit test cases for pattern databases and their storages.
+ * All storages must give admissible estimates and IDA* must find optimal solutions with them.
+ */
+public class PatternDatabaseTest {
+
+	static PatternDatabase bytes;
+	static PatternDatabase mod3;
+
+	@BeforeClass
+	public static void setUpClass() {
+		bytes = new PatternDatabase(PatternDatabase.PARTITION_555, PatternDatabase.Compression.BYTE, 0);
+		mod3 = new PatternDatabase(PatternDatabase.PARTITION_555, PatternDatabase.Compression.MOD3, 0);
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.PdbStorage#get(int)}.
+	 * Storages return what was stored, nibbles saturate at 15 and groups keep their minimum.
+	 */
+	@Test
+	public void testStorages() {
+		byte[] values = new byte[1001];
+		Random random = new Random(1);
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (byte) random.nextInt(40);
+		}
+		PdbStorage b = PdbStorage.Factory.BYTES.create(values);
+		PdbStorage n = PdbStorage.Factory.NIBBLES.create(values);
+		PdbStorage m = new PdbStorage.MinCompressed(values, 2, PdbStorage.Factory.BYTES);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], b.get(i));
+			assertEquals(Math.min(values[i], 15), n.get(i));
+			int min = 255;
+			for (int j = i & ~3; j < Math.min((i & ~3) + 4, values.length); j++) {
+				min = Math.min(min, values[j]);
+			}
+			assertEquals(min, m.get(i));
+		}
+		for (int i = 0; i < values.length; i++) {
+			values[i] %= 3;
+		}
+		PdbStorage t = PdbStorage.Factory.TWO_BITS.create(values);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], t.get(i));
+		}
+		assertEquals(1001, b.sizeInBytes());
+		assertEquals(501, n.sizeInBytes());
+		assertEquals(251, t.sizeInBytes());
+		assertEquals(251, m.sizeInBytes());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.PatternDatabase#rank(long, int)}.
+	 * Ranks are a bijection between placements and 0 .. size-1.
+	 */
+	@Test
+	public void testRankUnrank() {
+		for (int k = 1; k <= 3; k++) {
+			boolean[] seen = new boolean[PatternDatabase.size(k)];
+			for (int r = 0; r < seen.length; r++) {
+				long positions = PatternDatabase.unrank(r, k);
+				int rank = PatternDatabase.rank(positions, k);
+				assertEquals(r, rank);
+				assertFalse(seen[rank]);
+				seen[rank] = true;
+			}
+		}
+		assertEquals(524160, PatternDatabase.size(5));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.PatternDatabase#update(long, int[], int, int, int)}.
+	 * Along random walks the incremental state gives the same estimate as a full evaluation,
+	 * also for residues modulo 3, and nibble entries give the exact byte values.
+	 */
+	@Test
+	public void testIncrementalUpdate() {
+		PatternDatabase nibbles = PatternDatabase.getDefault();
+		Random random = new Random(7);
+		int[] board = Board.goal(4, 1);
+		long b = bytes.evaluate(board, 4);
+		long m = mod3.evaluate(board, 4);
+		assertEquals(0, bytes.value(b));
+		assertEquals(0, mod3.value(m));
+		for (int i = 0; i < 2000; i++) {
+			int blank = 0;
+			while (board[blank] != 0) {
+				blank++;
+			}
+			int tile = Board.neighbor(blank, Board.OPERATIONS[random.nextInt(4)], 4);
+			if (tile < 0) {
+				continue;
+			}
+			board[blank] = board[tile];
+			board[tile] = 0;
+			b = bytes.update(b, board, 4, tile, blank);
+			m = mod3.update(m, board, 4, tile, blank);
+			assertEquals(bytes.estimate(board, 4), bytes.value(b));
+			assertEquals(mod3.estimate(board, 4), mod3.value(m));
+			assertEquals(bytes.estimate(board, 4), nibbles.estimate(board, 4));
+			assertTrue(mod3.value(m) <= bytes.value(b));
+			assertTrue(bytes.value(b) >= Board.manhattan(board, 4));
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.IDAStarSolver#solve(PuzzleState)}.
+	 * IDA* with each storage finds solutions of the same optimal length as with the Manhattan distance,
+	 * with fewer nodes, and the estimates never exceed the optimal length.
+	 */
+	@Test
+	public void testOptimalSolutions() throws InterruptedException {
+		PatternDatabase minCompressed = new PatternDatabase(PatternDatabase.PARTITION_555,
+				PatternDatabase.Compression.NIBBLE, 2);
+		PatternDatabase[] databases = {bytes, mod3, PatternDatabase.getDefault(), minCompressed};
+		IDAStarSolver manhattan = new IDAStarSolver();
+		Random random = new Random(301);
+		for (int i = 0; i < 4; i++) {
+			PuzzleState start = Board.toState(Board.randomWalk(4, 1, 50, random));
+			int optimal = manhattan.solve(start).length();
+			for (PatternDatabase database : databases) {
+				assertTrue(database.estimate(Board.toArray(start), 4) <= optimal);
+				IDAStarSolver solver = new IDAStarSolver(database);
+				Solution solution = solver.solve(start);
+				assertEquals(optimal, solution.length());
+				assertEquals(Board.toState(Board.goal(4, 1)), solution.applyTo(start));
+				assertTrue(solver.getLastNodeCount() <= manhattan.getLastNodeCount());
+			}
+		}
+		assertTrue(minCompressed.sizeInBytes() < PatternDatabase.getDefault().sizeInBytes());
+		assertTrue(PatternDatabase.getDefault().sizeInBytes() < bytes.sizeInBytes());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.PatternDatabase#estimate(int[], int)}.
+	 * Boards the tables do not apply to get the Manhattan distance, also incrementally.
+	 */
+	@Test
+	public void testOtherBoards() throws InterruptedException {
+		Random random = new Random(3);
+		int[][] boards = {Board.randomWalk(3, 1, 40, random), Board.randomWalk(4, 2, 40, random)};
+		for (int[] board : boards) {
+			int dimension = Board.dimensionOf(board);
+			assertEquals(Board.manhattan(board, dimension), bytes.estimate(board, dimension));
+			PuzzleState start = Board.toState(board);
+			Solution solution = new IDAStarSolver(bytes).solve(start);
+			assertEquals(new IDAStarSolver().solve(start).length(), solution.length());
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.PortfolioSolver#createWithPatternDatabase(boolean, long)}.
+	 */
+	@Test
+	public void testPortfolio() throws InterruptedException {
+		PortfolioSolver portfolio = PortfolioSolver.createWithPatternDatabase(true, 60000);
+		try {
+			PuzzleState start = Board.toState(Board.randomWalk(4, 1, 80, new Random(5)));
+			Solution solution = portfolio.solve(start);
+			assertTrue(solution.isOptimal());
+			assertEquals(Board.toState(Board.goal(4, 1)), solution.applyTo(start));
+		}
+		finally {
+			portfolio.shutdown();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Junit test cases for the binary puzzle corpus.
+ */
+public class PuzzleCorpusTest {
+
+	File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("corpus", ".pcz");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.PuzzleCorpus#getState(long)}.
+	 * Boards and optimal lengths are read back as written.
+	 */
+	@Test
+	public void testWriteRead() throws IOException {
+		PuzzleState[] states = new PuzzleState[100];
+		PuzzleCorpus.Writer writer = new PuzzleCorpus.Writer(file, 3, 1, true);
+		for (int i = 0; i < states.length; i++) {
+			states[i] = Board.toState(Board.randomWalk(3, 1, i, new Random(i)));
+			writer.add(states[i], EightPuzzleTable.getInstance(1).getDistance(states[i]));
+		}
+		writer.close();
+		PuzzleCorpus corpus = new PuzzleCorpus(file);
+		try {
+			assertEquals(3, corpus.getDimension());
+			assertEquals(1, corpus.getEmptySlots());
+			assertEquals(states.length, corpus.size());
+			assertTrue(corpus.hasOptimalLengths());
+			for (int i = 0; i < states.length; i++) {
+				assertEquals(states[i], corpus.getState(i));
+				assertEquals(EightPuzzleTable.getInstance(1).getDistance(states[i]), corpus.getOptimalLength(i));
+			}
+			assertTrue(corpus.mayContain(0, 0, 0));
+			assertFalse(corpus.mayContain(0, 32, 40));
+		}
+		finally {
+			corpus.close();
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.PuzzleCorpus.Cursor#trySplit()}.
+	 * Split cursors cover all boards exactly once, sequentially and in parallel.
+	 */
+	@Test
+	public void testSplit() throws IOException {
+		int count = 5 * PuzzleCorpus.BLOCK_SIZE + 123;
+		PuzzleCorpus.Writer writer = new PuzzleCorpus.Writer(file, 4, 1, false);
+		for (int i = 0; i < count; i++) {
+			writer.add(i + 1, 0);
+		}
+		writer.close();
+		PuzzleCorpus corpus = new PuzzleCorpus(file);
+		try {
+			assertFalse(corpus.hasOptimalLengths());
+			assertEquals(PuzzleCorpus.UNKNOWN, corpus.getOptimalLength(0));
+			PuzzleCorpus.Cursor cursor = corpus.cursor();
+			PuzzleCorpus.Cursor prefix = cursor.trySplit();
+			assertEquals(count, prefix.remaining() + cursor.remaining());
+			assertEquals(0, prefix.remaining() % PuzzleCorpus.BLOCK_SIZE);
+			final long[] sum = new long[1];
+			PuzzleCorpus.BoardVisitor visitor = new PuzzleCorpus.BoardVisitor() {
+				@Override
+				public void visit(long index, long packedBoard, int optimalLength) {
+					assertEquals(index + 1, packedBoard);
+					sum[0] += packedBoard;
+				}
+			};
+			assertTrue(prefix.tryAdvance(visitor));
+			prefix.forEachRemaining(visitor);
+			assertFalse(prefix.tryAdvance(visitor));
+			cursor.forEachRemaining(visitor);
+			long expected = (long) count * (count + 1) / 2;
+			assertEquals(expected, sum[0]);
+			final AtomicLong parallel = new AtomicLong();
+			ForkJoinPool pool = new ForkJoinPool(4);
+			corpus.forEachParallel(pool, new PuzzleCorpus.BoardVisitor() {
+				@Override
+				public void visit(long index, long packedBoard, int optimalLength) {
+					parallel.addAndGet(packedBoard);
+				}
+			});
+			pool.shutdown();
+			assertEquals(expected, parallel.get());
+		}
+		finally {
+			corpus.close();
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Junit test cases for the PuzzleSolver implementations.
+ * Test scenario: boards shuffled from the initial state such that
+ * the shuffle path length is an upper bound for the optimal solution length.
+ */
+public class PuzzleSolverTest {
+
+	PuzzleState finalState;
+
+	/**
+	 * Sets up the final state of a 4x4 board with 1 empty slot.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		finalState = new SimplePuzzleState();
+		finalState.setToInitialState(4, 1);
+	}
+
+	/**
+	 * Helper method to check that a solution leads from start to the final state
+	 * @param start state that was solved
+	 * @param solution to check
+	 * @param empties number of empty slots
+	 */
+	private void checkSolves(PuzzleState start, Solution solution, int empties) {
+		assertNotNull(solution);
+		PuzzleState goal = new SimplePuzzleState();
+		goal.setToInitialState(start.getDimension(), empties);
+		PuzzleState end = solution.applyTo(start);
+		assertNotNull(end);
+		assertEquals(goal, end);
+		assertEquals(start.getPathLength() + solution.length(), end.getPathLength());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.IDAStarSolver#solve(PuzzleState)}.
+	 * IDA* solutions must lead to the final state and can not be longer than the shuffle path.
+	 * The final state itself has an empty solution.
+	 */
+	@Test
+	public void testIDAStar() throws InterruptedException {
+		IDAStarSolver solver = new IDAStarSolver();
+		assertEquals(0, solver.solve(finalState).length());
+		for (int i = 0; i < 10; i++) {
+			PuzzleState start = finalState.shuffleBoard(20);
+			Solution solution = solver.solve(start);
+			checkSolves(start, solution, 1);
+			assertTrue(solution.isOptimal());
+			assertTrue(solution.length() <= 20);
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.IDAStarSolver#solve(PuzzleState)}.
+	 * A single move away from the final state is solved with the inverse move.
+	 */
+	@Test
+	public void testIDAStarSingleMove() throws InterruptedException {
+		PuzzleState start = finalState.move(2, 3, PuzzleState.Operation.MOVEDOWN);
+		Solution solution = new IDAStarSolver().solve(start);
+		assertEquals(1, solution.length());
+		assertEquals(3, solution.getRow(0));
+		assertEquals(3, solution.getColumn(0));
+		assertEquals(PuzzleState.Operation.MOVEUP, solution.getOperation(0));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.IDAStarSolver#solve(PuzzleState)}.
+	 * Boards with multiple empty slots and other dimensions are solved as well.
+	 */
+	@Test
+	public void testIDAStarMultipleEmptySlots() throws InterruptedException {
+		for (int empties = 2; empties <= 3; empties++) {
+			PuzzleState init = new SimplePuzzleState();
+			init.setToInitialState(4, empties);
+			PuzzleState start = init.shuffleBoard(16);
+			checkSolves(start, new IDAStarSolver().solve(start), empties);
+		}
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(3, 1);
+		PuzzleState start = init.shuffleBoard(30);
+		checkSolves(start, new IDAStarSolver().solve(start), 1);
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.ParallelIDAStarSolver#solve(PuzzleState)}.
+	 * The parallel search must find solutions of the same length as the sequential one,
+	 * including solutions that are shorter than the depth of its frontier.
+	 */
+	@Test
+	public void testParallelIDAStar() throws InterruptedException {
+		ParallelIDAStarSolver solver = new ParallelIDAStarSolver(4);
+		try {
+			assertEquals(0, solver.solve(finalState).length());
+			PuzzleState close = finalState.shuffleBoard(3);
+			checkSolves(close, solver.solve(close), 1);
+			for (int i = 0; i < 5; i++) {
+				PuzzleState start = Board.toState(Board.randomWalk(4, 1, 40, new Random(i)));
+				Solution solution = solver.solve(start);
+				checkSolves(start, solution, 1);
+				assertEquals(new IDAStarSolver().solve(start).length(), solution.length());
+			}
+		}
+		finally {
+			solver.shutdown();
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.ParallelIDAStarSolver#solve(PuzzleState)}.
+	 * A shared transposition table prunes duplicate boards but keeps solutions optimal.
+	 */
+	@Test
+	public void testParallelIDAStarWithTranspositionTable() throws InterruptedException {
+		ParallelIDAStarSolver solver = new ParallelIDAStarSolver(4, 4);
+		try {
+			for (int i = 0; i < 5; i++) {
+				PuzzleState start = Board.toState(Board.randomWalk(4, 1 + i % 2, 40, new Random(i)));
+				Solution solution = solver.solve(start);
+				checkSolves(start, solution, 1 + i % 2);
+				assertEquals(new IDAStarSolver().solve(start).length(), solution.length());
+			}
+			assertTrue(solver.getTranspositionTable().getHits() > 0);
+		}
+		finally {
+			solver.shutdown();
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.BidirectionalSolver#solve(PuzzleState)}.
+	 * The bidirectional search must agree with IDA* on the solution length,
+	 * also for multiple empty slots and when it runs out of memory and falls back to IDA*.
+	 */
+	@Test
+	public void testBidirectional() throws InterruptedException {
+		BidirectionalSolver solver = new BidirectionalSolver(64);
+		assertEquals(0, solver.solve(finalState).length());
+		for (int i = 0; i < 5; i++) {
+			PuzzleState start = Board.toState(Board.randomWalk(4, 1 + i % 3, 36, new Random(i)));
+			Solution solution = solver.solve(start);
+			checkSolves(start, solution, 1 + i % 3);
+			assertEquals(new IDAStarSolver().solve(start).length(), solution.length());
+		}
+		// a tiny memory limit forces the fallback
+		PuzzleState start = Board.toState(Board.randomWalk(4, 1, 60, new Random(7)));
+		long fallbacks = Metrics.counter("bidirectional.fallbacks").sum();
+		Solution solution = new BidirectionalSolver(0).solve(start);
+		checkSolves(start, solution, 1);
+		assertEquals("IDA*/Manhattan", solution.getSolverName());
+		assertEquals(1, Metrics.counter("bidirectional.fallbacks").sum() - fallbacks);
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.WeightedAStarSolver#solve(PuzzleState)}.
+	 * With weight 1 the solver is optimal and must agree with IDA* on the solution length.
+	 */
+	@Test
+	public void testWeightedAStar() throws InterruptedException {
+		PuzzleSolver optimal = new WeightedAStarSolver(1.0, 1000000);
+		PuzzleSolver greedy = new WeightedAStarSolver(3.0, 1000000);
+		assertTrue(optimal.isOptimal());
+		assertFalse(greedy.isOptimal());
+		for (int i = 0; i < 5; i++) {
+			PuzzleState start = finalState.shuffleBoard(30);
+			Solution a = optimal.solve(start);
+			checkSolves(start, a, 1);
+			checkSolves(start, greedy.solve(start), 1);
+			assertEquals(new IDAStarSolver().solve(start).length(), a.length());
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.PortfolioSolver#solve(PuzzleState)}.
+	 * The portfolio returns an optimal answer if it requires one and counts the winners,
+	 * the solves show up in the metrics.
+	 */
+	@Test
+	public void testPortfolio() throws InterruptedException {
+		PortfolioSolver portfolio = PortfolioSolver.createDefault(true, 60000);
+		long solves = Metrics.counter("portfolio.solves").sum();
+		try {
+			int instances = 4;
+			for (int i = 0; i < instances; i++) {
+				PuzzleState start = finalState.shuffleBoard(25);
+				Solution solution = portfolio.solve(start);
+				checkSolves(start, solution, 1);
+				assertTrue(solution.isOptimal());
+			}
+			int total = 0;
+			for (int count : portfolio.getWinCounts().values()) {
+				total += count;
+			}
+			assertEquals(instances, total);
+			assertEquals(instances, Metrics.counter("portfolio.solves").sum() - solves);
+		}
+		finally {
+			portfolio.shutdown();
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.PortfolioSolver#solve(PuzzleState)}.
+	 * A solver that never finishes is cancelled once another solver has answered.
+	 */
+	@Test
+	public void testPortfolioCancelsSlowSolvers() throws InterruptedException {
+		final boolean[] interrupted = new boolean[1];
+		List<PuzzleSolver> solvers = new ArrayList<PuzzleSolver>();
+		solvers.add(new PuzzleSolver() {
+			@Override
+			public String getName() {
+				return "sleeper";
+			}
+			@Override
+			public boolean isOptimal() {
+				return true;
+			}
+			@Override
+			public Solution solve(PuzzleState start) throws InterruptedException {
+				try {
+					Thread.sleep(60000);
+				}
+				catch (InterruptedException e) {
+					interrupted[0] = true;
+					throw e;
+				}
+				return null;
+			}
+		});
+		solvers.add(new IDAStarSolver());
+		PortfolioSolver portfolio = new PortfolioSolver(solvers, false, 60000);
+		try {
+			Solution solution = portfolio.solve(finalState.shuffleBoard(10));
+			assertEquals("IDA*/Manhattan", solution.getSolverName());
+			Thread.sleep(200);
+			assertTrue(interrupted[0]);
+		}
+		finally {
+			portfolio.shutdown();
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.MoveVisitor;
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Junit test cases for the row-by-row solver.
+ * Solutions are replayed on int arrays, as chains of states for large boards would not fit into memory.
+ */
+public class RowByRowSolverTest {
+
+	/**
+	 * Creates a board with the tiles in random order that can be solved.
+	 */
+	private static int[] randomBoard(int dimension, int empties, Random random) {
+		int[] board = Board.goal(dimension, empties);
+		for (int i = board.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = board[i];
+			board[i] = board[j];
+			board[j] = tmp;
+		}
+		if (!Board.isSolvable(board, dimension)) {
+			// swapping two tiles changes the parity
+			int a = (board[0] == 0) ? 2 : 0;
+			int b = (board[1] == 0) ? 2 : 1;
+			int tmp = board[a];
+			board[a] = board[b];
+			board[b] = tmp;
+		}
+		return board;
+	}
+
+	/**
+	 * Replays moves on a board and fails on illegal moves.
+	 */
+	private static final class Replay implements MoveVisitor {
+		final int[] board;
+		final int dimension;
+		int count;
+
+		Replay(int[] board) {
+			this.board = board.clone();
+			this.dimension = Board.dimensionOf(board);
+		}
+
+		@Override
+		public boolean visit(int row, int column, Operation op) {
+			int position = row * dimension + column;
+			int to = Board.neighbor(position, op, dimension);
+			assertTrue(board[position] != 0);
+			assertTrue(to >= 0 && board[to] == 0);
+			Board.apply(board, Board.encodeMove(position, op), dimension);
+			count++;
+			return true;
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.Board#isSolvable(int[], int)}.
+	 * Boards reached by moves are solvable, swapping two tiles makes them unsolvable with one empty slot.
+	 */
+	@Test
+	public void testIsSolvable() {
+		Random random = new Random(1);
+		for (int dimension = 2; dimension <= 6; dimension++) {
+			for (int i = 0; i < 20; i++) {
+				int[] board = Board.randomWalk(dimension, 1, 100, random);
+				assertTrue(Board.isSolvable(board, dimension));
+				int a = (board[0] == 0) ? 2 : 0;
+				int b = (board[1] == 0) ? 2 : 1;
+				int tmp = board[a];
+				board[a] = board[b];
+				board[b] = tmp;
+				assertFalse(Board.isSolvable(board, dimension));
+				assertTrue(Board.isSolvable(Board.randomWalk(dimension, 2, 100, random), dimension));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.RowByRowSolver#solve(PuzzleState, MoveVisitor)}.
+	 * Random boards of all sizes up to 12x12 with 1 to 3 empty slots are solved with legal moves.
+	 */
+	@Test
+	public void testRandomBoards() throws InterruptedException {
+		RowByRowSolver solver = new RowByRowSolver();
+		Random random = new Random(41);
+		for (int dimension = 2; dimension <= 12; dimension++) {
+			for (int empties = 1; empties <= Math.min(3, dimension); empties++) {
+				for (int i = 0; i < 10; i++) {
+					int[] board = randomBoard(dimension, empties, random);
+					if (dimension == 2 && empties == 3) {
+						continue;
+					}
+					Replay replay = new Replay(board);
+					long count = solver.solve(Board.toState(board), replay);
+					assertEquals(replay.count, count);
+					assertArrayEquals(Board.goal(dimension, empties), replay.board);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.RowByRowSolver#solve(PuzzleState, MoveVisitor)}.
+	 * Boards with more empty slots than the EightPuzzleTable covers leave 4 to 9 empty slots
+	 * in the corner, they are solved as well, up to boards with a single tile.
+	 */
+	@Test
+	public void testManyEmptySlots() throws InterruptedException {
+		RowByRowSolver solver = new RowByRowSolver();
+		Random random = new Random(42);
+		for (int dimension = 3; dimension <= 10; dimension++) {
+			for (int empties = 4; empties < dimension * dimension; empties += 1 + dimension / 2) {
+				int[] board = randomBoard(dimension, empties, random);
+				Replay replay = new Replay(board);
+				long count = solver.solve(Board.toState(board), replay);
+				assertEquals(replay.count, count);
+				assertArrayEquals(Board.goal(dimension, empties), replay.board);
+			}
+			int[] single = randomBoard(dimension, dimension * dimension - 1, random);
+			Replay replay = new Replay(single);
+			long count = solver.solve(Board.toState(single), replay);
+			assertEquals(replay.count, count);
+			assertArrayEquals(Board.goal(dimension, dimension * dimension - 1), replay.board);
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.RowByRowSolver#solve(PuzzleState)}.
+	 * The solution can be replayed on the start state, which is not modified.
+	 */
+	@Test
+	public void testSolution() throws InterruptedException {
+		int[] board = Board.randomWalk(6, 2, 500, new Random(6));
+		PuzzleState start = Board.toState(board);
+		Solution solution = new RowByRowSolver().solve(start);
+		assertFalse(solution.isOptimal());
+		assertEquals(Board.toState(Board.goal(6, 2)), solution.applyTo(start));
+		assertArrayEquals(board, Board.toArray(start));
+		assertEquals(0, new RowByRowSolver().solve(Board.toState(Board.goal(6, 2))).length());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.RowByRowSolver#solve(PuzzleState, MoveVisitor)}.
+	 * Unsolvable boards give -1 without any moves, a visitor can stop the solver.
+	 */
+	@Test
+	public void testUnsolvableAndStopped() throws InterruptedException {
+		int[] board = Board.goal(5, 1);
+		board[0] = 2;
+		board[1] = 1;
+		Replay replay = new Replay(board);
+		assertEquals(-1, new RowByRowSolver().solve(Board.toState(board), replay));
+		assertEquals(0, replay.count);
+		final int[] count = new int[1];
+		long result = new RowByRowSolver().solve(Board.toState(randomBoard(8, 1, new Random(8))), new MoveVisitor() {
+			@Override
+			public boolean visit(int row, int column, Operation op) {
+				return ++count[0] < 10;
+			}
+		});
+		assertEquals(-1, result);
+		assertEquals(10, count[0]);
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.RowByRowSolver#solve(PuzzleState, MoveVisitor)}.
+	 * A random 30x30 board is solved well within a second.
+	 */
+	@Test(timeout = 5000)
+	public void testLargeBoard() throws InterruptedException {
+		int[] board = randomBoard(30, 1, new Random(30));
+		Replay replay = new Replay(board);
+		assertTrue(new RowByRowSolver().solve(Board.toState(board), replay) > 0);
+		assertArrayEquals(Board.goal(30, 1), replay.board);
+	}
+}
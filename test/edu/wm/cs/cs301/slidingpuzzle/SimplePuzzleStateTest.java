@@ -721,6 +721,120 @@ public class SimplePuzzleStateTest {
 			checkForEmptySlots(testSequence[i]);
 		}
 	}
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.SimplePuzzleState#getLegalOperations(int, int)}.
+	 * A bit is set exactly for the operations where move() with that operation leads
+	 * the tile into an adjacent empty slot; empty slots have no legal operations.
+	 */
+	@Test
+	public void testGetLegalOperations() {
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(4, 3);
+		PuzzleState ps = init.shuffleBoard(50);
+		for (int r = 0; r < 4; r++) {
+			for (int c = 0; c < 4; c++) {
+				int legal = ps.getLegalOperations(r, c);
+				if (ps.isEmpty(r, c)) {
+					assertEquals(0, legal);
+					continue;
+				}
+				int expected = 0;
+				expected |= (c < 3 && ps.isEmpty(r, c + 1)) ? 1 << Operation.MOVERIGHT.ordinal() : 0;
+				expected |= (c > 0 && ps.isEmpty(r, c - 1)) ? 1 << Operation.MOVELEFT.ordinal() : 0;
+				expected |= (r > 0 && ps.isEmpty(r - 1, c)) ? 1 << Operation.MOVEUP.ordinal() : 0;
+				expected |= (r < 3 && ps.isEmpty(r + 1, c)) ? 1 << Operation.MOVEDOWN.ordinal() : 0;
+				assertEquals("failed for entry: row " + r + ", col " + c, expected, legal);
+			}
+		}
+		// initial state: the tile left of and the tile above the empty slot can move
+		assertEquals(1 << Operation.MOVERIGHT.ordinal(), testSequence[0].getLegalOperations(3, 2));
+		assertEquals(1 << Operation.MOVEDOWN.ordinal(), testSequence[0].getLegalOperations(2, 3));
+		assertEquals(0, testSequence[0].getLegalOperations(0, 0));
+	}
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.SimplePuzzleState#forEachMove(PuzzleState.MoveVisitor)}.
+	 * The visitor sees every legal move once, each of them gives a successor, and it can stop early.
+	 */
+	@Test
+	public void testForEachMove() {
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(4, 2);
+		final PuzzleState ps = init.shuffleBoard(30);
+		final int[] count = new int[1];
+		ps.forEachMove(new PuzzleState.MoveVisitor() {
+			@Override
+			public boolean visit(int row, int column, Operation op) {
+				assertTrue((ps.getLegalOperations(row, column) & (1 << op.ordinal())) != 0);
+				PuzzleState successor = ps.move(row, column, op);
+				assertNotNull(successor);
+				assertEquals(op, successor.getOperation());
+				assertTrue(successor.isEmpty(row, column));
+				count[0]++;
+				return true;
+			}
+		});
+		int expected = 0;
+		for (int r = 0; r < 4; r++) {
+			for (int c = 0; c < 4; c++) {
+				expected += Integer.bitCount(ps.getLegalOperations(r, c));
+			}
+		}
+		assertEquals(expected, count[0]);
+		count[0] = 0;
+		ps.forEachMove(new PuzzleState.MoveVisitor() {
+			@Override
+			public boolean visit(int row, int column, Operation op) {
+				count[0]++;
+				return false;
+			}
+		});
+		assertEquals(1, count[0]);
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.SimplePuzzleState#move(int, int, Operation)}.
+	 * A move is performed only in the given direction, illegal moves give null and are never redirected.
+	 */
+	@Test
+	public final void testStrictMove() {
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(4, 1);
+		// tile 12 sits above the empty slot in the bottom-right corner
+		assertNull(init.move(2, 3, Operation.MOVERIGHT));
+		assertNull(init.move(2, 3, Operation.MOVELEFT));
+		assertNull(init.move(2, 3, Operation.MOVEUP));
+		PuzzleState down = init.move(2, 3, Operation.MOVEDOWN);
+		assertNotNull(down);
+		assertEquals(Operation.MOVEDOWN, down.getOperation());
+		assertEquals(12, down.getValue(3, 3));
+		// empty slot and tiles that are not next to it
+		assertNull(init.move(3, 3, Operation.MOVEUP));
+		assertNull(init.move(0, 0, Operation.MOVERIGHT));
+		assertNull(init.move(0, 0, Operation.MOVEUP));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.SimplePuzzleState#moveToEmptyNeighbor(int, int, Operation...)}.
+	 * With empty slots on both sides of a tile the first legal operation of the preference wins.
+	 */
+	@Test
+	public final void testMoveToEmptyNeighbor() {
+		PuzzleState init = new SimplePuzzleState();
+		init.setToInitialState(4, 2);
+		// tile 14 moves right, such that it has empty slots on its left and right
+		PuzzleState ps = init.move(3, 1, Operation.MOVERIGHT);
+		assertEquals(14, ps.getValue(3, 2));
+		PuzzleState right = ps.moveToEmptyNeighbor(3, 2, Operation.MOVERIGHT, Operation.MOVELEFT);
+		assertEquals(Operation.MOVERIGHT, right.getOperation());
+		assertEquals(14, right.getValue(3, 3));
+		PuzzleState left = ps.moveToEmptyNeighbor(3, 2, Operation.MOVELEFT, Operation.MOVERIGHT);
+		assertEquals(Operation.MOVELEFT, left.getOperation());
+		assertEquals(14, left.getValue(3, 1));
+		assertNull(ps.moveToEmptyNeighbor(3, 2, Operation.MOVEUP, Operation.MOVEDOWN));
+		assertNull(ps.moveToEmptyNeighbor(3, 2));
+		assertNull(ps.moveToEmptyNeighbor(0, 0, Operation.values()));
+	}
+
 	/**
 	 * Helper method to check the state of a puzzle state
 	 * @param ps
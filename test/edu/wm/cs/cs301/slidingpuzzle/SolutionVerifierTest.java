@@ -0,0 +1,137 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Junit test cases for the solution verifier.
+ * Solutions of the solvers are accepted, broken ones are rejected at the first illegal move.
+ */
+public class SolutionVerifierTest {
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.SolutionVerifier#verify(PuzzleState, Solution)}.
+	 */
+	@Test
+	public void testSolverSolutions() throws InterruptedException {
+		Random random = new Random(43);
+		for (int empties = 1; empties <= 3; empties++) {
+			PuzzleState start = Board.toState(Board.randomWalk(3, empties, 30, random));
+			Solution solution = EightPuzzleTable.getInstance(empties).solve(start);
+			assertTrue(SolutionVerifier.verify(start, solution));
+			PuzzleState large = Board.toState(Board.randomWalk(12, empties, 2000, random));
+			assertTrue(SolutionVerifier.verify(large, new RowByRowSolver().solve(large)));
+		}
+		// a solution for another board is legal at best, but does not solve this one
+		PuzzleState other = Board.toState(Board.randomWalk(3, 1, 30, random));
+		Solution solution = EightPuzzleTable.getInstance(1).solve(Board.toState(Board.randomWalk(3, 1, 31, random)));
+		assertFalse(SolutionVerifier.verify(other, solution));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.SolutionVerifier#apply(int[], int, int)}.
+	 * The first illegal move is reported and no later move is applied.
+	 */
+	@Test
+	public void testIllegalMoves() {
+		int[] goal = Board.goal(4, 1);
+		// tile 15 moves right into the empty slot and back
+		int right = Board.encodeMove(14, Operation.MOVERIGHT);
+		int left = Board.encodeMove(15, Operation.MOVELEFT);
+		int[] illegal = {
+				Board.encodeMove(3, Operation.MOVERIGHT), // leaves the board
+				Board.encodeMove(0, Operation.MOVEDOWN), // target is not empty
+				Board.encodeMove(15, Operation.MOVEUP), // no tile
+				Board.encodeMove(16, Operation.MOVELEFT), // outside the board
+				-1};
+		for (int bad : illegal) {
+			int[] moves = {right, left, right, bad, left};
+			SolutionVerifier verifier = new SolutionVerifier(goal.clone());
+			assertFalse(verifier.apply(moves, 0, moves.length));
+			assertEquals(3, verifier.getFailedMove());
+			assertEquals(3, verifier.getMoveCount());
+			assertNotNull(verifier.getError());
+			assertFalse(verifier.isSolved());
+			assertFalse(verifier.apply(moves, 4, 1));
+			assertEquals(3, verifier.getMoveCount());
+		}
+		SolutionVerifier verifier = new SolutionVerifier(goal.clone());
+		assertTrue(verifier.apply(new int[] {right, left}, 0, 2));
+		assertTrue(verifier.isSolved());
+		assertNull(verifier.getError());
+		assertEquals(-1, verifier.getFailedMove());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.SolutionVerifier#apply(CharSequence)}.
+	 */
+	@Test
+	public void testLetters() {
+		SolutionVerifier verifier = new SolutionVerifier(Board.goal(3, 1));
+		// down moves tile 6 into the corner, right moves tile 5, up moves tile 6 back
+		assertTrue(verifier.apply("D r"));
+		assertFalse(verifier.isSolved());
+		assertEquals(2, verifier.getMoveCount());
+		assertTrue(verifier.apply("LU"));
+		assertTrue(verifier.isSolved());
+		// nothing can move up into the bottom-right corner
+		assertFalse(verifier.apply("U"));
+		assertEquals(4, verifier.getFailedMove());
+		assertFalse(new SolutionVerifier(Board.goal(3, 1)).apply("x"));
+		try {
+			new SolutionVerifier(Board.goal(3, 2)).apply("R");
+			fail("letters are ambiguous with two empty slots");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.SolutionVerifier#apply(InputStream)}.
+	 * Moves split across reads of the stream are put together, a truncated stream is rejected.
+	 */
+	@Test
+	public void testStream() throws IOException, InterruptedException {
+		int[] board = Board.randomWalk(20, 1, 5000, new Random(20));
+		final int[] moves = new RowByRowSolver().solve(Board.toState(board)).getEncodedMoves();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (int move : moves) {
+			out.writeInt(move);
+		}
+		out.close();
+		final byte[] data = bytes.toByteArray();
+		// returns at most 7 bytes per read
+		InputStream trickle = new ByteArrayInputStream(data) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				return super.read(b, off, Math.min(len, 7));
+			}
+		};
+		SolutionVerifier verifier = new SolutionVerifier(board.clone());
+		assertTrue(verifier.apply(trickle));
+		assertTrue(verifier.isSolved());
+		assertEquals(moves.length, verifier.getMoveCount());
+		verifier = new SolutionVerifier(board.clone());
+		try {
+			verifier.apply(new ByteArrayInputStream(Arrays.copyOf(data, data.length - 1)));
+			fail("a truncated stream must be rejected");
+		}
+		catch (EOFException e) {
+			assertEquals(moves.length - 1, verifier.getMoveCount());
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Junit test cases for the reflection of boards about the main diagonal.
+ */
+public class SymmetryTest {
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.Symmetry#reflect(long, int)}.
+	 * Reflection is its own inverse, keeps the final state with one empty slot,
+	 * and a board and its reflection have the same canonical key.
+	 */
+	@Test
+	public void testReflect() {
+		for (int dimension = 2; dimension <= 4; dimension++) {
+			int[] goal = Board.goal(dimension, 1);
+			long key = Board.pack(goal);
+			assertEquals(key, Symmetry.reflect(key, dimension));
+			Random random = new Random(dimension);
+			int[] board = Board.randomWalk(dimension, 1, 50, random);
+			int[] reflected = new int[board.length];
+			Symmetry.reflect(board, dimension, reflected);
+			assertEquals(Board.pack(reflected), Symmetry.reflect(Board.pack(board), dimension));
+			assertEquals(Board.pack(board), Symmetry.reflect(Board.pack(reflected), dimension));
+			assertEquals(Symmetry.canonical(Board.pack(board), dimension),
+					Symmetry.canonical(Board.pack(reflected), dimension));
+			assertTrue(Symmetry.isReflected(Board.pack(board), dimension)
+					!= Symmetry.isReflected(Board.pack(reflected), dimension));
+		}
+		// the final state with two empty slots is not symmetric
+		assertFalse(Symmetry.applies(2));
+		long goal = Board.pack(Board.goal(3, 2));
+		assertTrue(goal != Symmetry.reflect(goal, 3));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.Symmetry#reflect(Solution)}.
+	 * A reflected board has the same distance, and the reflected solution of a board solves its reflection.
+	 */
+	@Test
+	public void testReflectSolution() throws InterruptedException {
+		Random random = new Random(9);
+		EightPuzzleTable table = EightPuzzleTable.getInstance(1);
+		for (int i = 0; i < 20; i++) {
+			int[] board = Board.randomWalk(3, 1, 40, random);
+			int[] reflected = new int[9];
+			Symmetry.reflect(board, 3, reflected);
+			PuzzleState state = Board.toState(board);
+			PuzzleState mirror = Board.toState(reflected);
+			assertEquals(table.getDistance(state), table.getDistance(mirror));
+			Solution solution = new IDAStarSolver().solve(state);
+			assertEquals(Board.toState(Board.goal(3, 1)), Symmetry.reflect(solution).applyTo(mirror));
+		}
+	}
+}
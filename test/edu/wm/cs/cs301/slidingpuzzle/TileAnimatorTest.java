@@ -0,0 +1,84 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.awt.Canvas;
+
+import org.junit.Test;
+
+import edu.wm.cs.cs301.slidingpuzzle.PuzzleState.Operation;
+
+/**
+ * Junit test cases for the tile animator.
+ * Times are given explicitly, in nanoseconds, the timer is not started.
+ */
+public class TileAnimatorTest {
+	private static final long MS = 1000000;
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.TileAnimator#advance(long)}.
+	 * A moving tile slides from its position to the empty slot, other tiles stay.
+	 */
+	@Test
+	public void testSlide() {
+		TileAnimator animator = new TileAnimator(new Canvas(), 100);
+		PuzzleState goal = Board.toState(Board.goal(4, 1));
+		// tile 15 at (3, 2) moves right into the empty slot
+		PuzzleState next = goal.move(3, 2, Operation.MOVERIGHT);
+		assertFalse(animator.isAnimating());
+		assertSame(next, animator.getDisplayedState(next));
+		animator.animate(goal, next, 0);
+		assertTrue(animator.isAnimating());
+		assertSame(goal, animator.getDisplayedState(next));
+		assertTrue(animator.isMoving(15));
+		assertFalse(animator.isMoving(14));
+		assertTrue(animator.advance(0));
+		assertEquals(2, animator.getColumn(15), 1e-6);
+		assertTrue(animator.advance(50 * MS));
+		float half = animator.getColumn(15);
+		assertTrue(half > 2.5 && half < 3);
+		assertEquals(3, animator.getRow(15), 1e-6);
+		assertTrue(animator.advance(99 * MS));
+		assertTrue(animator.getColumn(15) > half);
+		// late frames jump to the end
+		assertFalse(animator.advance(500 * MS));
+		assertFalse(animator.isAnimating());
+		assertSame(next, animator.getDisplayedState(next));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.TileAnimator#animate(PuzzleState, PuzzleState, long)}.
+	 * Queued moves play faster, and a long queue is merged into a single transition.
+	 */
+	@Test
+	public void testQueue() {
+		TileAnimator animator = new TileAnimator(new Canvas(), 100);
+		PuzzleState[] states = new PuzzleState[40];
+		states[0] = Board.toState(Board.goal(4, 1));
+		// tile 15 goes back and forth
+		for (int i = 1; i < states.length; i++) {
+			states[i] = (i % 2 == 1) ? states[i - 1].move(3, 2, Operation.MOVERIGHT)
+					: states[i - 1].move(3, 3, Operation.MOVELEFT);
+		}
+		animator.animate(states[0], states[1], 0);
+		animator.animate(states[1], states[2], 10 * MS);
+		assertEquals(1, animator.getQueueLength());
+		// with one move queued the current one takes half the time
+		assertTrue(animator.advance(55 * MS));
+		assertSame(states[1], animator.getDisplayedState(null));
+		assertEquals(0, animator.getQueueLength());
+		assertFalse(animator.advance(200 * MS));
+
+		animator.animate(states[0], states[1], 300 * MS);
+		for (int i = 1; i + 1 < states.length; i++) {
+			animator.animate(states[i], states[i + 1], 300 * MS);
+			assertTrue(animator.getQueueLength() <= 17);
+		}
+		assertTrue(animator.getQueueLength() < states.length - 2);
+		// all moves are shown in far less time than one each
+		assertFalse(animator.advance(300 * MS + 100 * MS * 4));
+		animator.animate(states[0], states[1], 0);
+		animator.stop();
+		assertFalse(animator.isAnimating());
+	}
+}
@@ -0,0 +1,148 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Junit test cases for drawing boards with tiles from a tile atlas.
+ * The picture consists of squares of a single color, the square for the tile with value v has
+ * the color v, such that pixels tell which tile is drawn where.
+ */
+public class TileRendererTest {
+	private static final int DIMENSION = 16;
+	private static final int TILE = 10;
+
+	/**
+	 * @return picture for a 16x16 board with 10x10 pixel tiles, with a margin that is cut off
+	 */
+	private static BufferedImage picture() {
+		BufferedImage image = new BufferedImage(DIMENSION * TILE + 6, DIMENSION * TILE, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.red);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		for (int p = 0; p < DIMENSION * DIMENSION; p++) {
+			g.setColor(new Color(p + 1));
+			g.fillRect(3 + p % DIMENSION * TILE, p / DIMENSION * TILE, TILE, TILE);
+		}
+		g.dispose();
+		return image;
+	}
+
+	private static TileRenderer renderer() {
+		TileRenderer renderer = new TileRenderer(TILE, TILE);
+		renderer.setAtlas(new TileAtlas(picture(), DIMENSION));
+		renderer.setNumbers(false);
+		renderer.setLines(false);
+		return renderer;
+	}
+
+	/**
+	 * @return a white image with the board drawn in the given clip, the whole board if the clip is null
+	 */
+	private static BufferedImage draw(TileRenderer renderer, PuzzleState state, int[] clip) {
+		BufferedImage image = new BufferedImage(DIMENSION * TILE, DIMENSION * TILE, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.white);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		if (null != clip) {
+			g.setClip(clip[0], clip[1], clip[2], clip[3]);
+		}
+		renderer.paint(g, state, 0, 0);
+		g.dispose();
+		return image;
+	}
+
+	/**
+	 * @return color of the tile drawn at the given position, 0 for an empty slot, -1 for white
+	 */
+	private static int tileAt(BufferedImage image, int row, int column) {
+		int rgb = image.getRGB(column * TILE + TILE / 2, row * TILE + TILE / 2) & 0xFFFFFF;
+		if (rgb == (Color.gray.getRGB() & 0xFFFFFF)) {
+			return 0;
+		}
+		return (rgb == 0xFFFFFF) ? -1 : rgb;
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.TileAtlas#TileAtlas(BufferedImage, int)}.
+	 * The atlas is cut from the center of the picture, tiles keep their size.
+	 */
+	@Test
+	public void testAtlas() {
+		TileAtlas atlas = new TileAtlas(picture(), DIMENSION);
+		assertEquals(TILE, atlas.getTileWidth());
+		assertEquals(TILE, atlas.getTileHeight());
+		assertTrue(atlas.contains(255));
+		assertFalse(atlas.contains(0));
+		assertFalse(atlas.contains(256));
+		assertEquals(16, atlas.getRemainingInRow(1));
+		assertEquals(1, atlas.getRemainingInRow(16));
+		assertEquals(16, atlas.getRemainingInRow(17));
+		try {
+			new TileAtlas(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), DIMENSION);
+			fail("an image smaller than the board must be rejected");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.TileRenderer#paint(java.awt.Graphics, PuzzleState, int, int)}.
+	 * Tiles drawn in spans end up at the same place as tiles drawn one by one.
+	 */
+	@Test
+	public void testPaintShuffled() {
+		TileRenderer renderer = renderer();
+		int[] board = Board.randomWalk(DIMENSION, 1, 300, new Random(50));
+		PuzzleState state = Board.toState(board);
+		BufferedImage spans = draw(renderer, state, null);
+		for (int p = 0; p < board.length; p++) {
+			assertEquals(board[p], tileAt(spans, p / DIMENSION, p % DIMENSION));
+		}
+		// the same board tile by tile
+		BufferedImage tiles = new BufferedImage(DIMENSION * TILE, DIMENSION * TILE, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = tiles.createGraphics();
+		for (int p = 0; p < board.length; p++) {
+			renderer.paintTile(g, board[p], p % DIMENSION * TILE, p / DIMENSION * TILE);
+		}
+		g.dispose();
+		for (int y = 0; y < tiles.getHeight(); y++) {
+			for (int x = 0; x < tiles.getWidth(); x++) {
+				assertEquals(tiles.getRGB(x, y), spans.getRGB(x, y));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.TileRenderer#paint(java.awt.Graphics, PuzzleState, int, int)}.
+	 * A solved board takes one blit per row, and only the rows and columns in the clip are drawn.
+	 */
+	@Test
+	public void testPaintSpansInClip() {
+		TileRenderer renderer = renderer();
+		PuzzleState goal = Board.toState(Board.goal(DIMENSION, 1));
+		StripedCounter blits = Metrics.counter("render.blits");
+		long before = blits.sum();
+		draw(renderer, goal, null);
+		assertEquals(DIMENSION, blits.sum() - before);
+
+		// a clip over parts of the tiles in rows 2 to 5 and columns 3 to 6,
+		// it covers the centers of rows 2 to 4 and columns 3 to 5
+		before = blits.sum();
+		BufferedImage image = draw(renderer, goal, new int[] {3 * TILE + 2, 2 * TILE + 2, 3 * TILE, 3 * TILE});
+		assertEquals(4, blits.sum() - before);
+		for (int r = 0; r < DIMENSION; r++) {
+			for (int c = 0; c < DIMENSION; c++) {
+				boolean visible = r >= 2 && r <= 4 && c >= 3 && c <= 5;
+				assertEquals("row " + r + " column " + c, visible ? r * DIMENSION + c + 1 : -1, tileAt(image, r, c));
+			}
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package edu.wm.cs.cs301.slidingpuzzle;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Junit test cases for the lock-free TranspositionTable.
+ */
+public class TranspositionTableTest {
+
+	TranspositionTable table;
+
+	/**
+	 * Creates a small table of 1 MB for each test.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		table = new TranspositionTable(1);
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.TranspositionTable#capacity()}.
+	 * The footprint is given in megabytes and each entry takes 16 bytes.
+	 */
+	@Test
+	public void testCapacity() {
+		assertEquals(1 << 20, table.sizeInBytes());
+		assertEquals((1 << 20) / TranspositionTable.BYTES_PER_ENTRY, table.capacity());
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.TranspositionTable#probe(long)}.
+	 * Stored values are found in the same generation and counted as hits,
+	 * unknown keys and values of earlier generations are misses.
+	 */
+	@Test
+	public void testStoreAndProbe() {
+		long key = Board.pack(Board.goal(4, 1));
+		assertEquals(TranspositionTable.MISS, table.probe(key));
+		table.store(key, 17, 5);
+		assertEquals(17, table.probe(key));
+		table.store(key, 12, 5);
+		assertEquals(12, table.probe(key));
+		assertEquals(2, table.getHits());
+		assertEquals(1, table.getMisses());
+		table.newGeneration();
+		assertEquals(TranspositionTable.MISS, table.probe(key));
+		table.store(key, 3, 1);
+		assertEquals(3, table.probe(key));
+		table.clear();
+		assertEquals(TranspositionTable.MISS, table.probe(key));
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.TranspositionTable#store(long, int, int)}.
+	 * Filling the table beyond its capacity replaces entries and counts collisions, 
+	 * but a probe never returns a value that was stored for a different key.
+	 */
+	@Test
+	public void testReplacement() {
+		Random random = new Random(1);
+		int n = 4 * table.capacity();
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = Board.pack(Board.randomWalk(4, 1, 30, random));
+			table.store(keys[i], (int) (keys[i] & 0xFFFF), i & 0xFF);
+		}
+		assertTrue(table.getCollisions() > 0);
+		for (int i = 0; i < n; i++) {
+			int value = table.probe(keys[i]);
+			assertTrue(value == TranspositionTable.MISS || value == (int) (keys[i] & 0xFFFF));
+		}
+	}
+
+	/**
+	 * Test method for {@link edu.wm.cs.cs301.slidingpuzzle.TranspositionTable#store(long, int, int)}.
+	 * Concurrent writers of the same keys leave the table consistent.
+	 */
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final long[] keys = new long[1000];
+		Random random = new Random(2);
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = Board.pack(Board.randomWalk(4, 2, 50, random));
+		}
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int round = 0; round < 100; round++) {
+						for (long key : keys) {
+							table.store(key, (int) (key & 0x7FFF), round & 0xFF);
+							table.probe(key);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		for (long key : keys) {
+			int value = table.probe(key);
+			assertTrue(value == TranspositionTable.MISS || value == (int) (key & 0x7FFF));
+		}
+		assertEquals(4 * 100 * keys.length + keys.length, table.getHits() + table.getMisses());
+	}
+}